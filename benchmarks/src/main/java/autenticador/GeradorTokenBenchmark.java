@@ -0,0 +1,45 @@
+package autenticador;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sorteio do token de login: GeradorToken (faixas de DRBG por thread) comparado com o caminho de
+ * antes, UUID.randomUUID, em que todos os logins disputam um único SecureRandom.
+ *
+ * Roda com 64 threads ao mesmo tempo e mede tokens (logins) por segundo; -t 1 mostra o custo
+ * sem disputa.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(64)
+@Fork(1)
+public class GeradorTokenBenchmark {
+
+    @Benchmark
+    public String novoToken() {
+        return GeradorToken.novoToken();
+    }
+
+    @Benchmark
+    public long novoLong() {
+        return GeradorToken.novoLong();
+    }
+
+    // Base de comparação: o token que Token.gerarToken criava antes do GeradorToken
+    @Benchmark
+    public String uuidAntigo() {
+        return UUID.randomUUID().toString();
+    }
+}
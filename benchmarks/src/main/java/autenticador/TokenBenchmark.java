@@ -0,0 +1,77 @@
+package autenticador;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sessões: geração e validação de tokens nos dois modos (-Dtoken.modo). Rode com -t para ver a
+ * disputa entre threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dlog.console=false", "-Dlog.arquivo=", "-Dlog.nivel=ERRO"})
+public class TokenBenchmark {
+    private static final int CPFS = 1024;
+
+    @State(Scope.Benchmark)
+    public static class Modo {
+        @Param({"memoria", "assinado"})
+        String modo;
+
+        final AtomicInteger proximaThread = new AtomicInteger();
+
+        @Setup
+        public void preparar() {
+            // Lido quando a classe Token é inicializada, o que só acontece no primeiro uso abaixo
+            System.setProperty("token.modo", modo);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Sessao {
+        Socket conexao;
+        String[] cpfs;
+        String token;
+        int proximo;
+
+        @Setup
+        public void preparar(Modo modo) {
+            conexao = new Socket();
+            // Cada thread com os seus CPFs: um login não derruba a sessão de outra thread
+            int thread = modo.proximaThread.getAndIncrement();
+            cpfs = new String[CPFS];
+            for (int i = 0; i < CPFS; i++) {
+                String d = String.format("%05d%06d", thread, i);
+                cpfs[i] = d.substring(0, 3) + "." + d.substring(3, 6) + "." + d.substring(6, 9) + "-" + d.substring(9);
+            }
+            token = Token.gerarToken(cpfs[0], conexao);
+        }
+    }
+
+    @Benchmark
+    public String gerarToken(Modo modo, Sessao sessao) {
+        // O primeiro CPF fica reservado para o token validado em validarToken
+        sessao.proximo = sessao.proximo % (CPFS - 1) + 1;
+        return Token.gerarToken(sessao.cpfs[sessao.proximo], sessao.conexao);
+    }
+
+    @Benchmark
+    public String validarToken(Modo modo, Sessao sessao) {
+        return Token.validarToken(sessao.token, sessao.conexao);
+    }
+}
@@ -0,0 +1,34 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+
+/**
+ * Ponto de entrada do benchmarks.jar: aceita as mesmas opções do JMH (ex: um filtro por nome,
+ * -p transacoes=100000, -t 4) e, se nenhum -prof foi pedido, liga o perfil de alocação (-prof gc),
+ * para que toda medição mostre também bytes alocados por operação.
+ */
+public final class Principal {
+
+    private Principal() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions linha = new CommandLineOptions(args);
+        if (linha.shouldHelp() || linha.shouldList() || linha.shouldListProfilers()
+                || linha.shouldListResultFormats() || linha.shouldListWithParams()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        ChainedOptionsBuilder opcoes = new OptionsBuilder().parent(linha);
+        if (Arrays.stream(args).noneMatch("-prof"::equals)) {
+            opcoes.addProfiler(GCProfiler.class);
+        }
+        new Runner(opcoes.build()).run();
+    }
+}
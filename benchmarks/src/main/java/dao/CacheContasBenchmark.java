@@ -0,0 +1,71 @@
+package dao;
+
+import database.BancoSemeado;
+import modelo.Usuario;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leitura de conta (usuario_ler, login) com e sem o CacheContas na frente do banco. Com capacidade
+ * 0 o cache fica desligado e toda busca vai ao SQLite.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dlog.console=false", "-Dlog.arquivo=", "-Dlog.nivel=ERRO"})
+@State(Scope.Benchmark)
+public class CacheContasBenchmark {
+
+    @Param({"10000"})
+    int contas;
+
+    @Param({"100000", "0"})
+    String capacidade;
+
+    UsuarioDAO dao;
+    String[] cpfs;
+
+    @Setup
+    public void preparar() {
+        // Lido quando o CacheContas é criado, no primeiro uso do UsuarioDAO
+        System.setProperty("cache.contas.capacidade", capacidade);
+        BancoSemeado.preparar(contas, 0);
+        dao = new UsuarioDAO();
+        cpfs = BancoSemeado.cpfs(contas);
+        for (String cpf : cpfs) {
+            dao.buscarPorCpf(cpf);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Conta {
+        int proxima;
+
+        String cpf(CacheContasBenchmark banco) {
+            proxima = (proxima + 1) % banco.contas;
+            return banco.cpfs[proxima];
+        }
+    }
+
+    @Benchmark
+    public Usuario buscarPorCpf(Conta conta) {
+        return dao.buscarPorCpf(conta.cpf(this));
+    }
+
+    @Benchmark
+    public boolean validarLogin(Conta conta) {
+        return dao.validarLogin(conta.cpf(this), BancoSemeado.SENHA);
+    }
+}
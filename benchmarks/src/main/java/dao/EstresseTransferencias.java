@@ -0,0 +1,185 @@
+package dao;
+
+import database.BancoDados;
+import database.BancoSemeado;
+import modelo.Usuario;
+import servidor.TravasContas;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Teste de estresse do TransferenciaDAO: muitas threads transferindo ao mesmo tempo entre poucas
+ * contas (todo par se sobrepõe com vários outros), nos dois sentidos, com valores grandes o
+ * bastante para parte delas esbarrar em saldo insuficiente e uma parte indo para um CPF que não
+ * existe (o débito já feito tem de ser desfeito). Por padrão passa pelas TravasContas, como o
+ * ProcessadorMensagens; com -Destresse.travas=false vai direto ao banco.
+ *
+ * Ao final confere: a soma dos saldos não mudou, nenhum saldo ficou negativo, o saldo de cada conta
+ * bate com o inicial mais o que o registro de transações diz que ela recebeu menos o que enviou, há
+ * um registro por transferência aceita e o CacheContas concorda com o banco. Se as transferências
+ * não terminarem em -Destresse.limiteSegundos, mostra as threads em deadlock (se houver).
+ *
+ * Sai com código 0 se tudo conferiu e 1 caso contrário:
+ * java -cp benchmarks/target/benchmarks.jar dao.EstresseTransferencias
+ *
+ * Outras propriedades: estresse.contas (20), estresse.threads (64), estresse.transferencias (100000).
+ */
+public final class EstresseTransferencias {
+    private static final int CONTAS = Integer.getInteger("estresse.contas", 20);
+    private static final int THREADS = Integer.getInteger("estresse.threads", 64);
+    private static final int TRANSFERENCIAS = Integer.getInteger("estresse.transferencias", 100_000);
+    private static final int LIMITE_SEGUNDOS = Integer.getInteger("estresse.limiteSegundos", 300);
+    private static final boolean USAR_TRAVAS =
+            Boolean.parseBoolean(System.getProperty("estresse.travas", "true"));
+
+    // O saldo semeado de cada conta (ver BancoSemeado)
+    private static final long SALDO_INICIAL = 1_000_000_00L;
+    private static final String CPF_INEXISTENTE = "999.999.999-99";
+
+    private EstresseTransferencias() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        BancoSemeado.preparar(CONTAS, 0);
+        String[] cpfs = BancoSemeado.cpfs(CONTAS);
+        long somaInicial = somaSaldos();
+
+        TransferenciaDAO dao = new TransferenciaDAO();
+        TravasContas travas = new TravasContas();
+        Map<TransferenciaDAO.Resultado, LongAdder> resultados = new EnumMap<>(TransferenciaDAO.Resultado.class);
+        for (TransferenciaDAO.Resultado resultado : TransferenciaDAO.Resultado.values()) {
+            resultados.put(resultado, new LongAdder());
+        }
+
+        System.out.printf("%d transferências de %d threads entre %d contas (travas: %s)%n",
+                TRANSFERENCIAS, THREADS, CONTAS, USAR_TRAVAS);
+        AtomicInteger restantes = new AtomicInteger(TRANSFERENCIAS);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        long inicio = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            long semente = 1000 + t;
+            executor.execute(() -> {
+                SplittableRandom sorteio = new SplittableRandom(semente);
+                while (restantes.getAndDecrement() > 0) {
+                    int a = sorteio.nextInt(CONTAS);
+                    int b = (a + 1 + sorteio.nextInt(CONTAS - 1)) % CONTAS;
+                    String enviador = cpfs[a];
+                    String recebedor = sorteio.nextInt(20) == 0 ? CPF_INEXISTENTE : cpfs[b];
+                    // Até 40% do saldo inicial: depois de algumas transferências, parte das contas fica sem saldo
+                    long valor = 1 + sorteio.nextLong(SALDO_INICIAL * 2 / 5);
+                    TransferenciaDAO.Resultado resultado;
+                    if (USAR_TRAVAS) {
+                        try (var _ = travas.travar(enviador, recebedor)) {
+                            resultado = dao.transferir(enviador, recebedor, valor);
+                        }
+                    } else {
+                        resultado = dao.transferir(enviador, recebedor, valor);
+                    }
+                    resultados.get(resultado).increment();
+                }
+            });
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(LIMITE_SEGUNDOS, TimeUnit.SECONDS)) {
+            System.out.printf("FALHOU: as transferências não terminaram em %ds%n", LIMITE_SEGUNDOS);
+            mostrarDeadlocks();
+            System.exit(1);
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        System.out.printf("%.1fs, %.0f transferências/s%n", segundos, TRANSFERENCIAS / segundos);
+        resultados.forEach((resultado, n) -> System.out.printf("  %-26s %d%n", resultado, n.sum()));
+
+        List<String> falhas = conferir(cpfs, somaInicial, resultados.get(TransferenciaDAO.Resultado.SUCESSO).sum());
+        if (resultados.get(TransferenciaDAO.Resultado.ERRO).sum() > 0) {
+            falhas.add("transferências terminaram em ERRO");
+        }
+        if (falhas.isEmpty()) {
+            System.out.println("OK: saldos conservados e consistentes com o registro de transações");
+            System.exit(0);
+        }
+        falhas.forEach(falha -> System.out.println("FALHOU: " + falha));
+        System.exit(1);
+    }
+
+    private static List<String> conferir(String[] cpfs, long somaInicial, long aceitas) throws Exception {
+        List<String> falhas = new ArrayList<>();
+        long somaFinal = somaSaldos();
+        if (somaFinal != somaInicial) {
+            falhas.add("soma dos saldos mudou de " + somaInicial + " para " + somaFinal + " centavos");
+        }
+
+        UsuarioDAO usuarios = new UsuarioDAO();
+        try (Connection conn = BancoDados.getConnection();
+             PreparedStatement saldo = conn.prepareStatement("SELECT saldo_centavos FROM usuarios WHERE cpf = ?");
+             PreparedStatement movimento = conn.prepareStatement(
+                     "SELECT COALESCE(SUM(CASE WHEN cpf_recebedor = ?1 THEN valor_centavos ELSE 0 END), 0) - " +
+                     "COALESCE(SUM(CASE WHEN cpf_enviador = ?1 THEN valor_centavos ELSE 0 END), 0) " +
+                     "FROM transacoes WHERE cpf_enviador = ?1 OR cpf_recebedor = ?1");
+             PreparedStatement registros = conn.prepareStatement("SELECT COUNT(*) FROM transacoes")) {
+            for (String cpf : cpfs) {
+                saldo.setString(1, cpf);
+                movimento.setString(1, cpf);
+                long noBanco = unico(saldo);
+                long esperado = SALDO_INICIAL + unico(movimento);
+                if (noBanco < 0) {
+                    falhas.add(cpf + " ficou com saldo negativo: " + noBanco);
+                }
+                if (noBanco != esperado) {
+                    falhas.add(cpf + " tem saldo " + noBanco + ", o registro de transações dá " + esperado);
+                }
+                Usuario emCache = usuarios.buscarPorCpf(cpf);
+                if (emCache == null || emCache.getSaldoCentavos() != noBanco) {
+                    falhas.add(cpf + " no CacheContas: " + (emCache == null ? "ausente" : emCache.getSaldoCentavos())
+                            + ", no banco: " + noBanco);
+                }
+            }
+            long noRegistro = unico(registros);
+            if (noRegistro != aceitas) {
+                falhas.add(noRegistro + " registros em 'transacoes' para " + aceitas + " transferências aceitas");
+            }
+        }
+        return falhas;
+    }
+
+    private static long somaSaldos() throws Exception {
+        try (Connection conn = BancoDados.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT SUM(saldo_centavos) FROM usuarios")) {
+            return unico(stmt);
+        }
+    }
+
+    private static long unico(PreparedStatement stmt) throws Exception {
+        try (ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static void mostrarDeadlocks() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long[] ids = threads.findDeadlockedThreads();
+        if (ids == null) {
+            System.out.println("Nenhum deadlock detectado (as threads continuam rodando ou esperando)");
+            return;
+        }
+        for (ThreadInfo info : threads.getThreadInfo(ids, true, true)) {
+            System.out.print(info);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package dao;
+
+import database.BancoDados;
+import database.BancoSemeado;
+import modelo.Transacao;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A consulta do extrato (TransacaoDAO.percorrerTransacoesPorPeriodo) em bancos semeados de tamanhos
+ * diferentes: a primeira página, a página seguinte pelo cursor e o período inteiro sem limite.
+ * Cada chamada consulta a conta seguinte, para não medir só o cache de páginas de uma conta.
+ *
+ * periodoInteiroConsultaAntiga roda, para comparação, a consulta de antes do esquema com índices:
+ * OR entre as duas colunas de CPF, datas comparadas com datetime() e a tabela varrida inteira
+ * (NOT INDEXED, como quando ela não tinha índices).
+ *
+ * Os bancos maiores levam tempo para ser semeados na primeira vez (o de 10 milhões, alguns minutos
+ * e cerca de 2 GB no diretório temporário); depois a semente é reaproveitada (ver BancoSemeado).
+ * Para pular os tamanhos grandes: -p transacoes=10000,100000
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dlog.console=false", "-Dlog.arquivo=", "-Dlog.nivel=ERRO"})
+@State(Scope.Benchmark)
+public class ExtratoBenchmark {
+    private static final int LIMITE_PAGINA = 20;
+
+    // A consulta de TransacaoDAO antes dos índices, sobre as colunas de agora
+    private static final String CONSULTA_ANTIGA = """
+    SELECT t.id, t.valor_centavos, t.cpf_enviador, t.cpf_recebedor,
+           t.criado_em, t.atualizado_em,
+           u1.nome as nome_enviador, u2.nome as nome_recebedor
+    FROM transacoes t NOT INDEXED
+    INNER JOIN usuarios u1 ON t.cpf_enviador = u1.cpf
+    INNER JOIN usuarios u2 ON t.cpf_recebedor = u2.cpf
+    WHERE (t.cpf_enviador = ? OR t.cpf_recebedor = ?)
+    AND datetime(t.criado_em / 1000, 'unixepoch') >= datetime(?)
+    AND datetime(t.criado_em / 1000, 'unixepoch') <= datetime(?)
+    ORDER BY t.criado_em DESC
+    """;
+
+    @Param({"1000"})
+    int contas;
+
+    @Param({"10000", "100000", "1000000", "10000000"})
+    int transacoes;
+
+    String dataInicial;
+    String dataFinal;
+    // Fim da primeira página de cada conta, de onde paginaSeguinte continua
+    TransacaoDAO.Posicao[] cursores;
+    String[] cpfs;
+    final TransacaoDAO dao = new TransacaoDAO();
+
+    @Setup
+    public void preparar() {
+        BancoSemeado.preparar(contas, transacoes);
+        Instant agora = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        dataInicial = agora.minus(BancoSemeado.DIAS, ChronoUnit.DAYS).toString();
+        dataFinal = agora.toString();
+
+        cpfs = BancoSemeado.cpfs(contas);
+        cursores = new TransacaoDAO.Posicao[contas];
+        for (int i = 0; i < contas; i++) {
+            Transacao[] ultima = new Transacao[1];
+            try {
+                dao.percorrerTransacoesPorPeriodo(cpfs[i], dataInicial, dataFinal, null, LIMITE_PAGINA,
+                        t -> ultima[0] = t);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            cursores[i] = ultima[0] != null ? TransacaoDAO.Posicao.de(ultima[0]) : null;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Conta {
+        int proxima;
+
+        String cpf(ExtratoBenchmark banco) {
+            proxima = (proxima + 1) % banco.contas;
+            return banco.cpfs[proxima];
+        }
+
+        TransacaoDAO.Posicao cursor(ExtratoBenchmark banco) {
+            return banco.cursores[proxima];
+        }
+    }
+
+    @Benchmark
+    public boolean primeiraPagina(Conta conta, Blackhole bh) throws Exception {
+        return dao.percorrerTransacoesPorPeriodo(conta.cpf(this), dataInicial, dataFinal, null, LIMITE_PAGINA, bh::consume);
+    }
+
+    @Benchmark
+    public boolean paginaSeguinte(Conta conta, Blackhole bh) throws Exception {
+        String cpf = conta.cpf(this);
+        return dao.percorrerTransacoesPorPeriodo(cpf, dataInicial, dataFinal, conta.cursor(this), LIMITE_PAGINA,
+                bh::consume);
+    }
+
+    @Benchmark
+    public boolean periodoInteiro(Conta conta, Blackhole bh) throws Exception {
+        return dao.percorrerTransacoesPorPeriodo(conta.cpf(this), dataInicial, dataFinal, null, 0, bh::consume);
+    }
+
+    @Benchmark
+    public int periodoInteiroConsultaAntiga(Conta conta, Blackhole bh) throws Exception {
+        String cpf = conta.cpf(this);
+        try (Connection conn = BancoDados.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(CONSULTA_ANTIGA)) {
+            stmt.setString(1, cpf);
+            stmt.setString(2, cpf);
+            stmt.setString(3, dataInicial);
+            stmt.setString(4, dataFinal);
+            int total = 0;
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    bh.consume(new Transacao(rs.getInt("id"), rs.getLong("valor_centavos"),
+                            rs.getString("cpf_enviador"), rs.getString("nome_enviador"),
+                            rs.getString("cpf_recebedor"), rs.getString("nome_recebedor"),
+                            rs.getLong("criado_em"), rs.getLong("atualizado_em")));
+                    total++;
+                }
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package database;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Banco SQLite com contas e transações sintéticas para os benchmarks.
+ *
+ * A semente de cada tamanho é gerada uma vez por dia no diretório temporário e reaproveitada (as
+ * datas das transações são relativas ao dia em que ela foi gerada). Cada benchmark trabalha numa
+ * cópia dela, apontada por -Dbanco.arquivo, então escritas de uma execução não alteram a próxima.
+ * Deve ser chamado antes de qualquer uso do BancoDados no processo.
+ *
+ * As transações ficam espalhadas nos últimos {@link #DIAS} dias, entre pares de contas sorteados
+ * (com uma semente fixa), com 1 em cada 10 sendo depósito.
+ */
+public final class BancoSemeado {
+    public static final int DIAS = 30;
+    public static final String SENHA = "123456";
+
+    private static final int LOTE = 10_000;
+
+    private BancoSemeado() {
+    }
+
+    /**
+     * Prepara a cópia de trabalho e aponta o BancoDados para ela.
+     */
+    public static void preparar(int contas, int transacoes) {
+        Path semente = Path.of(System.getProperty("java.io.tmpdir"),
+                "sistema_bancario-semente-" + contas + "-" + transacoes + "-" + LocalDate.now() + ".db");
+        try {
+            if (!Files.exists(semente)) {
+                Path parcial = semente.resolveSibling(semente.getFileName() + ".parcial");
+                Files.deleteIfExists(parcial);
+                semear(parcial, contas, transacoes);
+                Files.move(parcial, semente, StandardCopyOption.ATOMIC_MOVE);
+            }
+            Path copia = Files.createTempFile("sistema_bancario-benchmark-", ".db");
+            Files.copy(semente, copia, StandardCopyOption.REPLACE_EXISTING);
+            apagarAoSair(copia);
+            System.setProperty("banco.arquivo", copia.toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Erro ao semear o banco: " + e.getMessage(), e);
+        }
+        BancoDados.criarTabelas();
+    }
+
+    /**
+     * CPF da conta de número 'indice' (0 a contas - 1).
+     */
+    public static String cpf(int indice) {
+        String d = String.format("%011d", indice + 1);
+        return d.substring(0, 3) + "." + d.substring(3, 6) + "." + d.substring(6, 9) + "-" + d.substring(9);
+    }
+
+    /**
+     * Os CPFs de todas as contas, na ordem dos índices (evita formatar durante a medição).
+     */
+    public static String[] cpfs(int contas) {
+        String[] cpfs = new String[contas];
+        for (int i = 0; i < contas; i++) {
+            cpfs[i] = cpf(i);
+        }
+        return cpfs;
+    }
+
+    private static void semear(Path arquivo, int contas, int transacoes) throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + arquivo)) {
+            conn.setAutoCommit(false);
+            MigracoesBanco.aplicar(conn);
+
+            String[] cpfs = cpfs(contas);
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO usuarios (cpf, nome, senha, saldo_centavos) VALUES (?, ?, ?, ?)")) {
+                for (int i = 0; i < contas; i++) {
+                    stmt.setString(1, cpfs[i]);
+                    stmt.setString(2, String.format("Conta %06d", i));
+                    stmt.setString(3, SENHA);
+                    stmt.setLong(4, 1_000_000_00L);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+
+            SplittableRandom sorteio = new SplittableRandom(42);
+            long agora = System.currentTimeMillis();
+            long janela = TimeUnit.DAYS.toMillis(DIAS);
+            try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO transacoes " +
+                    "(valor_centavos, cpf_enviador, cpf_recebedor, criado_em, atualizado_em) VALUES (?, ?, ?, ?, ?)")) {
+                for (int i = 0; i < transacoes; i++) {
+                    int enviador = sorteio.nextInt(contas);
+                    int recebedor = sorteio.nextInt(10) == 0 ? enviador : sorteio.nextInt(contas);
+                    long criadoEm = agora - sorteio.nextLong(janela);
+                    stmt.setLong(1, 1 + sorteio.nextLong(100_000));
+                    stmt.setString(2, cpfs[enviador]);
+                    stmt.setString(3, cpfs[recebedor]);
+                    stmt.setLong(4, criadoEm);
+                    stmt.setLong(5, criadoEm);
+                    stmt.addBatch();
+                    if ((i + 1) % LOTE == 0) {
+                        stmt.executeBatch();
+                    }
+                }
+                stmt.executeBatch();
+            }
+            conn.commit();
+        }
+    }
+
+    private static void apagarAoSair(Path copia) {
+        for (String sufixo : new String[]{"", "-wal", "-shm"}) {
+            copia.resolveSibling(copia.getFileName() + sufixo).toFile().deleteOnExit();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package modelo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Valores em centavos (Dinheiro) comparados com o caminho anterior, double validado por
+ * BigDecimal: do texto do número JSON ao valor aceito, e do valor ao texto da resposta.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DinheiroBenchmark {
+
+    @Param({"150.75", "1000000", "0.1"})
+    String texto;
+
+    long centavos;
+    double valor;
+
+    @Setup
+    public void preparar() {
+        centavos = Dinheiro.lerCentavos(texto);
+        valor = Double.parseDouble(texto);
+    }
+
+    @Benchmark
+    public long lerCentavos() {
+        return Dinheiro.lerCentavos(texto);
+    }
+
+    @Benchmark
+    public double lerDoubleBigDecimal() {
+        double lido = Double.parseDouble(texto);
+        // A verificação de casas decimais que o servidor fazia antes dos centavos
+        return BigDecimal.valueOf(lido).scale() <= 2 ? lido : Double.NaN;
+    }
+
+    @Benchmark
+    public String formatarCentavos() {
+        return Dinheiro.formatar(centavos);
+    }
+
+    @Benchmark
+    public String formatarBigDecimal() {
+        return BigDecimal.valueOf(valor).setScale(2).toPlainString();
+    }
+
+    @Benchmark
+    public String formatarStringFormat() {
+        return String.format(Locale.ROOT, "%.2f", valor);
+    }
+}
@@ -0,0 +1,99 @@
+package protocolo;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import validator.RulesEnum;
+import validator.Validator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leitura das requisições pelo CodecProtocolo (streaming direto para o record) comparada com o
+ * caminho anterior, árvore do Jackson + Validator; e escrita da resposta pelo codec comparada com
+ * montar e serializar um ObjectNode.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dlog.console=false", "-Dlog.arquivo="})
+@State(Scope.Benchmark)
+public class CodecProtocoloBenchmark {
+    private static final String TOKEN = "Q2FyZ2EgZGUgdGVzdGUgMTIz";
+
+    @Param({"usuario_login", "usuario_ler", "transacao_criar", "transacao_ler"})
+    String operacao;
+
+    String mensagem;
+    Resposta resposta;
+    final ObjectMapper mapper = new ObjectMapper();
+
+    @Setup
+    public void preparar() {
+        mensagem = switch (operacao) {
+            case "usuario_login" -> "{\"operacao\":\"usuario_login\",\"cpf\":\"123.456.789-00\",\"senha\":\"123456\"}";
+            case "usuario_ler" -> "{\"operacao\":\"usuario_ler\",\"token\":\"" + TOKEN + "\",\"id\":7}";
+            case "transacao_criar" -> "{\"operacao\":\"transacao_criar\",\"token\":\"" + TOKEN
+                    + "\",\"valor\":150.75,\"cpf_destino\":\"098.765.432-11\"}";
+            case "transacao_ler" -> "{\"operacao\":\"transacao_ler\",\"token\":\"" + TOKEN
+                    + "\",\"data_inicial\":\"2025-01-01T00:00:00Z\",\"data_final\":\"2025-01-31T23:59:59Z\",\"limite\":50}";
+            default -> throw new IllegalArgumentException(operacao);
+        };
+        resposta = switch (operacao) {
+            case "usuario_login" -> Resposta.sucesso(operacao, "Login bem-sucedido").comToken(TOKEN);
+            case "usuario_ler" -> Resposta.sucesso(operacao, "Dados do usuário recuperados com sucesso.")
+                    .comUsuario(new Resposta.DadosUsuario("Gabriel Pereira Neves", "123.456.789-00", 1_234_567))
+                    .comId(7);
+            default -> Resposta.sucesso(operacao, "Operação realizada com sucesso");
+        };
+    }
+
+    @Benchmark
+    public MensagemCliente lerCodec() throws MensagemInvalidaException {
+        return CodecProtocolo.lerMensagem(mensagem);
+    }
+
+    @Benchmark
+    public RulesEnum lerArvoreValidator() throws Exception {
+        JsonNode arvore = mapper.readTree(mensagem);
+        return Validator.validateClient(arvore);
+    }
+
+    @Benchmark
+    public String escreverCodec() {
+        return CodecProtocolo.escrever(resposta);
+    }
+
+    @Benchmark
+    public String escreverArvore() throws Exception {
+        ObjectNode no = mapper.createObjectNode()
+                .put("operacao", resposta.operacao())
+                .put("status", resposta.status())
+                .put("info", resposta.info());
+        if (resposta.id() != null) {
+            no.put("id", resposta.id());
+        }
+        if (resposta.token() != null) {
+            no.put("token", resposta.token());
+        }
+        if (resposta.usuario() != null) {
+            no.putObject("usuario")
+                    .put("nome", resposta.usuario().nome())
+                    .put("cpf", resposta.usuario().cpf())
+                    .put("saldo", resposta.usuario().saldoCentavos() / 100.0);
+        }
+        return mapper.writeValueAsString(no);
+    }
+}
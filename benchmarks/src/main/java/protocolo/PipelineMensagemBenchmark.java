@@ -0,0 +1,148 @@
+package protocolo;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import validator.Validator;
+import validator.ValidatorAntigo;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * O trabalho de protocolo de uma mensagem inteira, sem a regra de negócio: ler a requisição,
+ * validar, tirar os campos, montar a resposta, validar a resposta e serializar.
+ *
+ * tresPassagens é o caminho de antes: readTree, validateClient(String) lendo o texto de novo,
+ * resposta num HashMap serializado e validateServer(String) lendo a resposta de volta.
+ * umaArvore é o caminho com uma leitura só: a árvore lida uma vez é validada e a resposta é um
+ * ObjectNode validado antes da única serialização. Os dois usam o ValidatorAntigo, para que a
+ * diferença seja só o número de passagens.
+ *
+ * codec é o caminho atual: o CodecProtocolo lê a mensagem direto para o record da operação e a
+ * Resposta (record) é validada e escrita sem árvore nem mapa.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dlog.console=false", "-Dlog.arquivo="})
+@State(Scope.Benchmark)
+public class PipelineMensagemBenchmark {
+    private static final String TOKEN = "Q2FyZ2EgZGUgdGVzdGUgMTIz";
+
+    @Param({"conectar", "usuario_login", "usuario_ler", "transacao_criar"})
+    String operacao;
+
+    String mensagem;
+    // Campos que o tratador da operação tirava da árvore
+    String[] campos;
+    String info;
+    final ObjectMapper mapper = new ObjectMapper();
+
+    @Setup
+    public void preparar() {
+        mensagem = switch (operacao) {
+            case "conectar" -> "{\"operacao\":\"conectar\"}";
+            case "usuario_login" -> "{\"operacao\":\"usuario_login\",\"cpf\":\"123.456.789-00\",\"senha\":\"123456\"}";
+            case "usuario_ler" -> "{\"operacao\":\"usuario_ler\",\"token\":\"" + TOKEN + "\"}";
+            case "transacao_criar" -> "{\"operacao\":\"transacao_criar\",\"token\":\"" + TOKEN
+                    + "\",\"valor\":150.75,\"cpf_destino\":\"098.765.432-11\"}";
+            default -> throw new IllegalArgumentException(operacao);
+        };
+        campos = switch (operacao) {
+            case "usuario_login" -> new String[]{"cpf", "senha"};
+            case "usuario_ler" -> new String[]{"token"};
+            case "transacao_criar" -> new String[]{"token", "valor", "cpf_destino"};
+            default -> new String[0];
+        };
+        info = switch (operacao) {
+            case "conectar" -> "Servidor conectado com sucesso";
+            case "usuario_login" -> "Login realizado com sucesso";
+            case "usuario_ler" -> "Dados do usuário recuperados com sucesso";
+            default -> "Transação realizada com sucesso";
+        };
+    }
+
+    // O que os tratadores faziam com a árvore: node.get("campo").asText()
+    private int lerCampos(JsonNode node) {
+        int tamanho = 0;
+        for (String campo : campos) {
+            tamanho += node.get(campo).asText().length();
+        }
+        return tamanho;
+    }
+
+    @Benchmark
+    public String tresPassagens() throws Exception {
+        JsonNode node = mapper.readTree(mensagem);
+        String nome = node.get("operacao").asText();
+        ValidatorAntigo.validateClient(mensagem);
+        lerCampos(node);
+
+        Map<String, Object> resposta = new HashMap<>();
+        resposta.put("operacao", nome);
+        resposta.put("status", true);
+        resposta.put("info", info);
+        if (operacao.equals("usuario_login")) {
+            resposta.put("token", TOKEN);
+        } else if (operacao.equals("usuario_ler")) {
+            Map<String, Object> usuario = new HashMap<>();
+            usuario.put("nome", "Gabriel Pereira Neves");
+            usuario.put("cpf", "123.456.789-00");
+            usuario.put("saldo", 12345.67);
+            resposta.put("usuario", usuario);
+        }
+        String texto = mapper.writeValueAsString(resposta);
+        ValidatorAntigo.validateServer(texto);
+        return texto;
+    }
+
+    @Benchmark
+    public String umaArvore() throws Exception {
+        JsonNode node = mapper.readTree(mensagem);
+        ValidatorAntigo.validateClient(node);
+        lerCampos(node);
+
+        ObjectNode resposta = mapper.createObjectNode()
+                .put("operacao", node.get("operacao").asText())
+                .put("status", true)
+                .put("info", info);
+        if (operacao.equals("usuario_login")) {
+            resposta.put("token", TOKEN);
+        } else if (operacao.equals("usuario_ler")) {
+            resposta.putObject("usuario")
+                    .put("nome", "Gabriel Pereira Neves")
+                    .put("cpf", "123.456.789-00")
+                    .put("saldo", 12345.67);
+        }
+        ValidatorAntigo.validateServer(resposta);
+        return mapper.writeValueAsString(resposta);
+    }
+
+    @Benchmark
+    public String codec() throws Exception {
+        MensagemCliente lida = CodecProtocolo.lerMensagem(mensagem);
+
+        Resposta resposta = Resposta.sucesso(lida.requisicao().operacao().getValue(), info);
+        if (operacao.equals("usuario_login")) {
+            resposta = resposta.comToken(TOKEN);
+        } else if (operacao.equals("usuario_ler")) {
+            resposta = resposta.comUsuario(new Resposta.DadosUsuario("Gabriel Pereira Neves", "123.456.789-00", 1_234_567));
+        }
+        Validator.validateServer(resposta);
+        return CodecProtocolo.escrever(resposta);
+    }
+}
@@ -0,0 +1,114 @@
+package servidor;
+
+import database.BancoSemeado;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.Socket;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Uma mensagem do protocolo do texto recebido ao texto da resposta (ProcessadorMensagens.processarMensagem):
+ * leitura, validação, token, banco e serialização, sem o socket.
+ *
+ * Cada thread usa uma conta própria, logada no seu processador. Operações que mudam o estado de
+ * forma não repetível (usuario_criar, usuario_deletar, usuario_logout) ficam de fora.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+// Sem log: o custo medido é o do processamento, não o da fila do EscritorLog
+@Fork(value = 1, jvmArgsAppend = {"-Dlog.console=false", "-Dlog.arquivo=", "-Dlog.nivel=ERRO"})
+public class ProcessadorMensagensBenchmark {
+    private static final DateTimeFormatter ISO = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'");
+    private static final Pattern TOKEN = Pattern.compile("\"token\":\"([^\"]+)\"");
+
+    @State(Scope.Benchmark)
+    public static class Banco {
+        @Param({"1000"})
+        int contas;
+
+        @Param({"100000"})
+        int transacoes;
+
+        final AtomicInteger proximaConta = new AtomicInteger();
+
+        @Setup
+        public void preparar() {
+            BancoSemeado.preparar(contas, transacoes);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Sessao {
+        @Param({"conectar", "usuario_login", "usuario_ler", "usuario_atualizar", "depositar",
+                "transacao_criar", "transacao_ler", "invalida"})
+        String operacao;
+
+        ProcessadorMensagens processador;
+        String mensagem;
+
+        @Setup
+        public void preparar(Banco banco) {
+            int indice = banco.proximaConta.getAndIncrement() % banco.contas;
+            String cpf = BancoSemeado.cpf(indice);
+            String destino = BancoSemeado.cpf((indice + 1) % banco.contas);
+
+            processador = new ProcessadorMensagens(new Socket());
+            processador.processarMensagem("{\"operacao\":\"conectar\"}");
+            String login = "{\"operacao\":\"usuario_login\",\"cpf\":\"" + cpf + "\",\"senha\":\"" + BancoSemeado.SENHA + "\"}";
+            Matcher token = TOKEN.matcher(processador.processarMensagem(login));
+            if (!token.find()) {
+                throw new IllegalStateException("Login falhou para " + cpf);
+            }
+            String t = token.group(1);
+
+            ZonedDateTime agora = ZonedDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.SECONDS);
+            mensagem = switch (operacao) {
+                case "conectar" -> "{\"operacao\":\"conectar\"}";
+                case "usuario_login" -> login;
+                case "usuario_ler" -> "{\"operacao\":\"usuario_ler\",\"token\":\"" + t + "\"}";
+                case "usuario_atualizar" -> "{\"operacao\":\"usuario_atualizar\",\"token\":\"" + t
+                        + "\",\"usuario\":{\"nome\":\"Conta Atualizada\"}}";
+                case "depositar" -> "{\"operacao\":\"depositar\",\"token\":\"" + t + "\",\"valor_enviado\":10.50}";
+                case "transacao_criar" -> "{\"operacao\":\"transacao_criar\",\"token\":\"" + t
+                        + "\",\"valor\":0.01,\"cpf_destino\":\"" + destino + "\"}";
+                case "transacao_ler" -> "{\"operacao\":\"transacao_ler\",\"token\":\"" + t
+                        + "\",\"data_inicial\":\"" + agora.minusDays(BancoSemeado.DIAS).format(ISO)
+                        + "\",\"data_final\":\"" + agora.format(ISO) + "\",\"limite\":20}";
+                case "invalida" -> "{\"operacao\":\"depositar\",\"token\":\"" + t + "\",\"valor_enviado\":\"dez\"}";
+                default -> throw new IllegalArgumentException(operacao);
+            };
+            if (operacao.equals("usuario_login")) {
+                // O login troca o token: mede a sessão sendo substituída a cada chamada
+                return;
+            }
+            String resposta = processador.processarMensagem(mensagem);
+            if (!operacao.equals("invalida") && !resposta.contains("\"status\":true")) {
+                throw new IllegalStateException("Mensagem de " + operacao + " recusada: " + resposta);
+            }
+        }
+    }
+
+    @Benchmark
+    public String processarMensagem(Banco banco, Sessao sessao) {
+        return sessao.processador.processarMensagem(sessao.mensagem);
+    }
+}
@@ -0,0 +1,115 @@
+package validator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import protocolo.CodecProtocolo;
+import protocolo.Resposta;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validação das mensagens do cliente e das respostas do servidor, a partir do texto (como o Cliente
+ * faz), da árvore já lida e, no servidor, do record Resposta.
+ *
+ * Os métodos terminados em Antigo fazem o mesmo com o ValidatorAntigo (regex compilada a cada
+ * chamada, busca linear da operação, mapas de chaves por mensagem), para comparar com as regras
+ * compiladas.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dlog.console=false", "-Dlog.arquivo="})
+@State(Scope.Benchmark)
+public class ValidatorBenchmark {
+    private static final String TOKEN = "Q2FyZ2EgZGUgdGVzdGUgMTIz";
+
+    @Param({"conectar", "usuario_login", "usuario_atualizar", "transacao_criar", "transacao_ler"})
+    String operacao;
+
+    String cliente;
+    JsonNode clienteArvore;
+    String servidor;
+    JsonNode servidorArvore;
+    Resposta resposta;
+
+    @Setup
+    public void preparar() throws Exception {
+        cliente = switch (operacao) {
+            case "conectar" -> "{\"operacao\":\"conectar\"}";
+            case "usuario_login" -> "{\"operacao\":\"usuario_login\",\"cpf\":\"123.456.789-00\",\"senha\":\"123456\"}";
+            case "usuario_atualizar" -> "{\"operacao\":\"usuario_atualizar\",\"token\":\"" + TOKEN
+                    + "\",\"usuario\":{\"nome\":\"Gabriel P. Neves\",\"senha\":\"novaSenha456\"}}";
+            case "transacao_criar" -> "{\"operacao\":\"transacao_criar\",\"token\":\"" + TOKEN
+                    + "\",\"valor\":150.75,\"cpf_destino\":\"098.765.432-11\"}";
+            case "transacao_ler" -> "{\"operacao\":\"transacao_ler\",\"token\":\"" + TOKEN
+                    + "\",\"data_inicial\":\"2025-01-01T00:00:00Z\",\"data_final\":\"2025-01-31T23:59:59Z\",\"limite\":50}";
+            default -> throw new IllegalArgumentException(operacao);
+        };
+        resposta = switch (operacao) {
+            case "usuario_login" -> Resposta.sucesso(operacao, "Login bem-sucedido").comToken(TOKEN);
+            default -> Resposta.sucesso(operacao, "Operação realizada com sucesso");
+        };
+        servidor = CodecProtocolo.escrever(resposta);
+
+        ObjectMapper mapper = new ObjectMapper();
+        clienteArvore = mapper.readTree(cliente);
+        servidorArvore = mapper.readTree(servidor);
+    }
+
+    @Benchmark
+    public void validateClientTexto() throws Exception {
+        Validator.validateClient(cliente);
+    }
+
+    @Benchmark
+    public RulesEnum validateClientArvore() throws Exception {
+        return Validator.validateClient(clienteArvore);
+    }
+
+    @Benchmark
+    public void validateServerTexto() throws Exception {
+        Validator.validateServer(servidor);
+    }
+
+    @Benchmark
+    public void validateServerArvore() throws Exception {
+        Validator.validateServer(servidorArvore);
+    }
+
+    @Benchmark
+    public void validateServerResposta() throws Exception {
+        Validator.validateServer(resposta);
+    }
+
+    @Benchmark
+    public void validateClientTextoAntigo() throws Exception {
+        ValidatorAntigo.validateClient(cliente);
+    }
+
+    @Benchmark
+    public RulesEnum validateClientArvoreAntigo() throws Exception {
+        return ValidatorAntigo.validateClient(clienteArvore);
+    }
+
+    @Benchmark
+    public void validateServerArvoreAntigo() throws Exception {
+        ValidatorAntigo.validateServer(servidorArvore);
+    }
+
+    @Benchmark
+    public void validateServerRespostaAntigo() throws Exception {
+        ValidatorAntigo.validateServer(resposta);
+    }
+}
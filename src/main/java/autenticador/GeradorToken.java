@@ -0,0 +1,89 @@
+package autenticador;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Gera tokens de sessão: 128 bits aleatórios em base64url sem padding (22 caracteres).
+ * Também fornece os identificadores dos tokens assinados.
+ *
+ * UUID.randomUUID() passa todos os logins por um único SecureRandom compartilhado. Aqui há várias
+ * faixas, cada uma com seu próprio DRBG e um buffer reabastecido em bloco; a thread escolhe a faixa
+ * pelo seu id, então logins simultâneos raramente disputam o mesmo lock. As faixas usam
+ * ReentrantLock, que não prende a thread portadora das virtual threads.
+ */
+final class GeradorToken {
+    private static final int BYTES_TOKEN = 16;
+    private static final int TOKENS_POR_BLOCO = 256;
+    private static final Base64.Encoder BASE64URL = Base64.getUrlEncoder().withoutPadding();
+
+    private static final Faixa[] FAIXAS = criarFaixas();
+
+    private GeradorToken() {
+    }
+
+    static String novoToken() {
+        byte[] bytes = new byte[BYTES_TOKEN];
+        FAIXAS[(int) Thread.currentThread().threadId() & (FAIXAS.length - 1)].sortear(bytes);
+        return BASE64URL.encodeToString(bytes);
+    }
+
+    /**
+     * 64 bits aleatórios da mesma fonte dos tokens (identificadores dos tokens assinados).
+     */
+    static long novoLong() {
+        byte[] bytes = new byte[Long.BYTES];
+        FAIXAS[(int) Thread.currentThread().threadId() & (FAIXAS.length - 1)].sortear(bytes);
+        long valor = 0;
+        for (byte b : bytes) {
+            valor = (valor << 8) | (b & 0xFF);
+        }
+        return valor;
+    }
+
+    private static Faixa[] criarFaixas() {
+        int quantidade = Integer.highestOneBit(Math.max(8, Runtime.getRuntime().availableProcessors() * 4) - 1) << 1;
+        Faixa[] faixas = new Faixa[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            faixas[i] = new Faixa();
+        }
+        return faixas;
+    }
+
+    private static final class Faixa {
+        private final ReentrantLock trava = new ReentrantLock();
+        private final SecureRandom aleatorio;
+        private final byte[] bloco = new byte[BYTES_TOKEN * TOKENS_POR_BLOCO];
+        private int posicao = bloco.length;
+
+        Faixa() {
+            SecureRandom drbg;
+            try {
+                // Estado próprio, semeado uma vez pela fonte do sistema
+                drbg = SecureRandom.getInstance("DRBG");
+            } catch (NoSuchAlgorithmException e) {
+                drbg = new SecureRandom();
+            }
+            aleatorio = drbg;
+        }
+
+        void sortear(byte[] destino) {
+            trava.lock();
+            try {
+                if (posicao + destino.length > bloco.length) {
+                    aleatorio.nextBytes(bloco);
+                    posicao = 0;
+                }
+                System.arraycopy(bloco, posicao, destino, 0, destino.length);
+                // Bytes entregues não ficam no buffer
+                Arrays.fill(bloco, posicao, posicao + destino.length, (byte) 0);
+                posicao += destino.length;
+            } finally {
+                trava.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package autenticador;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Roda de tempo (hashed timing wheel) para prazos de expiração.
+ *
+ * Cada balde guarda os agendamentos cujo prazo cai no seu tick, numa lista duplamente encadeada;
+ * agendar e cancelar são O(1). Outras threads só enfileiram novos agendamentos e cancelamentos,
+ * e quem mexe nos baldes é apenas a thread que chama avancar().
+ *
+ * Quando um prazo vence, a tarefa pode devolver um prazo novo (por exemplo, a sessão foi usada
+ * depois de agendada) e volta para a roda, sem que cada uso precise reagendar.
+ */
+final class RodaTempo {
+
+    interface Tarefa {
+        /**
+         * @return novo prazo em epoch millis, ou 0 se a tarefa terminou
+         */
+        long vencer(long agora);
+    }
+
+    static final class Agendamento {
+        private final Tarefa tarefa;
+        private long prazo;
+        private Balde balde;
+        private Agendamento anterior;
+        private Agendamento proximo;
+        private volatile boolean cancelado;
+
+        private Agendamento(Tarefa tarefa, long prazo) {
+            this.tarefa = tarefa;
+            this.prazo = prazo;
+        }
+    }
+
+    private static final class Balde {
+        private Agendamento primeiro;
+        private Agendamento ultimo;
+
+        void adicionar(Agendamento agendamento) {
+            agendamento.balde = this;
+            agendamento.anterior = ultimo;
+            agendamento.proximo = null;
+            if (ultimo == null) {
+                primeiro = agendamento;
+            } else {
+                ultimo.proximo = agendamento;
+            }
+            ultimo = agendamento;
+        }
+
+        void remover(Agendamento agendamento) {
+            if (agendamento.anterior == null) {
+                primeiro = agendamento.proximo;
+            } else {
+                agendamento.anterior.proximo = agendamento.proximo;
+            }
+            if (agendamento.proximo == null) {
+                ultimo = agendamento.anterior;
+            } else {
+                agendamento.proximo.anterior = agendamento.anterior;
+            }
+            agendamento.balde = null;
+            agendamento.anterior = null;
+            agendamento.proximo = null;
+        }
+    }
+
+    private final long tickMillis;
+    private final int mascara;
+    private final Balde[] baldes;
+    private final ConcurrentLinkedQueue<Agendamento> novos = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Agendamento> cancelados = new ConcurrentLinkedQueue<>();
+    private long ultimoTick = -1;
+
+    /**
+     * @param tamanho número de baldes (arredondado para potência de 2); prazos além de
+     *                tamanho * tickMillis dão mais de uma volta na roda
+     */
+    RodaTempo(long tickMillis, int tamanho) {
+        int baldesReais = Integer.highestOneBit(Math.max(2, tamanho - 1)) << 1;
+        this.tickMillis = tickMillis;
+        this.mascara = baldesReais - 1;
+        this.baldes = new Balde[baldesReais];
+        for (int i = 0; i < baldesReais; i++) {
+            baldes[i] = new Balde();
+        }
+    }
+
+    /**
+     * Pode ser chamado de qualquer thread; o agendamento entra na roda no próximo avancar().
+     */
+    Agendamento agendar(Tarefa tarefa, long prazo) {
+        Agendamento agendamento = new Agendamento(tarefa, prazo);
+        novos.offer(agendamento);
+        return agendamento;
+    }
+
+    /**
+     * Pode ser chamado de qualquer thread; a tarefa não vence mais e sai do balde no próximo avancar().
+     */
+    void cancelar(Agendamento agendamento) {
+        if (agendamento != null && !agendamento.cancelado) {
+            agendamento.cancelado = true;
+            cancelados.offer(agendamento);
+        }
+    }
+
+    /**
+     * Vence tudo o que tem prazo até 'agora'. Chamado sempre pela mesma thread.
+     */
+    void avancar(long agora) {
+        Agendamento agendamento;
+        while ((agendamento = cancelados.poll()) != null) {
+            if (agendamento.balde != null) {
+                agendamento.balde.remover(agendamento);
+            }
+        }
+
+        long tickAtual = agora / tickMillis;
+        if (ultimoTick < 0) {
+            ultimoTick = tickAtual - 1;
+        }
+        while ((agendamento = novos.poll()) != null) {
+            if (!agendamento.cancelado) {
+                colocar(agendamento);
+            }
+        }
+
+        // Se a thread atrasou mais de uma volta, basta passar uma vez por cada balde
+        long passos = Math.min(tickAtual - ultimoTick, baldes.length);
+        long inicio = tickAtual - passos;
+        for (long tick = inicio + 1; tick <= tickAtual; tick++) {
+            ultimoTick = tick;
+            vencerBalde(baldes[(int) tick & mascara], agora);
+        }
+        ultimoTick = tickAtual;
+    }
+
+    private void vencerBalde(Balde balde, long agora) {
+        Agendamento atual = balde.primeiro;
+        while (atual != null) {
+            Agendamento seguinte = atual.proximo;
+            if (atual.prazo <= agora) {
+                balde.remover(atual);
+                long novoPrazo = atual.cancelado ? 0 : atual.tarefa.vencer(agora);
+                if (novoPrazo > 0) {
+                    atual.prazo = novoPrazo;
+                    colocar(atual);
+                }
+            }
+            atual = seguinte;
+        }
+    }
+
+    private void colocar(Agendamento agendamento) {
+        // Arredonda para cima: o balde só é visitado quando o prazo já passou. Prazo já vencido vai
+        // para o próximo tick.
+        long tick = Math.max((agendamento.prazo + tickMillis - 1) / tickMillis, ultimoTick + 1);
+        baldes[(int) tick & mascara].adicionar(agendamento);
+    }
+}
@@ -2,125 +2,232 @@ package autenticador;
 import java.net.Socket;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import log.Log;
+
+
+/**
+ * Sessões abertas pelo login. Um token vale até o logout, até um novo login do mesmo CPF ou até
+ * expirar: por inatividade (-Dtoken.inatividadeMinutos, padrão 30) ou pela duração máxima
+ * (-Dtoken.duracaoMaximaHoras, padrão 12).
+ *
+ * Sessões encerradas saem dos mapas na hora, então a memória acompanha o número de sessões vivas.
+ * As expirações ficam numa RodaTempo avançada uma vez por segundo pela thread Token-Expiracao.
+ *
+ * Com -Dtoken.modo=assinado não há sessões: os tokens são os do TokenAssinado, validados só pela
+ * assinatura, e este registro fica vazio.
+ */
+public class Token {
+    private static final Log LOG = Log.de(Token.class);
 
+    private static final long INATIVIDADE_MILLIS =
+            TimeUnit.MINUTES.toMillis(Long.getLong("token.inatividadeMinutos", 30));
+    private static final long DURACAO_MAXIMA_MILLIS =
+            TimeUnit.HOURS.toMillis(Long.getLong("token.duracaoMaximaHoras", 12));
+    private static final boolean ASSINADO = "assinado".equalsIgnoreCase(System.getProperty("token.modo", "memoria"));
 
-public class Token {
-    // Classe interna para armazenar informações do token
-    private static class TokenInfo {
+    // Sessão de um login; expira pela roda ou na validação, o que vier primeiro
+    private static class Sessao implements RodaTempo.Tarefa {
+        private final String token;
         private final String cpf;
         private final Socket socket;
-        private boolean ativo;
+        private final long criadaEm;
+        private volatile long ultimoUso;
+        private final AtomicBoolean ativa = new AtomicBoolean(true);
+        private RodaTempo.Agendamento expiracao;
 
-        public TokenInfo(String cpf, Socket socket) {
+        Sessao(String token, String cpf, Socket socket, long agora) {
+            this.token = token;
             this.cpf = cpf;
             this.socket = socket;
-            this.ativo = true;
+            this.criadaEm = agora;
+            this.ultimoUso = agora;
+        }
+
+        long prazo() {
+            return Math.min(ultimoUso + INATIVIDADE_MILLIS, criadaEm + DURACAO_MAXIMA_MILLIS);
+        }
+
+        // Chamado pela roda: se foi usada depois de agendada, o prazo andou e ela volta para a roda
+        @Override
+        public long vencer(long agora) {
+            if (!ativa.get()) {
+                return 0;
+            }
+            long prazo = prazo();
+            if (prazo > agora) {
+                return prazo;
+            }
+            if (encerrar(this)) {
+                LOG.info("Token expirado para CPF: {}", cpf);
+            }
+            return 0;
         }
+    }
 
-        public String getCpf() { return cpf; }
-        public Socket getSocket() { return socket; }
-        public boolean isAtivo() { return ativo; }
-        public void desativar() { this.ativo = false; }
+    // token -> sessão e CPF -> sessão ativa (apenas um login por CPF)
+    private static final Map<String, Sessao> tokens = new ConcurrentHashMap<>();
+    private static final Map<String, Sessao> sessoesPorCpf = new ConcurrentHashMap<>();
+    private static final AtomicInteger ativas = new AtomicInteger();
+
+    private static final RodaTempo roda = new RodaTempo(1000, 512);
+
+    static {
+        ScheduledExecutorService agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Token-Expiracao");
+            t.setDaemon(true);
+            return t;
+        });
+        agendador.scheduleAtFixedRate(() -> {
+            try {
+                long agora = System.currentTimeMillis();
+                roda.avancar(agora);
+                if (ASSINADO) {
+                    TokenAssinado.limparRevogacoes(agora);
+                }
+            } catch (RuntimeException e) {
+                LOG.erro("Erro ao expirar tokens: {}", e.getMessage(), e);
+            }
+        }, 1, 1, TimeUnit.SECONDS);
     }
-    // Armazena tokens ativos em memória
-    private static final Map<String, TokenInfo> tokens = new ConcurrentHashMap<>();
 
     /**
-     * Gera novo token quando usuário faz login
-     * Token permanece válido até logout manual
+     * Gera novo token quando usuário faz login.
+     * Substitui a sessão anterior do mesmo CPF, se houver.
      */
     public static String gerarToken(String cpf, Socket socket) {
-        // Remove tokens antigos do mesmo CPF (apenas um login por CPF)
-        invalidarTokensPorCpf(cpf);
+        if (ASSINADO) {
+            String token = TokenAssinado.gerar(cpf);
+            LOG.info("Token assinado gerado para {}: {} (socket: {})", cpf, Log.segredo(token),
+                    socket.getRemoteSocketAddress());
+            return token;
+        }
 
-        String token = UUID.randomUUID().toString();
+        String token = GeradorToken.novoToken();
+        Sessao sessao = new Sessao(token, cpf, socket, System.currentTimeMillis());
+        sessao.expiracao = roda.agendar(sessao, sessao.prazo());
 
-        tokens.put(token, new TokenInfo(cpf,socket));
+        // Primeiro no mapa de tokens: quem trocar esta sessão pelo CPF já a encontra lá para remover
+        tokens.put(token, sessao);
+        ativas.incrementAndGet();
+        Sessao anterior = sessoesPorCpf.put(cpf, sessao);
+        if (anterior != null && encerrar(anterior)) {
+            LOG.info("Token invalidado para CPF: {}", cpf);
+        }
 
-        System.out.println("Token gerado para " + cpf + ": " + token + " (socket: " + socket.getRemoteSocketAddress() + ")");
+        LOG.info("Token gerado para {}: {} (socket: {})", cpf, Log.segredo(token), socket.getRemoteSocketAddress());
         return token;
     }
 
     /**
-     * Verifica se token é válido
+     * Verifica se token é válido e renova o prazo de inatividade
+     *
+     * @return CPF dono do token, ou null
      */
     public static String validarToken(String token, Socket socketAtual) {
         try {
             if (token == null || token.trim().isEmpty()) {
                 return null;
             }
+            if (ASSINADO) {
+                return TokenAssinado.validar(token);
+            }
+
+            Sessao sessao = tokens.get(token);
+            if (sessao == null) {
+                LOG.aviso("Token não encontrado: {}", Log.segredo(token));
+                return null;
+            }
 
-            TokenInfo tokenInfo = tokens.get(token);
-            if (tokenInfo == null) {
-                System.out.println("Token não encontrado: " + token);
+            long agora = System.currentTimeMillis();
+            if (sessao.prazo() <= agora) {
+                if (encerrar(sessao)) {
+                    LOG.info("Token expirado para CPF: {}", sessao.cpf);
+                }
                 return null;
             }
 
-            if (!tokenInfo.isAtivo()) {
-                System.out.println("Token inativo: " + token);
+            if (!sessao.ativa.get()) {
+                LOG.aviso("Token inativo: {}", Log.segredo(token));
                 return null;
             }
 
             // Verificar se o socket atual é o mesmo do login
-            if (!tokenInfo.getSocket().equals(socketAtual)) {
-                System.out.println("Tentativa de uso de token em socket diferente! Token: " + token
-                        + " Socket original: " + tokenInfo.getSocket().getRemoteSocketAddress()
-                        + " Socket atual: " + socketAtual.getRemoteSocketAddress());
+            if (!sessao.socket.equals(socketAtual)) {
+                LOG.aviso("Tentativa de uso de token em socket diferente! Token: {} Socket original: {} Socket atual: {}",
+                        Log.segredo(token), sessao.socket.getRemoteSocketAddress(),
+                        socketAtual.getRemoteSocketAddress());
                 return null;
             }
 
-            // Token válido e ativo
-            return tokenInfo.getCpf();
+            sessao.ultimoUso = agora;
+            return sessao.cpf;
 
         } catch (Exception e) {
-            System.err.println("Erro ao validar token: " + e.getMessage());
+            LOG.erro("Erro ao validar token: {}", e.getMessage());
             return null;
         }
     }
 
 
     /**
-     * Verifica se um CPF específico tem um token ativo
+     * Verifica se um CPF específico tem um token ativo (sempre false no modo assinado)
      */
     public static boolean cpfTemTokenAtivo(String cpf) {
-        return tokens.values().stream()
-                .anyMatch(tokenInfo -> cpf.equals(tokenInfo.getCpf()) && tokenInfo.isAtivo());
+        Sessao sessao = sessoesPorCpf.get(cpf);
+        return sessao != null && sessao.ativa.get() && sessao.prazo() > System.currentTimeMillis();
     }
 
     /**
      * Remove token específico (logout manual)
      */
     public static boolean invalidarToken(String token) {
-        TokenInfo tokenInfo = tokens.get(token);
-        if (tokenInfo != null && tokenInfo.isAtivo()) {
-            tokenInfo.desativar();
-            System.out.println("Token invalidado para CPF: " + tokenInfo.getCpf());
+        if (ASSINADO) {
+            return TokenAssinado.revogar(token);
+        }
+        Sessao sessao = tokens.get(token);
+        if (sessao != null && encerrar(sessao)) {
+            LOG.info("Token invalidado para CPF: {}", sessao.cpf);
             return true;
         }
         return false;
     }
 
     /**
-     * Remove todos os tokens de um CPF específico
+     * Remove o token ativo de um CPF específico (usuario_deletar)
      */
     public static void invalidarTokensPorCpf(String cpf) {
-        tokens.values().stream()
-                .filter(tokenInfo -> cpf.equals(tokenInfo.getCpf()) && tokenInfo.isAtivo())
-                .forEach(tokenInfo -> {
-                    tokenInfo.desativar();
-                    System.out.println("Token invalidado para CPF: " + cpf);
-                });
+        if (ASSINADO) {
+            TokenAssinado.revogarCpf(cpf);
+            LOG.info("Tokens revogados para CPF: {}", cpf);
+            return;
+        }
+        Sessao sessao = sessoesPorCpf.get(cpf);
+        if (sessao != null && encerrar(sessao)) {
+            LOG.info("Token invalidado para CPF: {}", cpf);
+        }
     }
 
     /**
-     * Retorna número de tokens ativos
+     * Retorna número de tokens ativos (sempre 0 no modo assinado)
      */
     public static int contarTokensAtivos() {
-        return (int) tokens.values().stream()
-                .filter(TokenInfo::isAtivo)
-                .count();
+        return ativas.get();
     }
 
-
-}
\ No newline at end of file
+    // Só a primeira chamada para uma sessão a encerra; as outras devolvem false
+    private static boolean encerrar(Sessao sessao) {
+        if (!sessao.ativa.compareAndSet(true, false)) {
+            return false;
+        }
+        tokens.remove(sessao.token, sessao);
+        sessoesPorCpf.remove(sessao.cpf, sessao);
+        ativas.decrementAndGet();
+        roda.cancelar(sessao.expiracao);
+        return true;
+    }
+}
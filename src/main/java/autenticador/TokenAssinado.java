@@ -0,0 +1,185 @@
+package autenticador;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import log.Log;
+
+/**
+ * Tokens assinados com HMAC-SHA256, usados quando -Dtoken.modo=assinado.
+ *
+ * O token carrega versão, emissão, expiração, um identificador e o CPF, em base64url, seguido de
+ * "." e da assinatura truncada em 128 bits. Validar não consulta sessões: confere a assinatura e o
+ * prazo, então qualquer nó com a mesma chave (-Dtoken.chave, em base64) aceita o token, em qualquer
+ * conexão. Diferente do modo em memória, o token não fica preso ao socket do login: quem o tem
+ * pode usá-lo até expirar ou ser revogado.
+ *
+ * A única memória é a lista de revogação: logout revoga o identificador, usuario_deletar e um novo
+ * login revogam tudo o que o CPF emitiu até ali. Essa lista não é replicada: a revogação só vale no
+ * nó que atendeu o logout, o usuario_deletar ou o novo login, e nos outros o token continua aceito
+ * até expirar. Cada entrada sai da lista quando os tokens que ela cobre já teriam expirado, então a
+ * lista fica do tamanho das revogações feitas dentro de -Dtoken.validadeMinutos (padrão 60).
+ */
+final class TokenAssinado {
+    private static final Log LOG = Log.de(TokenAssinado.class);
+
+    private static final byte VERSAO = 2;
+    private static final int BYTES_ASSINATURA = 16;
+    // versão, emissão, expiração e identificador; o CPF vem depois
+    private static final int BYTES_CABECALHO = 1 + 3 * Long.BYTES;
+    private static final long VALIDADE_MILLIS = TimeUnit.MINUTES.toMillis(Long.getLong("token.validadeMinutos", 60));
+
+    private static final Base64.Encoder CODIFICADOR = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODIFICADOR = Base64.getUrlDecoder();
+
+    private static final Mac PROTOTIPO = criarMac();
+    private static final ThreadLocal<Mac> MACS = ThreadLocal.withInitial(TokenAssinado::copiarMac);
+
+    // identificador do token -> expiração dele
+    private static final Map<Long, Long> revogados = new ConcurrentHashMap<>();
+    // CPF -> tokens emitidos até este instante não valem mais
+    private static final Map<String, Long> revogadosPorCpf = new ConcurrentHashMap<>();
+    // Última emissão deste nó: cada token ganha um instante maior que o do anterior
+    private static final AtomicLong ultimaEmissao = new AtomicLong();
+
+    private TokenAssinado() {
+    }
+
+    static String gerar(String cpf) {
+        long agora = System.currentTimeMillis();
+        long emitidoEm = emissao(agora);
+        // Um login por CPF: os tokens anteriores deste CPF, mesmo do mesmo milissegundo, deixam de valer neste nó
+        revogadosPorCpf.merge(cpf, emitidoEm - 1, Math::max);
+
+        byte[] cpfBytes = cpf.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer conteudo = ByteBuffer.allocate(BYTES_CABECALHO + cpfBytes.length)
+                .put(VERSAO)
+                .putLong(emitidoEm)
+                .putLong(agora + VALIDADE_MILLIS)
+                .putLong(GeradorToken.novoLong())
+                .put(cpfBytes);
+        byte[] bytes = conteudo.array();
+        return CODIFICADOR.encodeToString(bytes) + "." + CODIFICADOR.encodeToString(assinar(bytes));
+    }
+
+    /**
+     * @return CPF dono do token, ou null se a assinatura, o prazo ou a revogação o recusam
+     */
+    static String validar(String token) {
+        ByteBuffer conteudo = abrir(token);
+        if (conteudo == null) {
+            LOG.aviso("Token com assinatura inválida: {}", Log.segredo(token));
+            return null;
+        }
+        long emitidoEm = conteudo.getLong(1);
+        long expiraEm = conteudo.getLong(9);
+        long id = conteudo.getLong(17);
+        String cpf = new String(conteudo.array(), BYTES_CABECALHO, conteudo.capacity() - BYTES_CABECALHO,
+                StandardCharsets.UTF_8);
+
+        if (expiraEm <= System.currentTimeMillis()) {
+            LOG.info("Token expirado para CPF: {}", cpf);
+            return null;
+        }
+        Long revogadoAte = revogadosPorCpf.get(cpf);
+        if (revogados.containsKey(id) || (revogadoAte != null && emitidoEm <= revogadoAte)) {
+            LOG.aviso("Token revogado: {}", Log.segredo(token));
+            return null;
+        }
+        return cpf;
+    }
+
+    /**
+     * Logout: revoga o token, se ele for válido e ainda não estiver revogado.
+     */
+    static boolean revogar(String token) {
+        ByteBuffer conteudo = abrir(token);
+        if (conteudo == null) {
+            return false;
+        }
+        return revogados.putIfAbsent(conteudo.getLong(17), conteudo.getLong(9)) == null;
+    }
+
+    /**
+     * Revoga todos os tokens já emitidos para o CPF.
+     */
+    static void revogarCpf(String cpf) {
+        revogadosPorCpf.merge(cpf, emissao(System.currentTimeMillis()), Math::max);
+    }
+
+    // Instante de emissão estritamente crescente: dois logins no mesmo milissegundo não empatam
+    private static long emissao(long agora) {
+        return ultimaEmissao.updateAndGet(ultima -> Math.max(ultima + 1, agora));
+    }
+
+    /**
+     * Tira da lista as revogações que só cobrem tokens já expirados.
+     */
+    static void limparRevogacoes(long agora) {
+        revogados.values().removeIf(expiraEm -> expiraEm <= agora);
+        revogadosPorCpf.values().removeIf(revogadoAte -> revogadoAte + VALIDADE_MILLIS <= agora);
+    }
+
+    // Confere formato, versão e assinatura; devolve o conteúdo ou null
+    private static ByteBuffer abrir(String token) {
+        int ponto = token.indexOf('.');
+        if (ponto < 0) {
+            return null;
+        }
+        byte[] conteudo;
+        byte[] assinatura;
+        try {
+            conteudo = DECODIFICADOR.decode(token.substring(0, ponto));
+            assinatura = DECODIFICADOR.decode(token.substring(ponto + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (conteudo.length <= BYTES_CABECALHO || conteudo[0] != VERSAO
+                || !MessageDigest.isEqual(assinatura, assinar(conteudo))) {
+            return null;
+        }
+        return ByteBuffer.wrap(conteudo);
+    }
+
+    private static byte[] assinar(byte[] conteudo) {
+        return Arrays.copyOf(MACS.get().doFinal(conteudo), BYTES_ASSINATURA);
+    }
+
+    private static Mac criarMac() {
+        byte[] chave;
+        String configurada = System.getProperty("token.chave");
+        if (configurada != null && !configurada.isBlank()) {
+            chave = Base64.getDecoder().decode(configurada.trim());
+        } else {
+            chave = new byte[32];
+            new SecureRandom().nextBytes(chave);
+            LOG.aviso("token.chave não definida: usando chave aleatória, os tokens só valem neste processo");
+        }
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(chave, "HmacSHA256"));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 indisponível", e);
+        }
+    }
+
+    // Mac não é thread-safe: cada thread usa uma cópia do protótipo já inicializado com a chave
+    private static Mac copiarMac() {
+        try {
+            return (Mac) PROTOTIPO.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("HmacSHA256 sem suporte a clone", e);
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package carga;
+
+import cliente.ConexaoAssincrona;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import metricas.Histograma;
+import validator.RulesEnum;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Gerador de carga sem interface: abre -Dcarga.conexoes conexões (ConexaoAssincrona, o mesmo
+ * protocolo do Cliente), cria e loga uma conta em cada e sorteia operações pelo -Dcarga.mix.
+ *
+ * Modo fechado (padrão): -Dcarga.concorrencia requisições por conexão, cada uma esperando a
+ * resposta antes de mandar a próxima. Com -Dcarga.taxa (requisições/s no total), cada uma segue o
+ * ritmo, e uma resposta que atrasa também registra as amostras que deixaram de ser feitas nesse
+ * tempo (correção de coordinated omission). Sem taxa, vai o mais rápido possível e as latências
+ * não têm correção.
+ *
+ * Modo aberto: as requisições saem na taxa fixa -Dcarga.taxa, distribuídas entre as conexões,
+ * sem esperar as respostas; a latência conta a partir do instante previsto para o envio, então o
+ * atraso do próprio gerador ou da fila do servidor entra na medida.
+ *
+ * Uso: java -Dcarga.porta=12345 -Dcarga.modo=aberto -Dcarga.taxa=2000 -cp ... carga.GeradorCarga
+ */
+public class GeradorCarga {
+    private static final String HOST = System.getProperty("carga.host", "127.0.0.1");
+    private static final int PORTA = Integer.getInteger("carga.porta", 12345);
+    private static final int CONEXOES = Integer.getInteger("carga.conexoes", 8);
+    private static final boolean ABERTO = "aberto".equalsIgnoreCase(System.getProperty("carga.modo", "fechado"));
+    private static final int TAXA = Integer.getInteger("carga.taxa", 0);
+    private static final int CONCORRENCIA = Integer.getInteger("carga.concorrencia", 1);
+    private static final int AQUECIMENTO_SEGUNDOS = Integer.getInteger("carga.aquecimentoSegundos", 5);
+    private static final int DURACAO_SEGUNDOS = Integer.getInteger("carga.duracaoSegundos", 30);
+    private static final String MIX = System.getProperty("carga.mix",
+            "depositar=20,transacao_criar=20,usuario_ler=50,transacao_ler=10");
+
+    // Saldo depositado em cada conta antes da medição, para as transferências não falharem
+    private static final double SALDO_INICIAL = 1_000_000.0;
+    private static final DateTimeFormatter ISO = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'");
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // Uma conta logada numa conexão e as mensagens prontas de cada operação do mix
+    private record Conta(ConexaoAssincrona conexao, String cpf, Map<RulesEnum, String> mensagens) {
+    }
+
+    // Resultados de uma operação dentro da janela de medição
+    private static final class Estatistica {
+        final Histograma latenciaMicros = new Histograma();
+        final LongAdder respostas = new LongAdder();
+        final LongAdder recusadas = new LongAdder(); // responderam com status false
+        final LongAdder falhas = new LongAdder();    // sem resposta: tempo esgotado ou conexão caiu
+    }
+
+    private final RulesEnum[] operacoes;
+    private final int[] pesosAcumulados;
+    private final Map<RulesEnum, Estatistica> estatisticas = new EnumMap<>(RulesEnum.class);
+    private final AtomicLong pendentes = new AtomicLong();
+    private final LongAdder respostasAteAgora = new LongAdder();
+    private List<Conta> contas;
+    private long inicioMedicao;
+    private long fimMedicao;
+
+    public static void main(String[] args) throws Exception {
+        new GeradorCarga().executar();
+    }
+
+    GeradorCarga() throws Exception {
+        List<RulesEnum> lidas = new ArrayList<>();
+        List<Integer> pesos = new ArrayList<>();
+        for (String item : MIX.split(",")) {
+            String[] partes = item.trim().split("=");
+            RulesEnum operacao = RulesEnum.getEnum(partes[0].trim());
+            if (operacao != RulesEnum.DEPOSITAR && operacao != RulesEnum.TRANSACAO_CRIAR
+                    && operacao != RulesEnum.USUARIO_LER && operacao != RulesEnum.TRANSACAO_LER) {
+                throw new IllegalArgumentException("Operação fora do mix suportado: " + partes[0]);
+            }
+            int peso = Integer.parseInt(partes[1].trim());
+            if (peso > 0) {
+                lidas.add(operacao);
+                pesos.add(peso);
+            }
+        }
+        if (lidas.isEmpty()) {
+            throw new IllegalArgumentException("carga.mix sem operações: " + MIX);
+        }
+        operacoes = lidas.toArray(new RulesEnum[0]);
+        pesosAcumulados = new int[operacoes.length];
+        int soma = 0;
+        for (int i = 0; i < operacoes.length; i++) {
+            soma += pesos.get(i);
+            pesosAcumulados[i] = soma;
+            estatisticas.put(operacoes[i], new Estatistica());
+        }
+    }
+
+    void executar() throws Exception {
+        if (ABERTO && TAXA <= 0) {
+            throw new IllegalArgumentException("O modo aberto precisa de -Dcarga.taxa");
+        }
+        System.out.printf("Carga em %s:%d: %d conexões, modo %s, taxa %s, mix %s%n", HOST, PORTA, CONEXOES,
+                ABERTO ? "aberto" : "fechado (concorrência " + CONCORRENCIA + " por conexão)",
+                TAXA > 0 ? TAXA + " req/s" : "livre", MIX);
+
+        contas = prepararContas();
+        System.out.printf("%d contas prontas. Aquecimento de %ds, medição de %ds.%n",
+                contas.size(), AQUECIMENTO_SEGUNDOS, DURACAO_SEGUNDOS);
+
+        long agora = System.nanoTime();
+        inicioMedicao = agora + TimeUnit.SECONDS.toNanos(AQUECIMENTO_SEGUNDOS);
+        fimMedicao = inicioMedicao + TimeUnit.SECONDS.toNanos(DURACAO_SEGUNDOS);
+
+        Thread progresso = Thread.ofPlatform().daemon().name("Carga-Progresso").start(this::mostrarProgresso);
+        if (ABERTO) {
+            gerarAberto(agora);
+        } else {
+            gerarFechado();
+        }
+        aguardarPendentes();
+        progresso.interrupt();
+        imprimirRelatorio();
+
+        for (Conta conta : contas) {
+            conta.conexao().close();
+        }
+    }
+
+    // ===== Preparação =====
+
+    private List<Conta> prepararContas() {
+        // CPFs novos a cada execução: 5 dígitos sorteados + o número da conexão
+        long base = ThreadLocalRandom.current().nextLong(100_000) * 1_000_000L;
+        List<CompletableFuture<String>> logins = new ArrayList<>();
+        List<ConexaoAssincrona> conexoes = new ArrayList<>();
+        List<String> cpfs = new ArrayList<>();
+        for (int i = 0; i < CONEXOES; i++) {
+            String cpf = formatarCpf(base + i);
+            ConexaoAssincrona conexao = ConexaoAssincrona.abrir(HOST, PORTA, false).join();
+            conexoes.add(conexao);
+            cpfs.add(cpf);
+            logins.add(entrar(conexao, cpf, i));
+        }
+
+        List<String> tokens = new ArrayList<>();
+        for (CompletableFuture<String> login : logins) {
+            tokens.add(login.join());
+        }
+
+        List<Conta> prontas = new ArrayList<>();
+        for (int i = 0; i < CONEXOES; i++) {
+            // Cada conta transfere para a seguinte
+            String destino = cpfs.get((i + 1) % CONEXOES);
+            prontas.add(new Conta(conexoes.get(i), cpfs.get(i), montarMensagens(tokens.get(i), destino)));
+        }
+        return prontas;
+    }
+
+    // conectar, usuario_criar, usuario_login e o depósito inicial; devolve o token
+    private CompletableFuture<String> entrar(ConexaoAssincrona conexao, String cpf, int numero) {
+        String senha = "carga123";
+        return conexao.enviar(json(objeto("conectar")))
+                .thenCompose(r -> conexao.enviar(json(objeto("usuario_criar")
+                        .put("nome", String.format("Carga %06d", numero)).put("cpf", cpf).put("senha", senha))))
+                .thenCompose(r -> conexao.enviar(json(objeto("usuario_login").put("cpf", cpf).put("senha", senha))))
+                .thenCompose(r -> {
+                    if (!r.path("status").asBoolean()) {
+                        throw new IllegalStateException("Login falhou para " + cpf + ": " + r.path("info").asText());
+                    }
+                    String token = r.path("token").asText();
+                    return conexao.enviar(json(objeto("depositar").put("token", token).put("valor_enviado", SALDO_INICIAL)))
+                            .thenApply(d -> token);
+                });
+    }
+
+    private Map<RulesEnum, String> montarMensagens(String token, String cpfDestino) {
+        ZonedDateTime agora = ZonedDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.SECONDS);
+        Map<RulesEnum, String> mensagens = new EnumMap<>(RulesEnum.class);
+        mensagens.put(RulesEnum.DEPOSITAR, json(objeto("depositar").put("token", token).put("valor_enviado", 1.0)));
+        mensagens.put(RulesEnum.TRANSACAO_CRIAR, json(objeto("transacao_criar").put("token", token)
+                .put("valor", 0.01).put("cpf_destino", cpfDestino)));
+        mensagens.put(RulesEnum.USUARIO_LER, json(objeto("usuario_ler").put("token", token)));
+        // Uma página das mais recentes: o custo não cresce com o histórico acumulado durante a carga
+        mensagens.put(RulesEnum.TRANSACAO_LER, json(objeto("transacao_ler").put("token", token)
+                .put("data_inicial", agora.minusDays(1).format(ISO))
+                .put("data_final", agora.plusDays(1).format(ISO))
+                .put("limite", 20)));
+        return mensagens;
+    }
+
+    // ===== Geração =====
+
+    private void gerarFechado() throws InterruptedException {
+        int trabalhadores = contas.size() * CONCORRENCIA;
+        // Intervalo esperado entre requisições de um trabalhador, ou 0 sem taxa
+        long intervalo = TAXA > 0 ? TimeUnit.SECONDS.toNanos(1) * trabalhadores / TAXA : 0;
+        List<Thread> threads = new ArrayList<>();
+        for (Conta conta : contas) {
+            for (int i = 0; i < CONCORRENCIA; i++) {
+                threads.add(Thread.startVirtualThread(() -> trabalharFechado(conta, intervalo)));
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    private void trabalharFechado(Conta conta, long intervalo) {
+        long proximo = System.nanoTime();
+        while (true) {
+            if (intervalo > 0) {
+                esperarAte(proximo);
+            }
+            long inicio = System.nanoTime();
+            if (inicio >= fimMedicao) {
+                return;
+            }
+            RulesEnum operacao = sortear();
+            pendentes.incrementAndGet();
+            try {
+                JsonNode resposta = conta.conexao().enviar(conta.mensagens().get(operacao)).join();
+                registrar(operacao, inicio, resposta, intervalo);
+            } catch (CompletionException e) {
+                registrarFalha(operacao, inicio);
+            } finally {
+                pendentes.decrementAndGet();
+            }
+            // Atrasado, segue sem tentar recuperar o ritmo: as amostras perdidas já foram registradas
+            proximo = Math.max(proximo + intervalo, System.nanoTime());
+        }
+    }
+
+    private void gerarAberto(long inicio) {
+        long intervalo = TimeUnit.SECONDS.toNanos(1) / TAXA;
+        long previsto = inicio;
+        int proxima = 0;
+        while (previsto < fimMedicao) {
+            esperarAte(previsto);
+            // Se o gerador atrasou, manda tudo o que já devia ter saído; a latência conta desde 'previsto'
+            long agora = System.nanoTime();
+            while (previsto <= agora && previsto < fimMedicao) {
+                Conta conta = contas.get(proxima);
+                proxima = (proxima + 1) % contas.size();
+                RulesEnum operacao = sortear();
+                long envio = previsto;
+                pendentes.incrementAndGet();
+                conta.conexao().enviar(conta.mensagens().get(operacao)).whenComplete((resposta, erro) -> {
+                    if (erro == null) {
+                        registrar(operacao, envio, resposta, 0);
+                    } else {
+                        registrarFalha(operacao, envio);
+                    }
+                    pendentes.decrementAndGet();
+                });
+                previsto += intervalo;
+            }
+        }
+    }
+
+    // A cada 5 s, respostas por segundo desde a última linha (conta também o aquecimento)
+    private void mostrarProgresso() {
+        long anterior = 0;
+        long inicio = System.nanoTime();
+        try {
+            while (true) {
+                TimeUnit.SECONDS.sleep(5);
+                long atual = respostasAteAgora.sum();
+                System.out.printf("[%3ds] %.1f req/s, %d em voo%n", TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - inicio),
+                        (atual - anterior) / 5.0, pendentes.get());
+                anterior = atual;
+            }
+        } catch (InterruptedException e) {
+            // fim da medição
+        }
+    }
+
+    private void aguardarPendentes() {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (pendentes.get() > 0 && System.nanoTime() < limite) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+    }
+
+    private static void esperarAte(long instante) {
+        long falta;
+        while ((falta = instante - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(falta);
+        }
+    }
+
+    private RulesEnum sortear() {
+        int sorteio = ThreadLocalRandom.current().nextInt(pesosAcumulados[pesosAcumulados.length - 1]);
+        for (int i = 0; i < pesosAcumulados.length; i++) {
+            if (sorteio < pesosAcumulados[i]) {
+                return operacoes[i];
+            }
+        }
+        return operacoes[operacoes.length - 1];
+    }
+
+    // ===== Medição =====
+
+    // Só conta o que foi (ou deveria ter sido) enviado dentro da janela de medição
+    private void registrar(RulesEnum operacao, long envio, JsonNode resposta, long intervaloEsperado) {
+        respostasAteAgora.increment();
+        if (envio < inicioMedicao || envio >= fimMedicao) {
+            return;
+        }
+        Estatistica estatistica = estatisticas.get(operacao);
+        estatistica.respostas.increment();
+        long micros = (System.nanoTime() - envio) / 1000;
+        estatistica.latenciaMicros.registrarComIntervaloEsperado(micros, intervaloEsperado / 1000);
+        if (!resposta.path("status").asBoolean()) {
+            estatistica.recusadas.increment();
+        }
+    }
+
+    private void registrarFalha(RulesEnum operacao, long envio) {
+        if (envio >= inicioMedicao && envio < fimMedicao) {
+            estatisticas.get(operacao).falhas.increment();
+        }
+    }
+
+    private void imprimirRelatorio() {
+        double segundos = DURACAO_SEGUNDOS;
+        System.out.println();
+        System.out.printf("%-16s %9s %10s %9s %7s %10s %10s %10s %10s%n", "operacao", "respostas", "req/s",
+                "recusadas", "falhas", "p50(ms)", "p99(ms)", "p99.9(ms)", "max(ms)");
+        Histograma total = new Histograma();
+        long respostas = 0;
+        long recusadas = 0;
+        long falhas = 0;
+        for (RulesEnum operacao : operacoes) {
+            Estatistica e = estatisticas.get(operacao);
+            imprimirLinha(operacao.getValue(), e.respostas.sum(), e.latenciaMicros, e.recusadas.sum(), e.falhas.sum(), segundos);
+            total.adicionar(e.latenciaMicros);
+            respostas += e.respostas.sum();
+            recusadas += e.recusadas.sum();
+            falhas += e.falhas.sum();
+        }
+        imprimirLinha("total", respostas, total, recusadas, falhas, segundos);
+        if (!ABERTO && TAXA <= 0) {
+            System.out.println("(modo fechado sem taxa: latências sem correção de coordinated omission)");
+        }
+    }
+
+    private static void imprimirLinha(String nome, long respostas, Histograma h, long recusadas, long falhas,
+                                      double segundos) {
+        System.out.printf("%-16s %9d %10.1f %9d %7d %10.2f %10.2f %10.2f %10.2f%n", nome, respostas,
+                respostas / segundos, recusadas, falhas, h.percentil(50) / 1000.0, h.percentil(99) / 1000.0,
+                h.percentil(99.9) / 1000.0, h.getMaximo() / 1000.0);
+    }
+
+    // ===== Mensagens =====
+
+    private static ObjectNode objeto(String operacao) {
+        return MAPPER.createObjectNode().put("operacao", operacao);
+    }
+
+    private static String json(ObjectNode objeto) {
+        return objeto.toString();
+    }
+
+    private static String formatarCpf(long numero) {
+        String d = String.format("%011d", numero);
+        return d.substring(0, 3) + "." + d.substring(3, 6) + "." + d.substring(6, 9) + "-" + d.substring(9);
+    }
+}
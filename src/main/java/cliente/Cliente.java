@@ -6,6 +6,8 @@ import java.io.*;
 import java.net.*;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.JsonNode;
 //final
@@ -14,6 +16,8 @@ public class Cliente {
     private Socket socket;
     private PrintWriter out;
     private BufferedReader in;
+    // Conexão aberta por conectarAsync(); quando existe, todas as mensagens passam por ela
+    private volatile ConexaoAssincrona assincrona;
 
     public static void main(String[] args) {
         Cliente cliente = new Cliente();
@@ -68,39 +72,13 @@ public class Cliente {
 
     public String enviarMensagem(String json) {
         try {
-            Validator.validateClient(json);
-            System.out.println("Cliente enviou: " + json);
-            out.println(json);
-            String resposta = in.readLine();
-
-            if (resposta != null) {
-                System.out.println("Cliente recebeu: " + resposta);
-                try {
-                    Validator.validateServer(resposta);
-                    return resposta;
-                } catch (Exception e) {
-                    System.out.println("Resposta do servidor não segue o protocolo: " + e.getMessage());
-
-                    // Reporta o erro ao servidor
-                    try {
-                        ObjectMapper mapper = new ObjectMapper();
-                        JsonNode noOriginal = mapper.readTree(json);
-                        String operacaoOriginal = noOriginal.get("operacao").asText();
-                        reportarErroServidor(operacaoOriginal, e.getMessage());
-                    } catch (Exception ex) {
-                        System.err.println("Falha ao reportar erro do servidor: " + ex.getMessage());
-                    }
-
-                    // Retorna null para que a camada de serviço trate o erro e o menu seja reexibido.
-                    return null;
-                }
-            }
-            return null;
-        } catch (Exception e) {
-            System.err.println("Erro ao enviar mensagem: " + e.getMessage());
+            return enviarAsync(json).join().toString();
+        } catch (CompletionException e) {
+            System.err.println("Erro ao enviar mensagem: " + ConexaoAssincrona.descreverFalha(e));
             return null;
         }
     }
+
     private void reportarErroServidor(String operacaoEnviada, String motivoErro) {
         try {
             Map<String, String> dados = new HashMap<>();
@@ -117,7 +95,66 @@ public class Cliente {
             System.err.println("Erro ao construir o relatório de erro do servidor: " + e.getMessage());
         }
     }
+    /**
+     * Envia a mensagem e devolve a resposta. Na conexão aberta por conectarAsync() não prende quem
+     * chama; na conexão do console (conectarComServidor) a ida e volta acontece aqui mesmo e o
+     * future já volta completo.
+     *
+     * @return a resposta já validada; falha se a mensagem não segue o protocolo, se a conexão cair,
+     *         se a resposta não segue o protocolo ou se demorar
+     */
+    public CompletableFuture<JsonNode> enviarAsync(String json) {
+        ConexaoAssincrona conexao = assincrona;
+        if (conexao != null) {
+            return conexao.enviar(json);
+        }
+        if (out == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Não conectado ao servidor"));
+        }
+        try {
+            Validator.validateClient(json);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e instanceof IllegalArgumentException ? e
+                    : new IllegalArgumentException(e.getMessage(), e));
+        }
+
+        String resposta;
+        try {
+            System.out.println("Cliente enviou: " + json);
+            out.println(json);
+            resposta = in.readLine();
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (resposta == null) {
+            return CompletableFuture.failedFuture(new IOException("Conexão encerrada pelo servidor"));
+        }
+        System.out.println("Cliente recebeu: " + resposta);
+
+        ObjectMapper mapper = new ObjectMapper();
+        try {
+            JsonNode node = mapper.readTree(resposta);
+            Validator.validateServer(node);
+            return CompletableFuture.completedFuture(node);
+        } catch (Exception e) {
+            System.out.println("Resposta do servidor não segue o protocolo: " + e.getMessage());
+
+            // Reporta o erro ao servidor
+            try {
+                reportarErroServidor(mapper.readTree(json).get("operacao").asText(), e.getMessage());
+            } catch (Exception ex) {
+                System.err.println("Falha ao reportar erro do servidor: " + ex.getMessage());
+            }
+            return CompletableFuture.failedFuture(
+                    new IllegalStateException("Resposta do servidor não segue o protocolo: " + e.getMessage(), e));
+        }
+    }
+
     public void enviarMensagemSemResposta(String json) {
+        if (assincrona != null) {
+            assincrona.enviar(json).exceptionally(e -> null);
+            return;
+        }
         try {
             // Apenas envia a mensagem para o servidor.
             out.println(json);
@@ -128,29 +165,44 @@ public class Cliente {
     }
 
     public boolean conectarComServidorGUI(String serverIP, int serverPort) {
-        try {
-            socket = new Socket(serverIP, serverPort);
-            out = new PrintWriter(socket.getOutputStream(), true);
-            in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-
-            // Enviar operação conectar
-            Map<String, String> dados = new HashMap<>();
-            dados.put("operacao", "conectar");
-
-            ObjectMapper mapper = new ObjectMapper();
-            String json = mapper.writeValueAsString(dados);
-
-            String resposta = enviarMensagem(json);
-
-            return resposta != null && resposta.contains("\"status\":true");
+        return conectarAsync(serverIP, serverPort).join();
+    }
 
-        } catch (Exception e) {
-            System.err.println("Erro de conexão: " + e.getMessage());
-            return false;
+    /**
+     * Abre uma ConexaoAssincrona (thread leitora própria, respostas casadas pelo 'id') e envia 'conectar'.
+     *
+     * @return true se o servidor aceitou a conexão; nunca falha
+     */
+    public CompletableFuture<Boolean> conectarAsync(String serverIP, int serverPort) {
+        Map<String, String> dados = new HashMap<>();
+        dados.put("operacao", "conectar");
+        String json;
+        try {
+            json = new ObjectMapper().writeValueAsString(dados);
+        } catch (IOException e) {
+            return CompletableFuture.completedFuture(false);
         }
+
+        return ConexaoAssincrona.abrir(serverIP, serverPort)
+                .thenCompose(conexao -> {
+                    ConexaoAssincrona anterior = assincrona;
+                    assincrona = conexao;
+                    if (anterior != null) {
+                        anterior.close();
+                    }
+                    return conexao.enviar(json);
+                })
+                .thenApply(resposta -> resposta.path("status").asBoolean())
+                .exceptionally(e -> {
+                    System.err.println("Erro de conexão: " + ConexaoAssincrona.descreverFalha(e));
+                    return false;
+                });
     }
 
     private void fecharConexao() {
+        if (assincrona != null) {
+            assincrona.close();
+        }
         try {
             if (out != null) out.close();
             if (in != null) in.close();
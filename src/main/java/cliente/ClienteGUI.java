@@ -17,13 +17,16 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import log.DestinoAreaTexto;
 //final
 public class ClienteGUI extends JFrame {
     // Serviços e estado de sessão
     private final Cliente cliente;
     private final ServicoUsuario servicoUsuario;
-    private String token;
-    private UsuarioInfo usuarioAtual;
+    // Escritos nos callbacks das respostas (thread leitora da conexão) e lidos na EDT
+    private volatile String token;
+    private volatile UsuarioInfo usuarioAtual;
 
     // Contêiner e navegação
     private final CardLayout cards = new CardLayout();
@@ -37,6 +40,7 @@ public class ClienteGUI extends JFrame {
 
     // Logs compartilhados
     private final JTextArea areaLog = new JTextArea(8, 80);
+    private final DestinoAreaTexto saidaLog = new DestinoAreaTexto(areaLog);
 
     // Utilidades
     private final ObjectMapper mapper = new ObjectMapper() {{
@@ -116,12 +120,9 @@ public class ClienteGUI extends JFrame {
         }
     }
 
+    // Thread-safe: o DestinoAreaTexto atualiza a área em lotes, na EDT
     private void appendLog(String msg) {
-        SwingUtilities.invokeLater(() -> {
-            String ts = java.time.LocalTime.now().format(java.time.format.DateTimeFormatter.ofPattern("HH:mm:ss"));
-            areaLog.append("[" + ts + "] " + msg + "\n");
-            areaLog.setCaretPosition(areaLog.getDocument().getLength());
-        });
+        saidaLog.adicionar(msg);
     }
 
     private void montarUI() {
@@ -157,29 +158,27 @@ public class ClienteGUI extends JFrame {
         return ldt.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) + "Z";
     }
 
-    // Busca dados do usuário (JSON) direto do servidor para preencher a UI
-    private UsuarioInfo carregarUsuarioAtual() {
-        if (token == null) return null;
-        try {
-            Map<String, String> dados = new HashMap<>();
-            dados.put("operacao", "usuario_ler");
-            dados.put("token", token);
-            String json = mapper.writeValueAsString(dados);
-            String resp = cliente.enviarMensagem(json);
-            if (resp == null) return null;
-            JsonNode root = mapper.readTree(resp);
-            if (!root.path("status").asBoolean()) return null;
-            JsonNode u = root.path("usuario");
-            UsuarioInfo info = new UsuarioInfo();
-            info.nome = u.path("nome").asText("");
-            info.cpf = u.path("cpf").asText("");
-            info.saldo = u.path("saldo").asDouble(0.0);
-            info.token = token;
+    // Busca dados do usuário direto do servidor e guarda em usuarioAtual (null se falhar)
+    private CompletableFuture<UsuarioInfo> carregarUsuarioAtual() {
+        String tk = token;
+        if (tk == null) return CompletableFuture.completedFuture(null);
+        return servicoUsuario.lerUsuarioAsync(tk).thenApply(u -> {
+            UsuarioInfo info = null;
+            if (u != null) {
+                info = new UsuarioInfo();
+                info.nome = u.path("nome").asText("");
+                info.cpf = u.path("cpf").asText("");
+                info.saldo = u.path("saldo").asDouble(0.0);
+                info.token = tk;
+            }
+            usuarioAtual = info;
             return info;
-        } catch (Exception e) {
-            appendLog("Falha ao carregar usuário: " + e.getMessage());
-            return null;
-        }
+        });
+    }
+
+    // Recarrega os dados do usuário e mostra na tela principal
+    private void recarregarUsuario() {
+        carregarUsuarioAtual().thenAccept(info -> SwingUtilities.invokeLater(() -> principalPanel.preencherUsuario(info)));
     }
 
     // ===== Telas =====
@@ -214,14 +213,11 @@ public class ClienteGUI extends JFrame {
             try {
                 int porta = Integer.parseInt(portaStr);
                 btnConectar.setEnabled(false);
-                new Thread(() -> {
-                    boolean ok = cliente.conectarComServidorGUI(ip, porta);
-                    SwingUtilities.invokeLater(() -> {
-                        btnConectar.setEnabled(true);
-                        if (ok) { appendLog("Conectado ao servidor."); mostrarTela("auth"); }
-                        else { appendLog("Falha na conexão."); JOptionPane.showMessageDialog(this, "Falha na conexão.", "Erro", JOptionPane.ERROR_MESSAGE); }
-                    });
-                }).start();
+                cliente.conectarAsync(ip, porta).thenAccept(ok -> SwingUtilities.invokeLater(() -> {
+                    btnConectar.setEnabled(true);
+                    if (ok) { appendLog("Conectado ao servidor."); mostrarTela("auth"); }
+                    else { appendLog("Falha na conexão."); JOptionPane.showMessageDialog(this, "Falha na conexão.", "Erro", JOptionPane.ERROR_MESSAGE); }
+                }));
             } catch (NumberFormatException ex) {
                 appendLog("Porta inválida.");
             }
@@ -276,45 +272,36 @@ public class ClienteGUI extends JFrame {
             }
 
             btnEnviar.setEnabled(false);
-            new Thread(() -> {
-                try {
-                    if (rbCadastro.isSelected()) {
-                        boolean ok = servicoUsuario.cadastrarUsuario(nome, cpf, senha);
-                        SwingUtilities.invokeLater(() -> {
-                            appendLog(ok ? "Cadastro realizado." : "Falha no cadastro.");
-                            if (ok) {
-                                JOptionPane.showMessageDialog(this, "Cadastro OK. Faça login.", "Info", JOptionPane.INFORMATION_MESSAGE);
-                            }
-                        });
-                    } else {
-                        String tk = servicoUsuario.fazerLogin(cpf, senha);
-                        if (tk != null) {
-                            token = tk;
-                            appendLog("Login OK. Token atribuído.");
-                            UsuarioInfo info = carregarUsuarioAtual();
-                            usuarioAtual = info;
-                            SwingUtilities.invokeLater(() -> {
-                                principalPanel.preencherUsuario(info);
-                                mostrarTela("principal");
-                            });
-                        } else {
-                            SwingUtilities.invokeLater(() -> {
-                                appendLog("Falha no login.");
-                            });
-                        }
+            CompletableFuture<?> operacao;
+            if (rbCadastro.isSelected()) {
+                operacao = servicoUsuario.cadastrarUsuarioAsync(nome, cpf, senha).thenAccept(ok -> SwingUtilities.invokeLater(() -> {
+                    appendLog(ok ? "Cadastro realizado." : "Falha no cadastro.");
+                    if (ok) {
+                        JOptionPane.showMessageDialog(this, "Cadastro OK. Faça login.", "Info", JOptionPane.INFORMATION_MESSAGE);
                     }
-                } catch (Exception e) {
-                    SwingUtilities.invokeLater(() -> {
-                        appendLog("Erro durante operação: " + e.getMessage());
-                    });
-                } finally {
-                    SwingUtilities.invokeLater(() -> {
-                        btnEnviar.setEnabled(true);
-                        // Limpar campos de senha por segurança
-                        senhaField.setText("");
-                    });
+                }));
+            } else {
+                operacao = servicoUsuario.fazerLoginAsync(cpf, senha).thenCompose(tk -> {
+                    if (tk == null) {
+                        appendLog("Falha no login.");
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    token = tk;
+                    appendLog("Login OK. Token atribuído.");
+                    return carregarUsuarioAtual().thenAccept(info -> SwingUtilities.invokeLater(() -> {
+                        principalPanel.preencherUsuario(info);
+                        mostrarTela("principal");
+                    }));
+                });
+            }
+            operacao.whenComplete((r, e) -> SwingUtilities.invokeLater(() -> {
+                if (e != null) {
+                    appendLog("Erro durante operação: " + e.getMessage());
                 }
-            }).start();
+                btnEnviar.setEnabled(true);
+                // Limpar campos de senha por segurança
+                senhaField.setText("");
+            }));
         }
     }
 
@@ -422,15 +409,11 @@ public class ClienteGUI extends JFrame {
             mostrarDetalhe("vazio");
         }
         private void doAtualizarDados() {
-            new Thread(() -> {
-                appendLog("Atualizando dados do usuário...");
-                UsuarioInfo info = carregarUsuarioAtual();
-                usuarioAtual = info; // Atualiza o estado do usuário na classe principal
-                SwingUtilities.invokeLater(() -> {
-                    preencherUsuario(info);
-                    appendLog("Dados atualizados com sucesso.");
-                });
-            }).start();
+            appendLog("Atualizando dados do usuário...");
+            carregarUsuarioAtual().thenAccept(info -> SwingUtilities.invokeLater(() -> {
+                preencherUsuario(info);
+                appendLog("Dados atualizados com sucesso.");
+            }));
         }
 
         private void doAtualizar() {
@@ -440,11 +423,7 @@ public class ClienteGUI extends JFrame {
             Map<String,String> dados = new HashMap<>();
             if (!n.isEmpty()) dados.put("nome", n);
             if (!s.isEmpty()) dados.put("senha", s);
-            new Thread(() -> {
-                servicoUsuario.atualizarDados(token, dados);
-                UsuarioInfo info = carregarUsuarioAtual(); usuarioAtual = info;
-                SwingUtilities.invokeLater(() -> preencherUsuario(info));
-            }).start();
+            servicoUsuario.atualizarDadosAsync(token, dados).thenRun(() -> recarregarUsuario());
         }
 
         private void doDepositar() {
@@ -452,12 +431,10 @@ public class ClienteGUI extends JFrame {
             try {
                 double val = Double.parseDouble(v);
                 if (val <= 0) { appendLog("Valor deve ser positivo."); return; }
-                new Thread(() -> {
-                    boolean ok = servicoUsuario.depositar(token, val);
+                servicoUsuario.depositarAsync(token, val).thenAccept(ok -> {
                     appendLog(ok ? "Depósito OK." : "Depósito falhou.");
-                    UsuarioInfo info = carregarUsuarioAtual(); usuarioAtual = info;
-                    SwingUtilities.invokeLater(() -> preencherUsuario(info));
-                }).start();
+                    recarregarUsuario();
+                });
             } catch (NumberFormatException ex) { appendLog("Valor inválido."); }
         }
 
@@ -467,31 +444,27 @@ public class ClienteGUI extends JFrame {
             try {
                 double val = Double.parseDouble(v);
                 if (val <= 0 || cpf.isEmpty()) { appendLog("Informe valor e CPF destino."); return; }
-                new Thread(() -> {
-                    boolean ok = servicoUsuario.enviarDinheiro(token, cpf, val);
+                servicoUsuario.enviarDinheiroAsync(token, cpf, val).thenAccept(ok -> {
                     appendLog(ok ? "Transferência OK." : "Transferência falhou.");
-                    UsuarioInfo info = carregarUsuarioAtual(); usuarioAtual = info;
-                    SwingUtilities.invokeLater(() -> preencherUsuario(info));
-                }).start();
+                    recarregarUsuario();
+                });
             } catch (NumberFormatException ex) { appendLog("Valor inválido."); }
         }
 
         private void doLogout() {
-            new Thread(() -> {
-                boolean ok = servicoUsuario.fazerLogout(token);
+            servicoUsuario.fazerLogoutAsync(token).thenAccept(ok -> {
                 if (ok) { token = null; usuarioAtual = null; }
                 SwingUtilities.invokeLater(() -> { appendLog(ok ? "Logout OK." : "Logout falhou."); mostrarTela("auth"); });
-            }).start();
+            });
         }
 
         private void doDeletar() {
             int c = JOptionPane.showConfirmDialog(this, "Tem certeza que deseja deletar o usuário?", "Confirmar", JOptionPane.YES_NO_OPTION);
             if (c != JOptionPane.YES_OPTION) return;
-            new Thread(() -> {
-                boolean ok = servicoUsuario.deletarCadastro(token);
+            servicoUsuario.deletarCadastroAsync(token).thenAccept(ok -> {
                 if (ok) { token = null; usuarioAtual = null; }
                 SwingUtilities.invokeLater(() -> { appendLog(ok ? "Usuário deletado." : "Falha ao deletar."); mostrarTela("auth"); });
-            }).start();
+            });
         }
     }
 
@@ -532,30 +505,20 @@ public class ClienteGUI extends JFrame {
             try {
                 String dataInicial = formatarDataParaISO(ini, true);
                 String dataFinal = formatarDataParaISO(fim, false);
-                new Thread(() -> {
-                    DefaultTableModel model = carregarTransacoes(dataInicial, dataFinal);
-                    SwingUtilities.invokeLater(() -> tabela.setModel(model));
-                }).start();
+                servicoUsuario.verTransacoesAsync(token, dataInicial, dataFinal)
+                        .thenApply(this::montarTabela)
+                        .thenAccept(model -> SwingUtilities.invokeLater(() -> tabela.setModel(model)));
             } catch (Exception ex) {
                 appendLog("Datas inválidas. Use dd/MM/yyyy.");
             }
         }
 
-        private DefaultTableModel carregarTransacoes(String dataInicial, String dataFinal) {
+        // 'arr' é o array 'transacoes' da resposta, ou null se a consulta falhou (tabela vazia)
+        private DefaultTableModel montarTabela(JsonNode arr) {
             String[] cols = {"Data", "Tipo", "Valor", "Usuário"};
             DefaultTableModel model = new DefaultTableModel(cols, 0) { @Override public boolean isCellEditable(int r,int c){return false;} };
+            if (arr == null) return model;
             try {
-                Map<String,String> dados = new HashMap<>();
-                dados.put("operacao", "transacao_ler");
-                dados.put("token", token);
-                dados.put("data_inicial", dataInicial);
-                dados.put("data_final", dataFinal);
-                String json = mapper.writeValueAsString(dados);
-                String resp = cliente.enviarMensagem(json);
-                if (resp == null) return model;
-                JsonNode root = mapper.readTree(resp);
-                if (!root.path("status").asBoolean()) return model;
-                JsonNode arr = root.path("transacoes");
                 String meuCpf = usuarioAtual != null ? usuarioAtual.cpf : "";
                 for (JsonNode t : arr) {
                     String data = t.path("criado_em").asText("");
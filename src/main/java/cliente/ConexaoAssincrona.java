@@ -0,0 +1,293 @@
+package cliente;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import validator.Validator;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Conexão com o servidor que não prende quem envia: cada mensagem sai com um 'id' e devolve um
+ * CompletableFuture, completado quando chega a resposta com o mesmo 'id'. A thread leitora só lê:
+ * os futures são completados numa virtual thread, então os callbacks de quem chamou e o envio do
+ * próximo pedido da fila nunca rodam nela (nem na thread do timeout).
+ *
+ * Até -Dcliente.maxEmAndamento mensagens (padrão 32) ficam esperando resposta ao mesmo tempo; as
+ * seguintes aguardam numa fila e saem conforme as respostas chegam. Uma mensagem sem resposta em
+ * -Dcliente.timeoutMs (padrão 15 s) falha com TimeoutException, e uma resposta fora do protocolo
+ * falha a mensagem e é reportada ao servidor com 'erro_servidor'.
+ */
+public final class ConexaoAssincrona implements AutoCloseable {
+    private static final int MAX_EM_ANDAMENTO = Integer.getInteger("cliente.maxEmAndamento", 32);
+    private static final long TIMEOUT_MS = Long.getLong("cliente.timeoutMs", 15_000);
+    // Onde os futures devolvidos por enviar() completam
+    private static final Executor ENTREGAS = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Socket socket;
+    private final Writer saida;
+    private final BufferedReader entrada;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final boolean mostrarMensagens;
+
+    // Mensagens enviadas esperando resposta, pelo 'id'
+    private final Map<Integer, Pedido> pendentes = new ConcurrentHashMap<>();
+
+    // Protege a fila, a contagem e o próximo 'id'; a escrita no socket tem trava própria
+    private final ReentrantLock trava = new ReentrantLock();
+    private final Queue<Pedido> fila = new ArrayDeque<>();
+    private int emAndamento;
+    private int proximoId = 1;
+    private volatile boolean encerrada;
+
+    private final ReentrantLock travaEscrita = new ReentrantLock();
+
+    private static final class Pedido {
+        final int id;
+        final ObjectNode mensagem;
+        final CompletableFuture<JsonNode> resposta = new CompletableFuture<>();
+        boolean enviado; // com a trava
+
+        Pedido(int id, ObjectNode mensagem) {
+            this.id = id;
+            this.mensagem = mensagem;
+        }
+    }
+
+    private ConexaoAssincrona(Socket socket, boolean mostrarMensagens) throws IOException {
+        this.socket = socket;
+        this.mostrarMensagens = mostrarMensagens;
+        // Mensagens pequenas, várias em voo: sem Nagle cada uma sai assim que é escrita
+        socket.setTcpNoDelay(true);
+        this.saida = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+        this.entrada = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        Thread leitor = new Thread(this::ler, "Cliente-Leitor");
+        leitor.setDaemon(true);
+        leitor.start();
+    }
+
+    /**
+     * Abre a conexão numa virtual thread, sem prender quem chama (ex: a thread da interface).
+     */
+    public static CompletableFuture<ConexaoAssincrona> abrir(String host, int porta) {
+        return abrir(host, porta, true);
+    }
+
+    /**
+     * @param mostrarMensagens false para não escrever cada mensagem enviada e recebida no console
+     *                         (ex: gerador de carga); erros continuam aparecendo
+     */
+    public static CompletableFuture<ConexaoAssincrona> abrir(String host, int porta, boolean mostrarMensagens) {
+        CompletableFuture<ConexaoAssincrona> conexao = new CompletableFuture<>();
+        Thread.startVirtualThread(() -> {
+            try {
+                conexao.complete(new ConexaoAssincrona(new Socket(host, porta), mostrarMensagens));
+            } catch (IOException | RuntimeException e) {
+                conexao.completeExceptionally(e);
+            }
+        });
+        return conexao;
+    }
+
+    /**
+     * Envia uma mensagem do protocolo (sem 'id'; ele é acrescentado aqui).
+     *
+     * @return a resposta já validada; falha com IllegalArgumentException se a mensagem não segue o
+     *         protocolo, IOException se a conexão cair, TimeoutException se a resposta demorar
+     */
+    public CompletableFuture<JsonNode> enviar(String json) {
+        ObjectNode mensagem;
+        try {
+            Validator.validateClient(json);
+            mensagem = (ObjectNode) mapper.readTree(json);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e instanceof IllegalArgumentException ? e
+                    : new IllegalArgumentException(e.getMessage(), e));
+        }
+
+        Pedido pedido;
+        boolean enviarAgora;
+        trava.lock();
+        try {
+            if (encerrada) {
+                return CompletableFuture.failedFuture(new IOException("Conexão encerrada"));
+            }
+            pedido = new Pedido(proximoId++, mensagem);
+            if (proximoId < 0) {
+                proximoId = 1;
+            }
+            enviarAgora = emAndamento < MAX_EM_ANDAMENTO;
+            if (enviarAgora) {
+                emAndamento++;
+                pedido.enviado = true;
+            } else {
+                fila.add(pedido);
+            }
+        } finally {
+            trava.unlock();
+        }
+
+        pedido.resposta.orTimeout(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        // Libera a vaga (e escreve o próximo da fila) antes de entregar a resposta, fora da leitora
+        CompletableFuture<JsonNode> entregue =
+                pedido.resposta.whenCompleteAsync((resposta, erro) -> liberar(pedido), ENTREGAS);
+        if (enviarAgora) {
+            escrever(pedido);
+        }
+        return entregue;
+    }
+
+    /**
+     * Texto para o usuário sobre a falha de um envio (tira o CompletionException de volta).
+     */
+    public static String descreverFalha(Throwable falha) {
+        Throwable causa = falha instanceof CompletionException && falha.getCause() != null ? falha.getCause() : falha;
+        if (causa instanceof TimeoutException) {
+            return "o servidor não respondeu em " + TIMEOUT_MS + " ms";
+        }
+        return causa.getMessage();
+    }
+
+    public boolean isAberta() {
+        return !encerrada;
+    }
+
+    @Override
+    public void close() {
+        encerrar(new IOException("Conexão encerrada"));
+    }
+
+    // Tira o pedido das contas (resposta, erro ou timeout) e manda o próximo da fila
+    private void liberar(Pedido pedido) {
+        pendentes.remove(pedido.id, pedido);
+        Pedido proximo = null;
+        trava.lock();
+        try {
+            if (!pedido.enviado) {
+                fila.remove(pedido);
+                return;
+            }
+            emAndamento--;
+            if (!encerrada && (proximo = fila.poll()) != null) {
+                emAndamento++;
+                proximo.enviado = true;
+            }
+        } finally {
+            trava.unlock();
+        }
+        if (proximo != null) {
+            escrever(proximo);
+        }
+    }
+
+    private void escrever(Pedido pedido) {
+        pendentes.put(pedido.id, pedido);
+        if (pedido.resposta.isDone()) {
+            pendentes.remove(pedido.id, pedido); // expirou enquanto esperava na fila
+            return;
+        }
+        String json = pedido.mensagem.put("id", pedido.id).toString();
+        travaEscrita.lock();
+        try {
+            if (mostrarMensagens) {
+                System.out.println("Cliente enviou: " + json);
+            }
+            saida.write(json);
+            saida.write('\n');
+            saida.flush();
+        } catch (IOException e) {
+            encerrar(e); // falha este pedido e todos os outros
+        } finally {
+            travaEscrita.unlock();
+        }
+    }
+
+    // Thread leitora: entrega cada resposta ao pedido com o mesmo 'id'
+    private void ler() {
+        try {
+            String linha;
+            while ((linha = entrada.readLine()) != null) {
+                if (mostrarMensagens) {
+                    System.out.println("Cliente recebeu: " + linha);
+                }
+                JsonNode resposta;
+                try {
+                    resposta = mapper.readTree(linha);
+                } catch (IOException e) {
+                    System.out.println("Resposta do servidor não é um JSON válido: " + e.getMessage());
+                    continue;
+                }
+                Pedido pedido = resposta.path("id").isInt() ? pendentes.get(resposta.get("id").intValue()) : null;
+                if (pedido == null) {
+                    // Resposta atrasada (o pedido já expirou) ou sem 'id', como o erro de comunicação
+                    continue;
+                }
+                try {
+                    Validator.validateServer(resposta);
+                    pedido.resposta.complete(resposta);
+                } catch (Exception e) {
+                    System.out.println("Resposta do servidor não segue o protocolo: " + e.getMessage());
+                    pedido.resposta.completeExceptionally(
+                            new IllegalStateException("Resposta do servidor não segue o protocolo: " + e.getMessage(), e));
+                    String operacao = pedido.mensagem.path("operacao").asText();
+                    ENTREGAS.execute(() -> reportarErroServidor(operacao, e.getMessage()));
+                }
+            }
+            encerrar(new IOException("Conexão encerrada pelo servidor"));
+        } catch (IOException e) {
+            encerrar(e);
+        }
+    }
+
+    private void reportarErroServidor(String operacaoEnviada, String motivoErro) {
+        ObjectNode erro = mapper.createObjectNode()
+                .put("operacao", "erro_servidor")
+                .put("operacao_enviada", operacaoEnviada)
+                .put("info", motivoErro);
+        // A resposta do servidor a este aviso não interessa a ninguém
+        enviar(erro.toString()).exceptionally(e -> null);
+    }
+
+    private void encerrar(IOException causa) {
+        List<Pedido> abandonados = new ArrayList<>();
+        trava.lock();
+        try {
+            if (encerrada) {
+                return;
+            }
+            encerrada = true;
+            abandonados.addAll(fila);
+        } finally {
+            trava.unlock();
+        }
+        abandonados.addAll(pendentes.values());
+        for (Pedido pedido : abandonados) {
+            pedido.resposta.completeExceptionally(causa);
+        }
+        try {
+            socket.close();
+        } catch (IOException e) {
+            System.err.println("Erro ao fechar conexão: " + e.getMessage());
+        }
+    }
+}
@@ -72,16 +72,7 @@ public class ProcessadorRespostas {
             String info = node.get("info").asText();
 
             if (sucesso && node.has("usuario")) {
-                JsonNode usuario = node.get("usuario");
-
-                System.out.println("\n" + "=".repeat(40));
-                System.out.println("           MEUS DADOS");
-                System.out.println("=".repeat(40));
-                System.out.println("Nome: " + usuario.get("nome").asText());
-                System.out.println("CPF: " + usuario.get("cpf").asText());
-                System.out.println("Saldo: R$ " + String.format("%.2f", usuario.get("saldo").asDouble()));
-                System.out.println("=".repeat(40));
-
+                mostrarDadosUsuario(node.get("usuario"));
             } else {
                 System.out.println("Erro ao consultar dados: " + info);
             }
@@ -91,6 +82,19 @@ public class ProcessadorRespostas {
         }
     }
 
+    /**
+     * Mostra o objeto 'usuario' de uma resposta de 'usuario_ler'.
+     */
+    public void mostrarDadosUsuario(JsonNode usuario) {
+        System.out.println("\n" + "=".repeat(40));
+        System.out.println("           MEUS DADOS");
+        System.out.println("=".repeat(40));
+        System.out.println("Nome: " + usuario.get("nome").asText());
+        System.out.println("CPF: " + usuario.get("cpf").asText());
+        System.out.println("Saldo: R$ " + String.format("%.2f", usuario.get("saldo").asDouble()));
+        System.out.println("=".repeat(40));
+    }
+
 
 
     public void processarTransacoes(String resposta) {
@@ -105,31 +109,7 @@ public class ProcessadorRespostas {
             String info = node.get("info").asText();
 
             if (sucesso && node.has("transacoes")) {
-                JsonNode transacoes = node.get("transacoes");
-
-                System.out.println("\n" + "=".repeat(80));
-                System.out.println("                    HISTÓRICO DE TRANSAÇÕES");
-                System.out.println("=".repeat(80));
-
-                if (transacoes.isEmpty()) {
-                    System.out.println("Nenhuma transação encontrada no período especificado.");
-                } else {
-                    for (JsonNode transacao : transacoes) {
-                        System.out.println("ID: " + transacao.get("id").asInt());
-                        System.out.println("Valor: R$ " + String.format("%.2f", transacao.get("valor_enviado").asDouble()));
-
-                        JsonNode enviador = transacao.get("usuario_enviador");
-                        System.out.println("Enviador: " + enviador.get("nome").asText() + " (" + enviador.get("cpf").asText() + ")");
-
-                        JsonNode recebedor = transacao.get("usuario_recebedor");
-                        System.out.println("Recebedor: " + recebedor.get("nome").asText() + " (" + recebedor.get("cpf").asText() + ")");
-
-                        System.out.println("Data: " + transacao.get("criado_em").asText());
-                        System.out.println("-".repeat(80));
-                    }
-                }
-                System.out.println("=".repeat(80));
-
+                mostrarTransacoes(node.get("transacoes"));
             } else {
                 System.out.println("Erro ao consultar transações: " + info);
             }
@@ -138,4 +118,32 @@ public class ProcessadorRespostas {
             System.out.println("Erro ao processar transações: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Mostra o array 'transacoes' de uma resposta de 'transacao_ler'.
+     */
+    public void mostrarTransacoes(JsonNode transacoes) {
+        System.out.println("\n" + "=".repeat(80));
+        System.out.println("                    HISTÓRICO DE TRANSAÇÕES");
+        System.out.println("=".repeat(80));
+
+        if (transacoes.isEmpty()) {
+            System.out.println("Nenhuma transação encontrada no período especificado.");
+        } else {
+            for (JsonNode transacao : transacoes) {
+                System.out.println("ID: " + transacao.get("id").asInt());
+                System.out.println("Valor: R$ " + String.format("%.2f", transacao.get("valor_enviado").asDouble()));
+
+                JsonNode enviador = transacao.get("usuario_enviador");
+                System.out.println("Enviador: " + enviador.get("nome").asText() + " (" + enviador.get("cpf").asText() + ")");
+
+                JsonNode recebedor = transacao.get("usuario_recebedor");
+                System.out.println("Recebedor: " + recebedor.get("nome").asText() + " (" + recebedor.get("cpf").asText() + ")");
+
+                System.out.println("Data: " + transacao.get("criado_em").asText());
+                System.out.println("-".repeat(80));
+            }
+        }
+        System.out.println("=".repeat(80));
+    }
+}
@@ -8,6 +8,9 @@ import validator.Validator;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 
 public class ServicoUsuario {
     private Cliente cliente;
@@ -23,278 +26,50 @@ public class ServicoUsuario {
         this.mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     }
 
-    public boolean cadastrarUsuario(String nome, String cpf, String senha) {
-        try {
-            Map<String, String> dados = new HashMap<>();
-            dados.put("operacao", "usuario_criar");
-            dados.put("nome", nome);
-            dados.put("cpf", cpf);
-            dados.put("senha", senha);
-
-            String json = mapper.writeValueAsString(dados);
-
-            Validator.validateClient(json);
-            String resposta = cliente.enviarMensagem(json);
+    // ===== Versões bloqueantes (console) =====
+    // Só esperam a variante assíncrona correspondente: validação, envio e tratamento da resposta
+    // seguem um caminho só.
 
-            if (resposta == null) {
-                System.out.println("Falha no cadastro devido a erro de protocolo do servidor.");
-                return false;
-            }
-
-
-            return processador.verificaAcao(resposta);
-
-        } catch (IllegalArgumentException e) {
-            // Tratar erros de validação de forma elegante
-            System.out.println("Erro de validação: " + e.getMessage());
-            return false;
-        } catch (Exception e) {
-            System.err.println("Erro ao processar cadastro: " + e.getMessage());
-            return false;
-        }
+    public boolean cadastrarUsuario(String nome, String cpf, String senha) {
+        return aguardar(cadastrarUsuarioAsync(nome, cpf, senha), false);
     }
 
     public String fazerLogin(String cpf, String senha) {
-        try {
-            Map<String, String> dados = new HashMap<>();
-            dados.put("operacao", "usuario_login");
-            dados.put("cpf", cpf);
-            dados.put("senha", senha);
-
-            String json = mapper.writeValueAsString(dados);
-            String resposta = cliente.enviarMensagem(json);
-
-            if (resposta == null) {
-                // CORREÇÃO: Mensagem mais clara e retornar null para permitir nova tentativa
-                System.out.println("Falha no login devido a erro de protocolo do servidor. Tente novamente.");
-                return null;
-            }
-
-            // Processar resposta válida
-            JsonNode node = mapper.readTree(resposta);
-            boolean sucesso = node.get("status").asBoolean();
-            String info = node.get("info").asText();
-
-            if (sucesso && node.has("token") && !node.get("token").isNull()) {
-                String token = node.get("token").asText();
-                if (token != null && !token.trim().isEmpty()) {
-                    System.out.println("Login bem-sucedido!");
-                    return token;
-                }
-            }
-
-            System.out.println("Falha no login: " + info);
-            return null;
-
-        } catch (Exception e) {
-            System.out.println("Erro ao fazer login: " + e.getMessage());
-            return null;
-        }
+        return aguardar(fazerLoginAsync(cpf, senha), null);
     }
 
     public boolean fazerLogout(String token) {
-        if (token == null) {
-            System.out.println("Você não está logado!");
-            return false;
-        }
-
-        try {
-            Map<String, String> dados = new HashMap<>();
-            dados.put("operacao", "usuario_logout");
-            dados.put("token", token);
-
-            String json = mapper.writeValueAsString(dados);
-
-            Validator.validateClient(json);
-            String resposta = cliente.enviarMensagem(json);
-
-            // CORREÇÃO: Se resposta for null, significa erro de protocolo
-            if (resposta == null) {
-                System.out.println("Falha ao fazer logout devido a erro de protocolo do servidor. Você permanece logado.");
-                return false;
-            }
-
-
-            //processador.processarResposta(resposta);
-
-            return processador.verificaAcao(resposta);
-
-        } catch (IllegalArgumentException e) {
-            System.out.println("Erro de validação: " + e.getMessage());
-            return false;
-        } catch (Exception e) {
-            System.err.println("Erro ao processar logout: " + e.getMessage());
-            return false;
-        }
+        return aguardar(fazerLogoutAsync(token), false);
     }
 
     public void verMeusDados(String token) {
-        if (token == null) {
-            System.out.println("Você precisa estar logado!");
-            return;
-        }
-
-        try {
-            Map<String, String> dados = new HashMap<>();
-            dados.put("operacao", "usuario_ler");
-            dados.put("token", token);
-
-            String json = mapper.writeValueAsString(dados);
-
-            Validator.validateClient(json);
-            String resposta = cliente.enviarMensagem(json);
-
-
-
-            if (resposta != null) {
-                processador.processarDadosUsuario(resposta);
-            } else {
-                System.out.println("Falha ao consultar dados devido a erro de protocolo do servidor.");
-            }
-
-            return;
-
-        } catch (IllegalArgumentException e) {
-            System.out.println("Erro de validação: " + e.getMessage());
-            return;
-        } catch (Exception e) {
-            System.err.println("Erro ao consultar dados: " + e.getMessage());
-            return;
+        JsonNode usuario = aguardar(lerUsuarioAsync(token), null);
+        if (usuario != null) {
+            processador.mostrarDadosUsuario(usuario);
         }
     }
 
     public void atualizarDados(String token, Map<String, String> dadosAtualizacao) {
-        if (token == null) {
-            System.out.println("Token inválido");
-            return;
-        }
-
-        if (dadosAtualizacao == null || dadosAtualizacao.isEmpty()) {
-            System.out.println("Nenhum dado fornecido para atualização");
-            return;
-        }
-
-        try {
-            Map<String, Object> dados = new HashMap<>();
-            dados.put("operacao", "usuario_atualizar");
-            dados.put("token", token);
-            dados.put("usuario", dadosAtualizacao);
-
-            String json = mapper.writeValueAsString(dados);
-
-            Validator.validateClient(json);
-            String resposta = cliente.enviarMensagem(json);
-
-            ProcessadorRespostas processador = new ProcessadorRespostas();
-            processador.processarResposta(resposta);
-
-        } catch (Exception e) {
-            System.out.println("Erro ao atualizar dados: " + e.getMessage());
-        }
+        aguardar(atualizarDadosAsync(token, dadosAtualizacao), false);
     }
 
     public boolean depositar(String token, double valor) {
-        if (token == null) {
-            System.out.println("Você precisa estar logado!");
-            return false;
-        }
-
-        try {
-            Map<String, Object> dados = new HashMap<>();
-            dados.put("operacao", "depositar");
-            dados.put("token", token);
-            dados.put("valor_enviado", valor);
-
-            String json = mapper.writeValueAsString(dados);
-
-            Validator.validateClient(json);
-            String resposta = cliente.enviarMensagem(json);
-
-            if (resposta != null) {
-                //Validator.validateServer(resposta);
-                processador.processarResposta(resposta);
-                return processador.verificaAcao(resposta);
-            }
-
-            return false;
-
-        } catch (IllegalArgumentException e) {
-            System.out.println("Erro de validação: " + e.getMessage());
-            return false;
-        } catch (Exception e) {
-            System.err.println("Erro ao processar depósito: " + e.getMessage());
-            return false;
-        }
+        return aguardar(depositarAsync(token, valor), false);
     }
 
     public boolean enviarDinheiro(String token, String cpfDestino, double valor) {
-        try {
-            Map<String, Object> dados = new HashMap<>();
-            dados.put("operacao", "transacao_criar");
-            dados.put("token", token);
-            dados.put("cpf_destino", cpfDestino);
-            dados.put("valor", valor);
-
-            ObjectMapper mapper = new ObjectMapper();
-            String json = mapper.writeValueAsString(dados);
-
-            Validator.validateClient(json);
-            String resposta = cliente.enviarMensagem(json);
-
-            ProcessadorRespostas processador = new ProcessadorRespostas();
-            boolean sucesso = processador.verificaAcao(resposta);
-
-
-
-
-
-            if (sucesso) {
-                System.out.println("Transferência realizada com sucesso!");
-            } else {
-                processador.processarResposta(resposta);
-            }
-
-            return sucesso;
-
-        } catch (IllegalArgumentException e) {
-            System.out.println("Erro de validação na tranferência: " + e.getMessage());
-            return false;
-        } catch (Exception e) {
-          System.err.println("Erro ao realizar tranferência: " + e.getMessage());
-          return false;
-        }
+        return aguardar(enviarDinheiroAsync(token, cpfDestino, valor), false);
     }
 
     public void verTransacoes(String token, String dataInicial, String dataFinal) {
-        if (token == null) {
-            System.out.println("Você precisa estar logado!");
-            return;
+        JsonNode transacoes = aguardar(verTransacoesAsync(token, dataInicial, dataFinal), null);
+        if (transacoes != null) {
+            processador.mostrarTransacoes(transacoes);
         }
+    }
 
-        try {
-            Map<String, String> dados = new HashMap<>();
-            dados.put("operacao", "transacao_ler");
-            dados.put("token", token);
-            dados.put("data_inicial", dataInicial);
-            dados.put("data_final", dataFinal);
-
-            String json = mapper.writeValueAsString(dados);
-
-            Validator.validateClient(json);
-            String resposta = cliente.enviarMensagem(json);
-
-
-            if (resposta != null) {
-                processador.processarTransacoes(resposta);
-            } else {
-                System.out.println("Falha ao consultar transações devido a erro de protocolo do servidor.");
-            }
-
-        } catch (IllegalArgumentException e) {
-            System.out.println("Erro de validação: " + e.getMessage());
-        } catch (Exception e) {
-            System.err.println("Erro ao consultar transações: " + e.getMessage());
-        }
+    public boolean deletarCadastro(String token) {
+        return aguardar(deletarCadastroAsync(token), false);
     }
 
     public void reportarErroServidor(String operacaoEnviada, String motivoErro) {
@@ -324,41 +99,180 @@ public class ServicoUsuario {
         }
     }
 
-    public boolean deletarCadastro(String token){
+    // ===== Variantes assíncronas =====
+    // Na conexão de Cliente.conectarAsync não prendem quem chama; na do console já voltam completas.
+    // Erros de validação, de conexão e de tempo esgotado vão para o console e viram o valor de
+    // falha, nunca uma exceção.
+
+    public CompletableFuture<Boolean> cadastrarUsuarioAsync(String nome, String cpf, String senha) {
+        Map<String, String> dados = new HashMap<>();
+        dados.put("operacao", "usuario_criar");
+        dados.put("nome", nome);
+        dados.put("cpf", cpf);
+        dados.put("senha", senha);
+        return enviarAsync(dados, "Erro ao processar cadastro", false, resposta -> resposta.path("status").asBoolean());
+    }
 
+    public CompletableFuture<String> fazerLoginAsync(String cpf, String senha) {
+        Map<String, String> dados = new HashMap<>();
+        dados.put("operacao", "usuario_login");
+        dados.put("cpf", cpf);
+        dados.put("senha", senha);
+        return enviarAsync(dados, "Erro ao fazer login", null, resposta -> {
+            String token = resposta.path("token").asText("");
+            if (resposta.path("status").asBoolean() && !token.trim().isEmpty()) {
+                System.out.println("Login bem-sucedido!");
+                return token;
+            }
+            System.out.println("Falha no login: " + resposta.path("info").asText());
+            return null;
+        });
+    }
+
+    public CompletableFuture<Boolean> fazerLogoutAsync(String token) {
         if (token == null) {
-            System.out.println("Você precisa estar logado!");
-            return false;
+            System.out.println("Você não está logado!");
+            return CompletableFuture.completedFuture(false);
         }
+        Map<String, String> dados = new HashMap<>();
+        dados.put("operacao", "usuario_logout");
+        dados.put("token", token);
+        return enviarAsync(dados, "Erro ao processar logout", false, resposta -> resposta.path("status").asBoolean());
+    }
 
-        try {
-            Map<String, String> dados = new HashMap<>();
-            dados.put("operacao", "usuario_deletar");
-            dados.put("token", token);
-            String json = mapper.writeValueAsString(dados);
+    /**
+     * @return o objeto 'usuario' da resposta (nome, cpf, saldo), ou null se a leitura falhou
+     */
+    public CompletableFuture<JsonNode> lerUsuarioAsync(String token) {
+        if (token == null) {
+            System.out.println("Você precisa estar logado!");
+            return CompletableFuture.completedFuture(null);
+        }
+        Map<String, String> dados = new HashMap<>();
+        dados.put("operacao", "usuario_ler");
+        dados.put("token", token);
+        return enviarAsync(dados, "Erro ao consultar dados", null, resposta -> {
+            if (resposta.path("status").asBoolean()) {
+                return resposta.path("usuario");
+            }
+            System.out.println("Erro ao consultar dados: " + resposta.path("info").asText());
+            return null;
+        });
+    }
 
-            Validator.validateClient(json);
-            String resposta = cliente.enviarMensagem(json);
+    public CompletableFuture<Boolean> atualizarDadosAsync(String token, Map<String, String> dadosAtualizacao) {
+        if (token == null) {
+            System.out.println("Token inválido");
+            return CompletableFuture.completedFuture(false);
+        }
+        if (dadosAtualizacao == null || dadosAtualizacao.isEmpty()) {
+            System.out.println("Nenhum dado fornecido para atualização");
+            return CompletableFuture.completedFuture(false);
+        }
+        Map<String, Object> dados = new HashMap<>();
+        dados.put("operacao", "usuario_atualizar");
+        dados.put("token", token);
+        dados.put("usuario", dadosAtualizacao);
+        return enviarAsync(dados, "Erro ao atualizar dados", false, this::mostrarResultado);
+    }
 
+    public CompletableFuture<Boolean> depositarAsync(String token, double valor) {
+        if (token == null) {
+            System.out.println("Você precisa estar logado!");
+            return CompletableFuture.completedFuture(false);
+        }
+        Map<String, Object> dados = new HashMap<>();
+        dados.put("operacao", "depositar");
+        dados.put("token", token);
+        dados.put("valor_enviado", valor);
+        return enviarAsync(dados, "Erro ao processar depósito", false, this::mostrarResultado);
+    }
 
+    public CompletableFuture<Boolean> enviarDinheiroAsync(String token, String cpfDestino, double valor) {
+        Map<String, Object> dados = new HashMap<>();
+        dados.put("operacao", "transacao_criar");
+        dados.put("token", token);
+        dados.put("cpf_destino", cpfDestino);
+        dados.put("valor", valor);
+        return enviarAsync(dados, "Erro ao realizar tranferência", false, resposta -> {
+            if (resposta.path("status").asBoolean()) {
+                System.out.println("Transferência realizada com sucesso!");
+                return true;
+            }
+            return mostrarResultado(resposta);
+        });
+    }
 
-            ProcessadorRespostas processador = new ProcessadorRespostas();
-            boolean sucesso = processador.verificaAcao(resposta);
+    /**
+     * @return o array 'transacoes' da resposta, ou null se a consulta falhou
+     */
+    public CompletableFuture<JsonNode> verTransacoesAsync(String token, String dataInicial, String dataFinal) {
+        if (token == null) {
+            System.out.println("Você precisa estar logado!");
+            return CompletableFuture.completedFuture(null);
+        }
+        Map<String, String> dados = new HashMap<>();
+        dados.put("operacao", "transacao_ler");
+        dados.put("token", token);
+        dados.put("data_inicial", dataInicial);
+        dados.put("data_final", dataFinal);
+        return enviarAsync(dados, "Erro ao consultar transações", null, resposta -> {
+            if (resposta.path("status").asBoolean()) {
+                return resposta.path("transacoes");
+            }
+            System.out.println("Erro ao consultar transações: " + resposta.path("info").asText());
+            return null;
+        });
+    }
 
-            if (sucesso) {
+    public CompletableFuture<Boolean> deletarCadastroAsync(String token) {
+        if (token == null) {
+            System.out.println("Você precisa estar logado!");
+            return CompletableFuture.completedFuture(false);
+        }
+        Map<String, String> dados = new HashMap<>();
+        dados.put("operacao", "usuario_deletar");
+        dados.put("token", token);
+        return enviarAsync(dados, "Erro ao deletar cadastro", false, resposta -> {
+            if (resposta.path("status").asBoolean()) {
                 System.out.println("Conta deletada com sucesso!");
-            } else {
-                processador.processarResposta(resposta);
+                return true;
             }
+            return mostrarResultado(resposta);
+        });
+    }
 
-            return sucesso;
+    private boolean mostrarResultado(JsonNode resposta) {
+        processador.processarResposta(resposta.toString());
+        return resposta.path("status").asBoolean();
+    }
 
-        } catch (IllegalArgumentException e) {
-            System.out.println("Erro de validação: " + e.getMessage());
-            return false;
+    private <T> CompletableFuture<T> enviarAsync(Map<String, ?> dados, String descricaoErro, T falha,
+                                                 Function<JsonNode, T> tratar) {
+        String json;
+        try {
+            json = mapper.writeValueAsString(dados);
         } catch (Exception e) {
-            System.err.println("Erro ao deletar cadastro: " + e.getMessage());
-            return false;
+            System.err.println(descricaoErro + ": " + e.getMessage());
+            return CompletableFuture.completedFuture(falha);
+        }
+        return cliente.enviarAsync(json).thenApply(tratar).exceptionally(e -> {
+            if (e.getCause() instanceof IllegalArgumentException) {
+                System.out.println("Erro de validação: " + e.getCause().getMessage());
+            } else {
+                System.err.println(descricaoErro + ": " + ConexaoAssincrona.descreverFalha(e));
+            }
+            return falha;
+        });
+    }
+
+    // As variantes assíncronas já trocam as falhas pelo valor de falha; isto cobre só o imprevisto
+    private static <T> T aguardar(CompletableFuture<T> operacao, T falha) {
+        try {
+            return operacao.join();
+        } catch (CompletionException e) {
+            System.err.println("Erro na operação: " + ConexaoAssincrona.descreverFalha(e));
+            return falha;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,217 @@
+package dao;
+
+import metricas.MetricasServidor;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache das linhas de 'usuarios' por CPF, na frente do UsuarioDAO.
+ *
+ * As escritas passam pelo banco e, depois do commit, a linha gravada é publicada aqui pela thread do
+ * GrupoCommit (write-through); deletar tira a entrada. As leituras que não acham a entrada vão ao
+ * banco e guardam o resultado, a menos que uma escrita no mesmo segmento tenha sido publicada no meio
+ * do caminho: nesse caso a linha lida pode ser antiga e é descartada.
+ *
+ * O cache é dividido em segmentos LRU com lock próprio, cada um com sua parte de
+ * -Dcache.contas.capacidade (padrão 100 mil contas; 0 desliga o cache). Escritas feitas por outro
+ * processo no mesmo arquivo (o GerenciadorBanco, por exemplo) não chegam aqui: use-o com o servidor
+ * parado ou desligue o cache.
+ */
+public final class CacheContas {
+    private static final int SEGMENTOS = 64;
+
+    /**
+     * Cópia imutável de uma linha de 'usuarios'.
+     */
+    public record Conta(String nome, String cpf, String senha, long saldoCentavos) {
+    }
+
+    private static class Instancia {
+        static final CacheContas CACHE = new CacheContas(Integer.getInteger("cache.contas.capacidade", 100_000));
+
+        static {
+            MetricasServidor.getInstancia().registrarComponente("cache_contas", CACHE::resumo);
+        }
+    }
+
+    private final Segmento[] segmentos;
+    private final LongAdder acertos = new LongAdder();
+    private final LongAdder faltas = new LongAdder();
+    private final LongAdder remocoes = new LongAdder();
+
+    public static CacheContas getInstancia() {
+        return Instancia.CACHE;
+    }
+
+    CacheContas(int capacidade) {
+        if (capacidade <= 0) {
+            segmentos = null;
+            return;
+        }
+        int porSegmento = Math.max(1, (capacidade + SEGMENTOS - 1) / SEGMENTOS);
+        segmentos = new Segmento[SEGMENTOS];
+        for (int i = 0; i < SEGMENTOS; i++) {
+            segmentos[i] = new Segmento(porSegmento);
+        }
+    }
+
+    public boolean isAtivo() {
+        return segmentos != null;
+    }
+
+    /**
+     * @return a conta em cache, ou null se ela não está no cache
+     */
+    Conta buscar(String cpf) {
+        if (segmentos == null) {
+            return null;
+        }
+        Segmento segmento = segmento(cpf);
+        Conta conta;
+        segmento.trava.lock();
+        try {
+            conta = segmento.get(cpf);
+        } finally {
+            segmento.trava.unlock();
+        }
+        if (conta != null) {
+            acertos.increment();
+        } else {
+            faltas.increment();
+        }
+        return conta;
+    }
+
+    /**
+     * Versão do segmento do CPF; lida antes de consultar o banco e devolvida em carregar().
+     */
+    long versao(String cpf) {
+        return segmentos == null ? 0 : segmento(cpf).versao;
+    }
+
+    /**
+     * Guarda uma conta lida do banco, se nenhuma escrita no segmento foi publicada desde 'versaoLida'.
+     */
+    void carregar(Conta conta, long versaoLida) {
+        if (segmentos == null) {
+            return;
+        }
+        Segmento segmento = segmento(conta.cpf());
+        segmento.trava.lock();
+        try {
+            if (segmento.versao == versaoLida) {
+                segmento.putIfAbsent(conta.cpf(), conta);
+            }
+        } finally {
+            segmento.trava.unlock();
+        }
+    }
+
+    /**
+     * Publica a linha gravada por um commit. Só a thread do GrupoCommit chama, na ordem dos commits.
+     */
+    void gravar(Conta conta) {
+        if (segmentos == null) {
+            return;
+        }
+        Segmento segmento = segmento(conta.cpf());
+        segmento.trava.lock();
+        try {
+            segmento.versao++;
+            segmento.put(conta.cpf(), conta);
+        } finally {
+            segmento.trava.unlock();
+        }
+    }
+
+    void gravar(List<Conta> contas) {
+        for (Conta conta : contas) {
+            gravar(conta);
+        }
+    }
+
+    /**
+     * Tira a conta do cache depois que ela foi apagada do banco.
+     */
+    void remover(String cpf) {
+        if (segmentos == null) {
+            return;
+        }
+        Segmento segmento = segmento(cpf);
+        segmento.trava.lock();
+        try {
+            segmento.versao++;
+            segmento.remove(cpf);
+        } finally {
+            segmento.trava.unlock();
+        }
+    }
+
+    public long getAcertos() {
+        return acertos.sum();
+    }
+
+    public long getFaltas() {
+        return faltas.sum();
+    }
+
+    // Contas que saíram do cache por falta de espaço
+    public long getRemocoes() {
+        return remocoes.sum();
+    }
+
+    public int getTamanho() {
+        if (segmentos == null) {
+            return 0;
+        }
+        int tamanho = 0;
+        for (Segmento segmento : segmentos) {
+            segmento.trava.lock();
+            try {
+                tamanho += segmento.size();
+            } finally {
+                segmento.trava.unlock();
+            }
+        }
+        return tamanho;
+    }
+
+    public String resumo() {
+        long a = getAcertos();
+        long f = getFaltas();
+        double taxa = a + f == 0 ? 0 : 100.0 * a / (a + f);
+        return String.format("contas=%d acertos=%d faltas=%d (%.1f%% acertos) removidas=%d",
+                getTamanho(), a, f, taxa, getRemocoes());
+    }
+
+    private Segmento segmento(String cpf) {
+        int h = cpf.hashCode();
+        return segmentos[(h ^ (h >>> 16)) & (SEGMENTOS - 1)];
+    }
+
+    // LinkedHashMap em ordem de acesso: o mais antigo sai quando o segmento passa da capacidade
+    private final class Segmento extends LinkedHashMap<String, Conta> {
+        final ReentrantLock trava = new ReentrantLock();
+        private final int capacidade;
+        // Incrementada a cada escrita publicada; só muda com a trava, mas é lida sem ela
+        volatile long versao;
+
+        Segmento(int capacidade) {
+            super(16, 0.75f, true);
+            this.capacidade = capacidade;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Conta> maisAntiga) {
+            if (size() > capacidade) {
+                remocoes.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -1,141 +1,207 @@
 package dao;
 
 import database.BancoDados;
+import database.GrupoCommit;
+import modelo.Dinheiro;
+import modelo.Transacao;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.time.Instant;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.HashMap;
-
+import java.util.Base64;
+import log.Log;
+import log.Nivel;
+
+/**
+ * Registro e consulta de transações.
+ *
+ * 'criado_em' e 'atualizado_em' são gravados em milissegundos desde a época (UTC) e só viram texto
+ * ISO 8601 na resposta. O extrato é uma faixa de datas de um CPF, atendida pelos índices
+ * (cpf_enviador, criado_em) e (cpf_recebedor, criado_em) - ver MigracoesBanco.
+ */
 public class TransacaoDAO {
+    private static final Log LOG = Log.de(TransacaoDAO.class);
 
     // Formatter para garantir formato ISO 8601 sem frações de segundo
-    private static final DateTimeFormatter ISO_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'");
+    private static final DateTimeFormatter ISO_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'")
+            .withZone(ZoneOffset.UTC);
+
+    public boolean criarTransacao(String cpfEnviador, String cpfRecebedor, long valorCentavos) {
+        try {
+            return GrupoCommit.getInstancia()
+                    .submeter(conn -> inserir(conn, cpfEnviador, cpfRecebedor, valorCentavos), sucesso -> sucesso)
+                    .join();
+        } catch (Exception e) {
+            LOG.erro("Erro ao criar transação: {}", e.getMessage(), e);
+            return false;
+        }
+    }
 
-    public boolean criarTransacao(String cpfEnviador, String cpfRecebedor, double valor) {
-        String sql = "INSERT INTO transacoes (valor_enviado, cpf_enviador, cpf_recebedor, criado_em, atualizado_em) VALUES (?, ?, ?, ?, ?)";
+    // Insere o registro usando a conexão (e a transação, se houver) de quem chamou
+    static boolean inserir(Connection conn, String cpfEnviador, String cpfRecebedor, long valorCentavos) throws SQLException {
+        String sql = "INSERT INTO transacoes (valor_centavos, cpf_enviador, cpf_recebedor, criado_em, atualizado_em) VALUES (?, ?, ?, ?, ?)";
 
-        try (Connection conn = BancoDados.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            String timestamp = Instant.now().atZone(java.time.ZoneOffset.UTC)
-                    .format(ISO_FORMATTER);
+            long agora = System.currentTimeMillis();
 
-            stmt.setDouble(1, valor);
+            stmt.setLong(1, valorCentavos);
             stmt.setString(2, cpfEnviador);
             stmt.setString(3, cpfRecebedor);
-            stmt.setString(4, timestamp);
-            stmt.setString(5, timestamp);
+            stmt.setLong(4, agora);
+            stmt.setLong(5, agora);
 
             boolean sucesso = stmt.executeUpdate() > 0;
 
             if (sucesso) {
                 String tipo = cpfEnviador.equals(cpfRecebedor) ? "DEPÓSITO" : "TRANSFERÊNCIA";
-                System.out.printf(" %s salva: %.2f de %s para %s em %s%n",
-                        tipo, valor, cpfEnviador, cpfRecebedor, timestamp);
+                if (Log.isAtivo(Nivel.DEBUG)) {
+                    LOG.debug("{} salva: {}", tipo, String.format("%s de %s para %s em %s",
+                            Dinheiro.formatar(valorCentavos), cpfEnviador, cpfRecebedor, formatarData(agora)));
+                }
             } else {
-                System.out.println(" Falha ao salvar transação");
+                LOG.aviso("Falha ao salvar transação");
             }
 
             return sucesso;
+        }
+    }
 
-        } catch (Exception e) {
-            System.err.println(" Erro ao criar transação: " + e.getMessage());
-            e.printStackTrace();
-            return false;
+    /**
+     * Recebe as transações do extrato uma de cada vez, enquanto o ResultSet é percorrido.
+     */
+    public interface LeitorTransacoes {
+        void ler(Transacao transacao) throws IOException;
+    }
+
+    /**
+     * Posição de uma transação na ordem do extrato (criado_em, id decrescentes). Vai para o cliente
+     * como cursor opaco; a página seguinte começa logo depois dela.
+     */
+    public record Posicao(long criadoEm, int id) {
+        private static final String VERSAO = "v1";
+
+        public static Posicao de(Transacao transacao) {
+            return new Posicao(transacao.criadoEm(), transacao.id());
+        }
+
+        public String codificar() {
+            String texto = VERSAO + ":" + criadoEm + ":" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        /**
+         * @throws IllegalArgumentException se o texto não for um cursor gerado por codificar()
+         */
+        public static Posicao decodificar(String cursor) {
+            String[] partes = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.US_ASCII).split(":");
+            if (partes.length != 3 || !VERSAO.equals(partes[0])) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+            return new Posicao(Long.parseLong(partes[1]), Integer.parseInt(partes[2]));
         }
     }
 
-    public List<Map<String, Object>> buscarTransacoesPorPeriodo(String cpf, String dataInicial, String dataFinal) {
+    /**
+     * Percorre as transações do CPF no período, da mais recente para a mais antiga, entregando cada
+     * linha ao leitor sem guardar o resultado; a conexão fica presa enquanto o leitor trabalha.
+     * Para extratos longos, quem chama pede páginas com 'limite' e continua a partir da última
+     * (ver ProcessadorMensagens), então nem a conexão nem a memória acompanham o tamanho do extrato.
+     *
+     * Com 'limite' > 0 entrega no máximo 'limite' transações, começando depois de 'depoisDe' (ou do
+     * início, se for null). Cada página é uma busca direta nos índices a partir do cursor, então o
+     * custo não cresce com o número de páginas já lidas.
+     *
+     * @return true se ainda há transações depois da última entregue
+     */
+    public boolean percorrerTransacoesPorPeriodo(String cpf, String dataInicial, String dataFinal,
+                                                 Posicao depoisDe, int limite,
+                                                 LeitorTransacoes leitor) throws Exception {
+        // Um OR entre as duas colunas de CPF obrigaria a varrer a tabela inteira; com UNION cada lado
+        // é uma busca por faixa no seu índice. Depósitos (enviador = recebedor) aparecem nos dois lados
+        // e o UNION elimina a duplicata. O id é o rowid, que já faz parte dos índices, então a ordem
+        // (criado_em, id) sai do próprio índice e o LIMIT de cada lado para a leitura cedo.
         String sql = """
-    SELECT t.id, t.valor_enviado, t.cpf_enviador, t.cpf_recebedor,
+    SELECT t.id, t.valor_centavos, t.cpf_enviador, t.cpf_recebedor,
            t.criado_em, t.atualizado_em,
            u1.nome as nome_enviador, u2.nome as nome_recebedor
-    FROM transacoes t
+    FROM (
+        SELECT * FROM (
+            SELECT id, valor_centavos, cpf_enviador, cpf_recebedor, criado_em, atualizado_em
+            FROM transacoes WHERE cpf_enviador = ? AND criado_em BETWEEN ? AND ? AND (criado_em < ? OR id < ?)
+            ORDER BY criado_em DESC, id DESC LIMIT ?)
+        UNION
+        SELECT * FROM (
+            SELECT id, valor_centavos, cpf_enviador, cpf_recebedor, criado_em, atualizado_em
+            FROM transacoes WHERE cpf_recebedor = ? AND criado_em BETWEEN ? AND ? AND (criado_em < ? OR id < ?)
+            ORDER BY criado_em DESC, id DESC LIMIT ?)
+    ) t
     INNER JOIN usuarios u1 ON t.cpf_enviador = u1.cpf
     INNER JOIN usuarios u2 ON t.cpf_recebedor = u2.cpf
-    WHERE (t.cpf_enviador = ? OR t.cpf_recebedor = ?)
-    AND datetime(t.criado_em) >= datetime(?) AND datetime(t.criado_em) <= datetime(?)
-    ORDER BY t.criado_em DESC
+    ORDER BY t.criado_em DESC, t.id DESC
+    LIMIT ?
     """;
 
-        List<Map<String, Object>> transacoes = new ArrayList<>();
+        // As datas do protocolo têm resolução de segundos: a data final inclui o segundo inteiro
+        long inicio = Instant.parse(dataInicial).toEpochMilli();
+        long fim = Instant.parse(dataFinal).toEpochMilli() + 999;
+
+        // Sem cursor, a condição (criado_em < ? OR id < ?) vale para toda a faixa
+        long cursorCriadoEm = fim + 1;
+        long cursorId = Long.MAX_VALUE;
+        if (depoisDe != null) {
+            fim = Math.min(fim, depoisDe.criadoEm());
+            cursorCriadoEm = depoisDe.criadoEm();
+            cursorId = depoisDe.id();
+        }
+        // Uma linha a mais que o limite indica que existe a próxima página; -1 é "sem limite" no SQLite
+        long limiteConsulta = limite > 0 ? limite + 1L : -1;
 
         try (Connection conn = BancoDados.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setString(1, cpf);
-            stmt.setString(2, cpf);
-
-            // CORREÇÃO: Usar função datetime() do SQLite para comparação correta
-            String dataInicialFormatada = dataInicial.replace("Z", "").replace("T", " ");
-            String dataFinalFormatada = dataFinal.replace("Z", "").replace("T", " ");
-
-            stmt.setString(3, dataInicialFormatada);
-            stmt.setString(4, dataFinalFormatada);
-
-            System.out.printf(" Buscando transações para CPF: %s%n", cpf);
-            System.out.printf(" Período: %s até %s%n", dataInicialFormatada, dataFinalFormatada);
-
-            ResultSet rs = stmt.executeQuery();
-
-            while (rs.next()) {
-                Map<String, Object> transacao = new HashMap<>();
-                transacao.put("id", rs.getInt("id"));
-                transacao.put("valor_enviado", rs.getDouble("valor_enviado"));
-
-                Map<String, String> enviador = new HashMap<>();
-                enviador.put("nome", rs.getString("nome_enviador"));
-                enviador.put("cpf", rs.getString("cpf_enviador"));
-
-                Map<String, String> recebedor = new HashMap<>();
-                recebedor.put("nome", rs.getString("nome_recebedor"));
-                recebedor.put("cpf", rs.getString("cpf_recebedor"));
-
-                transacao.put("usuario_enviador", enviador);
-                transacao.put("usuario_recebedor", recebedor);
-                transacao.put("criado_em", formatarDataSeNecessario(rs.getString("criado_em")));
-                transacao.put("atualizado_em", formatarDataSeNecessario(rs.getString("atualizado_em")));
-
-                transacoes.add(transacao);
-
-                String tipo = rs.getString("cpf_enviador").equals(rs.getString("cpf_recebedor")) ? "DEPÓSITO" : "TRANSFERÊNCIA";
-                System.out.printf(" %s encontrado: ID=%d, Valor=%.2f, Data=%s%n",
-                        tipo, rs.getInt("id"), rs.getDouble("valor_enviado"), rs.getString("criado_em"));
-            }
-
-            System.out.printf(" Total de transações encontradas: %d%n", transacoes.size());
-            return transacoes;
-
-        } catch (Exception e) {
-            System.err.println(" Erro ao buscar transações: " + e.getMessage());
-            e.printStackTrace();
-            return new ArrayList<>();
-        }
-    }
-
-    private String formatarDataSeNecessario(String data) {
-        try {
-            // Se a data já está no formato correto, retorna como está
-            if (data.matches("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}Z")) {
-                return data;
+            int i = 1;
+            for (int lado = 0; lado < 2; lado++) {
+                stmt.setString(i++, cpf);
+                stmt.setLong(i++, inicio);
+                stmt.setLong(i++, fim);
+                stmt.setLong(i++, cursorCriadoEm);
+                stmt.setLong(i++, cursorId);
+                stmt.setLong(i++, limiteConsulta);
             }
-
-            // Se tem frações de segundo, remove elas
-            if (data.contains(".")) {
-                int dotIndex = data.indexOf(".");
-                int zIndex = data.indexOf("Z");
-                if (zIndex > dotIndex) {
-                    return data.substring(0, dotIndex) + "Z";
+            stmt.setLong(i, limiteConsulta);
+
+            LOG.debug("Buscando transações para CPF {} de {} até {}", cpf, dataInicial, dataFinal);
+
+            int total = 0;
+            boolean haMais = false;
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    if (limite > 0 && total == limite) {
+                        haMais = true;
+                        break;
+                    }
+                    leitor.ler(new Transacao(
+                            rs.getInt("id"),
+                            rs.getLong("valor_centavos"),
+                            rs.getString("cpf_enviador"),
+                            rs.getString("nome_enviador"),
+                            rs.getString("cpf_recebedor"),
+                            rs.getString("nome_recebedor"),
+                            rs.getLong("criado_em"),
+                            rs.getLong("atualizado_em")));
+                    total++;
                 }
             }
 
-            return data;
-        } catch (Exception e) {
-            System.err.println("Erro ao formatar data: " + e.getMessage());
-            return data;
+            LOG.debug("Total de transações encontradas: {}", total);
+            return haMais;
         }
     }
-}
\ No newline at end of file
+
+    public static String formatarData(long epochMillis) {
+        return ISO_FORMATTER.format(Instant.ofEpochMilli(epochMillis));
+    }
+}
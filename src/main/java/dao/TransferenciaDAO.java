@@ -0,0 +1,140 @@
+package dao;
+
+import database.GrupoCommit;
+import modelo.Dinheiro;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import log.Log;
+
+/**
+ * Movimentações de saldo (transferências e depósitos).
+ *
+ * Débito, crédito e o registro em 'transacoes' são feitos na mesma conexão, dentro da transação
+ * BEGIN IMMEDIATE do GrupoCommit, e são desfeitos juntos se algum passo falhar. Valores e saldos são
+ * centavos (INTEGER). O saldo é alterado com 'saldo_centavos = saldo_centavos - ?' condicionado a
+ * 'saldo_centavos >= ?', então duas transferências concorrentes nunca leem um saldo antigo; o
+ * crédito é condicionado a não passar de Dinheiro.MAXIMO. Os UPDATEs devolvem a linha alterada (RETURNING), que vai para o
+ * CacheContas depois do commit.
+ */
+public class TransferenciaDAO {
+    private static final Log LOG = Log.de(TransferenciaDAO.class);
+
+    private final CacheContas cache = CacheContas.getInstancia();
+
+    public enum Resultado {
+        SUCESSO,
+        SALDO_INSUFICIENTE,
+        ENVIADOR_NAO_ENCONTRADO,
+        RECEBEDOR_NAO_ENCONTRADO,
+        SALDO_MAXIMO_EXCEDIDO,
+        ERRO
+    }
+
+    public Resultado transferir(String cpfEnviador, String cpfRecebedor, long valorCentavos) {
+        // Preenchida e lida só pela thread do GrupoCommit
+        List<CacheContas.Conta> alteradas = new ArrayList<>(2);
+        try {
+            return GrupoCommit.getInstancia()
+                    .submeter(conn -> {
+                        alteradas.clear();
+                        return transferir(conn, cpfEnviador, cpfRecebedor, valorCentavos, alteradas);
+                    }, TransferenciaDAO::sucesso, resultado -> cache.gravar(alteradas))
+                    .join();
+        } catch (Exception e) {
+            LOG.erro("Erro ao transferir: {}", e.getMessage());
+            return Resultado.ERRO;
+        }
+    }
+
+    public Resultado depositar(String cpf, long valorCentavos) {
+        List<CacheContas.Conta> alteradas = new ArrayList<>(1);
+        try {
+            return GrupoCommit.getInstancia()
+                    .submeter(conn -> {
+                        alteradas.clear();
+                        return depositar(conn, cpf, valorCentavos, alteradas);
+                    }, TransferenciaDAO::sucesso, resultado -> cache.gravar(alteradas))
+                    .join();
+        } catch (Exception e) {
+            LOG.erro("Erro ao depositar: {}", e.getMessage());
+            return Resultado.ERRO;
+        }
+    }
+
+    private static boolean sucesso(Resultado resultado) {
+        return resultado == Resultado.SUCESSO;
+    }
+
+    // ===================================================================================
+    // OPERAÇÕES DENTRO DE UMA TRANSAÇÃO ABERTA (quem chama faz commit ou rollback)
+    // ===================================================================================
+
+    // 'alteradas' recebe as linhas de 'usuarios' como ficaram depois da operação.
+    // Os erros saem na mesma ordem das verificações feitas antes do TransferenciaDAO: enviador
+    // inexistente, saldo insuficiente e só então destino inexistente (um destino inexistente com
+    // saldo insuficiente responde "Saldo insuficiente").
+    static Resultado transferir(Connection conn, String cpfEnviador, String cpfRecebedor, long valor,
+                                List<CacheContas.Conta> alteradas) throws SQLException {
+        // 1. Debitar do enviador somente se houver saldo
+        String sqlDebito = "UPDATE usuarios SET saldo_centavos = saldo_centavos - ? WHERE cpf = ? AND saldo_centavos >= ? " +
+                "RETURNING nome, senha, saldo_centavos";
+        try (PreparedStatement stmt = conn.prepareStatement(sqlDebito)) {
+            stmt.setLong(1, valor);
+            stmt.setString(2, cpfEnviador);
+            stmt.setLong(3, valor);
+            CacheContas.Conta enviador = UsuarioDAO.atualizarRetornando(stmt, cpfEnviador);
+            if (enviador == null) {
+                return existe(conn, cpfEnviador) ? Resultado.SALDO_INSUFICIENTE : Resultado.ENVIADOR_NAO_ENCONTRADO;
+            }
+            alteradas.add(enviador);
+        }
+
+        // 2. Creditar ao recebedor
+        if (!creditar(conn, cpfRecebedor, valor, alteradas)) {
+            return existe(conn, cpfRecebedor) ? Resultado.SALDO_MAXIMO_EXCEDIDO : Resultado.RECEBEDOR_NAO_ENCONTRADO;
+        }
+
+        // 3. Registrar transação
+        return TransacaoDAO.inserir(conn, cpfEnviador, cpfRecebedor, valor) ? Resultado.SUCESSO : Resultado.ERRO;
+    }
+
+    static Resultado depositar(Connection conn, String cpf, long valor,
+                               List<CacheContas.Conta> alteradas) throws SQLException {
+        if (!creditar(conn, cpf, valor, alteradas)) {
+            return existe(conn, cpf) ? Resultado.SALDO_MAXIMO_EXCEDIDO : Resultado.ENVIADOR_NAO_ENCONTRADO;
+        }
+        // Depósito é registrado como transação do usuário para si mesmo
+        return TransacaoDAO.inserir(conn, cpf, cpf, valor) ? Resultado.SUCESSO : Resultado.ERRO;
+    }
+
+    // false se o CPF não existe ou se o saldo passaria de Dinheiro.MAXIMO
+    private static boolean creditar(Connection conn, String cpf, long valor,
+                                    List<CacheContas.Conta> alteradas) throws SQLException {
+        String sql = "UPDATE usuarios SET saldo_centavos = saldo_centavos + ? WHERE cpf = ? AND saldo_centavos <= ? " +
+                "RETURNING nome, senha, saldo_centavos";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, valor);
+            stmt.setString(2, cpf);
+            stmt.setLong(3, Dinheiro.MAXIMO - valor);
+            CacheContas.Conta conta = UsuarioDAO.atualizarRetornando(stmt, cpf);
+            if (conta == null) {
+                return false;
+            }
+            alteradas.add(conta);
+            return true;
+        }
+    }
+
+    private static boolean existe(Connection conn, String cpf) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT 1 FROM usuarios WHERE cpf = ?")) {
+            stmt.setString(1, cpf);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+}
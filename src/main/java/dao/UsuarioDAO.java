@@ -1,13 +1,21 @@
 package dao;
 
 import database.BancoDados;
+import database.GrupoCommit;
 import modelo.Usuario;
 import java.sql.*;
-import com.fasterxml.jackson.databind.JsonNode;
 import java.util.ArrayList;
 import java.util.List;
+import log.Log;
 
+/**
+ * Acesso à tabela 'usuarios'. Leituras por CPF passam pelo CacheContas; as escritas entram no
+ * GrupoCommit e publicam a linha gravada no cache depois do commit.
+ */
 public class UsuarioDAO {
+    private static final Log LOG = Log.de(UsuarioDAO.class);
+
+    private final CacheContas cache = CacheContas.getInstancia();
 
     // Método 1: Verificar se CPF já existe
     public boolean cpfExiste(String cpf) {
@@ -21,141 +29,163 @@ public class UsuarioDAO {
             return rs.next() && rs.getInt(1) > 0;  // Retorna true se COUNT > 0
 
         } catch (Exception e) {
-            System.err.println("Erro ao verificar CPF: " + e.getMessage());
+            LOG.erro("Erro ao verificar CPF: {}", e.getMessage());
             return false;  // Em caso de erro, assume que não existe
         }
     }
 
     // Método 2: Salvar usuário no banco
     public boolean salvar(Usuario usuario) {
-        String sql = "INSERT INTO usuarios (cpf, nome, senha, saldo) VALUES (?, ?, ?, ?)";
-        try (Connection conn = BancoDados.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            // Substitui os ? pelos dados do usuário
-            stmt.setString(1, usuario.getCpf());
-            stmt.setString(2, usuario.getNome());
-            stmt.setString(3, usuario.getSenha());
-            stmt.setDouble(4, usuario.getSaldo());
-
-            return stmt.executeUpdate() > 0;  // Retorna true se inseriu pelo menos 1 linha
+        String sql = "INSERT INTO usuarios (cpf, nome, senha, saldo_centavos) VALUES (?, ?, ?, ?)";
+        try {
+            return GrupoCommit.getInstancia().submeter(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    // Substitui os ? pelos dados do usuário
+                    stmt.setString(1, usuario.getCpf());
+                    stmt.setString(2, usuario.getNome());
+                    stmt.setString(3, usuario.getSenha());
+                    stmt.setLong(4, usuario.getSaldoCentavos());
+
+                    return stmt.executeUpdate() > 0;  // Retorna true se inseriu pelo menos 1 linha
+                }
+            }, sucesso -> sucesso, sucesso -> cache.gravar(new CacheContas.Conta(
+                    usuario.getNome(), usuario.getCpf(), usuario.getSenha(), usuario.getSaldoCentavos()))).join();
 
         } catch (Exception e) {
-            System.err.println("Erro ao salvar usuário: " + e.getMessage());
+            LOG.erro("Erro ao salvar usuário: {}", e.getMessage());
             return false;
         }
     }
 
     // Método 3: Validar login (CPF + senha)
     public boolean validarLogin(String cpf, String senha) {
-        String sql = "SELECT senha FROM usuarios WHERE cpf = ?";
-        try (Connection conn = BancoDados.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try {
+            CacheContas.Conta conta = buscarConta(cpf);
+            return conta != null && conta.senha().equals(senha);  // false se o CPF não existe
 
-            stmt.setString(1, cpf);
-            ResultSet rs = stmt.executeQuery();
+        } catch (Exception e) {
+            LOG.erro("Erro ao validar login: {}", e.getMessage());
+            return false;
+        }
+    }
 
-            if (rs.next()) {
-                String senhaArmazenada = rs.getString("senha");
-                return senhaArmazenada.equals(senha);  // Compara senhas
+
+    public Usuario buscarPorCpf(String cpf) {
+        try {
+            CacheContas.Conta conta = buscarConta(cpf);
+            if (conta == null) {
+                return null; // Usuário não encontrado
             }
-            return false;  // CPF não encontrado
+            return new Usuario(conta.nome(), conta.cpf(), conta.senha(), conta.saldoCentavos());
 
         } catch (Exception e) {
-            System.err.println("Erro ao validar login: " + e.getMessage());
-            return false;
+            LOG.erro("Erro ao buscar usuário: {}", e.getMessage());
+            return null;
         }
     }
 
+    // Cache primeiro; na falta, lê do banco e guarda no cache
+    private CacheContas.Conta buscarConta(String cpf) throws Exception {
+        CacheContas.Conta conta = cache.buscar(cpf);
+        if (conta != null) {
+            return conta;
+        }
 
-    public Usuario buscarPorCpf(String cpf) {
-        String sql = "SELECT nome, cpf, senha, saldo FROM usuarios WHERE cpf = ?";
+        long versao = cache.versao(cpf);
+        String sql = "SELECT nome, senha, saldo_centavos FROM usuarios WHERE cpf = ?";
         try (Connection conn = BancoDados.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, cpf);
-            ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                String nome = rs.getString("nome");
-                String senha = rs.getString("senha");
-                double saldo = rs.getDouble("saldo");
-
-                return new Usuario(nome, cpf, senha, saldo);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                conta = lerConta(rs, cpf);
             }
+        }
+        cache.carregar(conta, versao);
+        return conta;
+    }
 
-            return null; // Usuário não encontrado
+    /**
+     * Lê nome, senha e saldo_centavos da linha atual (de um SELECT ou de um UPDATE ... RETURNING).
+     */
+    static CacheContas.Conta lerConta(ResultSet rs, String cpf) throws SQLException {
+        return new CacheContas.Conta(rs.getString("nome"), cpf, rs.getString("senha"), rs.getLong("saldo_centavos"));
+    }
 
-        } catch (Exception e) {
-            System.err.println("Erro ao buscar usuário: " + e.getMessage());
-            return null;
+    // Executa um UPDATE ... RETURNING nome, senha, saldo_centavos; null se nenhuma linha mudou
+    static CacheContas.Conta atualizarRetornando(PreparedStatement stmt, String cpf) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? lerConta(rs, cpf) : null;
         }
     }
 
-    public boolean atualizar(String cpf, JsonNode dadosAtualizacao) {
+    // Atualiza nome e/ou senha; o campo que vier null não é alterado
+    public boolean atualizar(String cpf, String nome, String senha) {
         try {
-            // 1. Verificar se usuário existe
-            Usuario usuarioExistente = buscarPorCpf(cpf);
-            if (usuarioExistente == null) {
-                return false;
-            }
-
-            // 2. Construir query dinamicamente baseada nos campos enviados
+            // 1. Construir query dinamicamente baseada nos campos enviados
             StringBuilder sql = new StringBuilder("UPDATE usuarios SET ");
             List<Object> parametros = new ArrayList<>();
 
             boolean primeiro = true;
 
-            if (dadosAtualizacao.has("nome")) {
+            if (nome != null) {
                 if (!primeiro) sql.append(", ");
                 sql.append("nome = ?");
-                parametros.add(dadosAtualizacao.get("nome").asText());
+                parametros.add(nome);
                 primeiro = false;
             }
 
-            if (dadosAtualizacao.has("senha")) {
+            if (senha != null) {
                 if (!primeiro) sql.append(", ");
                 sql.append("senha = ?");
-                parametros.add(dadosAtualizacao.get("senha").asText());
+                parametros.add(senha);
                 primeiro = false;
             }
 
-            sql.append(" WHERE cpf = ?");
+            // Nenhuma linha devolvida: o usuário não existe
+            sql.append(" WHERE cpf = ? RETURNING nome, senha, saldo_centavos");
             parametros.add(cpf);
 
-            // 3. Executar atualização
-            try (Connection conn = BancoDados.getConnection();
-                 PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
-
-                for (int i = 0; i < parametros.size(); i++) {
-                    stmt.setObject(i + 1, parametros.get(i));
-                }
+            // 2. Executar atualização
+            try {
+                return GrupoCommit.getInstancia().submeter(conn -> {
+                    try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+                        for (int i = 0; i < parametros.size(); i++) {
+                            stmt.setObject(i + 1, parametros.get(i));
+                        }
 
-                return stmt.executeUpdate() > 0;
+                        return atualizarRetornando(stmt, cpf);
+                    }
+                }, conta -> conta != null, cache::gravar).join() != null;
 
-            } catch (SQLException e) {
-                System.err.println("Erro ao atualizar usuário: " + e.getMessage());
+            } catch (Exception e) {
+                LOG.erro("Erro ao atualizar usuário: {}", e.getMessage());
                 return false;
             }
 
         } catch (Exception e) {
-            System.err.println("Erro ao processar atualização: " + e.getMessage());
+            LOG.erro("Erro ao processar atualização: {}", e.getMessage());
             return false;
         }
     }
 
-    public boolean atualizarSaldo(String cpf, double novoSaldo) {
-        String sql = "UPDATE usuarios SET saldo = ? WHERE cpf = ?";
-        try (Connection conn = BancoDados.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setDouble(1, novoSaldo);
-            stmt.setString(2, cpf);
-
-            return stmt.executeUpdate() > 0;
+    public boolean atualizarSaldo(String cpf, long novoSaldoCentavos) {
+        String sql = "UPDATE usuarios SET saldo_centavos = ? WHERE cpf = ? RETURNING nome, senha, saldo_centavos";
+        try {
+            // Entra no mesmo commit em lote das transferências e depósitos
+            return GrupoCommit.getInstancia().submeter(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setLong(1, novoSaldoCentavos);
+                    stmt.setString(2, cpf);
+                    return atualizarRetornando(stmt, cpf);
+                }
+            }, conta -> conta != null, cache::gravar).join() != null;
 
         } catch (Exception e) {
-            System.err.println("Erro ao atualizar saldo: " + e.getMessage());
+            LOG.erro("Erro ao atualizar saldo: {}", e.getMessage());
             return false;
         }
     }
@@ -163,22 +193,24 @@ public class UsuarioDAO {
     public boolean deletar(String cpf) {
         String sql = "DELETE FROM usuarios WHERE cpf = ?";
 
-        try (Connection conn = BancoDados.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setString(1, cpf);
-            int usuariosDeletados = stmt.executeUpdate();
+        try {
+            int usuariosDeletados = GrupoCommit.getInstancia().submeter(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setString(1, cpf);
+                    return stmt.executeUpdate();
+                }
+            }, deletados -> true, deletados -> cache.remover(cpf)).join();
 
             if (usuariosDeletados > 0) {
-                System.out.println("Usuário deletado com sucesso (transações removidas automaticamente)");
+                LOG.info("Usuário deletado com sucesso (transações removidas automaticamente)");
                 return true;
             } else {
-                System.out.println("Usuário não encontrado");
+                LOG.info("Usuário não encontrado");
                 return false;
             }
 
         } catch (Exception e) {
-            System.err.println("Erro ao deletar usuário: " + e.getMessage());
+            LOG.erro("Erro ao deletar usuário: {}", e.getMessage());
             return false;
         }
     }
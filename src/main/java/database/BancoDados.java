@@ -2,52 +2,193 @@ package database;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import log.Log;
+import metricas.MetricasServidor;
 
+/**
+ * Acesso ao SQLite.
+ *
+ * Leituras usam o pool de conexões somente leitura de getConnection(); escritas passam pelo
+ * GrupoCommit, que tem a única conexão de escrita. Em modo WAL (padrão) os leitores não esperam
+ * o escritor e vice-versa, e os checkpoints do WAL rodam em segundo plano, fora do commit.
+ */
 public class BancoDados {
-    private static final String DB_URL = "jdbc:sqlite:sistema_bancario.db";
+    private static final Log LOG = Log.de(BancoDados.class);
+    // Arquivo do banco: -Dbanco.arquivo (ex: bancos separados para os benchmarks)
+    private static final String DB_URL = "jdbc:sqlite:" + System.getProperty("banco.arquivo", "sistema_bancario.db");
 
+    // Configuração do pool: -Dbanco.pool.tamanho, -Dbanco.pool.ociosoMs e -Dbanco.pool.esperaMs
+    private static final int TAMANHO_POOL = Integer.getInteger("banco.pool.tamanho", 10);
+    private static final long TEMPO_OCIOSO_MS = Long.getLong("banco.pool.ociosoMs", 60_000L);
+    private static final long TEMPO_ESPERA_MS = Long.getLong("banco.pool.esperaMs", 5_000L);
+    // Tempo que o SQLite espera pelo lock do arquivo antes de devolver SQLITE_BUSY
+    private static final int BUSY_TIMEOUT_MS = 5_000;
+
+    // Modo de armazenamento: -Dbanco.wal=false volta para o journal de rollback padrão
+    private static final boolean MODO_WAL = Boolean.parseBoolean(System.getProperty("banco.wal", "true"));
+    private static final long MMAP_BYTES = Long.getLong("banco.mmapBytes", 256L * 1024 * 1024);
+    private static final int CACHE_KB = Integer.getInteger("banco.cacheKb", 16 * 1024);
+    private static final int CHECKPOINT_SEGUNDOS = Integer.getInteger("banco.wal.checkpointSegundos", 10);
+    // Tamanho do WAL a partir do qual o checkpoint deixa de ser PASSIVE: -Dbanco.wal.limiteBytes
+    private static final long LIMITE_WAL_BYTES = Long.getLong("banco.wal.limiteBytes", 64L * 1024 * 1024);
+
+    private static volatile PoolConexoes pool;
+    private static final AtomicBoolean checkpointsIniciados = new AtomicBoolean();
+    private static volatile boolean tabelasCriadas;
+
+    /**
+     * Empresta uma conexão somente leitura do pool. Fechar a conexão devolve ela ao pool.
+     * Para escrever, use o GrupoCommit.
+     */
     public static Connection getConnection() throws Exception {
+        return getPool().obter();
+    }
+
+    public static PoolConexoes getPool() {
+        PoolConexoes atual = pool;
+        if (atual == null) {
+            synchronized (BancoDados.class) {
+                atual = pool;
+                if (atual == null) {
+                    atual = new PoolConexoes(BancoDados::abrirConexaoLeitura, TAMANHO_POOL, TEMPO_OCIOSO_MS, TEMPO_ESPERA_MS);
+                    pool = atual;
+                    MetricasServidor.getInstancia().registrarComponente("pool_conexoes", atual::resumo);
+                }
+            }
+        }
+        return atual;
+    }
+
+    private static Connection abrirConexao() throws SQLException {
         Connection conn = DriverManager.getConnection(DB_URL);
-        // Habilitar foreign keys no SQLite
+        // Configurações por conexão, feitas uma vez quando a conexão física é aberta
         try (Statement stmt = conn.createStatement()) {
+            // Habilitar foreign keys no SQLite
             stmt.execute("PRAGMA foreign_keys = ON");
+            stmt.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MS);
+            stmt.execute("PRAGMA cache_size = -" + CACHE_KB);
+            stmt.execute("PRAGMA mmap_size = " + MMAP_BYTES);
+            if (MODO_WAL) {
+                // Em WAL, NORMAL só faz fsync no checkpoint e continua sem corromper o banco em queda de energia
+                stmt.execute("PRAGMA synchronous = NORMAL");
+            }
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
         }
         return conn;
     }
 
-    public static void criarTabelas() {
-        try (Connection conn = getConnection();
+    private static Connection abrirConexaoLeitura() throws SQLException {
+        Connection conn = abrirConexao();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA query_only = ON");
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        return conn;
+    }
+
+    /**
+     * Abre a conexão de escrita do GrupoCommit. Não use fora dele: o banco deve ter um único escritor.
+     */
+    static Connection abrirConexaoEscrita() throws SQLException {
+        Connection conn = abrirConexao();
+        try (Statement stmt = conn.createStatement()) {
+            if (MODO_WAL) {
+                stmt.execute("PRAGMA journal_mode = WAL");
+                // O checkpoint automático rodaria dentro do commit; ele é feito em segundo plano (ver executarCheckpoint)
+                stmt.execute("PRAGMA wal_autocheckpoint = 0");
+            }
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        if (MODO_WAL) {
+            iniciarCheckpoints();
+        }
+        return conn;
+    }
+
+    private static void iniciarCheckpoints() {
+        if (!checkpointsIniciados.compareAndSet(false, true)) {
+            return;
+        }
+        ScheduledExecutorService agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Checkpoint-WAL");
+            t.setDaemon(true);
+            return t;
+        });
+        agendador.scheduleWithFixedDelay(BancoDados::executarCheckpoint,
+                CHECKPOINT_SEGUNDOS, CHECKPOINT_SEGUNDOS, TimeUnit.SECONDS);
+    }
+
+    // PASSIVE copia o que puder do WAL para o banco sem bloquear leitores nem o escritor, mas não
+    // volta o WAL para o começo enquanto algum leitor usa um retrato antigo: com leituras contínuas o
+    // arquivo só cresce. Passado o limite, um TRUNCATE espera os leitores (até o busy_timeout),
+    // segurando o escritor nesse meio tempo, e zera o arquivo.
+    private static void executarCheckpoint() {
+        try (Connection conn = abrirConexao();
              Statement stmt = conn.createStatement()) {
+            long paginasWal = checkpoint(stmt, "PASSIVE");
+            long bytesWal = paginasWal * tamanhoPagina(stmt);
+            if (bytesWal > LIMITE_WAL_BYTES) {
+                LOG.aviso("WAL com {} KB passou do limite, forçando checkpoint TRUNCATE", bytesWal / 1024);
+                if (checkpoint(stmt, "TRUNCATE") < 0) {
+                    LOG.aviso("Checkpoint TRUNCATE não concluiu: leitores ainda ativos após {}ms", BUSY_TIMEOUT_MS);
+                }
+            }
+        } catch (SQLException e) {
+            LOG.erro("Erro no checkpoint do WAL: {}", e.getMessage());
+        }
+    }
 
-            // Habilitar foreign keys
-            stmt.execute("PRAGMA foreign_keys = ON");
+    // Devolve o número de páginas no WAL depois do checkpoint, ou -1 se ele não pôde terminar (SQLITE_BUSY)
+    private static long checkpoint(Statement stmt, String modo) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA wal_checkpoint(" + modo + ")")) {
+            if (!rs.next()) {
+                return 0;
+            }
+            return rs.getInt(1) != 0 ? -1 : rs.getLong(2);
+        }
+    }
 
-            // Usar CREATE TABLE IF NOT EXISTS para não apagar dados existentes
-            String sqlUsuarios = "CREATE TABLE IF NOT EXISTS usuarios (" +
-                    "cpf TEXT PRIMARY KEY, " +
-                    "nome TEXT NOT NULL, " +
-                    "senha TEXT NOT NULL, " +
-                    "saldo REAL DEFAULT 0.00" +
-                    ")";
-
-            String sqlTransacoes = "CREATE TABLE IF NOT EXISTS transacoes (" +
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                    "valor_enviado REAL NOT NULL, " +
-                    "cpf_enviador TEXT NOT NULL, " +
-                    "cpf_recebedor TEXT NOT NULL, " +
-                    "criado_em TEXT NOT NULL, " +
-                    "atualizado_em TEXT NOT NULL, " +
-                    "FOREIGN KEY(cpf_enviador) REFERENCES usuarios(cpf) ON DELETE CASCADE, " +
-                    "FOREIGN KEY(cpf_recebedor) REFERENCES usuarios(cpf) ON DELETE CASCADE" +
-                    ")";
-
-            stmt.execute(sqlUsuarios);
-            stmt.execute(sqlTransacoes);
-            System.out.println("Tabelas verificadas/criadas com sucesso!");
-
-        } catch (Exception e) {
-            System.err.println("Erro ao criar tabela: " + e.getMessage());
-        }
-    }
-}
\ No newline at end of file
+    private static long tamanhoPagina(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA page_size")) {
+            return rs.next() ? rs.getLong(1) : 4096;
+        }
+    }
+
+    /**
+     * Cria as tabelas e aplica as migrações pendentes. Só faz trabalho na primeira chamada do processo.
+     */
+    public static void criarTabelas() {
+        if (tabelasCriadas) {
+            return;
+        }
+        synchronized (BancoDados.class) {
+            if (tabelasCriadas) {
+                return;
+            }
+            try {
+                GrupoCommit.getInstancia().submeter(conn -> {
+                    MigracoesBanco.aplicar(conn);
+                    return true;
+                }).join();
+                tabelasCriadas = true;
+                LOG.info("Tabelas verificadas/criadas com sucesso!");
+
+            } catch (Exception e) {
+                LOG.erro("Erro ao criar tabela: {}", e.getMessage());
+            }
+        }
+    }
+}
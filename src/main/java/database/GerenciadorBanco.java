@@ -58,7 +58,7 @@ public class GerenciadorBanco {
     }
 
     private static void listarUsuarios() {
-        String sql = "SELECT cpf, nome, saldo FROM usuarios ORDER BY nome";
+        String sql = "SELECT cpf, nome, saldo_centavos FROM usuarios ORDER BY nome";
 
         try (Connection conn = BancoDados.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql);
@@ -73,9 +73,9 @@ public class GerenciadorBanco {
                 temUsuarios = true;
                 String cpf = rs.getString("cpf");
                 String nome = rs.getString("nome");
-                double saldo = rs.getDouble("saldo");
+                long saldo = rs.getLong("saldo_centavos");
 
-                System.out.printf("CPF: %s | Nome: %s | Saldo: R$ %.2f%n", cpf, nome, saldo);
+                System.out.printf("CPF: %s | Nome: %s | Saldo: R$ %.2f%n", cpf, nome, saldo / 100.0);
             }
 
             if (!temUsuarios) {
@@ -100,11 +100,13 @@ public class GerenciadorBanco {
 
         String sql = "DELETE FROM usuarios WHERE cpf = ?";
 
-        try (Connection conn = BancoDados.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setString(1, cpf);
-            int linhasAfetadas = stmt.executeUpdate();
+        try {
+            int linhasAfetadas = GrupoCommit.getInstancia().submeter(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setString(1, cpf);
+                    return stmt.executeUpdate();
+                }
+            }).join();
 
             if (linhasAfetadas > 0) {
                 System.out.println("Usuário deletado com sucesso!");
@@ -128,10 +130,12 @@ public class GerenciadorBanco {
 
         String sql = "DELETE FROM usuarios";
 
-        try (Connection conn = BancoDados.getConnection();
-             Statement stmt = conn.createStatement()) {
-
-            int usuariosDeletados = stmt.executeUpdate(sql);
+        try {
+            int usuariosDeletados = GrupoCommit.getInstancia().submeter(conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    return stmt.executeUpdate(sql);
+                }
+            }).join();
             System.out.println("Todos os usuários foram deletados!");
             System.out.println("Total: " + usuariosDeletados + " usuário(s) removido(s)");
 
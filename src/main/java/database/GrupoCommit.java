@@ -0,0 +1,243 @@
+package database;
+
+import metricas.Histograma;
+import metricas.MetricasServidor;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import log.Log;
+
+/**
+ * Escritor único do banco, que agrupa escritas concorrentes em um único commit do SQLite.
+ *
+ * Todas as escritas passam por aqui e usam a mesma conexão dedicada; as leituras usam o pool
+ * de BancoDados.getConnection() e, em modo WAL, não esperam por estas escritas.
+ *
+ * Uma thread dedicada junta os pedidos que chegam dentro de uma janela curta (ou até um número
+ * máximo de operações) e executa todos numa só transação BEGIN IMMEDIATE, pagando um fsync por
+ * lote em vez de um por operação. Cada operação roda dentro de um SAVEPOINT próprio: se ela
+ * falhar ou não for confirmada, só ela é desfeita, e cada chamador recebe o seu próprio resultado
+ * depois que o lote inteiro foi gravado.
+ *
+ * Configuração por propriedades de sistema:
+ * -Dbanco.grupoCommit.janelaMicros=500 e -Dbanco.grupoCommit.maxOps=256
+ */
+public class GrupoCommit {
+    private static final Log LOG = Log.de(GrupoCommit.class);
+
+    /** Escrita executada na conexão e na transação do lote. */
+    public interface OperacaoEscrita<T> {
+        T executar(Connection conn) throws SQLException;
+    }
+
+    private static class Pedido<T> {
+        final OperacaoEscrita<T> operacao;
+        final Predicate<T> confirmar;
+        final Consumer<T> aposCommit;
+        final CompletableFuture<T> futuro = new CompletableFuture<>();
+        T resultado;
+        Exception erro;
+        boolean confirmada;
+
+        Pedido(OperacaoEscrita<T> operacao, Predicate<T> confirmar, Consumer<T> aposCommit) {
+            this.operacao = operacao;
+            this.confirmar = confirmar;
+            this.aposCommit = aposCommit;
+        }
+
+        // Devolve false quando o resultado pede que o savepoint da operação seja desfeito
+        boolean executar(Connection conn) throws SQLException {
+            resultado = operacao.executar(conn);
+            return confirmar.test(resultado);
+        }
+
+        void publicar() {
+            if (confirmada && aposCommit != null) {
+                try {
+                    aposCommit.accept(resultado);
+                } catch (RuntimeException e) {
+                    LOG.erro("Erro após o commit: {}", e.getMessage(), e);
+                }
+            }
+        }
+
+        void concluir() {
+            if (erro != null) {
+                futuro.completeExceptionally(erro);
+            } else {
+                futuro.complete(resultado);
+            }
+        }
+    }
+
+    private static class Instancia {
+        static final GrupoCommit GRUPO = new GrupoCommit(
+                Long.getLong("banco.grupoCommit.janelaMicros", 500L),
+                Integer.getInteger("banco.grupoCommit.maxOps", 256));
+
+        static {
+            MetricasServidor.getInstancia().registrarComponente("grupo_commit", GRUPO::resumo);
+        }
+    }
+
+    public static GrupoCommit getInstancia() {
+        return Instancia.GRUPO;
+    }
+
+    private final BlockingQueue<Pedido<?>> fila = new LinkedBlockingQueue<>();
+    private final long janelaNanos;
+    private final int maxOperacoes;
+
+    private Connection conexao; // usada apenas pela thread do escritor
+    private final Histograma tamanhoLote = new Histograma();
+    private final Histograma latenciaCommitMicros = new Histograma();
+
+    public GrupoCommit(long janelaMicros, int maxOperacoes) {
+        if (maxOperacoes <= 0) {
+            throw new IllegalArgumentException("O tamanho máximo do lote deve ser positivo.");
+        }
+        this.janelaNanos = TimeUnit.MICROSECONDS.toNanos(janelaMicros);
+        this.maxOperacoes = maxOperacoes;
+
+        Thread escritor = new Thread(this::executarLotes, "Escritor-Banco");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    /**
+     * Enfileira uma escrita. A operação é mantida no commit do lote apenas se 'confirmar'
+     * aceitar o resultado; caso contrário, o savepoint dela é desfeito e o resultado é
+     * devolvido assim mesmo.
+     */
+    public <T> CompletableFuture<T> submeter(OperacaoEscrita<T> operacao, Predicate<T> confirmar) {
+        return submeter(operacao, confirmar, null);
+    }
+
+    /**
+     * Como submeter(operacao, confirmar), e 'aposCommit' recebe o resultado depois que o lote foi
+     * gravado, se a operação foi confirmada. Roda na thread do escritor, na ordem dos commits e antes
+     * de o chamador ser liberado, então serve para manter caches em dia com o banco.
+     */
+    public <T> CompletableFuture<T> submeter(OperacaoEscrita<T> operacao, Predicate<T> confirmar,
+                                             Consumer<T> aposCommit) {
+        Pedido<T> pedido = new Pedido<>(operacao, confirmar, aposCommit);
+        fila.add(pedido);
+        return pedido.futuro;
+    }
+
+    public <T> CompletableFuture<T> submeter(OperacaoEscrita<T> operacao) {
+        return submeter(operacao, resultado -> true);
+    }
+
+    private void executarLotes() {
+        List<Pedido<?>> lote = new ArrayList<>(maxOperacoes);
+        while (true) {
+            try {
+                lote.add(fila.take());
+                fila.drainTo(lote, maxOperacoes - lote.size());
+
+                // Espera a janela para dar chance a outras requisições entrarem no mesmo commit
+                long prazo = System.nanoTime() + janelaNanos;
+                while (lote.size() < maxOperacoes) {
+                    long restante = prazo - System.nanoTime();
+                    if (restante <= 0) {
+                        break;
+                    }
+                    Pedido<?> proximo = fila.poll(restante, TimeUnit.NANOSECONDS);
+                    if (proximo == null) {
+                        break;
+                    }
+                    lote.add(proximo);
+                    fila.drainTo(lote, maxOperacoes - lote.size());
+                }
+
+                executarLote(lote);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Throwable t) {
+                LOG.erro("Erro no grupo de commit: {}", t.getMessage());
+                for (Pedido<?> pedido : lote) {
+                    pedido.futuro.completeExceptionally(t);
+                }
+            } finally {
+                lote.clear();
+            }
+        }
+    }
+
+    private Connection conexaoEscrita() throws SQLException {
+        if (conexao == null || conexao.isClosed()) {
+            conexao = BancoDados.abrirConexaoEscrita();
+        }
+        return conexao;
+    }
+
+    private void executarLote(List<Pedido<?>> lote) {
+        long inicio = System.nanoTime();
+        try {
+            executarLote(conexaoEscrita(), lote);
+            tamanhoLote.registrar(lote.size());
+            latenciaCommitMicros.registrar((System.nanoTime() - inicio) / 1000);
+            for (Pedido<?> pedido : lote) {
+                pedido.publicar();
+                pedido.concluir();
+            }
+        } catch (Exception e) {
+            // O commit falhou: nenhuma operação do lote foi gravada
+            LOG.erro("Erro ao gravar lote de {} operações: {}", lote.size(), e.getMessage());
+            for (Pedido<?> pedido : lote) {
+                pedido.futuro.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void executarLote(Connection conn, List<Pedido<?>> lote) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+
+            stmt.execute("BEGIN IMMEDIATE");
+            try {
+                for (Pedido<?> pedido : lote) {
+                    stmt.execute("SAVEPOINT operacao");
+                    boolean confirmada;
+                    try {
+                        confirmada = pedido.executar(conn);
+                    } catch (SQLException | RuntimeException e) {
+                        pedido.erro = e;
+                        confirmada = false;
+                    }
+                    pedido.confirmada = confirmada;
+                    if (!confirmada) {
+                        stmt.execute("ROLLBACK TO operacao");
+                    }
+                    stmt.execute("RELEASE operacao");
+                }
+                stmt.execute("COMMIT");
+            } catch (SQLException e) {
+                try {
+                    stmt.execute("ROLLBACK");
+                } catch (SQLException erroRollback) {
+                    // Conexão em estado desconhecido: abre outra no próximo lote
+                    conn.close();
+                }
+                throw e;
+            }
+        }
+    }
+
+    public Histograma getTamanhoLote() { return tamanhoLote; }
+    public Histograma getLatenciaCommitMicros() { return latenciaCommitMicros; }
+    public int getPendentes() { return fila.size(); }
+
+    public String resumo() {
+        return "lotes: " + tamanhoLote.resumo(" ops") + " | commit: " + latenciaCommitMicros.resumo("us");
+    }
+}
@@ -0,0 +1,107 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import log.Log;
+
+/**
+ * Versionamento do esquema pelo PRAGMA user_version.
+ *
+ * Versão 0: esquema original (datas em TEXT ISO 8601, sem índices).
+ * Versão 1: 'criado_em'/'atualizado_em' em milissegundos desde a época (INTEGER) e índices
+ *           (cpf_enviador, criado_em) e (cpf_recebedor, criado_em) para o extrato.
+ * Versão 2: dinheiro em centavos (INTEGER): 'usuarios.saldo' vira 'saldo_centavos' e
+ *           'transacoes.valor_enviado' vira 'valor_centavos'.
+ *
+ * Roda dentro da transação do GrupoCommit: ou a migração inteira é aplicada, ou nada muda.
+ */
+class MigracoesBanco {
+    private static final Log LOG = Log.de(MigracoesBanco.class);
+    static final int VERSAO_ATUAL = 2;
+
+    private MigracoesBanco() {}
+
+    static void aplicar(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            // Usar CREATE TABLE IF NOT EXISTS para não apagar dados existentes
+            stmt.execute("CREATE TABLE IF NOT EXISTS usuarios (" +
+                    "cpf TEXT PRIMARY KEY, " +
+                    "nome TEXT NOT NULL, " +
+                    "senha TEXT NOT NULL, " +
+                    "saldo REAL DEFAULT 0.00" +
+                    ")");
+
+            int versao = versao(stmt);
+            if (versao < 1) {
+                migrarParaVersao1(stmt);
+            }
+            if (versao < 2) {
+                migrarParaVersao2(stmt);
+            }
+            if (versao != VERSAO_ATUAL) {
+                stmt.execute("PRAGMA user_version = " + VERSAO_ATUAL);
+                LOG.info("Esquema do banco atualizado da versão {} para {}", versao, VERSAO_ATUAL);
+            }
+        }
+    }
+
+    private static int versao(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static boolean tabelaExiste(Statement stmt, String tabela) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(
+                "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = '" + tabela + "'")) {
+            return rs.next();
+        }
+    }
+
+    private static String sqlTabelaTransacoes(String nome) {
+        return "CREATE TABLE " + nome + " (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "valor_enviado REAL NOT NULL, " +
+                "cpf_enviador TEXT NOT NULL, " +
+                "cpf_recebedor TEXT NOT NULL, " +
+                "criado_em INTEGER NOT NULL, " +      // epoch millis (UTC)
+                "atualizado_em INTEGER NOT NULL, " +  // epoch millis (UTC)
+                "FOREIGN KEY(cpf_enviador) REFERENCES usuarios(cpf) ON DELETE CASCADE, " +
+                "FOREIGN KEY(cpf_recebedor) REFERENCES usuarios(cpf) ON DELETE CASCADE" +
+                ")";
+    }
+
+    private static void migrarParaVersao1(Statement stmt) throws SQLException {
+        if (tabelaExiste(stmt, "transacoes")) {
+            // Reescreve a tabela convertendo o texto ISO 8601 (com ou sem frações) para milissegundos
+            stmt.execute(sqlTabelaTransacoes("transacoes_v1"));
+            stmt.execute("INSERT INTO transacoes_v1 (id, valor_enviado, cpf_enviador, cpf_recebedor, criado_em, atualizado_em) " +
+                    "SELECT id, valor_enviado, cpf_enviador, cpf_recebedor, " +
+                    "CAST(ROUND((julianday(criado_em) - 2440587.5) * 86400000) AS INTEGER), " +
+                    "CAST(ROUND((julianday(atualizado_em) - 2440587.5) * 86400000) AS INTEGER) " +
+                    "FROM transacoes");
+            stmt.execute("DROP TABLE transacoes");
+            stmt.execute("ALTER TABLE transacoes_v1 RENAME TO transacoes");
+        } else {
+            stmt.execute(sqlTabelaTransacoes("transacoes"));
+        }
+
+        // O extrato busca por um CPF numa faixa de datas: uma varredura de índice para cada lado
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_transacoes_enviador_data ON transacoes (cpf_enviador, criado_em)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_transacoes_recebedor_data ON transacoes (cpf_recebedor, criado_em)");
+    }
+
+    private static void migrarParaVersao2(Statement stmt) throws SQLException {
+        // Colunas novas em vez de reescrever as tabelas: recriar 'usuarios' dispararia o
+        // ON DELETE CASCADE das transações. Valores REAL antigos são arredondados para o centavo.
+        stmt.execute("ALTER TABLE usuarios ADD COLUMN saldo_centavos INTEGER NOT NULL DEFAULT 0");
+        stmt.execute("UPDATE usuarios SET saldo_centavos = CAST(ROUND(saldo * 100) AS INTEGER)");
+        stmt.execute("ALTER TABLE usuarios DROP COLUMN saldo");
+
+        stmt.execute("ALTER TABLE transacoes ADD COLUMN valor_centavos INTEGER NOT NULL DEFAULT 0");
+        stmt.execute("UPDATE transacoes SET valor_centavos = CAST(ROUND(valor_enviado * 100) AS INTEGER)");
+        stmt.execute("ALTER TABLE transacoes DROP COLUMN valor_enviado");
+    }
+}
@@ -0,0 +1,246 @@
+package database;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool limitado de conexões JDBC.
+ *
+ * As conexões entregues são proxies: close() devolve a conexão física ao pool em vez de fechá-la.
+ * Conexões ociosas há muito tempo são fechadas em segundo plano, e as que ficaram paradas
+ * por alguns segundos são validadas antes de voltar a uso.
+ */
+public class PoolConexoes {
+
+    /** Abre uma conexão física nova, já configurada. */
+    public interface FabricaConexao {
+        Connection abrir() throws SQLException;
+    }
+
+    private static final long VALIDAR_APOS_OCIOSA_MS = 5_000;
+    private static final long INTERVALO_LIMPEZA_MS = 30_000;
+
+    private static class ConexaoOciosa {
+        final Connection conexao;
+        final long desde;
+
+        ConexaoOciosa(Connection conexao) {
+            this.conexao = conexao;
+            this.desde = System.currentTimeMillis();
+        }
+    }
+
+    private final FabricaConexao fabrica;
+    private final int tamanhoMaximo;
+    private final long tempoMaximoOciosoMs;
+    private final long tempoMaximoEsperaMs;
+
+    private final Semaphore permissoes;
+    // LIFO: a conexão usada mais recentemente é a primeira a ser reaproveitada
+    private final ConcurrentLinkedDeque<ConexaoOciosa> ociosas = new ConcurrentLinkedDeque<>();
+    private final ScheduledExecutorService limpeza;
+
+    // Métricas
+    private final AtomicInteger ativas = new AtomicInteger();
+    private final AtomicLong emprestimos = new AtomicLong();
+    private final AtomicLong esperaTotalNanos = new AtomicLong();
+    private final AtomicLong esperaMaximaNanos = new AtomicLong();
+    private final AtomicLong esgotamentos = new AtomicLong();
+    private final AtomicLong criadas = new AtomicLong();
+    private final AtomicLong destruidas = new AtomicLong();
+    private final AtomicLong falhasValidacao = new AtomicLong();
+
+    public PoolConexoes(FabricaConexao fabrica, int tamanhoMaximo, long tempoMaximoOciosoMs, long tempoMaximoEsperaMs) {
+        if (tamanhoMaximo <= 0) {
+            throw new IllegalArgumentException("O tamanho do pool deve ser positivo.");
+        }
+        this.fabrica = fabrica;
+        this.tamanhoMaximo = tamanhoMaximo;
+        this.tempoMaximoOciosoMs = tempoMaximoOciosoMs;
+        this.tempoMaximoEsperaMs = tempoMaximoEsperaMs;
+        this.permissoes = new Semaphore(tamanhoMaximo, true);
+
+        this.limpeza = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Pool-Conexoes-Limpeza");
+            t.setDaemon(true);
+            return t;
+        });
+        limpeza.scheduleWithFixedDelay(this::removerOciosas, INTERVALO_LIMPEZA_MS, INTERVALO_LIMPEZA_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Empresta uma conexão, esperando no máximo o tempo configurado se todas estiverem em uso.
+     */
+    public Connection obter() throws SQLException {
+        long inicio = System.nanoTime();
+        try {
+            if (!permissoes.tryAcquire(tempoMaximoEsperaMs, TimeUnit.MILLISECONDS)) {
+                esgotamentos.incrementAndGet();
+                throw new SQLException("Tempo esgotado esperando uma conexão livre no pool (" + resumo() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrompido esperando uma conexão do pool", e);
+        }
+        registrarEspera(System.nanoTime() - inicio);
+
+        try {
+            Connection fisica = reaproveitarOciosa();
+            if (fisica == null) {
+                fisica = fabrica.abrir();
+                criadas.incrementAndGet();
+            }
+            ativas.incrementAndGet();
+            emprestimos.incrementAndGet();
+            return envolver(fisica);
+        } catch (SQLException | RuntimeException e) {
+            permissoes.release();
+            throw e;
+        }
+    }
+
+    private Connection reaproveitarOciosa() {
+        ConexaoOciosa ociosa;
+        while ((ociosa = ociosas.pollFirst()) != null) {
+            if (System.currentTimeMillis() - ociosa.desde < VALIDAR_APOS_OCIOSA_MS || valida(ociosa.conexao)) {
+                return ociosa.conexao;
+            }
+            falhasValidacao.incrementAndGet();
+            destruir(ociosa.conexao);
+        }
+        return null;
+    }
+
+    private boolean valida(Connection conexao) {
+        try {
+            return conexao.isValid(1);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void registrarEspera(long nanos) {
+        esperaTotalNanos.addAndGet(nanos);
+        esperaMaximaNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private void devolver(Connection fisica) {
+        ativas.decrementAndGet();
+        boolean reutilizavel;
+        try {
+            // Não deixa uma transação aberta vazar para o próximo usuário da conexão
+            if (!fisica.getAutoCommit()) {
+                fisica.rollback();
+                fisica.setAutoCommit(true);
+            }
+            reutilizavel = !fisica.isClosed();
+        } catch (SQLException e) {
+            reutilizavel = false;
+        }
+
+        if (reutilizavel) {
+            ociosas.addFirst(new ConexaoOciosa(fisica));
+        } else {
+            destruir(fisica);
+        }
+        permissoes.release();
+    }
+
+    private void destruir(Connection fisica) {
+        destruidas.incrementAndGet();
+        try {
+            fisica.close();
+        } catch (SQLException ignored) {}
+    }
+
+    private void removerOciosas() {
+        long limite = System.currentTimeMillis() - tempoMaximoOciosoMs;
+        Iterator<ConexaoOciosa> it = ociosas.descendingIterator();
+        while (it.hasNext()) {
+            ConexaoOciosa ociosa = it.next();
+            if (ociosa.desde < limite && ociosas.removeFirstOccurrence(ociosa)) {
+                destruir(ociosa.conexao);
+            }
+        }
+    }
+
+    private Connection envolver(Connection fisica) {
+        AtomicBoolean devolvida = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, metodo, args) -> {
+                    switch (metodo.getName()) {
+                        case "close":
+                            if (devolvida.compareAndSet(false, true)) {
+                                devolver(fisica);
+                            }
+                            return null;
+                        case "isClosed":
+                            return devolvida.get() || fisica.isClosed();
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return "PoolConexoes[" + fisica + "]";
+                        default:
+                            if (devolvida.get()) {
+                                throw new SQLException("Conexão já devolvida ao pool");
+                            }
+                            try {
+                                return metodo.invoke(fisica, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                    }
+                });
+    }
+
+    /**
+     * Fecha todas as conexões ociosas e encerra a limpeza em segundo plano.
+     */
+    public void fechar() {
+        limpeza.shutdownNow();
+        ConexaoOciosa ociosa;
+        while ((ociosa = ociosas.pollFirst()) != null) {
+            destruir(ociosa.conexao);
+        }
+    }
+
+    public int getTamanhoMaximo() { return tamanhoMaximo; }
+    public int getAtivas() { return ativas.get(); }
+    public int getOciosas() { return ociosas.size(); }
+    public long getEmprestimos() { return emprestimos.get(); }
+    public long getEsgotamentos() { return esgotamentos.get(); }
+    public long getCriadas() { return criadas.get(); }
+    public long getDestruidas() { return destruidas.get(); }
+    public long getFalhasValidacao() { return falhasValidacao.get(); }
+
+    public double getEsperaMediaMs() {
+        long total = emprestimos.get();
+        return total == 0 ? 0.0 : esperaTotalNanos.get() / 1_000_000.0 / total;
+    }
+
+    public double getEsperaMaximaMs() {
+        return esperaMaximaNanos.get() / 1_000_000.0;
+    }
+
+    public String resumo() {
+        return String.format("ativas=%d ociosas=%d max=%d emprestimos=%d espera media=%.3fms espera max=%.3fms "
+                        + "esgotamentos=%d criadas=%d destruidas=%d falhas de validacao=%d",
+                getAtivas(), getOciosas(), tamanhoMaximo, getEmprestimos(), getEsperaMediaMs(), getEsperaMaximaMs(),
+                getEsgotamentos(), getCriadas(), getDestruidas(), getFalhasValidacao());
+    }
+}
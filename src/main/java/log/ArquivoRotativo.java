@@ -0,0 +1,79 @@
+package log;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Arquivo de log que gira ao passar de um tamanho: servidor.log vira servidor.log.1, o .1 vira .2
+ * e assim por diante, mantendo no máximo 'mantidos' arquivos antigos.
+ */
+final class ArquivoRotativo implements DestinoLog {
+    private final Path arquivo;
+    private final long tamanhoMaximo;
+    private final int mantidos;
+    private BufferedWriter saida;
+    private long tamanho;
+
+    ArquivoRotativo(Path arquivo, long tamanhoMaximo, int mantidos) throws IOException {
+        this.arquivo = arquivo;
+        this.tamanhoMaximo = tamanhoMaximo;
+        this.mantidos = mantidos;
+        abrir();
+    }
+
+    @Override
+    public void escrever(Nivel nivel, String linha) {
+        try {
+            if (tamanho >= tamanhoMaximo) {
+                girar();
+            }
+            saida.write(linha);
+            saida.newLine();
+            // estimativa: as linhas são quase todas ASCII
+            tamanho += linha.length() + 1;
+        } catch (IOException e) {
+            System.err.println("Erro ao escrever no log " + arquivo + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void descarregar() {
+        try {
+            saida.flush();
+        } catch (IOException e) {
+            System.err.println("Erro ao descarregar o log " + arquivo + ": " + e.getMessage());
+        }
+    }
+
+    private void abrir() throws IOException {
+        saida = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(arquivo,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND), StandardCharsets.UTF_8), 64 * 1024);
+        tamanho = Files.size(arquivo);
+    }
+
+    private void girar() throws IOException {
+        saida.close();
+        for (int i = mantidos - 1; i >= 1; i--) {
+            Path antigo = antigo(i);
+            if (Files.exists(antigo)) {
+                Files.move(antigo, antigo(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (mantidos > 0) {
+            Files.move(arquivo, antigo(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.delete(arquivo);
+        }
+        abrir();
+    }
+
+    private Path antigo(int i) {
+        return arquivo.resolveSibling(arquivo.getFileName() + "." + i);
+    }
+}
@@ -0,0 +1,30 @@
+package log;
+
+/**
+ * Destino que repete o log no terminal: ERRO e AVISO em System.err, o resto em System.out.
+ * As linhas de um lote são juntadas e impressas de uma vez em descarregar().
+ */
+final class Console implements DestinoLog {
+    private final StringBuilder saida = new StringBuilder(4096);
+    private final StringBuilder erros = new StringBuilder(1024);
+
+    @Override
+    public void escrever(Nivel nivel, String linha) {
+        StringBuilder destino = nivel.compareTo(Nivel.AVISO) >= 0 ? erros : saida;
+        destino.append(linha).append(System.lineSeparator());
+    }
+
+    @Override
+    public void descarregar() {
+        if (!saida.isEmpty()) {
+            System.out.print(saida);
+            System.out.flush();
+            saida.setLength(0);
+        }
+        if (!erros.isEmpty()) {
+            System.err.print(erros);
+            System.err.flush();
+            erros.setLength(0);
+        }
+    }
+}
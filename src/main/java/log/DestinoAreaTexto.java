@@ -0,0 +1,106 @@
+package log;
+
+import javax.swing.JTextArea;
+import javax.swing.Timer;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mostra linhas de log numa JTextArea sem encher a fila de eventos do Swing.
+ *
+ * Qualquer thread chama adicionar(); as linhas ficam numa fila sem locks e um javax.swing.Timer as
+ * junta, a cada INTERVALO_MS, num único append. O documento é podado para guardar só os últimos
+ * -Dlog.gui.maxCaracteres (padrão 200 mil), e a fila pendente também tem limite: se a interface não
+ * acompanhar, as linhas que não caberiam na área são descartadas e contadas.
+ */
+public final class DestinoAreaTexto implements DestinoLog {
+    private static final int INTERVALO_MS = 100;
+    private static final int MAX_PENDENTES = 20_000;
+    private static final DateTimeFormatter FORMATO_HORA = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private final JTextArea area;
+    private final int maxCaracteres = Integer.getInteger("log.gui.maxCaracteres", 200_000);
+    private final ConcurrentLinkedQueue<String> pendentes = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger quantidadePendente = new AtomicInteger();
+    private final LongAdder descartadas = new LongAdder();
+    private final StringBuilder lote = new StringBuilder(8192); // só a EDT mexe
+    private final Timer timer;
+
+    public DestinoAreaTexto(JTextArea area) {
+        this.area = area;
+        this.timer = new Timer(INTERVALO_MS, e -> descarregarNaInterface());
+        timer.start();
+    }
+
+    /**
+     * Acrescenta "[HH:mm:ss] mensagem". Pode ser chamado de qualquer thread.
+     */
+    public void adicionar(String mensagem) {
+        enfileirar("[" + LocalTime.now().format(FORMATO_HORA) + "] " + mensagem);
+    }
+
+    @Override
+    public void escrever(Nivel nivel, String linha) {
+        enfileirar(linha);
+    }
+
+    public void parar() {
+        timer.stop();
+    }
+
+    private void enfileirar(String linha) {
+        if (quantidadePendente.incrementAndGet() > MAX_PENDENTES) {
+            quantidadePendente.decrementAndGet();
+            descartadas.increment();
+            return;
+        }
+        pendentes.offer(linha);
+    }
+
+    // Executado na EDT pelo Timer
+    private void descarregarNaInterface() {
+        long perdidas = descartadas.sumThenReset();
+        if (perdidas > 0) {
+            lote.append("... ").append(perdidas).append(" linhas de log omitidas\n");
+        }
+        String linha;
+        while ((linha = pendentes.poll()) != null) {
+            quantidadePendente.decrementAndGet();
+            lote.append(linha).append('\n');
+        }
+        if (lote.isEmpty()) {
+            return;
+        }
+
+        if (lote.length() >= maxCaracteres) {
+            // O lote sozinho enche a área: troca o texto inteiro pelo fim do lote
+            int inicio = lote.indexOf("\n", lote.length() - maxCaracteres) + 1;
+            area.setText(lote.substring(inicio));
+        } else {
+            area.append(lote.toString());
+            podar();
+        }
+        lote.setLength(0);
+        area.setCaretPosition(area.getDocument().getLength());
+    }
+
+    private void podar() {
+        Document documento = area.getDocument();
+        int excesso = documento.getLength() - maxCaracteres;
+        if (excesso <= 0) {
+            return;
+        }
+        try {
+            // Corta em fim de linha para não deixar uma linha pela metade no topo
+            int fim = area.getLineEndOffset(area.getLineOfOffset(excesso));
+            documento.remove(0, Math.min(fim, documento.getLength()));
+        } catch (BadLocationException e) {
+            area.setText("");
+        }
+    }
+}
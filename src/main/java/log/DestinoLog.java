@@ -0,0 +1,13 @@
+package log;
+
+/**
+ * Para onde o EscritorLog manda as linhas já formatadas. Chamado só pela thread do escritor,
+ * uma vez por linha, e descarregar() ao fim de cada lote.
+ */
+public interface DestinoLog {
+
+    void escrever(Nivel nivel, String linha);
+
+    default void descarregar() {
+    }
+}
@@ -0,0 +1,187 @@
+package log;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Thread de fundo que esvazia a FilaLog em lotes: formata cada registro, mascara senhas e tokens e
+ * entrega a linha aos destinos (console, arquivo rotativo e o que mais for registrado).
+ * Toda formatação acontece aqui, fora das threads que atendem os clientes.
+ */
+final class EscritorLog implements Runnable {
+    private static final int CAPACIDADE = 16 * 1024;
+    private static final long ESPERA_OCIOSA_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final DateTimeFormatter FORMATO_DATA =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+    private static final Pattern CAMPO_SECRETO =
+            Pattern.compile("\"(senha|token)\"\\s*:\\s*\"(?:[^\"\\\\]|\\\\.)*\"");
+
+    private final FilaLog fila = new FilaLog(CAPACIDADE);
+    private final LongAdder descartadas = new LongAdder();
+    private final List<DestinoLog> destinos = new CopyOnWriteArrayList<>();
+    private final StringBuilder linha = new StringBuilder(256);
+    private final Thread thread;
+    private volatile boolean dormindo;
+
+    EscritorLog() {
+        thread = new Thread(this, "Log-Escritor");
+        thread.setDaemon(true);
+    }
+
+    void iniciar() {
+        thread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            while (esvaziar()) {
+                // até não sobrar nada nem descarte por relatar
+            }
+        }, "Log-Encerramento"));
+    }
+
+    void adicionarDestino(DestinoLog destino) {
+        destinos.add(destino);
+    }
+
+    void removerDestino(DestinoLog destino) {
+        destinos.remove(destino);
+    }
+
+    /**
+     * Com a fila cheia, DEBUG e INFO são descartados (e contados); AVISO e ERRO esperam vaga.
+     */
+    void publicar(Nivel nivel, String origem, String formato, Object a0, Object a1, Object a2) {
+        while (!fila.publicar(nivel, origem, formato, a0, a1, a2)) {
+            if (nivel.compareTo(Nivel.AVISO) < 0) {
+                descartadas.increment();
+                break;
+            }
+            LockSupport.unpark(thread);
+            Thread.onSpinWait();
+        }
+        if (dormindo) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            if (!esvaziar()) {
+                dormindo = true;
+                if (fila.proximo() < 0) {
+                    LockSupport.parkNanos(this, ESPERA_OCIOSA_NANOS);
+                }
+                dormindo = false;
+            }
+        }
+    }
+
+    /**
+     * Escreve tudo o que já foi publicado e descarrega os destinos.
+     *
+     * @return false se não havia nada para escrever
+     */
+    private synchronized boolean esvaziar() {
+        long perdidas = descartadas.sumThenReset();
+        if (perdidas > 0) {
+            entregar(Nivel.AVISO, cabecalho(System.currentTimeMillis(), Nivel.AVISO, thread, "Log")
+                    .append(perdidas).append(" mensagens de log descartadas (fila cheia)").toString());
+        }
+        boolean escreveu = perdidas > 0;
+        int i;
+        while ((i = fila.proximo()) >= 0) {
+            Nivel nivel = fila.niveis[i];
+            String texto = formatar(i);
+            fila.liberar(i);
+            entregar(nivel, texto);
+            escreveu = true;
+        }
+        if (escreveu) {
+            for (DestinoLog destino : destinos) {
+                destino.descarregar();
+            }
+        }
+        return escreveu;
+    }
+
+    private void entregar(Nivel nivel, String texto) {
+        for (DestinoLog destino : destinos) {
+            destino.escrever(nivel, texto);
+        }
+    }
+
+    private StringBuilder cabecalho(long instante, Nivel nivel, Thread autora, String origem) {
+        linha.setLength(0);
+        FORMATO_DATA.formatTo(Instant.ofEpochMilli(instante), linha);
+        linha.append(' ').append(nivel).append(" [");
+        // As virtual threads do GerenciadorConexoes não têm nome
+        String nome = autora.getName();
+        if (nome.isEmpty()) {
+            linha.append("virtual-").append(autora.threadId());
+        } else {
+            linha.append(nome);
+        }
+        return linha.append("] ").append(origem).append(" - ");
+    }
+
+    private String formatar(int i) {
+        StringBuilder saida = cabecalho(fila.instantes[i], fila.niveis[i], fila.threads[i], fila.origens[i]);
+        int inicioMensagem = saida.length();
+        Object[] argumentos = {fila.argumentos0[i], fila.argumentos1[i], fila.argumentos2[i]};
+        String formato = fila.formatos[i];
+
+        int usados = 0;
+        int de = 0;
+        int marca;
+        while ((marca = formato.indexOf("{}", de)) >= 0) {
+            saida.append(formato, de, marca);
+            saida.append(usados < argumentos.length ? String.valueOf(argumentos[usados]) : "{}");
+            usados++;
+            de = marca + 2;
+        }
+        saida.append(formato, de, formato.length());
+
+        if (saida.indexOf("\"senha\"", inicioMensagem) >= 0 || saida.indexOf("\"token\"", inicioMensagem) >= 0) {
+            String mascarada = mascarar(saida.substring(inicioMensagem));
+            saida.setLength(inicioMensagem);
+            saida.append(mascarada);
+        }
+
+        for (int a = usados; a < argumentos.length; a++) {
+            if (argumentos[a] instanceof Throwable erro) {
+                StringWriter pilha = new StringWriter();
+                erro.printStackTrace(new PrintWriter(pilha));
+                saida.append(System.lineSeparator()).append(pilha.toString().stripTrailing());
+            }
+        }
+        return saida.toString();
+    }
+
+    /**
+     * Troca o valor de "senha" e "token" nas mensagens JSON do protocolo por ***.
+     */
+    static String mascarar(String texto) {
+        Matcher campo = CAMPO_SECRETO.matcher(texto);
+        return campo.find() ? campo.replaceAll("\"$1\":\"***\"") : texto;
+    }
+
+    static ArquivoRotativo arquivo(String caminho, long tamanhoMaximo, int mantidos) {
+        try {
+            return new ArquivoRotativo(Path.of(caminho), tamanhoMaximo, mantidos);
+        } catch (Exception e) {
+            System.err.println("Não foi possível abrir o arquivo de log " + caminho + ": " + e.getMessage());
+            return null;
+        }
+    }
+}
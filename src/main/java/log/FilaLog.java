@@ -0,0 +1,97 @@
+package log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fila circular sem locks com vários produtores e um consumidor (a thread do EscritorLog).
+ *
+ * Cada posição tem um número de sequência: o produtor reserva a posição com um CAS na cauda, grava
+ * os campos e publica a sequência; o consumidor só lê a posição depois de ver a sequência publicada.
+ * Os registros ficam em arrays paralelos, então publicar uma mensagem não aloca nada.
+ */
+final class FilaLog {
+    private final int mascara;
+    private final AtomicLongArray sequencias;
+    private final AtomicLong cauda = new AtomicLong();
+    private long cabeca; // só o consumidor mexe
+
+    final long[] instantes;
+    final Nivel[] niveis;
+    final String[] origens;
+    final Thread[] threads;
+    final String[] formatos;
+    final Object[] argumentos0;
+    final Object[] argumentos1;
+    final Object[] argumentos2;
+
+    FilaLog(int capacidadeMinima) {
+        int capacidade = Integer.highestOneBit(Math.max(2, capacidadeMinima - 1)) << 1;
+        mascara = capacidade - 1;
+        sequencias = new AtomicLongArray(capacidade);
+        for (int i = 0; i < capacidade; i++) {
+            sequencias.set(i, i);
+        }
+        instantes = new long[capacidade];
+        niveis = new Nivel[capacidade];
+        origens = new String[capacidade];
+        threads = new Thread[capacidade];
+        formatos = new String[capacidade];
+        argumentos0 = new Object[capacidade];
+        argumentos1 = new Object[capacidade];
+        argumentos2 = new Object[capacidade];
+    }
+
+    /**
+     * @return false se a fila está cheia (a mensagem é descartada)
+     */
+    boolean publicar(Nivel nivel, String origem, String formato, Object a0, Object a1, Object a2) {
+        long posicao = cauda.get();
+        int i;
+        while (true) {
+            i = (int) posicao & mascara;
+            long diferenca = sequencias.get(i) - posicao;
+            if (diferenca == 0) {
+                if (cauda.compareAndSet(posicao, posicao + 1)) {
+                    break;
+                }
+                posicao = cauda.get();
+            } else if (diferenca < 0) {
+                return false;
+            } else {
+                posicao = cauda.get();
+            }
+        }
+
+        instantes[i] = System.currentTimeMillis();
+        niveis[i] = nivel;
+        origens[i] = origem;
+        threads[i] = Thread.currentThread();
+        formatos[i] = formato;
+        argumentos0[i] = a0;
+        argumentos1[i] = a1;
+        argumentos2[i] = a2;
+        sequencias.set(i, posicao + 1); // publica os campos acima para o consumidor
+        return true;
+    }
+
+    /**
+     * Posição do próximo registro publicado, ou -1 se a fila está vazia. Depois de ler os campos,
+     * o consumidor chama liberar().
+     */
+    int proximo() {
+        int i = (int) cabeca & mascara;
+        return sequencias.get(i) == cabeca + 1 ? i : -1;
+    }
+
+    void liberar(int i) {
+        origens[i] = null;
+        threads[i] = null;
+        formatos[i] = null;
+        argumentos0[i] = null;
+        argumentos1[i] = null;
+        argumentos2[i] = null;
+        sequencias.set(i, cabeca + mascara + 1);
+        cabeca++;
+    }
+}
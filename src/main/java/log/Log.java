@@ -0,0 +1,115 @@
+package log;
+
+/**
+ * Log assíncrono do servidor. Uso:
+ * <pre>
+ *     private static final Log LOG = Log.de(Servidor.class);
+ *     LOG.info("Cliente {} conectado", endereco);
+ * </pre>
+ * A chamada só confere o nível e publica o formato e os argumentos numa fila sem locks; montar a
+ * linha, mascarar senhas e tokens e escrever no console e no arquivo fica com a thread Log-Escritor.
+ * Por isso os argumentos precisam ser imutáveis (String, números, registros). Um Throwable passado
+ * depois dos argumentos do formato sai com a pilha.
+ *
+ * Configuração: -Dlog.nivel (DEBUG, INFO, AVISO, ERRO; padrão INFO), -Dlog.console (padrão true),
+ * -Dlog.arquivo (padrão servidor.log; vazio desliga), -Dlog.tamanhoMaximo (bytes, padrão 10 MiB)
+ * e -Dlog.arquivosMantidos (padrão 5).
+ */
+public final class Log {
+    private static final Nivel NIVEL_MINIMO = nivelConfigurado();
+    private static final EscritorLog ESCRITOR = new EscritorLog();
+
+    static {
+        if (Boolean.parseBoolean(System.getProperty("log.console", "true"))) {
+            ESCRITOR.adicionarDestino(new Console());
+        }
+        String arquivo = System.getProperty("log.arquivo", "servidor.log");
+        if (!arquivo.isBlank()) {
+            ArquivoRotativo destino = EscritorLog.arquivo(arquivo,
+                    Long.getLong("log.tamanhoMaximo", 10L * 1024 * 1024),
+                    Integer.getInteger("log.arquivosMantidos", 5));
+            if (destino != null) {
+                ESCRITOR.adicionarDestino(destino);
+            }
+        }
+        ESCRITOR.iniciar();
+    }
+
+    private final String origem;
+
+    private Log(String origem) {
+        this.origem = origem;
+    }
+
+    public static Log de(Class<?> classe) {
+        return new Log(classe.getSimpleName());
+    }
+
+    /**
+     * Registra mais um destino para as linhas (por exemplo, a janela do ServidorGUI).
+     */
+    public static void adicionarDestino(DestinoLog destino) {
+        ESCRITOR.adicionarDestino(destino);
+    }
+
+    public static void removerDestino(DestinoLog destino) {
+        ESCRITOR.removerDestino(destino);
+    }
+
+    /**
+     * Embrulha um valor sensível para que apareça no log só com os 4 primeiros caracteres.
+     */
+    public static Object segredo(String valor) {
+        return new Segredo(valor);
+    }
+
+    public static boolean isAtivo(Nivel nivel) {
+        return nivel.compareTo(NIVEL_MINIMO) >= 0;
+    }
+
+    public void debug(String formato) { registrar(Nivel.DEBUG, formato, null, null, null); }
+    public void debug(String formato, Object a) { registrar(Nivel.DEBUG, formato, a, null, null); }
+    public void debug(String formato, Object a, Object b) { registrar(Nivel.DEBUG, formato, a, b, null); }
+    public void debug(String formato, Object a, Object b, Object c) { registrar(Nivel.DEBUG, formato, a, b, c); }
+
+    public void info(String formato) { registrar(Nivel.INFO, formato, null, null, null); }
+    public void info(String formato, Object a) { registrar(Nivel.INFO, formato, a, null, null); }
+    public void info(String formato, Object a, Object b) { registrar(Nivel.INFO, formato, a, b, null); }
+    public void info(String formato, Object a, Object b, Object c) { registrar(Nivel.INFO, formato, a, b, c); }
+
+    public void aviso(String formato) { registrar(Nivel.AVISO, formato, null, null, null); }
+    public void aviso(String formato, Object a) { registrar(Nivel.AVISO, formato, a, null, null); }
+    public void aviso(String formato, Object a, Object b) { registrar(Nivel.AVISO, formato, a, b, null); }
+    public void aviso(String formato, Object a, Object b, Object c) { registrar(Nivel.AVISO, formato, a, b, c); }
+
+    public void erro(String formato) { registrar(Nivel.ERRO, formato, null, null, null); }
+    public void erro(String formato, Object a) { registrar(Nivel.ERRO, formato, a, null, null); }
+    public void erro(String formato, Object a, Object b) { registrar(Nivel.ERRO, formato, a, b, null); }
+    public void erro(String formato, Object a, Object b, Object c) { registrar(Nivel.ERRO, formato, a, b, c); }
+
+    private void registrar(Nivel nivel, String formato, Object a, Object b, Object c) {
+        if (nivel.compareTo(NIVEL_MINIMO) >= 0) {
+            ESCRITOR.publicar(nivel, origem, formato, a, b, c);
+        }
+    }
+
+    private static Nivel nivelConfigurado() {
+        String nivel = System.getProperty("log.nivel", "INFO");
+        try {
+            return Nivel.valueOf(nivel.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Nível de log desconhecido '" + nivel + "', usando INFO.");
+            return Nivel.INFO;
+        }
+    }
+
+    private record Segredo(String valor) {
+        @Override
+        public String toString() {
+            if (valor == null) {
+                return "null";
+            }
+            return valor.substring(0, Math.min(4, valor.length())) + "****";
+        }
+    }
+}
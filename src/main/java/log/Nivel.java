@@ -0,0 +1,8 @@
+package log;
+
+/**
+ * Níveis de log, do mais detalhado ao mais grave. O nível mínimo vem de -Dlog.nivel (padrão INFO).
+ */
+public enum Nivel {
+    DEBUG, INFO, AVISO, ERRO
+}
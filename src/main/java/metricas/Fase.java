@@ -0,0 +1,29 @@
+package metricas;
+
+/**
+ * Etapas de uma requisição no servidor, na ordem em que acontecem.
+ */
+public enum Fase {
+    /** JSON da mensagem lido para os campos. */
+    LEITURA("leitura"),
+    /** Esquema da mensagem e, antes de serializar, a resposta. */
+    VALIDACAO("validacao"),
+    /** Token conferido ou gerado. */
+    AUTENTICACAO("autenticacao"),
+    /** Regra de negócio, travas das contas e banco (no extrato, a primeira página; as seguintes contam na escrita). */
+    BANCO("banco"),
+    /** Resposta convertida em texto. */
+    SERIALIZACAO("serializacao"),
+    /** Resposta escrita na conexão. */
+    ESCRITA("escrita");
+
+    private final String nome;
+
+    Fase(String nome) {
+        this.nome = nome;
+    }
+
+    public String getNome() {
+        return nome;
+    }
+}
@@ -0,0 +1,154 @@
+package metricas;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma sem locks no estilo HDR: cada potência de dois é dividida em 32 sub-faixas,
+ * o que dá erro relativo de no máximo ~3% em qualquer valor, de 0 até Long.MAX_VALUE.
+ *
+ * A unidade dos valores é de quem registra (micros, nanos, quantidade de itens...).
+ * registrar() é seguro para várias threads e não aloca.
+ */
+public class Histograma {
+    private static final int BITS_SUBFAIXA = 5;
+    private static final int SUBFAIXAS = 1 << BITS_SUBFAIXA;
+    private static final int TOTAL_FAIXAS = (64 - BITS_SUBFAIXA) * SUBFAIXAS;
+
+    private final AtomicLongArray contagens = new AtomicLongArray(TOTAL_FAIXAS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder soma = new LongAdder();
+    private final AtomicLong minimo = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong maximo = new AtomicLong(Long.MIN_VALUE);
+
+    static int indice(long valor) {
+        if (valor < SUBFAIXAS) {
+            return (int) valor;
+        }
+        int expoente = 63 - Long.numberOfLeadingZeros(valor);
+        int deslocamento = expoente - BITS_SUBFAIXA;
+        int sub = (int) (valor >>> deslocamento) - SUBFAIXAS;
+        return (deslocamento + 1) * SUBFAIXAS + sub;
+    }
+
+    static long limiteInferior(int indice) {
+        if (indice < SUBFAIXAS) {
+            return indice;
+        }
+        int deslocamento = indice / SUBFAIXAS - 1;
+        long sub = indice % SUBFAIXAS;
+        return (SUBFAIXAS + sub) << deslocamento;
+    }
+
+    static long limiteSuperior(int indice) {
+        return indice + 1 >= TOTAL_FAIXAS ? Long.MAX_VALUE : limiteInferior(indice + 1) - 1;
+    }
+
+    public void registrar(long valor) {
+        if (valor < 0) {
+            valor = 0;
+        }
+        contagens.incrementAndGet(indice(valor));
+        total.increment();
+        soma.add(valor);
+        atualizarMinimo(valor);
+        atualizarMaximo(valor);
+    }
+
+    /**
+     * Registra o valor e, se ele passou do intervalo esperado entre amostras, também as amostras
+     * que deixaram de ser feitas enquanto o sistema estava parado (correção de coordinated omission).
+     */
+    public void registrarComIntervaloEsperado(long valor, long intervaloEsperado) {
+        registrar(valor);
+        if (intervaloEsperado <= 0) {
+            return;
+        }
+        for (long faltante = valor - intervaloEsperado; faltante >= intervaloEsperado; faltante -= intervaloEsperado) {
+            registrar(faltante);
+        }
+    }
+
+    /**
+     * Soma as contagens de outro histograma neste.
+     */
+    public void adicionar(Histograma outro) {
+        for (int i = 0; i < TOTAL_FAIXAS; i++) {
+            long c = outro.contagens.get(i);
+            if (c != 0) {
+                contagens.addAndGet(i, c);
+            }
+        }
+        total.add(outro.total.sum());
+        soma.add(outro.soma.sum());
+        atualizarMinimo(outro.minimo.get());
+        atualizarMaximo(outro.maximo.get());
+    }
+
+    // Lê antes de escrever: quase nenhum valor muda o mínimo ou o máximo, então quase nunca há CAS
+    private void atualizarMinimo(long valor) {
+        long atual;
+        while (valor < (atual = minimo.get())) {
+            if (minimo.weakCompareAndSetVolatile(atual, valor)) {
+                return;
+            }
+        }
+    }
+
+    private void atualizarMaximo(long valor) {
+        long atual;
+        while (valor > (atual = maximo.get())) {
+            if (maximo.weakCompareAndSetVolatile(atual, valor)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Devolve o valor abaixo do qual estão 'percentil' % das amostras (limite superior da faixa).
+     */
+    public long percentil(double percentil) {
+        long n = total.sum();
+        if (n == 0) {
+            return 0;
+        }
+        long alvo = Math.max(1, (long) Math.ceil(n * percentil / 100.0));
+        long acumulado = 0;
+        for (int i = 0; i < TOTAL_FAIXAS; i++) {
+            acumulado += contagens.get(i);
+            if (acumulado >= alvo) {
+                return Math.min(limiteSuperior(i), getMaximo());
+            }
+        }
+        return getMaximo();
+    }
+
+    public long getContagem() { return total.sum(); }
+    public long getMinimo() { return getContagem() == 0 ? 0 : minimo.get(); }
+    public long getMaximo() { return getContagem() == 0 ? 0 : maximo.get(); }
+
+    public double getMedia() {
+        long n = total.sum();
+        return n == 0 ? 0.0 : (double) soma.sum() / n;
+    }
+
+    /**
+     * Zera o histograma. Registros concorrentes com a limpeza podem ser perdidos.
+     */
+    public void zerar() {
+        for (int i = 0; i < TOTAL_FAIXAS; i++) {
+            contagens.set(i, 0);
+        }
+        total.reset();
+        soma.reset();
+        minimo.set(Long.MAX_VALUE);
+        maximo.set(Long.MIN_VALUE);
+    }
+
+    public String resumo(String unidade) {
+        return String.format("n=%d media=%.1f%s p50=%d%s p90=%d%s p99=%d%s p99.9=%d%s max=%d%s",
+                getContagem(), getMedia(), unidade, percentil(50), unidade, percentil(90), unidade,
+                percentil(99), unidade, percentil(99.9), unidade, getMaximo(), unidade);
+    }
+}
@@ -0,0 +1,67 @@
+package metricas;
+
+/**
+ * Cronômetro de uma requisição: cada marcar(fase) atribui à fase o tempo desde a marca anterior,
+ * e concluir() entrega o total e as fases às MetricasServidor.
+ *
+ * Usado por uma thread de cada vez (a que está tratando a requisição), sem sincronização.
+ * O total vai do início ao concluir(), então inclui o que não é fase (ex: espera na fila do
+ * pipeline da conexão).
+ */
+public final class Medicao {
+    /**
+     * Medição que não registra nada (métricas desligadas ou fora do servidor).
+     */
+    public static final Medicao NENHUMA = new Medicao(0);
+
+    private final long inicio;
+    private long marca;
+    private final long[] fases = new long[Fase.values().length];
+    private String operacao;
+    private boolean status;
+    private String info;
+
+    private Medicao(long inicio) {
+        this.inicio = inicio;
+        this.marca = inicio;
+    }
+
+    /**
+     * Começa a medir agora, ou devolve NENHUMA se as métricas estão desligadas.
+     */
+    public static Medicao iniciar() {
+        return MetricasServidor.ATIVAS ? new Medicao(System.nanoTime()) : NENHUMA;
+    }
+
+    public void marcar(Fase fase) {
+        if (this == NENHUMA) {
+            return;
+        }
+        long agora = System.nanoTime();
+        fases[fase.ordinal()] += agora - marca;
+        marca = agora;
+    }
+
+    /**
+     * Guarda o desfecho da requisição (o da resposta enviada); o último informado vale.
+     */
+    public void resultado(String operacao, boolean status, String info) {
+        if (this == NENHUMA) {
+            return;
+        }
+        this.operacao = operacao;
+        this.status = status;
+        this.info = info;
+    }
+
+    /**
+     * Registra a requisição. Sem resultado() antes, nada é registrado.
+     */
+    public void concluir() {
+        if (this == NENHUMA || operacao == null) {
+            return;
+        }
+        MetricasServidor.getInstancia().registrar(operacao, status, info, System.nanoTime() - inicio, fases);
+        operacao = null;
+    }
+}
@@ -0,0 +1,230 @@
+package metricas;
+
+import log.Log;
+import validator.RulesEnum;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Métricas das requisições do servidor: para cada operação, histogramas de latência (total e por
+ * Fase), sucessos e erros por mensagem de erro; mais o número de conexões abertas e o resumo dos
+ * componentes que se registram (cache, grupo de commit, pool, travas).
+ *
+ * Registrar não usa locks (Histograma e LongAdder). retrato() copia os números para um Retrato,
+ * que sabe se formatar em texto e em JSON; zerar() recomeça as contagens das operações (as conexões
+ * abertas e os resumos dos componentes não são zerados).
+ *
+ * Configuração: -Dmetricas.ativas=false desliga o registro; -Dmetricas.intervaloSegundos (padrão 0,
+ * desligado) escreve o retrato no log periodicamente e, com -Dmetricas.arquivo, também em JSON no
+ * arquivo (sobrescrito a cada vez).
+ */
+public final class MetricasServidor {
+    private static final Log LOG = Log.de(MetricasServidor.class);
+
+    static final boolean ATIVAS = Boolean.parseBoolean(System.getProperty("metricas.ativas", "true"));
+    private static final int INTERVALO_SEGUNDOS = Integer.getInteger("metricas.intervaloSegundos", 0);
+    private static final String ARQUIVO = System.getProperty("metricas.arquivo", "");
+
+    // Mensagens de erro distintas guardadas por operação; algumas trazem texto do cliente (ex: uma
+    // chave inesperada), então acima disso elas são somadas numa só
+    static final int MAX_MENSAGENS_ERRO = 64;
+    static final String OUTRAS_MENSAGENS = "(outras mensagens)";
+    static final String OPERACAO_DESCONHECIDA = "desconhecida";
+
+    private static final RulesEnum[] OPERACOES = RulesEnum.values();
+
+    private static final MetricasServidor INSTANCIA = new MetricasServidor();
+
+    // Uma posição por RulesEnum e a última para mensagens sem operação reconhecida
+    private final MetricasOperacao[] operacoes = new MetricasOperacao[OPERACOES.length + 1];
+    private final AtomicInteger conexoesAtivas = new AtomicInteger();
+    private final Map<String, Supplier<String>> componentes = new ConcurrentHashMap<>();
+    private final AtomicBoolean relatoriosIniciados = new AtomicBoolean();
+    private volatile long desde = System.currentTimeMillis();
+
+    private static final class MetricasOperacao {
+        final Histograma latenciaNanos = new Histograma();
+        final Histograma[] fasesNanos = new Histograma[Fase.values().length];
+        final LongAdder sucessos = new LongAdder();
+        final LongAdder erros = new LongAdder();
+        final Map<String, LongAdder> errosPorMensagem = new ConcurrentHashMap<>();
+
+        MetricasOperacao() {
+            for (int i = 0; i < fasesNanos.length; i++) {
+                fasesNanos[i] = new Histograma();
+            }
+        }
+
+        void contarErro(String info) {
+            erros.increment();
+            String mensagem = info != null ? info : "";
+            LongAdder contador = errosPorMensagem.get(mensagem);
+            if (contador == null) {
+                if (errosPorMensagem.size() >= MAX_MENSAGENS_ERRO) {
+                    mensagem = OUTRAS_MENSAGENS;
+                }
+                contador = errosPorMensagem.computeIfAbsent(mensagem, m -> new LongAdder());
+            }
+            contador.increment();
+        }
+
+        void zerar() {
+            latenciaNanos.zerar();
+            for (Histograma fase : fasesNanos) {
+                fase.zerar();
+            }
+            sucessos.reset();
+            erros.reset();
+            errosPorMensagem.clear();
+        }
+    }
+
+    private MetricasServidor() {
+        for (int i = 0; i < operacoes.length; i++) {
+            operacoes[i] = new MetricasOperacao();
+        }
+    }
+
+    public static MetricasServidor getInstancia() {
+        return INSTANCIA;
+    }
+
+    void registrar(String operacao, boolean status, String info, long totalNanos, long[] fasesNanos) {
+        MetricasOperacao metricas = operacoes[posicao(operacao)];
+        metricas.latenciaNanos.registrar(totalNanos);
+        for (int i = 0; i < fasesNanos.length; i++) {
+            if (fasesNanos[i] > 0) {
+                metricas.fasesNanos[i].registrar(fasesNanos[i]);
+            }
+        }
+        if (status) {
+            metricas.sucessos.increment();
+        } else {
+            metricas.contarErro(info);
+        }
+    }
+
+    // Operação desconhecida ou ausente vai para a última posição
+    private static int posicao(String operacao) {
+        RulesEnum regra = RulesEnum.buscar(operacao);
+        return regra == null ? OPERACOES.length : regra.ordinal();
+    }
+
+    public void conexaoAberta() {
+        conexoesAtivas.incrementAndGet();
+    }
+
+    public void conexaoEncerrada() {
+        conexoesAtivas.decrementAndGet();
+    }
+
+    public int getConexoesAtivas() {
+        return conexoesAtivas.get();
+    }
+
+    /**
+     * Inclui o resumo de um componente nos retratos (substitui o anterior com o mesmo nome).
+     */
+    public void registrarComponente(String nome, Supplier<String> resumo) {
+        componentes.put(nome, resumo);
+    }
+
+    /**
+     * Cópia dos números atuais. Registros concorrentes podem ou não entrar nela.
+     */
+    public Retrato retrato() {
+        List<Retrato.Operacao> lista = new ArrayList<>();
+        for (int i = 0; i < operacoes.length; i++) {
+            MetricasOperacao metricas = operacoes[i];
+            if (metricas.latenciaNanos.getContagem() == 0) {
+                continue;
+            }
+            Map<String, Retrato.Distribuicao> fases = new LinkedHashMap<>();
+            for (Fase fase : Fase.values()) {
+                Histograma h = metricas.fasesNanos[fase.ordinal()];
+                if (h.getContagem() > 0) {
+                    fases.put(fase.getNome(), Retrato.Distribuicao.de(h));
+                }
+            }
+            Map<String, Long> errosPorMensagem = new TreeMap<>();
+            metricas.errosPorMensagem.forEach((mensagem, contador) -> errosPorMensagem.put(mensagem, contador.sum()));
+            lista.add(new Retrato.Operacao(i < OPERACOES.length ? OPERACOES[i].getValue() : OPERACAO_DESCONHECIDA,
+                    metricas.sucessos.sum(), metricas.erros.sum(), errosPorMensagem,
+                    Retrato.Distribuicao.de(metricas.latenciaNanos), fases));
+        }
+        Map<String, String> resumos = new TreeMap<>();
+        componentes.forEach((nome, resumo) -> {
+            try {
+                resumos.put(nome, resumo.get());
+            } catch (RuntimeException e) {
+                resumos.put(nome, "indisponível: " + e.getMessage());
+            }
+        });
+        return new Retrato(desde, System.currentTimeMillis(), conexoesAtivas.get(), lista, resumos);
+    }
+
+    /**
+     * Recomeça as contagens das operações. Registros concorrentes com a limpeza podem ser perdidos.
+     */
+    public void zerar() {
+        for (MetricasOperacao metricas : operacoes) {
+            metricas.zerar();
+        }
+        desde = System.currentTimeMillis();
+    }
+
+    /**
+     * Liga o relatório periódico, se -Dmetricas.intervaloSegundos foi configurado. Chamado pelos
+     * servidores ao iniciar; chamadas seguintes não fazem nada.
+     */
+    public void iniciarRelatorios() {
+        if (!ATIVAS || INTERVALO_SEGUNDOS <= 0 || !relatoriosIniciados.compareAndSet(false, true)) {
+            return;
+        }
+        ScheduledExecutorService agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Metricas-Relatorio");
+            t.setDaemon(true);
+            return t;
+        });
+        agendador.scheduleAtFixedRate(this::relatar, INTERVALO_SEGUNDOS, INTERVALO_SEGUNDOS, TimeUnit.SECONDS);
+        LOG.info("Métricas a cada {}s{}", INTERVALO_SEGUNDOS, ARQUIVO.isBlank() ? "" : " (JSON em " + ARQUIVO + ")");
+    }
+
+    private void relatar() {
+        try {
+            Retrato retrato = retrato();
+            LOG.info("Métricas:\n{}", retrato.formatar());
+            if (!ARQUIVO.isBlank()) {
+                exportar(retrato, Path.of(ARQUIVO));
+            }
+        } catch (IOException | RuntimeException e) {
+            LOG.erro("Erro ao gerar o relatório de métricas: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Grava o retrato em JSON; o arquivo é trocado de uma vez, quem lê nunca vê um JSON pela metade.
+     */
+    public static void exportar(Retrato retrato, Path arquivo) throws IOException {
+        Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".tmp");
+        Files.writeString(temporario, retrato.paraJson(), StandardCharsets.UTF_8);
+        Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,108 @@
+package metricas;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cópia imutável das MetricasServidor num instante. Latências em microssegundos.
+ *
+ * @param desde     início das contagens (criação ou último zerar()), em millis desde a época
+ * @param instante  momento do retrato, em millis desde a época
+ * @param operacoes só as operações com alguma requisição no período
+ * @param componentes resumo de cada componente registrado, pelo nome
+ */
+public record Retrato(long desde, long instante, int conexoesAtivas, List<Operacao> operacoes,
+                      Map<String, String> componentes) {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * @param fases só as fases pelas quais a operação passou
+     */
+    public record Operacao(String nome, long sucessos, long erros, Map<String, Long> errosPorMensagem,
+                           Distribuicao latencia, Map<String, Distribuicao> fases) {
+
+        public long getTotal() {
+            return sucessos + erros;
+        }
+    }
+
+    public record Distribuicao(long contagem, double media, double p50, double p90, double p99, double p999,
+                               double maximo) {
+
+        // O Histograma das métricas guarda nanos
+        static Distribuicao de(Histograma nanos) {
+            return new Distribuicao(nanos.getContagem(), nanos.getMedia() / 1000.0, nanos.percentil(50) / 1000.0,
+                    nanos.percentil(90) / 1000.0, nanos.percentil(99) / 1000.0, nanos.percentil(99.9) / 1000.0,
+                    nanos.getMaximo() / 1000.0);
+        }
+    }
+
+    public double getSegundos() {
+        return Math.max(1, instante - desde) / 1000.0;
+    }
+
+    /**
+     * Texto para o log ou o console: uma tabela por operação, as fases e os erros logo abaixo de
+     * cada uma, depois os componentes.
+     */
+    public String formatar() {
+        StringBuilder texto = new StringBuilder();
+        texto.append(String.format("Período de %.1fs desde %s | conexões ativas: %d%n",
+                getSegundos(), Instant.ofEpochMilli(desde), conexoesAtivas));
+        texto.append(String.format("%-20s %9s %9s %7s %10s %10s %10s %10s %10s%n", "operacao (us)", "total",
+                "req/s", "erros", "media", "p50", "p99", "p99.9", "max"));
+        for (Operacao operacao : operacoes) {
+            Distribuicao l = operacao.latencia();
+            texto.append(String.format("%-20s %9d %9.1f %7d %10.1f %10.1f %10.1f %10.1f %10.1f%n", operacao.nome(),
+                    operacao.getTotal(), operacao.getTotal() / getSegundos(), operacao.erros(), l.media(), l.p50(),
+                    l.p99(), l.p999(), l.maximo()));
+            operacao.fases().forEach((fase, d) -> texto.append(String.format(
+                    "  %-18s %9d %9s %7s %10.1f %10.1f %10.1f %10.1f %10.1f%n", fase, d.contagem(), "", "",
+                    d.media(), d.p50(), d.p99(), d.p999(), d.maximo())));
+            operacao.errosPorMensagem().forEach((mensagem, n) ->
+                    texto.append(String.format("  erro %6d  %s%n", n, mensagem)));
+        }
+        componentes.forEach((nome, resumo) -> texto.append(nome).append(": ").append(resumo).append('\n'));
+        return texto.toString();
+    }
+
+    public String paraJson() {
+        ObjectNode raiz = MAPPER.createObjectNode()
+                .put("desde", Instant.ofEpochMilli(desde).toString())
+                .put("instante", Instant.ofEpochMilli(instante).toString())
+                .put("segundos", getSegundos())
+                .put("conexoes_ativas", conexoesAtivas);
+        ObjectNode porOperacao = raiz.putObject("operacoes");
+        for (Operacao operacao : operacoes) {
+            ObjectNode no = porOperacao.putObject(operacao.nome())
+                    .put("total", operacao.getTotal())
+                    .put("sucessos", operacao.sucessos())
+                    .put("erros", operacao.erros())
+                    .put("req_por_segundo", operacao.getTotal() / getSegundos());
+            no.set("latencia_us", paraJson(operacao.latencia()));
+            ObjectNode fases = no.putObject("fases_us");
+            operacao.fases().forEach((fase, d) -> fases.set(fase, paraJson(d)));
+            ObjectNode erros = no.putObject("erros_por_mensagem");
+            operacao.errosPorMensagem().forEach(erros::put);
+        }
+        ObjectNode resumos = raiz.putObject("componentes");
+        componentes.forEach(resumos::put);
+        return raiz.toPrettyString();
+    }
+
+    private static ObjectNode paraJson(Distribuicao d) {
+        return MAPPER.createObjectNode()
+                .put("contagem", d.contagem())
+                .put("media", d.media())
+                .put("p50", d.p50())
+                .put("p90", d.p90())
+                .put("p99", d.p99())
+                .put("p99_9", d.p999())
+                .put("max", d.maximo());
+    }
+}
@@ -0,0 +1,200 @@
+package modelo;
+
+/**
+ * Valores em reais como long de centavos: soma e comparação são exatas e nada é alocado.
+ *
+ * lerCentavos() converte o texto de um número JSON (como o JsonParser o entrega, sem passar por
+ * double) e diz, pelo próprio resultado, se ele tem mais de duas casas decimais ou passa de MAXIMO.
+ * escrever() faz o caminho inverso no formato que as mensagens sempre usaram ("150.0", "12.34").
+ */
+public final class Dinheiro {
+    /**
+     * Maior valor aceito numa operação e maior saldo de uma conta: R$ 10 trilhões. Com esse teto,
+     * somar dois valores nunca estoura um long.
+     */
+    public static final long MAXIMO = 1_000_000_000_000_000L;
+
+    // Resultados de lerCentavos() que não são valores
+    public static final long CASAS_DEMAIS = Long.MIN_VALUE;
+    public static final long FORA_DO_LIMITE = Long.MIN_VALUE + 1;
+
+    /**
+     * Maior quantidade de caracteres que escrever() produz.
+     */
+    public static final int MAX_CARACTERES = 24;
+
+    private static final long[] POTENCIAS = new long[19];
+
+    static {
+        POTENCIAS[0] = 1;
+        for (int i = 1; i < POTENCIAS.length; i++) {
+            POTENCIAS[i] = POTENCIAS[i - 1] * 10;
+        }
+    }
+
+    private Dinheiro() {}
+
+    /**
+     * false para CASAS_DEMAIS e FORA_DO_LIMITE.
+     */
+    public static boolean isValido(long centavos) {
+        return centavos > FORA_DO_LIMITE;
+    }
+
+    public static long lerCentavos(CharSequence texto) {
+        char[] caracteres = new char[texto.length()];
+        for (int i = 0; i < caracteres.length; i++) {
+            caracteres[i] = texto.charAt(i);
+        }
+        return lerCentavos(caracteres, 0, caracteres.length);
+    }
+
+    /**
+     * Converte um número no formato JSON (-12, 3.5, 1.25e2...) para centavos.
+     *
+     * @return os centavos, CASAS_DEMAIS se sobram frações de centavo (zeros à direita não contam),
+     *         ou FORA_DO_LIMITE se o módulo passa de MAXIMO ou o texto não é um número
+     */
+    public static long lerCentavos(char[] texto, int inicio, int tamanho) {
+        int i = inicio;
+        int fim = inicio + tamanho;
+        boolean negativo = i < fim && texto[i] == '-';
+        if (negativo) {
+            i++;
+        }
+
+        // Dígitos significativos em 'mantissa'; zeros ficam pendentes até aparecer outro dígito,
+        // então zeros à direita nunca estouram a conta
+        long mantissa = 0;
+        int zerosPendentes = 0;
+        int casas = 0;
+        boolean digitos = false;
+        boolean fracao = false;
+        for (; i < fim; i++) {
+            char c = texto[i];
+            if (c == '.' && !fracao) {
+                fracao = true;
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                break;
+            }
+            digitos = true;
+            if (fracao) {
+                casas++;
+            }
+            if (c == '0') {
+                zerosPendentes++;
+                continue;
+            }
+            mantissa = multiplicar(mantissa, zerosPendentes + 1);
+            if (mantissa < 0 || mantissa > Long.MAX_VALUE - 9) {
+                return FORA_DO_LIMITE;
+            }
+            mantissa += c - '0';
+            zerosPendentes = 0;
+        }
+        if (!digitos) {
+            return FORA_DO_LIMITE;
+        }
+
+        long expoente = 0;
+        if (i < fim && (texto[i] == 'e' || texto[i] == 'E')) {
+            i++;
+            boolean expoenteNegativo = i < fim && texto[i] == '-';
+            if (i < fim && (texto[i] == '-' || texto[i] == '+')) {
+                i++;
+            }
+            if (i == fim) {
+                return FORA_DO_LIMITE;
+            }
+            for (; i < fim; i++) {
+                char c = texto[i];
+                if (c < '0' || c > '9') {
+                    return FORA_DO_LIMITE;
+                }
+                // Além disso o resultado já é zero, fração demais ou grande demais
+                expoente = Math.min(expoente * 10 + (c - '0'), 1_000_000);
+            }
+            if (expoenteNegativo) {
+                expoente = -expoente;
+            }
+        }
+        if (i != fim) {
+            return FORA_DO_LIMITE;
+        }
+        if (mantissa == 0) {
+            return 0;
+        }
+
+        // Casas decimais da mantissa depois de tirar os zeros à direita e aplicar o expoente
+        long escala = casas - expoente - zerosPendentes;
+        if (escala > 2) {
+            return CASAS_DEMAIS;
+        }
+        long deslocamento = 2 - escala;
+        if (deslocamento >= POTENCIAS.length) {
+            return FORA_DO_LIMITE;
+        }
+        long centavos = multiplicar(mantissa, (int) deslocamento);
+        if (centavos < 0 || centavos > MAXIMO) {
+            return FORA_DO_LIMITE;
+        }
+        return negativo ? -centavos : centavos;
+    }
+
+    /**
+     * Escreve o valor como número decimal, com uma casa quando a segunda é zero ("150.0", "12.3",
+     * "12.34", "-0.05"), que é o que Double.toString dava para os valores das mensagens.
+     *
+     * @param destino precisa de MAX_CARACTERES livres a partir de 'inicio'
+     * @return quantidade de caracteres escritos
+     */
+    public static int escrever(long centavos, char[] destino, int inicio) {
+        int posicao = inicio;
+        long modulo = centavos;
+        if (centavos < 0) {
+            destino[posicao++] = '-';
+            modulo = -centavos; // |Long.MIN_VALUE| não é um valor: nunca chega aqui como saldo
+        }
+        long reais = modulo / 100;
+        int fracao = (int) (modulo % 100);
+
+        int digitos = 1;
+        while (digitos < POTENCIAS.length && reais >= POTENCIAS[digitos]) {
+            digitos++;
+        }
+        for (int d = digitos - 1; d >= 0; d--) {
+            destino[posicao + d] = (char) ('0' + reais % 10);
+            reais /= 10;
+        }
+        posicao += digitos;
+
+        destino[posicao++] = '.';
+        destino[posicao++] = (char) ('0' + fracao / 10);
+        if (fracao % 10 != 0) {
+            destino[posicao++] = (char) ('0' + fracao % 10);
+        }
+        return posicao - inicio;
+    }
+
+    public static String formatar(long centavos) {
+        char[] texto = new char[MAX_CARACTERES];
+        return new String(texto, 0, escrever(centavos, texto, 0));
+    }
+
+    // valor * 10^expoente, ou negativo se estourar
+    private static long multiplicar(long valor, int expoente) {
+        if (valor == 0) {
+            return 0;
+        }
+        if (expoente >= POTENCIAS.length) {
+            return -1;
+        }
+        long potencia = POTENCIAS[expoente];
+        if (valor > Long.MAX_VALUE / potencia) {
+            return -1;
+        }
+        return valor * potencia;
+    }
+}
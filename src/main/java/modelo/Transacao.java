@@ -0,0 +1,15 @@
+package modelo;
+
+/**
+ * Uma linha do extrato. Valor em centavos (ver Dinheiro) e datas em milissegundos desde a época
+ * (UTC), como estão no banco.
+ */
+public record Transacao(int id, long valorCentavos,
+                        String cpfEnviador, String nomeEnviador,
+                        String cpfRecebedor, String nomeRecebedor,
+                        long criadoEm, long atualizadoEm) {
+
+    public boolean isDeposito() {
+        return cpfEnviador.equals(cpfRecebedor);
+    }
+}
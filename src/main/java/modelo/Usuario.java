@@ -4,7 +4,7 @@ public class Usuario {
     private String nome;
     private String cpf;
     private String senha;
-    private double saldo;
+    private long saldoCentavos; // ver Dinheiro
 
 
 
@@ -14,15 +14,15 @@ public class Usuario {
         this.nome = nome;
         this.cpf = cpf;
         this.senha = senha;
-        this.saldo = 0.00; //  Saldo inicial ZERO
+        this.saldoCentavos = 0; //  Saldo inicial ZERO
     }
 
     // CONSTRUTOR 2: Para buscar dados do BANCO (saldo vem do ResultSet)
-    public Usuario(String nome, String cpf, String senha, double saldo) {
+    public Usuario(String nome, String cpf, String senha, long saldoCentavos) {
         this.nome = nome;
         this.cpf = cpf;
         this.senha = senha;
-        this.saldo = saldo; // Saldo vem do banco
+        this.saldoCentavos = saldoCentavos; // Saldo vem do banco
     }
 
     // Getters e Setters
@@ -44,10 +44,10 @@ public class Usuario {
     public void setSenha(String senha) {
         this.senha = senha;
     }
-    public double getSaldo() {
-        return saldo;
+    public long getSaldoCentavos() {
+        return saldoCentavos;
     }
-    public void setSaldo(double saldo) {
-        this.saldo = saldo;
+    public void setSaldoCentavos(long saldoCentavos) {
+        this.saldoCentavos = saldoCentavos;
     }
 }
\ No newline at end of file
@@ -0,0 +1,464 @@
+package protocolo;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import metricas.Fase;
+import metricas.Medicao;
+import modelo.Dinheiro;
+import validator.CamposMensagem;
+import validator.EsquemaOperacao;
+import validator.RulesEnum;
+import validator.Validator;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+
+/**
+ * Leitura e escrita das mensagens do protocolo direto no JsonParser/JsonGenerator, sem montar a
+ * árvore (JsonNode) no meio do caminho.
+ *
+ * A mensagem lida é conferida pelo mesmo esquema compilado do Validator (EsquemaOperacao), então
+ * os erros são os mesmos de quando a mensagem era validada como árvore.
+ */
+public final class CodecProtocolo {
+    private static final JsonFactory FABRICA = new JsonFactory();
+
+    // Campos conhecidos na raiz da mensagem do Cliente; o índice de cada um é a constante abaixo
+    private static final String[] NOMES = {
+            "operacao", "token", "cpf", "senha", "nome", "usuario", "valor", "cpf_destino",
+            "data_inicial", "data_final", "limite", "cursor", "valor_enviado", "operacao_enviada", "info", "id",
+            // dentro do objeto 'usuario' (usuario_atualizar)
+            "nome", "senha"
+    };
+    private static final int OPERACAO = 0, TOKEN = 1, CPF = 2, SENHA = 3, NOME = 4, USUARIO = 5, VALOR = 6,
+            CPF_DESTINO = 7, DATA_INICIAL = 8, DATA_FINAL = 9, LIMITE = 10, CURSOR = 11, VALOR_ENVIADO = 12,
+            OPERACAO_ENVIADA = 13, INFO = 14, ID = 15, USUARIO_NOME = 16, USUARIO_SENHA = 17;
+    private static final int CAMPOS_RAIZ = 16;
+
+    // Para cada operação (pelo ordinal), um bit por campo da raiz que o esquema aceita
+    private static final int[] CHAVES_ACEITAS = new int[RulesEnum.values().length];
+
+    static {
+        for (RulesEnum operacao : RulesEnum.values()) {
+            EsquemaOperacao esquema = Validator.esquema(operacao);
+            for (int campo = 0; campo < CAMPOS_RAIZ; campo++) {
+                if (esquema.aceitaChaveCliente(NOMES[campo])) {
+                    CHAVES_ACEITAS[operacao.ordinal()] |= 1 << campo;
+                }
+            }
+        }
+    }
+
+    private CodecProtocolo() {}
+
+    /**
+     * Fábrica compartilhada para quem gera JSON direto na saída (ex: EscritorExtrato).
+     */
+    public static JsonFactory getFabrica() {
+        return FABRICA;
+    }
+
+    /**
+     * Lê e valida uma mensagem do Cliente.
+     *
+     * @return a mensagem, ou null se ela não é um objeto com 'operacao' (a conexão deve ser encerrada)
+     * @throws MensagemInvalidaException se o JSON for inválido ou não seguir o protocolo; traz o 'id'
+     *         da mensagem quando ele pôde ser lido
+     */
+    public static MensagemCliente lerMensagem(String json) throws MensagemInvalidaException {
+        return lerMensagem(json, Medicao.NENHUMA);
+    }
+
+    /**
+     * Como lerMensagem(String), marcando na medição as fases LEITURA e VALIDACAO.
+     */
+    public static MensagemCliente lerMensagem(String json, Medicao medicao) throws MensagemInvalidaException {
+        Campos campos;
+        try (JsonParser parser = FABRICA.createParser(json)) {
+            campos = lerCampos(parser);
+        } catch (JsonParseException e) {
+            throw new MensagemInvalidaException("erro", "Erro de sintaxe. A mensagem não é um JSON válido.", e);
+        } catch (IOException e) {
+            throw new MensagemInvalidaException("erro", e.getMessage(), e);
+        } finally {
+            medicao.marcar(Fase.LEITURA);
+        }
+
+        if (campos == null || campos.tipos[OPERACAO] == null) {
+            return null;
+        }
+        Integer id = campos.id();
+        try {
+            return new MensagemCliente(id, campos.montar());
+        } catch (Exception e) {
+            throw new MensagemInvalidaException(campos.textos[OPERACAO], e.getMessage(), e, id);
+        } finally {
+            medicao.marcar(Fase.VALIDACAO);
+        }
+    }
+
+    /**
+     * Serializa uma resposta com as chaves na ordem operacao, status, info, id, token, usuario.
+     */
+    public static String escrever(Resposta resposta) {
+        StringWriter texto = new StringWriter(128);
+        try (JsonGenerator gerador = FABRICA.createGenerator(texto)) {
+            gerador.writeStartObject();
+            gerador.writeStringField("operacao", resposta.operacao());
+            gerador.writeBooleanField("status", resposta.status());
+            gerador.writeStringField("info", resposta.info());
+            if (resposta.id() != null) {
+                gerador.writeNumberField("id", resposta.id());
+            }
+            if (resposta.token() != null) {
+                gerador.writeStringField("token", resposta.token());
+            }
+            Resposta.DadosUsuario usuario = resposta.usuario();
+            if (usuario != null) {
+                gerador.writeObjectFieldStart("usuario");
+                gerador.writeStringField("nome", usuario.nome());
+                gerador.writeStringField("cpf", usuario.cpf());
+                escreverDinheiro(gerador, "saldo", usuario.saldoCentavos());
+                gerador.writeEndObject();
+            }
+            gerador.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringWriter não lança IOException
+        }
+        return texto.toString();
+    }
+
+    // Valor em centavos como número JSON ("saldo": 150.0), sem passar por double
+    private static void escreverDinheiro(JsonGenerator gerador, String campo, long centavos) throws IOException {
+        char[] texto = new char[Dinheiro.MAX_CARACTERES];
+        gerador.writeFieldName(campo);
+        gerador.writeNumber(texto, 0, Dinheiro.escrever(centavos, texto, 0));
+    }
+
+    private static Campos lerCampos(JsonParser parser) throws IOException {
+        JsonToken raiz = parser.nextToken();
+        if (raiz != JsonToken.START_OBJECT) {
+            // Como o readTree, lê o valor inteiro antes de desistir: JSON quebrado continua sendo erro de sintaxe
+            if (raiz != null) {
+                parser.skipChildren();
+                parser.finishToken();
+            }
+            return null;
+        }
+
+        Campos campos = new Campos();
+        int ordem = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String nome = parser.currentName();
+            int campo = indice(nome);
+            parser.nextToken();
+            if (campo < 0) {
+                if (campos.chaveDesconhecida == null) {
+                    campos.chaveDesconhecida = nome;
+                    campos.ordemDesconhecida = ordem;
+                }
+                pular(parser);
+            } else {
+                if (campos.tipos[campo] == null) {
+                    campos.ordem[campo] = ordem;
+                }
+                campos.guardar(campo, parser);
+            }
+            ordem++;
+        }
+        return campos;
+    }
+
+    private static int indice(String nome) {
+        switch (nome) {
+            case "operacao": return OPERACAO;
+            case "token": return TOKEN;
+            case "cpf": return CPF;
+            case "senha": return SENHA;
+            case "nome": return NOME;
+            case "usuario": return USUARIO;
+            case "valor": return VALOR;
+            case "cpf_destino": return CPF_DESTINO;
+            case "data_inicial": return DATA_INICIAL;
+            case "data_final": return DATA_FINAL;
+            case "limite": return LIMITE;
+            case "cursor": return CURSOR;
+            case "valor_enviado": return VALOR_ENVIADO;
+            case "operacao_enviada": return OPERACAO_ENVIADA;
+            case "info": return INFO;
+            case "id": return ID;
+            default: return -1;
+        }
+    }
+
+    private static void pular(JsonParser parser) throws IOException {
+        parser.skipChildren();
+        parser.finishToken();
+    }
+
+    // Valores lidos de uma mensagem, um slot por campo conhecido. Tipo null = campo ausente.
+    private static final class Campos implements CamposMensagem {
+        final JsonToken[] tipos = new JsonToken[NOMES.length];
+        final String[] textos = new String[NOMES.length];
+        final double[] numeros = new double[NOMES.length];
+        final long[] centavos = new long[NOMES.length]; // só 'valor' e 'valor_enviado', direto do texto
+        final boolean[] inteiros = new boolean[NOMES.length]; // número que cabe num int (JsonNode.isInt)
+        final int[] ordem = new int[NOMES.length];
+        String chaveDesconhecida;
+        int ordemDesconhecida;
+        private CamposUsuario usuario; // criado no primeiro objeto("usuario")
+
+        void guardar(int campo, JsonParser parser) throws IOException {
+            JsonToken valor = parser.currentToken();
+            tipos[campo] = valor;
+            textos[campo] = null;
+            switch (valor) {
+                case VALUE_STRING:
+                    textos[campo] = parser.getText();
+                    return;
+                case VALUE_NUMBER_INT:
+                case VALUE_NUMBER_FLOAT:
+                    numeros[campo] = parser.getDoubleValue();
+                    inteiros[campo] = parser.getNumberType() == JsonParser.NumberType.INT;
+                    if (campo == VALOR || campo == VALOR_ENVIADO) {
+                        centavos[campo] = Dinheiro.lerCentavos(
+                                parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                    }
+                    break;
+                case START_OBJECT:
+                    if (campo == USUARIO) {
+                        lerUsuario(parser);
+                        break;
+                    }
+                    parser.skipChildren();
+                    break;
+                case START_ARRAY:
+                    parser.skipChildren();
+                    break;
+                default:
+                    break;
+            }
+            if (campo == OPERACAO || campo == OPERACAO_ENVIADA || campo == INFO) {
+                textos[campo] = textoComoNo(parser, valor);
+            }
+        }
+
+        // Só 'nome' e 'senha' interessam; o resto do objeto é ignorado, como no Validator
+        private void lerUsuario(JsonParser parser) throws IOException {
+            tipos[USUARIO_NOME] = null;
+            tipos[USUARIO_SENHA] = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String nome = parser.currentName();
+                parser.nextToken();
+                if ("nome".equals(nome)) {
+                    guardar(USUARIO_NOME, parser);
+                } else if ("senha".equals(nome)) {
+                    guardar(USUARIO_SENHA, parser);
+                } else {
+                    pular(parser);
+                }
+            }
+        }
+
+        // O mesmo texto que JsonNode.asText() daria para o valor
+        private static String textoComoNo(JsonParser parser, JsonToken valor) throws IOException {
+            switch (valor) {
+                case VALUE_NUMBER_INT:
+                    return parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER
+                            ? parser.getBigIntegerValue().toString() : String.valueOf(parser.getLongValue());
+                case VALUE_NUMBER_FLOAT:
+                    return String.valueOf(parser.getDoubleValue());
+                case VALUE_TRUE:
+                    return "true";
+                case VALUE_FALSE:
+                    return "false";
+                case VALUE_NULL:
+                    return "null";
+                default:
+                    return "";
+            }
+        }
+
+        // O 'id', se veio como inteiro positivo; um 'id' inválido é erro do esquema, mas não volta na resposta
+        Integer id() {
+            return tipo(ID) == Tipo.INTEIRO && numeros[ID] >= 1 ? Integer.valueOf((int) numeros[ID]) : null;
+        }
+
+        // O Validator confere a mensagem pelo esquema compilado; aqui só se monta o record
+        Requisicao montar() throws Exception {
+            RulesEnum operacao = Validator.validateOperacao(this);
+            Validator.esquema(operacao).validarCliente(this);
+
+            switch (operacao) {
+                case CONECTAR:
+                    return new Requisicao.Conectar();
+                case USUARIO_LOGIN:
+                    return new Requisicao.UsuarioLogin(textos[CPF], textos[SENHA]);
+                case USUARIO_LOGOUT:
+                    return new Requisicao.UsuarioLogout(textos[TOKEN]);
+                case USUARIO_CRIAR:
+                    return new Requisicao.UsuarioCriar(textos[NOME], textos[CPF], textos[SENHA]);
+                case USUARIO_LER:
+                    return new Requisicao.UsuarioLer(textos[TOKEN]);
+                case USUARIO_ATUALIZAR:
+                    return new Requisicao.UsuarioAtualizar(textos[TOKEN], textos[USUARIO_NOME], textos[USUARIO_SENHA]);
+                case USUARIO_DELETAR:
+                    return new Requisicao.UsuarioDeletar(textos[TOKEN]);
+                case TRANSACAO_CRIAR:
+                    return new Requisicao.TransacaoCriar(textos[TOKEN], centavos[VALOR], textos[CPF_DESTINO]);
+                case TRANSACAO_LER:
+                    return new Requisicao.TransacaoLer(textos[TOKEN], textos[DATA_INICIAL], textos[DATA_FINAL],
+                            tipos[LIMITE] != null ? Integer.valueOf((int) numeros[LIMITE]) : null, textos[CURSOR]);
+                case DEPOSITAR:
+                    return new Requisicao.Depositar(textos[TOKEN], centavos[VALOR_ENVIADO]);
+                case ERRO_SERVIDOR:
+                    return new Requisicao.ErroServidor(textos[OPERACAO_ENVIADA], textos[INFO]);
+                default:
+                    throw new IllegalArgumentException("Operação do cliente desconhecida ou não suportada: " + operacao);
+            }
+        }
+
+        @Override
+        public Tipo tipo(String campo) {
+            int indice = indice(campo);
+            return indice < 0 ? Tipo.AUSENTE : tipo(indice);
+        }
+
+        Tipo tipo(int campo) {
+            JsonToken valor = tipos[campo];
+            if (valor == null) {
+                return Tipo.AUSENTE;
+            }
+            switch (valor) {
+                case VALUE_STRING: return Tipo.TEXTO;
+                case VALUE_NUMBER_INT: return inteiros[campo] ? Tipo.INTEIRO : Tipo.NUMERO;
+                case VALUE_NUMBER_FLOAT: return Tipo.NUMERO;
+                case VALUE_TRUE:
+                case VALUE_FALSE: return Tipo.BOOLEANO;
+                case START_OBJECT: return Tipo.OBJETO;
+                case START_ARRAY: return Tipo.ARRAY;
+                default: return Tipo.NULO;
+            }
+        }
+
+        @Override
+        public String texto(String campo) {
+            int indice = indice(campo);
+            return indice < 0 ? null : textos[indice];
+        }
+
+        @Override
+        public int inteiro(String campo) {
+            return inteiro(indice(campo), campo);
+        }
+
+        int inteiro(int indice, String campo) {
+            if (indice < 0 || tipo(indice) != Tipo.INTEIRO) {
+                throw Validator.typeError(campo, Validator.TYPE_INT);
+            }
+            return (int) numeros[indice];
+        }
+
+        // Só o conteúdo de 'usuario' é guardado; os outros objetos são pulados na leitura
+        @Override
+        public CamposMensagem objeto(String campo) {
+            if (indice(campo) != USUARIO) {
+                return SemCampos.INSTANCIA;
+            }
+            if (usuario == null) {
+                usuario = new CamposUsuario(this);
+            }
+            return usuario;
+        }
+
+        // A primeira chave fora do esperado para a operação, na ordem em que apareceu na mensagem
+        @Override
+        public String chaveInesperada(EsquemaOperacao esquema) {
+            int aceitas = CHAVES_ACEITAS[esquema.getOperacao().ordinal()];
+            String inesperada = chaveDesconhecida;
+            int posicao = chaveDesconhecida != null ? ordemDesconhecida : Integer.MAX_VALUE;
+            for (int campo = 0; campo < CAMPOS_RAIZ; campo++) {
+                if (tipos[campo] != null && ordem[campo] < posicao && (aceitas & (1 << campo)) == 0) {
+                    inesperada = NOMES[campo];
+                    posicao = ordem[campo];
+                }
+            }
+            return inesperada;
+        }
+    }
+
+    // 'nome' e 'senha' do objeto 'usuario', que ficam nos slots USUARIO_NOME e USUARIO_SENHA
+    private static final class CamposUsuario implements CamposMensagem {
+        private final Campos campos;
+
+        CamposUsuario(Campos campos) {
+            this.campos = campos;
+        }
+
+        private static int indice(String campo) {
+            return "nome".equals(campo) ? USUARIO_NOME : "senha".equals(campo) ? USUARIO_SENHA : -1;
+        }
+
+        @Override
+        public Tipo tipo(String campo) {
+            int indice = indice(campo);
+            return indice < 0 ? Tipo.AUSENTE : campos.tipo(indice);
+        }
+
+        @Override
+        public String texto(String campo) {
+            int indice = indice(campo);
+            return indice < 0 ? null : campos.textos[indice];
+        }
+
+        @Override
+        public int inteiro(String campo) {
+            return campos.inteiro(indice(campo), campo);
+        }
+
+        // Objetos dentro de 'usuario' não são guardados
+        @Override
+        public CamposMensagem objeto(String campo) {
+            return SemCampos.INSTANCIA;
+        }
+
+        @Override
+        public String chaveInesperada(EsquemaOperacao esquema) {
+            return null;
+        }
+    }
+
+    // Objeto cujo conteúdo a leitura pulou: para as regras, nenhum campo está presente
+    private static final class SemCampos implements CamposMensagem {
+        static final SemCampos INSTANCIA = new SemCampos();
+
+        @Override
+        public Tipo tipo(String campo) {
+            return Tipo.AUSENTE;
+        }
+
+        @Override
+        public String texto(String campo) {
+            return null;
+        }
+
+        @Override
+        public int inteiro(String campo) {
+            throw Validator.typeError(campo, Validator.TYPE_INT);
+        }
+
+        @Override
+        public CamposMensagem objeto(String campo) {
+            return this;
+        }
+
+        @Override
+        public String chaveInesperada(EsquemaOperacao esquema) {
+            return null;
+        }
+    }
+}
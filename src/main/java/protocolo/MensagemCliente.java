@@ -0,0 +1,9 @@
+package protocolo;
+
+/**
+ * Mensagem do Cliente já validada: a requisição e o 'id' opcional que a resposta deve repetir.
+ *
+ * @param id null quando o Cliente não mandou 'id' (a resposta também não leva)
+ */
+public record MensagemCliente(Integer id, Requisicao requisicao) {
+}
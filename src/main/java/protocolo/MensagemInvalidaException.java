@@ -0,0 +1,30 @@
+package protocolo;
+
+/**
+ * Mensagem do Cliente que não pôde ser lida ou não segue o protocolo. A mensagem da exceção é o
+ * 'info' da resposta de erro, e 'operacao' é a operação que o cliente informou (ou "erro" quando
+ * nem o JSON pôde ser lido). 'id' é o da mensagem, quando ele pôde ser lido, para a resposta de erro
+ * levá-lo de volta.
+ */
+public class MensagemInvalidaException extends Exception {
+    private final String operacao;
+    private final Integer id;
+
+    public MensagemInvalidaException(String operacao, String mensagem, Throwable causa) {
+        this(operacao, mensagem, causa, null);
+    }
+
+    public MensagemInvalidaException(String operacao, String mensagem, Throwable causa, Integer id) {
+        super(mensagem, causa);
+        this.operacao = operacao;
+        this.id = id;
+    }
+
+    public String getOperacao() {
+        return operacao;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+}
@@ -0,0 +1,71 @@
+package protocolo;
+
+import validator.RulesEnum;
+
+/**
+ * Mensagens Cliente -> Servidor, uma por operação do protocolo (ver README, seção 4).
+ *
+ * São montadas pelo CodecProtocolo direto do JSON, depois de a mensagem passar pelo esquema da
+ * operação (Validator.esquema), então os campos já estão com tipo, tamanho e formato conferidos.
+ */
+public sealed interface Requisicao {
+
+    RulesEnum operacao();
+
+    record Conectar() implements Requisicao {
+        public RulesEnum operacao() { return RulesEnum.CONECTAR; }
+    }
+
+    record UsuarioLogin(String cpf, String senha) implements Requisicao {
+        public RulesEnum operacao() { return RulesEnum.USUARIO_LOGIN; }
+    }
+
+    record UsuarioLogout(String token) implements Requisicao {
+        public RulesEnum operacao() { return RulesEnum.USUARIO_LOGOUT; }
+    }
+
+    record UsuarioCriar(String nome, String cpf, String senha) implements Requisicao {
+        public RulesEnum operacao() { return RulesEnum.USUARIO_CRIAR; }
+    }
+
+    record UsuarioLer(String token) implements Requisicao {
+        public RulesEnum operacao() { return RulesEnum.USUARIO_LER; }
+    }
+
+    /**
+     * 'nome' e 'senha' são null quando não vieram no objeto 'usuario'.
+     */
+    record UsuarioAtualizar(String token, String nome, String senha) implements Requisicao {
+        public RulesEnum operacao() { return RulesEnum.USUARIO_ATUALIZAR; }
+    }
+
+    record UsuarioDeletar(String token) implements Requisicao {
+        public RulesEnum operacao() { return RulesEnum.USUARIO_DELETAR; }
+    }
+
+    /**
+     * 'valorCentavos' pode ser Dinheiro.CASAS_DEMAIS ou Dinheiro.FORA_DO_LIMITE; quem processa responde o erro.
+     */
+    record TransacaoCriar(String token, long valorCentavos, String cpfDestino) implements Requisicao {
+        public RulesEnum operacao() { return RulesEnum.TRANSACAO_CRIAR; }
+    }
+
+    /**
+     * 'limite' e 'cursor' são null quando o cliente não pede paginação.
+     */
+    record TransacaoLer(String token, String dataInicial, String dataFinal,
+                        Integer limite, String cursor) implements Requisicao {
+        public RulesEnum operacao() { return RulesEnum.TRANSACAO_LER; }
+    }
+
+    /**
+     * Mesmos valores especiais de TransacaoCriar.valorCentavos.
+     */
+    record Depositar(String token, long valorCentavos) implements Requisicao {
+        public RulesEnum operacao() { return RulesEnum.DEPOSITAR; }
+    }
+
+    record ErroServidor(String operacaoEnviada, String info) implements Requisicao {
+        public RulesEnum operacao() { return RulesEnum.ERRO_SERVIDOR; }
+    }
+}
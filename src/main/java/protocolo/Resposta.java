@@ -0,0 +1,33 @@
+package protocolo;
+
+/**
+ * Mensagem Servidor -> Cliente. Além de 'operacao', 'status' e 'info', só o login leva 'token' e
+ * só o usuario_ler leva 'usuario'; 'id' repete o da mensagem do Cliente. Os campos que não se
+ * aplicam ficam null e não são escritos.
+ *
+ * A resposta de 'transacao_ler' não passa por aqui: ela é escrita transação a transação.
+ */
+public record Resposta(String operacao, boolean status, String info, Integer id, String token, DadosUsuario usuario) {
+
+    public record DadosUsuario(String nome, String cpf, long saldoCentavos) {}
+
+    public static Resposta sucesso(String operacao, String info) {
+        return new Resposta(operacao, true, info, null, null, null);
+    }
+
+    public static Resposta erro(String operacao, String info) {
+        return new Resposta(operacao, false, String.valueOf(info), null, null, null);
+    }
+
+    public Resposta comId(Integer id) {
+        return new Resposta(operacao, status, info, id, token, usuario);
+    }
+
+    public Resposta comToken(String token) {
+        return new Resposta(operacao, status, info, id, token, usuario);
+    }
+
+    public Resposta comUsuario(DadosUsuario usuario) {
+        return new Resposta(operacao, status, info, id, token, usuario);
+    }
+}
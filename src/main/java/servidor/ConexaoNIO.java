@@ -0,0 +1,329 @@
+package servidor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import log.Log;
+
+/**
+ * Estado de uma conexão atendida pelo ServidorNIO.
+ *
+ * Leitura e escrita no canal acontecem sempre na thread do loop de eventos dono da conexão.
+ * Os quadros completos (linhas JSON) são entregues em ordem ao PipelineConexao por uma thread do
+ * pool de workers, uma de cada vez; mensagens com 'id' podem ser processadas por outros workers ao
+ * mesmo tempo. As respostas voltam para o loop por uma fila de escrita.
+ */
+class ConexaoNIO {
+    private static final Log LOG = Log.de(ConexaoNIO.class);
+
+    // Uma mensagem maior que isso encerra a conexão
+    static final int TAMANHO_MAXIMO_QUADRO = 1024 * 1024;
+    // Acima destes limites a conexão para de ser lida até o cliente consumir as respostas
+    static final long LIMITE_BYTES_PENDENTES = 1024 * 1024;
+    static final int LIMITE_QUADROS_PENDENTES = 64;
+    // Com resposta pendente, tempo máximo sem nenhum byte aceito pelo socket antes de o loop de
+    // eventos encerrar a conexão (cliente que parou de ler)
+    static final long ESPERA_MAXIMA_ESCRITA_MS = Long.getLong("servidor.nio.esperaEscritaMs", 30_000);
+    // Teto da fila de saída de uma conexão: acima dele a resposta em geração falha e a conexão é
+    // encerrada, em vez de o worker esperar o cliente
+    static final long LIMITE_MAXIMO_BYTES_PENDENTES = Long.getLong("servidor.nio.saidaMaximaBytes", 64L * 1024 * 1024);
+
+    private final SocketChannel canal;
+    private final ServidorNIO.LoopEventos loop;
+    private final Executor workers;
+    // Criado pelo primeiro worker, fora do loop de eventos; as respostas vão para a fila de saída
+    private volatile PipelineConexao pipeline;
+    private final EstatisticasConexao estatisticas;
+    private SelectionKey chave;
+
+    // Bytes de uma mensagem que chegou pela metade (só existe enquanto há quadro parcial)
+    private byte[] parcial;
+    private int tamanhoParcial;
+
+    private final Queue<String> quadros = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger quadrosPendentes = new AtomicInteger();
+    private final AtomicBoolean agendada = new AtomicBoolean();
+
+    private final Queue<ByteBuffer> saida = new ConcurrentLinkedQueue<>();
+    private final AtomicLong bytesPendentes = new AtomicLong();
+    // Última vez (System.nanoTime) que a fila de saída andou ou deixou de estar vazia
+    private volatile long ultimoProgressoEscrita = System.nanoTime();
+    private volatile boolean fecharAposEscrita;
+    private boolean leituraPausada;
+    private volatile boolean fechada;
+
+    ConexaoNIO(SocketChannel canal, ServidorNIO.LoopEventos loop, Executor workers) {
+        this.canal = canal;
+        this.loop = loop;
+        this.workers = workers;
+        this.estatisticas = new EstatisticasConexao(canal.socket().getRemoteSocketAddress());
+    }
+
+    void setChave(SelectionKey chave) {
+        this.chave = chave;
+    }
+
+    EstatisticasConexao getEstatisticas() {
+        return estatisticas;
+    }
+
+    // ===================================================================================
+    // THREAD DO LOOP DE EVENTOS
+    // ===================================================================================
+
+    /**
+     * Lê o que estiver disponível no canal usando o buffer direto do loop e separa as linhas completas.
+     */
+    void lerDisponivel(ByteBuffer buffer) throws IOException {
+        while (true) {
+            buffer.clear();
+            int lidos = canal.read(buffer);
+            if (lidos < 0) {
+                fechar();
+                return;
+            }
+            if (lidos == 0) {
+                break;
+            }
+            buffer.flip();
+            separarQuadros(buffer);
+            if (fechada || leituraPausada) {
+                return;
+            }
+        }
+    }
+
+    private void separarQuadros(ByteBuffer buffer) throws IOException {
+        int inicio = buffer.position();
+        int limite = buffer.limit();
+        for (int i = inicio; i < limite; i++) {
+            if (buffer.get(i) != '\n') {
+                continue;
+            }
+            int tamanho = i - inicio;
+            String linha;
+            if (tamanhoParcial == 0) {
+                byte[] bytes = new byte[tamanho];
+                buffer.get(inicio, bytes);
+                linha = decodificar(bytes, tamanho);
+            } else {
+                acumular(buffer, inicio, tamanho);
+                linha = decodificar(parcial, tamanhoParcial);
+                parcial = null;
+                tamanhoParcial = 0;
+            }
+            inicio = i + 1;
+            enfileirarQuadro(linha);
+        }
+        if (inicio < limite) {
+            acumular(buffer, inicio, limite - inicio);
+        }
+    }
+
+    private void acumular(ByteBuffer buffer, int inicio, int tamanho) throws IOException {
+        int necessario = tamanhoParcial + tamanho;
+        if (necessario > TAMANHO_MAXIMO_QUADRO) {
+            LOG.aviso("Mensagem excede o tamanho máximo. Encerrando conexão {}", estatisticas.getEndereco());
+            fechar();
+            throw new IOException("Quadro maior que " + TAMANHO_MAXIMO_QUADRO + " bytes");
+        }
+        if (parcial == null) {
+            parcial = new byte[Math.max(256, necessario)];
+        } else if (parcial.length < necessario) {
+            parcial = Arrays.copyOf(parcial, Math.max(parcial.length * 2, necessario));
+        }
+        buffer.get(inicio, parcial, tamanhoParcial, tamanho);
+        tamanhoParcial = necessario;
+    }
+
+    private static String decodificar(byte[] bytes, int tamanho) {
+        // Mesmo comportamento do BufferedReader.readLine(): descarta o '\r' final
+        if (tamanho > 0 && bytes[tamanho - 1] == '\r') {
+            tamanho--;
+        }
+        return new String(bytes, 0, tamanho, StandardCharsets.UTF_8);
+    }
+
+    private void enfileirarQuadro(String linha) {
+        estatisticas.registrarRecebida(linha.length());
+        quadros.add(linha);
+        if (quadrosPendentes.incrementAndGet() >= LIMITE_QUADROS_PENDENTES) {
+            pausarLeitura();
+        }
+        if (agendada.compareAndSet(false, true)) {
+            workers.execute(this::processarQuadros);
+        }
+    }
+
+    /**
+     * Escreve o que for possível da fila de saída. Chamado quando o canal fica gravável.
+     */
+    void escreverPendentes() throws IOException {
+        ByteBuffer proximo;
+        while ((proximo = saida.peek()) != null) {
+            if (canal.write(proximo) > 0) {
+                ultimoProgressoEscrita = System.nanoTime();
+            }
+            if (proximo.hasRemaining()) {
+                break; // buffer do socket cheio, espera o próximo OP_WRITE
+            }
+            saida.poll();
+            bytesPendentes.addAndGet(-proximo.capacity());
+        }
+        atualizarInteresse();
+        if (saida.isEmpty() && fecharAposEscrita) {
+            fechar();
+        }
+    }
+
+    /**
+     * Recalcula os eventos de interesse conforme a fila de saída e os limites de backpressure.
+     */
+    void atualizarInteresse() {
+        if (fechada || chave == null || !chave.isValid()) {
+            return;
+        }
+        int interesse = 0;
+        PipelineConexao pipeline = this.pipeline;
+        boolean excedido = bytesPendentes.get() > LIMITE_BYTES_PENDENTES
+                || quadrosPendentes.get() >= LIMITE_QUADROS_PENDENTES
+                || (pipeline != null && pipeline.getEmAndamento() >= PipelineConexao.MAX_EM_ANDAMENTO);
+        if (leituraPausada && !excedido && bytesPendentes.get() <= LIMITE_BYTES_PENDENTES / 2) {
+            leituraPausada = false;
+        } else if (excedido) {
+            leituraPausada = true;
+        }
+        if (!leituraPausada && !fecharAposEscrita) {
+            interesse |= SelectionKey.OP_READ;
+        }
+        if (!saida.isEmpty()) {
+            interesse |= SelectionKey.OP_WRITE;
+        }
+        chave.interestOps(interesse);
+    }
+
+    private void pausarLeitura() {
+        leituraPausada = true;
+    }
+
+    /**
+     * Encerra a conexão se há resposta esperando e o socket não aceitou nenhum byte em
+     * ESPERA_MAXIMA_ESCRITA_MS. Chamado periodicamente pelo loop de eventos.
+     */
+    void verificarEscrita(long agora) {
+        if (fechada || saida.isEmpty()) {
+            return;
+        }
+        if (agora - ultimoProgressoEscrita > ESPERA_MAXIMA_ESCRITA_MS * 1_000_000) {
+            LOG.aviso("Cliente não lê as respostas há {} ms ({} bytes pendentes). Encerrando conexão {}",
+                    ESPERA_MAXIMA_ESCRITA_MS, bytesPendentes.get(), estatisticas.getEndereco());
+            fechar();
+        }
+    }
+
+    void fechar() {
+        if (fechada) {
+            return;
+        }
+        fechada = true;
+        if (chave != null) {
+            chave.cancel();
+        }
+        try {
+            canal.close();
+        } catch (IOException ignored) {}
+        loop.conexaoEncerrada(this);
+        // Nada mais será escrito: solta a memória das respostas que ficaram na fila
+        saida.clear();
+        bytesPendentes.set(0);
+        LOG.info("Conexao encerrada: {}", estatisticas.toString());
+    }
+
+    // ===================================================================================
+    // THREADS DO POOL DE WORKERS
+    // ===================================================================================
+
+    /**
+     * Processa os quadros em ordem; apenas um worker por conexão roda isto de cada vez.
+     */
+    private void processarQuadros() {
+        while (true) {
+            String linha;
+            while ((linha = quadros.poll()) != null) {
+                quadrosPendentes.decrementAndGet();
+                if (fecharAposEscrita) {
+                    continue;
+                }
+                processar(linha);
+            }
+            agendada.set(false);
+            // Um quadro pode ter chegado entre o último poll e o set(false)
+            if (quadros.isEmpty() || !agendada.compareAndSet(false, true)) {
+                break;
+            }
+        }
+        loop.solicitarAtualizacao(this);
+    }
+
+    private void processar(String linha) {
+        if (pipeline == null) {
+            Writer escritor = new OutputStreamWriter(new SaidaEmFila(), StandardCharsets.UTF_8);
+            pipeline = new PipelineConexao(new ProcessadorMensagens(canal.socket()), escritor, workers, estatisticas,
+                    this::fecharAposEscrever, () -> loop.solicitarAtualizacao(this));
+        }
+        LOG.info("Servidor recebeu: {}", linha);
+        pipeline.receber(linha);
+    }
+
+    // Uma mensagem pediu o fim da conexão: fecha depois que a fila de saída esvaziar
+    private void fecharAposEscrever() {
+        fecharAposEscrita = true;
+        loop.solicitarAtualizacao(this);
+    }
+
+    /**
+     * Leva os bytes das respostas para a fila de saída, em pedaços do tamanho do buffer do
+     * OutputStreamWriter, sem nunca esperar o cliente: acima de LIMITE_BYTES_PENDENTES a conexão
+     * deixa de ser lida (atualizarInteresse) e o loop de eventos a encerra se a escrita não andar
+     * em ESPERA_MAXIMA_ESCRITA_MS. Passar de LIMITE_MAXIMO_BYTES_PENDENTES falha a escrita.
+     */
+    private class SaidaEmFila extends OutputStream {
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            if (fechada) {
+                throw new IOException("Conexão encerrada");
+            }
+            if (bytesPendentes.get() + len > LIMITE_MAXIMO_BYTES_PENDENTES) {
+                loop.executar(ConexaoNIO.this::fechar);
+                throw new IOException("Cliente não acompanha as respostas: mais de "
+                        + LIMITE_MAXIMO_BYTES_PENDENTES + " bytes pendentes");
+            }
+            if (saida.isEmpty()) {
+                ultimoProgressoEscrita = System.nanoTime();
+            }
+            saida.add(ByteBuffer.wrap(Arrays.copyOfRange(b, off, off + len)));
+            bytesPendentes.addAndGet(len);
+            loop.solicitarAtualizacao(ConexaoNIO.this);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package servidor;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import dao.TransacaoDAO;
+import modelo.Dinheiro;
+import modelo.Transacao;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Gera o texto da resposta de 'transacao_ler' uma transação de cada vez, conforme o ResultSet é
+ * percorrido, sem montar objetos intermediários. O mesmo escritor atravessa as páginas do extrato:
+ * descarregar() entrega o que a página gerou e o JSON continua na próxima.
+ *
+ * A resposta sai com as mesmas chaves e na mesma ordem que o ObjectMapper gerava a partir do
+ * HashMap, então o cliente não percebe diferença.
+ */
+class EscritorExtrato implements TransacaoDAO.LeitorTransacoes {
+    private final JsonGenerator gerador;
+    private final Integer id;
+    private final char[] valor = new char[Dinheiro.MAX_CARACTERES];
+    private boolean iniciado;
+    private int total;
+    private Transacao ultima;
+
+    /**
+     * Escritor que gera o texto da resposta direto em 'destino'.
+     *
+     * @param id o 'id' da mensagem do Cliente, ou null
+     */
+    static EscritorExtrato paraSaida(JsonFactory fabrica, Writer destino, Integer id) throws IOException {
+        JsonGenerator gerador = fabrica.createGenerator(destino);
+        gerador.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        gerador.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+        return new EscritorExtrato(gerador, id);
+    }
+
+    private EscritorExtrato(JsonGenerator gerador, Integer id) {
+        this.gerador = gerador;
+        this.id = id;
+    }
+
+    @Override
+    public void ler(Transacao t) throws IOException {
+        iniciar();
+        gerador.writeStartObject();
+        gerador.writeStringField("atualizado_em", TransacaoDAO.formatarData(t.atualizadoEm()));
+        gerador.writeStringField("criado_em", TransacaoDAO.formatarData(t.criadoEm()));
+        escreverUsuario("usuario_enviador", t.cpfEnviador(), t.nomeEnviador());
+        gerador.writeNumberField("id", t.id());
+        gerador.writeFieldName("valor_enviado");
+        gerador.writeNumber(valor, 0, Dinheiro.escrever(t.valorCentavos(), valor, 0));
+        escreverUsuario("usuario_recebedor", t.cpfRecebedor(), t.nomeRecebedor());
+        gerador.writeEndObject();
+        total++;
+        ultima = t;
+    }
+
+    private void escreverUsuario(String campo, String cpf, String nome) throws IOException {
+        gerador.writeObjectFieldStart(campo);
+        gerador.writeStringField("cpf", cpf);
+        gerador.writeStringField("nome", nome);
+        gerador.writeEndObject();
+    }
+
+    private void iniciar() throws IOException {
+        if (!iniciado) {
+            iniciado = true;
+            gerador.writeStartObject();
+            gerador.writeArrayFieldStart("transacoes");
+        }
+    }
+
+    /**
+     * Passa para a saída o que o gerador já tem, com o array de transações ainda aberto (fim de
+     * uma página que não é a última).
+     */
+    void descarregar() throws IOException {
+        iniciar();
+        gerador.flush();
+    }
+
+    /**
+     * Fecha o array e o objeto e passa o que estiver no buffer do gerador para a saída.
+     *
+     * @param proximoCursor cursor da página seguinte, ou null se esta é a última
+     */
+    void concluir(String info, String proximoCursor) throws IOException {
+        iniciar();
+        gerador.writeEndArray();
+        gerador.writeStringField("operacao", "transacao_ler");
+        gerador.writeBooleanField("status", true);
+        gerador.writeStringField("info", info);
+        if (id != null) {
+            gerador.writeNumberField("id", id);
+        }
+        if (proximoCursor != null) {
+            gerador.writeStringField("proximo_cursor", proximoCursor);
+        }
+        gerador.writeEndObject();
+        gerador.flush();
+    }
+
+    int getTotal() {
+        return total;
+    }
+
+    /**
+     * Última transação escrita, ou null se nenhuma foi.
+     */
+    Transacao getUltima() {
+        return ultima;
+    }
+}
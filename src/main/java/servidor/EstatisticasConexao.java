@@ -0,0 +1,52 @@
+package servidor;
+
+import java.net.SocketAddress;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contadores de uma conexão de cliente (mensagens, bytes e erros).
+ * Podem ser lidos de qualquer thread enquanto a conexão está ativa.
+ */
+public class EstatisticasConexao {
+    private final SocketAddress endereco;
+    private final long conectadoEm;
+    private final AtomicLong mensagensRecebidas = new AtomicLong();
+    private final AtomicLong mensagensEnviadas = new AtomicLong();
+    private final AtomicLong bytesRecebidos = new AtomicLong();
+    private final AtomicLong bytesEnviados = new AtomicLong();
+    private final AtomicLong erros = new AtomicLong();
+
+    public EstatisticasConexao(SocketAddress endereco) {
+        this.endereco = endereco;
+        this.conectadoEm = System.currentTimeMillis();
+    }
+
+    public void registrarRecebida(int tamanho) {
+        mensagensRecebidas.incrementAndGet();
+        bytesRecebidos.addAndGet(tamanho);
+    }
+
+    public void registrarEnviada(long tamanho) {
+        mensagensEnviadas.incrementAndGet();
+        bytesEnviados.addAndGet(tamanho);
+    }
+
+    public void registrarErro() {
+        erros.incrementAndGet();
+    }
+
+    public SocketAddress getEndereco() { return endereco; }
+    public long getConectadoEm() { return conectadoEm; }
+    public long getMensagensRecebidas() { return mensagensRecebidas.get(); }
+    public long getMensagensEnviadas() { return mensagensEnviadas.get(); }
+    public long getBytesRecebidos() { return bytesRecebidos.get(); }
+    public long getBytesEnviados() { return bytesEnviados.get(); }
+    public long getErros() { return erros.get(); }
+
+    @Override
+    public String toString() {
+        return endereco + " recebidas=" + getMensagensRecebidas() + " enviadas=" + getMensagensEnviadas()
+                + " bytesRecebidos=" + getBytesRecebidos() + " bytesEnviados=" + getBytesEnviados()
+                + " erros=" + getErros();
+    }
+}
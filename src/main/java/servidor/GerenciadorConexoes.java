@@ -0,0 +1,141 @@
+package servidor;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import log.Log;
+import metricas.MetricasServidor;
+
+/**
+ * Atende cada conexão em uma virtual thread, limitando o número de conexões simultâneas.
+ *
+ * Quando o limite é atingido o accept fica parado até alguma conexão encerrar; enquanto isso
+ * os novos clientes aguardam na fila (backlog) do ServerSocket.
+ *
+ * Configuração por propriedades de sistema:
+ * -Dservidor.maxConexoes=10000 e -Dservidor.backlog=1024
+ */
+public class GerenciadorConexoes {
+    private static final Log LOG = Log.de(GerenciadorConexoes.class);
+
+    private static final int MAX_CONEXOES_PADRAO = 10000;
+    private static final int BACKLOG_PADRAO = 1024;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore vagas;
+    private final int maxConexoes;
+    private final Map<Socket, EstatisticasConexao> conexoesAtivas = new ConcurrentHashMap<>();
+
+    private final AtomicLong totalAceitas = new AtomicLong();
+    private final AtomicLong totalEncerradas = new AtomicLong();
+    private final AtomicLong esperasPorVaga = new AtomicLong();
+
+    public GerenciadorConexoes() {
+        this(Integer.getInteger("servidor.maxConexoes", MAX_CONEXOES_PADRAO));
+    }
+
+    public GerenciadorConexoes(int maxConexoes) {
+        if (maxConexoes <= 0) {
+            throw new IllegalArgumentException("O limite de conexões deve ser positivo.");
+        }
+        this.maxConexoes = maxConexoes;
+        this.vagas = new Semaphore(maxConexoes);
+    }
+
+    public static int backlogConfigurado() {
+        return Integer.getInteger("servidor.backlog", BACKLOG_PADRAO);
+    }
+
+    /**
+     * Espera uma vaga livre e aceita a próxima conexão.
+     * A vaga só é devolvida quando o atendimento da conexão termina.
+     */
+    public Socket aceitar(ServerSocket serverSocket) throws IOException, InterruptedException {
+        if (!vagas.tryAcquire()) {
+            esperasPorVaga.incrementAndGet();
+            vagas.acquire();
+        }
+        try {
+            Socket socket = serverSocket.accept();
+            totalAceitas.incrementAndGet();
+            return socket;
+        } catch (IOException e) {
+            vagas.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Executa o atendimento da conexão em uma virtual thread.
+     * A fábrica recebe os contadores da conexão e devolve o loop de atendimento; se ela falhar
+     * (ou o executor já estiver encerrado) a conexão é fechada e a vaga devolvida.
+     */
+    public EstatisticasConexao atender(Socket socket, Function<EstatisticasConexao, Runnable> fabrica) {
+        EstatisticasConexao estatisticas = new EstatisticasConexao(socket.getRemoteSocketAddress());
+        conexoesAtivas.put(socket, estatisticas);
+        MetricasServidor.getInstancia().conexaoAberta();
+
+        try {
+            Runnable atendimento = fabrica.apply(estatisticas);
+            executor.execute(() -> {
+                try {
+                    atendimento.run();
+                } finally {
+                    liberar(socket);
+                }
+            });
+        } catch (RuntimeException e) {
+            if (!(e instanceof RejectedExecutionException)) {
+                LOG.erro("Falha ao iniciar o atendimento de {}: {}", socket.getRemoteSocketAddress(), e.toString());
+            }
+            liberar(socket);
+            try { socket.close(); } catch (IOException ignored) {}
+        }
+        return estatisticas;
+    }
+
+    private void liberar(Socket socket) {
+        if (conexoesAtivas.remove(socket) != null) {
+            totalEncerradas.incrementAndGet();
+            MetricasServidor.getInstancia().conexaoEncerrada();
+            vagas.release();
+        }
+    }
+
+    /**
+     * Fecha todas as conexões ativas e não aceita novos atendimentos.
+     */
+    public void encerrar() {
+        executor.shutdown();
+        for (Socket socket : conexoesAtivas.keySet()) {
+            try { socket.close(); } catch (IOException ignored) {}
+        }
+    }
+
+    public List<EstatisticasConexao> getConexoesAtivas() {
+        return new ArrayList<>(conexoesAtivas.values());
+    }
+
+    public int getNumeroConexoesAtivas() { return conexoesAtivas.size(); }
+    public int getMaxConexoes() { return maxConexoes; }
+    public long getTotalAceitas() { return totalAceitas.get(); }
+    public long getTotalEncerradas() { return totalEncerradas.get(); }
+    public long getEsperasPorVaga() { return esperasPorVaga.get(); }
+
+    public String resumo() {
+        return "Conexões ativas: " + getNumeroConexoesAtivas() + "/" + maxConexoes
+                + " | aceitas: " + getTotalAceitas()
+                + " | encerradas: " + getTotalEncerradas()
+                + " | esperas por vaga: " + getEsperasPorVaga();
+    }
+}
@@ -0,0 +1,225 @@
+package servidor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import log.Log;
+import metricas.Medicao;
+import protocolo.CodecProtocolo;
+import protocolo.MensagemCliente;
+import protocolo.MensagemInvalidaException;
+
+/**
+ * Ordem de execução das mensagens de uma conexão, que o Cliente pode mandar sem esperar as respostas.
+ *
+ * Mensagens sem 'id' são executadas uma de cada vez, na ordem em que chegaram, como sempre foram.
+ * Com 'id', as leituras (conectar, usuario_ler, transacao_ler) e as mensagens recusadas pelo
+ * protocolo rodam em paralelo no executor, e as respostas saem na ordem em que ficam prontas; o
+ * Cliente as reconhece pelo 'id'. Escritas continuam em ordem: cada uma espera tudo o que chegou
+ * antes dela, e o que chega depois espera por ela.
+ *
+ * Quando não há nada pendente, a mensagem roda na própria thread que a recebeu. No máximo
+ * -Dservidor.pipeline.maxEmAndamento mensagens (padrão 64) ficam pendentes por conexão; acima disso
+ * a conexão deixa de ser lida.
+ */
+final class PipelineConexao {
+    private static final Log LOG = Log.de(PipelineConexao.class);
+
+    static final int MAX_EM_ANDAMENTO = Integer.getInteger("servidor.pipeline.maxEmAndamento", 64);
+
+    private static final String RESPOSTA_ERRO = "{\"operacao\":\"erro\",\"status\":false,\"info\":\"Erro de comunicação\"}";
+
+    private final ProcessadorMensagens processador;
+    private final Writer saida;
+    private final Executor executor;
+    private final EstatisticasConexao estatisticas;
+    private final Runnable aoEncerrar;
+    private final Runnable aoLiberarVaga;
+
+    // Respostas de mensagens processadas ao mesmo tempo não podem se misturar na saída
+    private final ReentrantLock escrita = new ReentrantLock();
+
+    // Só a thread que chama receber() mexe nestes dois
+    private CompletableFuture<Void> ultimaEscrita = CompletableFuture.completedFuture(null);
+    private final List<CompletableFuture<Void>> leituras = new ArrayList<>();
+
+    private final ReentrantLock travaVagas = new ReentrantLock();
+    private final Condition vagaLivre = travaVagas.newCondition();
+    private int emAndamento;
+    private volatile boolean encerrada;
+
+    /**
+     * @param aoEncerrar    chamado uma vez, quando uma mensagem pede o fim da conexão
+     * @param aoLiberarVaga chamado quando o número de mensagens pendentes volta a ficar abaixo do
+     *                      limite (ou null)
+     */
+    PipelineConexao(ProcessadorMensagens processador, Writer saida, Executor executor,
+                    EstatisticasConexao estatisticas, Runnable aoEncerrar, Runnable aoLiberarVaga) {
+        this.processador = processador;
+        this.saida = saida;
+        this.executor = executor;
+        this.estatisticas = estatisticas;
+        this.aoEncerrar = aoEncerrar;
+        this.aoLiberarVaga = aoLiberarVaga;
+    }
+
+    /**
+     * Recebe a próxima linha da conexão. As linhas devem chegar em ordem, por uma thread de cada vez.
+     */
+    void receber(String linha) {
+        Medicao medicao = Medicao.iniciar();
+        MensagemCliente mensagem = null;
+        MensagemInvalidaException invalida = null;
+        try {
+            mensagem = CodecProtocolo.lerMensagem(linha, medicao);
+        } catch (MensagemInvalidaException e) {
+            invalida = e;
+        }
+        MensagemCliente lida = mensagem;
+        MensagemInvalidaException recusada = invalida;
+        Runnable tarefa = () -> executar(lida, recusada, medicao);
+
+        travaVagas.lock();
+        try {
+            emAndamento++;
+        } finally {
+            travaVagas.unlock();
+        }
+
+        Integer id = mensagem != null ? mensagem.id() : invalida != null ? invalida.getId() : null;
+        boolean paralela = id != null && (invalida != null || mensagem.requisicao().operacao().isLeitura());
+        if (paralela) {
+            leituras.removeIf(CompletableFuture::isDone);
+            leituras.add(ultimaEscrita.thenRunAsync(tarefa, executor));
+            return;
+        }
+
+        leituras.removeIf(CompletableFuture::isDone);
+        if (leituras.isEmpty() && ultimaEscrita.isDone()) {
+            tarefa.run();
+            return;
+        }
+        leituras.add(ultimaEscrita);
+        ultimaEscrita = CompletableFuture.allOf(leituras.toArray(new CompletableFuture<?>[0]))
+                .thenRunAsync(tarefa, executor);
+        leituras.clear();
+    }
+
+    /**
+     * Bloqueia quem lê a conexão enquanto houver MAX_EM_ANDAMENTO mensagens pendentes.
+     */
+    void aguardarVaga() throws InterruptedException {
+        travaVagas.lock();
+        try {
+            while (emAndamento >= MAX_EM_ANDAMENTO && !encerrada) {
+                vagaLivre.await();
+            }
+        } finally {
+            travaVagas.unlock();
+        }
+    }
+
+    /**
+     * Espera as mensagens já recebidas terminarem (fim da leitura da conexão).
+     */
+    void aguardarConclusao() {
+        leituras.add(ultimaEscrita);
+        CompletableFuture.allOf(leituras.toArray(new CompletableFuture<?>[0])).join();
+        leituras.clear();
+    }
+
+    int getEmAndamento() {
+        travaVagas.lock();
+        try {
+            return emAndamento;
+        } finally {
+            travaVagas.unlock();
+        }
+    }
+
+    boolean isEncerrada() {
+        return encerrada;
+    }
+
+    private void executar(MensagemCliente mensagem, MensagemInvalidaException invalida, Medicao medicao) {
+        try {
+            if (encerrada) {
+                return;
+            }
+            ProcessadorMensagens requisicao = processador.paraRequisicao();
+            long enviados = invalida != null
+                    ? requisicao.responderErro(invalida, medicao, saida, escrita)
+                    : requisicao.responder(mensagem, medicao, saida, escrita);
+
+            // Se não houve resposta, encerrar conexão
+            if (enviados < 0) {
+                LOG.aviso("Cliente enviou mensagem sem operacao. Encerrando conexão.");
+                encerrar();
+                return;
+            }
+
+            estatisticas.registrarEnviada(enviados);
+
+        } catch (IOException e) {
+            // A resposta pode ter ficado pela metade: não dá para mandar outra na mesma linha
+            LOG.erro("Erro de comunicação: {}", e.getMessage());
+            estatisticas.registrarErro();
+            encerrar();
+        } catch (Exception e) {
+            // Apenas erros críticos de comunicação
+            LOG.erro("Erro de comunicação: {}", e.getMessage());
+            estatisticas.registrarErro();
+            enviarErro();
+            encerrar();
+        } finally {
+            liberarVaga();
+        }
+    }
+
+    private void enviarErro() {
+        escrita.lock();
+        try {
+            saida.write(RESPOSTA_ERRO);
+            saida.write('\n');
+            saida.flush();
+            estatisticas.registrarEnviada(RESPOSTA_ERRO.length());
+        } catch (IOException e) {
+            LOG.erro("Erro de comunicação: {}", e.getMessage());
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    private void encerrar() {
+        travaVagas.lock();
+        try {
+            if (encerrada) {
+                return;
+            }
+            encerrada = true;
+            vagaLivre.signalAll();
+        } finally {
+            travaVagas.unlock();
+        }
+        aoEncerrar.run();
+    }
+
+    private void liberarVaga() {
+        boolean liberou;
+        travaVagas.lock();
+        try {
+            liberou = emAndamento-- == MAX_EM_ANDAMENTO;
+            vagaLivre.signal();
+        } finally {
+            travaVagas.unlock();
+        }
+        if (liberou && aoLiberarVaga != null) {
+            aoLiberarVaga.run();
+        }
+    }
+}
@@ -2,167 +2,260 @@ package servidor;
 
 import autenticador.Token;
 import database.BancoDados;
+import modelo.Dinheiro;
 import modelo.Usuario;
 import dao.UsuarioDAO;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.JsonNode;
+import protocolo.CodecProtocolo;
+import protocolo.MensagemCliente;
+import protocolo.MensagemInvalidaException;
+import protocolo.Requisicao;
+import protocolo.Resposta;
 import validator.Validator;
-import java.util.HashMap;
-import java.util.Map;
-import java.math.BigDecimal;
 import dao.TransacaoDAO;
+import dao.TransferenciaDAO;
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.net.Socket;
-import java.sql.Connection;
-import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
-import java.util.List;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import log.Log;
+import metricas.Fase;
+import metricas.Medicao;
+import metricas.MetricasServidor;
 
 public class ProcessadorMensagens {
-    private ObjectMapper objectMapper;
+    private static final Log LOG = Log.de(ProcessadorMensagens.class);
+
+    // Compartilhadas por todas as conexões: serializam operações na mesma conta
+    private static final TravasContas TRAVAS = new TravasContas();
+
+    static {
+        MetricasServidor.getInstancia().registrarComponente("travas_contas", TRAVAS::resumo);
+    }
+    // Maior página de 'transacao_ler' aceita: -Dservidor.extrato.limiteMaximo
+    private static final int LIMITE_MAXIMO_PAGINA = Integer.getInteger("servidor.extrato.limiteMaximo", 1000);
+
+    private final TransacaoDAO transacaoDAO = new TransacaoDAO();
     private boolean conectado = false;
     private Socket socket;
+    private String cpfRequisicao; // CPF identificado na requisição em andamento (vai no Resultado)
+    private Medicao medicao = Medicao.NENHUMA; // fases da requisição em andamento
 
 
     public ProcessadorMensagens(Socket socket) {
-        this.objectMapper = new ObjectMapper();
         this.socket = socket;
         BancoDados.criarTabelas();
     }
 
+    /**
+     * Processador da mesma conexão com estado próprio, para uma requisição que pode ser processada
+     * ao mesmo tempo que outras (ver PipelineConexao).
+     */
+    ProcessadorMensagens paraRequisicao() {
+        return new ProcessadorMensagens(socket);
+    }
 
 
-    public String processarMensagem(String jsonRecebido) {
-        String operacao = "erro";
+    public static TravasContas getTravas() {
+        return TRAVAS;
+    }
 
-        try {
-            // Parse inicial para extrair operação
-            JsonNode node = objectMapper.readTree(jsonRecebido);
-            // Verificar se campo operacao existe
-            if (!node.has("operacao")) {
-                return null; // Retorna null para encerrar conexão
-            }
+    /**
+     * Resultado de uma mensagem: a resposta já serializada e, para quem acompanha as sessões
+     * (ServidorGUI), o que foi extraído dela sem precisar ler o JSON de novo.
+     *
+     * @param texto resposta a enviar, ou null se a conexão deve ser encerrada
+     * @param cpf   CPF identificado pela requisição (login ou token válido), ou null
+     * @param token token gerado no login, ou null
+     */
+    public record Resultado(String operacao, boolean status, String cpf, String token, String texto) {
+        static final Resultado ENCERRAR = new Resultado(null, false, null, null, null);
+    }
 
-            operacao = node.get("operacao").asText();
-            // Validar com Validator
-            Validator.validateClient(jsonRecebido);
+    /**
+     * Processa a mensagem e escreve a resposta, terminada em '\n', em 'saida'. A resposta é montada
+     * sem 'trava' e só a escrita acontece com ela, então respostas de requisições processadas ao
+     * mesmo tempo não se misturam na saída.
+     *
+     * A resposta de 'transacao_ler' percorre o período em páginas de até LIMITE_MAXIMO_PAGINA
+     * transações: cada página vai do ResultSet direto para o texto JSON e a conexão do pool é
+     * devolvida antes de a página ser escrita, então a memória fica em uma página e um cliente lento
+     * para ler não segura o banco. A trava fica com a resposta do começo ao fim da linha.
+     *
+     * @param mensagem a mensagem lida pelo CodecProtocolo, ou null se ela não tinha 'operacao'
+     * @param medicao  a medição iniciada quando a mensagem chegou; é concluída depois da escrita
+     * @return caracteres escritos (sem a quebra de linha), ou -1 se a conexão deve ser encerrada
+     */
+    long responder(MensagemCliente mensagem, Medicao medicao, Writer saida, Lock trava) throws IOException {
+        cpfRequisicao = null;
+        this.medicao = medicao;
+        if (mensagem == null) {
+            return -1; // Mensagem sem 'operacao': encerra a conexão
+        }
+        long enviados = responderMensagem(mensagem, saida, trava);
+        medicao.concluir();
+        return enviados;
+    }
 
-            // Processar operação
-            String resposta = processarOperacao(node, operacao);
+    private long responderMensagem(MensagemCliente mensagem, Writer saida, Lock trava) throws IOException {
+        Integer id = mensagem.id();
+        if (mensagem.requisicao() instanceof Requisicao.TransacaoLer leitura) {
+            PedidoExtrato pedido = validarLeituraTransacoes(leitura);
+            Resposta erro = pedido.respostaErro();
+            if (erro == null) {
+                long escritos = escreverExtrato(pedido, id, saida, trava);
+                if (escritos >= 0) {
+                    return escritos;
+                }
+                erro = Resposta.erro("transacao_ler", "Erro ao buscar transações");
+            }
+            return escrever(finalizar(erro.comId(id)).texto(), saida, trava);
+        }
+        return escrever(processar(mensagem.requisicao(), id).texto(), saida, trava);
+    }
 
-            // Validar resposta
-            Validator.validateServer(resposta);
-            return resposta;
+    /**
+     * Escreve a resposta de erro de uma mensagem que o CodecProtocolo recusou.
+     */
+    long responderErro(MensagemInvalidaException e, Medicao medicao, Writer saida, Lock trava) throws IOException {
+        cpfRequisicao = null;
+        this.medicao = medicao;
+        long enviados = escrever(finalizar(Resposta.erro(e.getOperacao(), e.getMessage()).comId(e.getId())).texto(),
+                saida, trava);
+        medicao.concluir();
+        return enviados;
+    }
 
-        } catch (com.fasterxml.jackson.core.JsonParseException e) {
-            return criarRespostaErro(operacao,"Erro de sintaxe. A mensagem não é um JSON válido.");
-        } catch (IllegalArgumentException e) {
-            return criarRespostaErro(operacao,e.getMessage());
-        } catch (Exception e) {
-            // Para Exception genérica do parseJson e outros erros
-            return criarRespostaErro(operacao,e.getMessage());
+    private long escrever(String resposta, Writer saida, Lock trava) throws IOException {
+        LOG.info("Servidor enviou: {}", resposta);
+        trava.lock();
+        try {
+            saida.write(resposta);
+            saida.write('\n');
+            saida.flush();
+        } finally {
+            trava.unlock();
         }
+        medicao.marcar(Fase.ESCRITA);
+        return resposta.length();
     }
 
+    public String processarMensagem(String jsonRecebido) {
+        return processar(jsonRecebido).texto();
+    }
 
-    private String processarOperacao(JsonNode node, String operacao) {
-        switch (operacao) {
-            case "usuario_criar":
-                return processarCadastroUsuario(node);
-            case "usuario_login":
-                return processarLogin(node);
-            case "usuario_ler":
-                return processarLeituraUsuario(node);
-            case "usuario_atualizar":
-                return processarAtualizarUsuario(node);
-            case "usuario_deletar":
-                return processarDeletarUsuario(node);
-            case "usuario_logout":
-                return processarLogout(node);
-            case "conectar":
-                return processarConexao();
-            case "depositar":
-                return processarDeposito(node);
-            case "transacao_criar":
-                return processarTransacao(node);
-            case "transacao_ler":
-                return processarLeituraTransacoes(node);
-            default:
-                return criarRespostaErro(operacao, "Operação ainda não implementada");
-        }
+    /**
+     * Lê a mensagem direto para a requisição tipada (sem árvore JSON), processa, valida a resposta
+     * e só então a serializa. A escrita fica com quem chama, então a medição termina na serialização.
+     */
+    public Resultado processar(String jsonRecebido) {
+        cpfRequisicao = null;
+        medicao = Medicao.iniciar();
+        Resultado resultado = processarTexto(jsonRecebido);
+        medicao.concluir();
+        return resultado;
     }
 
-    private String criarRespostaErroPorOperacao(String operacao, String detalhe) {
-        switch (operacao) {
-            case "usuario_criar":
-                return criarRespostaErro("usuario_criar", "Ocorreu um erro ao criar usuário.");
-            case "usuario_login":
-                return criarRespostaErro("usuario_login", "Ocorreu um erro ao realizar login.");
-            case "usuario_logout":
-                return criarRespostaErro("usuario_logout", "Ocorreu um erro ao realizar logout.");
-            case "usuario_ler":
-                return criarRespostaErro("usuario_ler", "Erro ao ler dados do usuário.");
-            case "usuario_atualizar":
-                return criarRespostaErro("usuario_atualizar", "Erro ao atualizar usuário.");
-            case "usuario_deletar":
-                return criarRespostaErro("usuario_deletar", "Erro ao deletar usuário.");
-            case "depositar":
-                return criarRespostaErro("depositar", "Erro ao depositar.");
-            case "transacao_criar":
-                return criarRespostaErro("transacao_criar", "Erro ao criar transação.");
-            case "transacao_ler":
-                return criarRespostaErro("transacao_ler", "Erro ao ler transações.");
-            default:
-                return criarRespostaErro("erro", "Erro interno do servidor");
+    private Resultado processarTexto(String jsonRecebido) {
+        MensagemCliente mensagem;
+        try {
+            mensagem = CodecProtocolo.lerMensagem(jsonRecebido, medicao);
+        } catch (MensagemInvalidaException e) {
+            return finalizar(Resposta.erro(e.getOperacao(), e.getMessage()).comId(e.getId()));
         }
+        if (mensagem == null) {
+            return Resultado.ENCERRAR; // Mensagem sem 'operacao': encerra a conexão
+        }
+        return processar(mensagem.requisicao(), mensagem.id());
     }
 
-    // MÉTODOS AUXILIARES PARA PADRONIZAR RESPOSTAS
-    private String criarRespostaSucesso(String operacao, String info, Map<String, Object> dadosExtras) {
-        Map<String, Object> resposta = new HashMap<>();
-        resposta.put("operacao", operacao);
-        resposta.put("status", true);
-        resposta.put("info", info);
-
-        if (dadosExtras != null) {
-            resposta.putAll(dadosExtras);
+    private Resultado processar(Requisicao requisicao, Integer id) {
+        if (requisicao instanceof Requisicao.TransacaoLer leitura) {
+            return processarLeituraTransacoes(leitura, id);
         }
 
+        Resposta resposta;
         try {
-            return objectMapper.writeValueAsString(resposta);
+            resposta = processarOperacao(requisicao);
+            medicao.marcar(Fase.BANCO);
+
+            // Validar resposta antes de serializar
+            Validator.validateServer(resposta);
+
         } catch (Exception e) {
-            return criarRespostaErro(operacao, "Erro interno do servidor");
+            resposta = Resposta.erro(requisicao.operacao().getValue(), e.getMessage());
+        }
+        medicao.marcar(Fase.VALIDACAO);
+        return finalizar(resposta.comId(id));
+    }
+
+    // Única serialização da resposta
+    private Resultado finalizar(Resposta resposta) {
+        String texto = CodecProtocolo.escrever(resposta);
+        medicao.marcar(Fase.SERIALIZACAO);
+        medicao.resultado(resposta.operacao(), resposta.status(), resposta.info());
+        return new Resultado(resposta.operacao(), resposta.status(), cpfRequisicao, resposta.token(), texto);
+    }
+
+    private Resposta processarOperacao(Requisicao requisicao) {
+        switch (requisicao) {
+            case Requisicao.UsuarioCriar r:
+                return processarCadastroUsuario(r);
+            case Requisicao.UsuarioLogin r:
+                return processarLogin(r);
+            case Requisicao.UsuarioLer r:
+                return processarLeituraUsuario(r);
+            case Requisicao.UsuarioAtualizar r:
+                return processarAtualizarUsuario(r);
+            case Requisicao.UsuarioDeletar r:
+                return processarDeletarUsuario(r);
+            case Requisicao.UsuarioLogout r:
+                return processarLogout(r);
+            case Requisicao.Conectar r:
+                return processarConexao();
+            case Requisicao.Depositar r:
+                return processarDeposito(r);
+            case Requisicao.TransacaoCriar r:
+                return processarTransacao(r);
+            default:
+                return Resposta.erro(requisicao.operacao().getValue(), "Operação ainda não implementada");
         }
     }
 
-    private String criarRespostaErro(String operacao, String info) {
-        return String.format(
-                "{\"operacao\":\"%s\",\"status\":false,\"info\":\"%s\"}",
-                operacao, info
-        );
+    // Valida o token e guarda o CPF dono dele no resultado da requisição
+    private String validarToken(String token) {
+        String cpf = Token.validarToken(token, this.socket);
+        medicao.marcar(Fase.AUTENTICACAO);
+        if (cpf != null) {
+            cpfRequisicao = cpf;
+        }
+        return cpf;
     }
 
-    private String processarConexao() {
+    private Resposta processarConexao() {
         try {
-            return criarRespostaSucesso("conectar", "Servidor conectado com sucesso", null);
+            return Resposta.sucesso("conectar", "Servidor conectado com sucesso");
         } catch (Exception e) {
-            return criarRespostaErro("conectar", "Erro ao se conectar");
+            return Resposta.erro("conectar", "Erro ao se conectar");
         }
     }
 
-    private String processarCadastroUsuario(JsonNode node) {
+    private Resposta processarCadastroUsuario(Requisicao.UsuarioCriar requisicao) {
         try {
-            // Extrair dados do JSON
-            String nome = node.get("nome").asText();
-            String cpf = node.get("cpf").asText();
-            String senha = node.get("senha").asText();
+            String nome = requisicao.nome();
+            String cpf = requisicao.cpf();
+            String senha = requisicao.senha();
 
             UsuarioDAO dao = new UsuarioDAO();
 
             // 1. Verificar se CPF já existe
             if (dao.cpfExiste(cpf)) {
-                return criarRespostaErro("usuario_criar", "CPF já cadastrado");
+                return Resposta.erro("usuario_criar", "CPF já cadastrado");
             }
 
             // 2. Criar e salvar usuário (com saldo inicial = 0.0)
@@ -171,70 +264,73 @@ public class ProcessadorMensagens {
 
             // 3. Retornar resultado
             if (sucesso) {
-                return criarRespostaSucesso("usuario_criar", "Usuário criado com sucesso", null);
+                return Resposta.sucesso("usuario_criar", "Usuário criado com sucesso");
             } else {
-                return criarRespostaErro("usuario_criar", "Ocorreu um erro ao criar usuário");
+                return Resposta.erro("usuario_criar", "Ocorreu um erro ao criar usuário");
             }
 
         } catch (Exception e) {
-            return criarRespostaErro("usuario_criar", "Erro ao processar dados do usuário");
+            return Resposta.erro("usuario_criar", "Erro ao processar dados do usuário");
         }
     }
 
-    private String processarLogin(JsonNode node) {
+    private Resposta processarLogin(Requisicao.UsuarioLogin requisicao) {
         try {
-            String cpf = node.get("cpf").asText();
-            String senha = node.get("senha").asText();
+            String cpf = requisicao.cpf();
+            String senha = requisicao.senha();
 
             UsuarioDAO dao = new UsuarioDAO();
 
             // 1. Validar credenciais no banco
-            if (dao.validarLogin(cpf, senha)) {
+            boolean valido = dao.validarLogin(cpf, senha);
+            medicao.marcar(Fase.BANCO);
+            if (valido) {
                 // 2. Gerar token para usuário válido
                 String token = Token.gerarToken(cpf, this.socket);
+                medicao.marcar(Fase.AUTENTICACAO);
 
-                // 3. Criar dados extras com token
-                Map<String, Object> extras = new HashMap<>();
-                extras.put("token", token);
+                cpfRequisicao = cpf;
 
-                return criarRespostaSucesso("usuario_login", "Login realizado com sucesso", extras);
+                // 3. Resposta com o token
+                return Resposta.sucesso("usuario_login", "Login realizado com sucesso").comToken(token);
             }
 
-            return criarRespostaErro("usuario_login", "Login inválido");
+            return Resposta.erro("usuario_login", "Login inválido");
 
         } catch (Exception e) {
-            return criarRespostaErro("usuario_login", "Erro ao processar login");
+            return Resposta.erro("usuario_login", "Erro ao processar login");
         }
     }
 
-    private String processarLogout(JsonNode node) {
+    private Resposta processarLogout(Requisicao.UsuarioLogout requisicao) {
         try {
-            String token = node.get("token").asText();
+            String token = requisicao.token();
 
             // 1. Validar se token é válido
-            String cpf = Token.validarToken(token,this.socket);
+            String cpf = validarToken(token);
             if (cpf == null) {
-                return criarRespostaErro("usuario_logout", "Token inválido ou expirado");
+                return Resposta.erro("usuario_logout", "Token inválido ou expirado");
             }
 
             // 2. Invalidar o token
             Token.invalidarToken(token);
+            medicao.marcar(Fase.AUTENTICACAO);
 
-            return criarRespostaSucesso("usuario_logout", "Logout realizado com sucesso", null);
+            return Resposta.sucesso("usuario_logout", "Logout realizado com sucesso");
 
         } catch (Exception e) {
-            return criarRespostaErro("usuario_logout", "Erro ao processar logout");
+            return Resposta.erro("usuario_logout", "Erro ao processar logout");
         }
     }
 
-    private String processarLeituraUsuario(JsonNode node) {
+    private Resposta processarLeituraUsuario(Requisicao.UsuarioLer requisicao) {
         try {
-            String token = node.get("token").asText();
+            String token = requisicao.token();
 
             // 1. Validar se token é válido
-            String cpf = Token.validarToken(token,this.socket);
+            String cpf = validarToken(token);
             if (cpf == null) {
-                return criarRespostaErro("usuario_ler", "Token inválido ou expirado");
+                return Resposta.erro("usuario_ler", "Token inválido ou expirado");
             }
 
             // 2. Buscar dados do usuário no banco
@@ -242,134 +338,93 @@ public class ProcessadorMensagens {
             Usuario usuario = dao.buscarPorCpf(cpf);
 
             if (usuario == null) {
-                return criarRespostaErro("usuario_ler", "Usuário não encontrado");
+                return Resposta.erro("usuario_ler", "Usuário não encontrado");
             }
 
             // 3. extrair dados para enviar json
-            Map<String, Object> dadosUsuario = new HashMap<>();
-            dadosUsuario.put("nome", usuario.getNome());
-            dadosUsuario.put("cpf", usuario.getCpf());
-            dadosUsuario.put("saldo", usuario.getSaldo());
-
-            Map<String, Object> extras = new HashMap<>();
-            extras.put("usuario", dadosUsuario);
-
-            return criarRespostaSucesso("usuario_ler", "Dados do usuário recuperados com sucesso", extras);
+            return Resposta.sucesso("usuario_ler", "Dados do usuário recuperados com sucesso")
+                    .comUsuario(new Resposta.DadosUsuario(usuario.getNome(), usuario.getCpf(), usuario.getSaldoCentavos()));
 
         } catch (Exception e) {
-            return criarRespostaErro("usuario_ler", "Erro ao buscar dados do usuário");
+            return Resposta.erro("usuario_ler", "Erro ao buscar dados do usuário");
         }
     }
 
-    private String processarAtualizarUsuario(JsonNode node) {
+    private Resposta processarAtualizarUsuario(Requisicao.UsuarioAtualizar requisicao) {
         try {
-            String token = node.get("token").asText();
+            String token = requisicao.token();
 
             // 1. Validar se token é válido
-            String cpf = Token.validarToken(token,this.socket);
+            String cpf = validarToken(token);
             if (cpf == null) {
-                return criarRespostaErro("usuario_atualizar", "Token inválido ou expirado");
-            }
-
-            // 2. Extrair dados do usuário a serem atualizados
-            JsonNode usuarioNode = node.get("usuario");
-            if (usuarioNode == null || !usuarioNode.isObject()) {
-                return criarRespostaErro("usuario_atualizar", "Dados do usuário não fornecidos");
+                return Resposta.erro("usuario_atualizar", "Token inválido ou expirado");
             }
 
-            // 3. Validar se pelo menos um campo foi enviado
-            if (!usuarioNode.has("nome") && !usuarioNode.has("senha")) {
-                return criarRespostaErro("usuario_atualizar", "Pelo menos um campo deve ser fornecido para atualização");
-            }
-
-            // 4. Atualizar no banco de dados
+            // 2. Atualizar no banco de dados (a leitura já garantiu 'nome' e/ou 'senha')
             UsuarioDAO dao = new UsuarioDAO();
-            boolean sucesso = dao.atualizar(cpf, usuarioNode);
+            boolean sucesso = dao.atualizar(cpf, requisicao.nome(), requisicao.senha());
 
             if (sucesso) {
-                return criarRespostaSucesso("usuario_atualizar", "Usuário atualizado com sucesso", null);
+                return Resposta.sucesso("usuario_atualizar", "Usuário atualizado com sucesso");
             } else {
-                return criarRespostaErro("usuario_atualizar", "Erro ao atualizar usuário");
+                return Resposta.erro("usuario_atualizar", "Erro ao atualizar usuário");
             }
 
         } catch (Exception e) {
-            return criarRespostaErro("usuario_atualizar", "Erro ao processar dados do usuário");
+            return Resposta.erro("usuario_atualizar", "Erro ao processar dados do usuário");
         }
     }
 
-    private String processarDeposito(JsonNode node) {
+    private Resposta processarDeposito(Requisicao.Depositar requisicao) {
         try {
-            String token = node.get("token").asText();
+            String token = requisicao.token();
 
             // 1. Validar se token é válido
-            String cpf = Token.validarToken(token,this.socket);
+            String cpf = validarToken(token);
             if (cpf == null) {
-                return criarRespostaErro("depositar", "Token inválido ou expirado");
-            }
-
-            // 2. Extrair valor do depósito
-            if (!node.has("valor_enviado")) {
-                return criarRespostaErro("depositar", "Campo valor_enviado é obrigatório");
+                return Resposta.erro("depositar", "Token inválido ou expirado");
             }
 
-            double valorDeposito = node.get("valor_enviado").asDouble();
+            // 2. Extrair valor do depósito (centavos, já convertido pelo CodecProtocolo)
+            long valorDeposito = requisicao.valorCentavos();
 
-            // 3. Validar se valor é válido (positivo)
-            if (valorDeposito <= 0) {
-                return criarRespostaErro("depositar", "Valor do depósito deve ser positivo");
+            // 3. Validar se valor é válido (centavos inteiros, positivo e dentro do limite)
+            String erroValor = validarValor(valorDeposito, "Valor do depósito deve ser positivo");
+            if (erroValor != null) {
+                return Resposta.erro("depositar", erroValor);
             }
 
-            if (!temMaximoDuasCasasDecimais(valorDeposito)) {
-                return criarRespostaErro("depositar", "Valor deve ter no máximo 2 casas decimais");
+            // 4. Creditar e registrar o depósito numa única transação
+            TransferenciaDAO transferenciaDAO = new TransferenciaDAO();
+            TransferenciaDAO.Resultado resultado;
+            try (var _ = TRAVAS.travar(cpf)) {
+                resultado = transferenciaDAO.depositar(cpf, valorDeposito);
             }
-
-            // 4. Buscar saldo atual do usuário
-            UsuarioDAO dao = new UsuarioDAO();
-            Usuario usuario = dao.buscarPorCpf(cpf);
-
-            if (usuario == null) {
-                return criarRespostaErro("depositar", "Usuário não encontrado");
-            }
-
-            // 5. Executar depósito como transação atômica
-            try (Connection conn = BancoDados.getConnection()) {
-                conn.setAutoCommit(false); // Iniciar transação
-
-                // 5.1. Calcular e atualizar novo saldo
-                double novoSaldo = usuario.getSaldo() + valorDeposito;
-                if (!dao.atualizarSaldo(cpf, novoSaldo)) {
-                    conn.rollback();
-                    return criarRespostaErro("depositar", "Erro ao atualizar saldo");
-                }
-
-                // 5.2. Registrar depósito como transação (usuário envia para si mesmo)
-                TransacaoDAO transacaoDAO = new TransacaoDAO();
-                if (!transacaoDAO.criarTransacao(cpf, cpf, valorDeposito)) {
-                    conn.rollback();
-                    return criarRespostaErro("depositar", "Erro ao registrar depósito no histórico");
-                }
-
-                conn.commit(); // Confirmar transação
-                return criarRespostaSucesso("depositar", "Deposito realizado com sucesso", null);
-
-            } catch (Exception e) {
-                return criarRespostaErro("depositar", "Erro ao processar depósito");
+            switch (resultado) {
+                case SUCESSO:
+                    return Resposta.sucesso("depositar", "Deposito realizado com sucesso");
+                case ENVIADOR_NAO_ENCONTRADO:
+                    return Resposta.erro("depositar", "Usuário não encontrado");
+                case SALDO_MAXIMO_EXCEDIDO:
+                    return Resposta.erro("depositar", "Saldo ultrapassaria o limite permitido");
+                default:
+                    return Resposta.erro("depositar", "Erro ao processar depósito");
             }
 
         } catch (Exception e) {
-            return criarRespostaErro("depositar", "Erro ao processar depósito");
+            return Resposta.erro("depositar", "Erro ao processar depósito");
         }
     }
 
-    private String processarDeletarUsuario(JsonNode node) {
+    private Resposta processarDeletarUsuario(Requisicao.UsuarioDeletar requisicao) {
         try {
-            String token = node.get("token").asText();
+            String token = requisicao.token();
 
 
             // 1. Validar se token é válido
-            String cpf = Token.validarToken(token,this.socket);
+            String cpf = validarToken(token);
             if (cpf == null) {
-                return criarRespostaErro("usuario_deletar", "Token inválido ou expirado");
+                return Resposta.erro("usuario_deletar", "Token inválido ou expirado");
             }
 
             // 2. solicitar exclusao ao banco
@@ -377,150 +432,217 @@ public class ProcessadorMensagens {
             boolean sucesso = dao.deletar(cpf);
 
 
-            // 3. Retornar resultado
+            // 3. Retornar resultado; os tokens do usuário removido deixam de valer
             if (sucesso) {
-                return criarRespostaSucesso("usuario_deletar", "Usuário deletado com sucesso", null);
+                Token.invalidarTokensPorCpf(cpf);
+                return Resposta.sucesso("usuario_deletar", "Usuário deletado com sucesso");
             } else {
-                return criarRespostaErro("usuario_deletar", "Erro ao deletar usuário");
+                return Resposta.erro("usuario_deletar", "Erro ao deletar usuário");
             }
 
         } catch (Exception e) {
-            return criarRespostaErro("usuario_deletar", "Erro ao processar dados do usuário");
+            return Resposta.erro("usuario_deletar", "Erro ao processar dados do usuário");
         }
     }
 
-    private String processarTransacao(JsonNode node) {
+    private Resposta processarTransacao(Requisicao.TransacaoCriar requisicao) {
         try {
-            String token = node.get("token").asText();
+            String token = requisicao.token();
 
             // 1. Validar token
-            String cpfEnviador = Token.validarToken(token,this.socket);
+            String cpfEnviador = validarToken(token);
             if (cpfEnviador == null) {
-                return criarRespostaErro("transacao_criar", "Token inválido ou expirado");
+                return Resposta.erro("transacao_criar", "Token inválido ou expirado");
             }
 
             // 2. Extrair dados da transação
-            if (!node.has("valor") || !node.has("cpf_destino")) {
-                return criarRespostaErro("transacao_criar", "Campos valor e cpf_destino são obrigatórios");
-            }
-
-            double valor = node.get("valor").asDouble();
-            String cpfRecebedor = node.get("cpf_destino").asText();
+            long valor = requisicao.valorCentavos();
+            String cpfRecebedor = requisicao.cpfDestino();
 
             // 3. Validações de negócio
-            if (valor <= 0) {
-                return criarRespostaErro("transacao_criar", "Valor da transação deve ser positivo");
-            }
-
-            if (!temMaximoDuasCasasDecimais(valor)) {
-                return criarRespostaErro("transacao_criar", "Valor deve ter no máximo 2 casas decimais");
+            String erroValor = validarValor(valor, "Valor da transação deve ser positivo");
+            if (erroValor != null) {
+                return Resposta.erro("transacao_criar", erroValor);
             }
 
             if (cpfEnviador.equals(cpfRecebedor)) {
-                return criarRespostaErro("transacao_criar", "Não é possível enviar dinheiro para si mesmo");
+                return Resposta.erro("transacao_criar", "Não é possível enviar dinheiro para si mesmo");
+            }
+
+            // 4. Debitar, creditar e registrar numa única transação; o saldo é conferido pelo próprio UPDATE
+            TransferenciaDAO transferenciaDAO = new TransferenciaDAO();
+            TransferenciaDAO.Resultado resultado;
+            try (var _ = TRAVAS.travar(cpfEnviador, cpfRecebedor)) {
+                resultado = transferenciaDAO.transferir(cpfEnviador, cpfRecebedor, valor);
+            }
+            switch (resultado) {
+                case SUCESSO:
+                    return Resposta.sucesso("transacao_criar", "Transação realizada com sucesso");
+                case ENVIADOR_NAO_ENCONTRADO:
+                    return Resposta.erro("transacao_criar", "Usuário enviador não encontrado");
+                case SALDO_INSUFICIENTE:
+                    return Resposta.erro("transacao_criar", "Saldo insuficiente");
+                case RECEBEDOR_NAO_ENCONTRADO:
+                    return Resposta.erro("transacao_criar", "CPF de destino não encontrado");
+                case SALDO_MAXIMO_EXCEDIDO:
+                    return Resposta.erro("transacao_criar", "Saldo do destino ultrapassaria o limite permitido");
+                default:
+                    return Resposta.erro("transacao_criar", "Erro ao processar transação");
             }
 
-            UsuarioDAO usuarioDAO = new UsuarioDAO();
+        } catch (Exception e) {
+            return Resposta.erro("transacao_criar", "Erro ao processar dados da transação");
+        }
+    }
 
-            // 4. Verificar se remetente existe e tem saldo suficiente
-            Usuario enviador = usuarioDAO.buscarPorCpf(cpfEnviador);
-            if (enviador == null) {
-                return criarRespostaErro("transacao_criar", "Usuário enviador não encontrado");
-            }
+    // Pedido de extrato já validado; se 'respostaErro' não for null, é ela que deve ser enviada.
+    // 'limite' = 0 devolve o período inteiro; 'cursor' = null começa da transação mais recente.
+    private record PedidoExtrato(String cpf, String dataInicial, String dataFinal,
+                                 int limite, TransacaoDAO.Posicao cursor, Resposta respostaErro) {
+        static PedidoExtrato erro(Resposta resposta) {
+            return new PedidoExtrato(null, null, null, 0, null, resposta);
+        }
+    }
 
-            if (enviador.getSaldo() < valor) {
-                return criarRespostaErro("transacao_criar", "Saldo insuficiente");
+    // Caminho de processar(String), que devolve a resposta num texto: aqui ela fica inteira na
+    // memória. Os servidores usam responder(), que escreve página por página.
+    private Resultado processarLeituraTransacoes(Requisicao.TransacaoLer requisicao, Integer id) {
+        PedidoExtrato pedido = validarLeituraTransacoes(requisicao);
+        Resposta erro = pedido.respostaErro();
+        if (erro == null) {
+            StringWriter texto = new StringWriter();
+            try {
+                if (escreverExtrato(pedido, id, texto, new ReentrantLock()) >= 0) {
+                    StringBuffer linha = texto.getBuffer();
+                    linha.setLength(linha.length() - 1); // sem a quebra de linha
+                    return new Resultado("transacao_ler", true, cpfRequisicao, null, linha.toString());
+                }
+            } catch (IOException e) {
+                LOG.erro("Erro ao buscar transações: {}", e.getMessage());
             }
+            erro = Resposta.erro("transacao_ler", "Erro ao buscar transações");
+        }
+        return finalizar(erro.comId(id));
+    }
 
-            // 5. Verificar se destinatário existe
-            Usuario recebedor = usuarioDAO.buscarPorCpf(cpfRecebedor);
-            if (recebedor == null) {
-                return criarRespostaErro("transacao_criar", "CPF de destino não encontrado");
+    private PedidoExtrato validarLeituraTransacoes(Requisicao.TransacaoLer requisicao) {
+        try {
+            String token = requisicao.token();
+
+            // 1. Validar token
+            String cpf = validarToken(token);
+            if (cpf == null) {
+                return PedidoExtrato.erro(Resposta.erro("transacao_ler", "Token inválido ou expirado"));
             }
 
-            // 6. Executar transação (atomicidade)
-            try (Connection conn = BancoDados.getConnection()) {
-                conn.setAutoCommit(false); // Iniciar transação
+            // 2. Datas já vêm no formato ISO 8601 conferido na leitura
+            String dataInicial = requisicao.dataInicial();
+            String dataFinal = requisicao.dataFinal();
 
-                // 6.1. Debitar do enviador
-                double novoSaldoEnviador = enviador.getSaldo() - valor;
-                if (!usuarioDAO.atualizarSaldo(cpfEnviador, novoSaldoEnviador)) {
-                    conn.rollback();
-                    return criarRespostaErro("transacao_criar", "Erro ao debitar valor do enviador");
+            // 3. Paginação opcional: tamanho da página e cursor devolvido na página anterior
+            int limite = 0;
+            if (requisicao.limite() != null) {
+                limite = requisicao.limite();
+                if (limite < 1 || limite > LIMITE_MAXIMO_PAGINA) {
+                    return PedidoExtrato.erro(Resposta.erro("transacao_ler",
+                            "O campo 'limite' deve estar entre 1 e " + LIMITE_MAXIMO_PAGINA));
                 }
-
-                // 6.2. Creditar ao recebedor
-                double novoSaldoRecebedor = recebedor.getSaldo() + valor;
-                if (!usuarioDAO.atualizarSaldo(cpfRecebedor, novoSaldoRecebedor)) {
-                    conn.rollback();
-                    return criarRespostaErro("transacao_criar", "Erro ao creditar valor ao recebedor");
+            }
+            TransacaoDAO.Posicao cursor = null;
+            if (requisicao.cursor() != null) {
+                if (limite == 0) {
+                    return PedidoExtrato.erro(Resposta.erro("transacao_ler", "O campo 'cursor' exige o campo 'limite'"));
                 }
-
-                // 6.3. Registrar transação
-                TransacaoDAO transacaoDAO = new TransacaoDAO();
-                if (!transacaoDAO.criarTransacao(cpfEnviador, cpfRecebedor, valor)) {
-                    conn.rollback();
-                    return criarRespostaErro("transacao_criar", "Erro ao registrar transação");
+                try {
+                    cursor = TransacaoDAO.Posicao.decodificar(requisicao.cursor());
+                } catch (IllegalArgumentException e) {
+                    return PedidoExtrato.erro(Resposta.erro("transacao_ler", "Cursor inválido"));
                 }
+            }
 
-                conn.commit(); // Confirmar transação
-                return criarRespostaSucesso("transacao_criar", "Transação realizada com sucesso", null);
-
-            } catch (Exception e) {
-                return criarRespostaErro("transacao_criar", "Erro ao processar transação");
+            // 4. Validar formato das datas e período máximo de 31 dias. Com página, a resposta já
+            //    é limitada pelo 'limite' e o período pode ser maior.
+            if (!validarPeriodoDatas(dataInicial, dataFinal, limite == 0)) {
+                return PedidoExtrato.erro(Resposta.erro("transacao_ler", "Período inválido. Máximo de 31 dias permitido"));
             }
 
+            return new PedidoExtrato(cpf, dataInicial, dataFinal, limite, cursor, null);
+
         } catch (Exception e) {
-            return criarRespostaErro("transacao_criar", "Erro ao processar dados da transação");
+            return PedidoExtrato.erro(Resposta.erro("transacao_ler", "Erro ao buscar transações"));
         }
     }
 
-    private String processarLeituraTransacoes(JsonNode node) {
+    /**
+     * Escreve a resposta de sucesso de 'transacao_ler', terminada em '\n', percorrendo o período em
+     * páginas de até LIMITE_MAXIMO_PAGINA transações. Cada página é lida do banco para um buffer,
+     * com a conexão do pool devolvida antes de o buffer ir para a saída; a seguinte continua da
+     * última transação escrita. A trava é pega depois da primeira página e fica até o fim da linha.
+     *
+     * @return caracteres escritos (sem a quebra de linha), ou -1 se a primeira página falhou e nada
+     *         foi escrito (quem chama responde com erro)
+     * @throws IOException se a escrita falhar, ou se uma página depois da primeira falhar com a
+     *                     resposta já pela metade (a conexão deve ser encerrada)
+     */
+    private long escreverExtrato(PedidoExtrato pedido, Integer id, Writer saida, Lock trava) throws IOException {
+        CharArrayWriter pagina = new CharArrayWriter(8192);
+        EscritorExtrato escritor = EscritorExtrato.paraSaida(CodecProtocolo.getFabrica(), pagina, id);
+        TransacaoDAO.Posicao cursor = pedido.cursor();
+        long escritos = 0;
+        boolean travada = false;
         try {
-            String token = node.get("token").asText();
-
-            // 1. Validar token
-            String cpf = Token.validarToken(token,this.socket);
-            if (cpf == null) {
-                return criarRespostaErro("transacao_ler", "Token inválido ou expirado");
-            }
-
-            // 2. Validar campos obrigatórios
-            // Verificar se os campos existem e são strings
-            if (!node.has("data_inicial") || !node.has("data_final") ||
-                    node.get("data_inicial").isNull() || node.get("data_final").isNull()) {
-                return criarRespostaErro("transacao_ler", "Datas inicial e final são obrigatórias");
-            }
+            while (true) {
+                // Sem 'limite', o período inteiro em páginas; com ele, uma página só (limite <= LIMITE_MAXIMO_PAGINA)
+                int tamanho = pedido.limite() == 0 ? LIMITE_MAXIMO_PAGINA : pedido.limite() - escritor.getTotal();
+                boolean haMais;
+                try {
+                    haMais = transacaoDAO.percorrerTransacoesPorPeriodo(pedido.cpf(), pedido.dataInicial(),
+                            pedido.dataFinal(), cursor, tamanho, escritor);
+                } catch (IOException e) {
+                    throw e;
+                } catch (Exception e) {
+                    LOG.erro("Erro ao buscar transações: {}", e.getMessage());
+                    if (!travada) {
+                        return -1;
+                    }
+                    throw new IOException("Falha na consulta com a resposta de transacao_ler em andamento", e);
+                }
 
-            String dataInicial = node.get("data_inicial").asText();
-            String dataFinal = node.get("data_final").asText();
+                boolean ultima = !haMais || pedido.limite() > 0;
+                if (ultima) {
+                    String proximoCursor = haMais ? TransacaoDAO.Posicao.de(escritor.getUltima()).codificar() : null;
+                    escritor.concluir("Transações recuperadas com sucesso", proximoCursor);
+                } else {
+                    escritor.descarregar();
+                }
 
-// Verificar se as strings não estão vazias
-            if (dataInicial.trim().isEmpty() || dataFinal.trim().isEmpty()) {
-                return criarRespostaErro("transacao_ler", "Datas não podem estar vazias");
+                if (!travada) {
+                    medicao.marcar(Fase.BANCO);
+                    trava.lock();
+                    travada = true;
+                }
+                pagina.writeTo(saida);
+                escritos += pagina.size();
+                pagina.reset();
+                if (ultima) {
+                    break;
+                }
+                cursor = TransacaoDAO.Posicao.de(escritor.getUltima());
             }
-
-            // 3. Validar formato das datas e período máximo de 31 dias
-            if (!validarPeriodoDatas(dataInicial, dataFinal)) {
-                return criarRespostaErro("transacao_ler", "Período inválido. Máximo de 31 dias permitido");
+            saida.write('\n');
+            saida.flush();
+        } finally {
+            if (travada) {
+                trava.unlock();
             }
-
-            // 4. Buscar transações no banco
-            TransacaoDAO transacaoDAO = new TransacaoDAO();
-            List<Map<String, Object>> transacoes = transacaoDAO.buscarTransacoesPorPeriodo(cpf, dataInicial, dataFinal);
-
-            // 5. Preparar resposta
-            Map<String, Object> extras = new HashMap<>();
-            extras.put("transacoes", transacoes);
-
-            return criarRespostaSucesso("transacao_ler", "Transações recuperadas com sucesso", extras);
-
-        } catch (Exception e) {
-            return criarRespostaErro("transacao_ler", "Erro ao buscar transações");
         }
+        medicao.marcar(Fase.ESCRITA);
+        medicao.resultado("transacao_ler", true, null);
+        LOG.info("Servidor enviou: transacao_ler com {} transações ({} caracteres)", escritor.getTotal(), escritos);
+        return escritos;
     }
 
-    private boolean validarPeriodoDatas(String dataInicial, String dataFinal) {
+    private boolean validarPeriodoDatas(String dataInicial, String dataFinal, boolean limitarPeriodo) {
         try {
             // Usar formatter mais flexível para ISO 8601
             DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'");
@@ -540,21 +662,29 @@ public class ProcessadorMensagens {
             }
 
             // Verificar se o período não excede 31 dias
+            if (!limitarPeriodo) {
+                return true;
+            }
             long diasEntre = ChronoUnit.DAYS.between(inicio, fim);
             return diasEntre <= 31;
 
         } catch (Exception e) {
-            System.err.println("Erro ao validar datas: " + e.getMessage());
+            LOG.erro("Erro ao validar datas: {}", e.getMessage());
             return false;
         }
     }
 
-    private boolean temMaximoDuasCasasDecimais(double valor) {
-        try {
-            BigDecimal bd = BigDecimal.valueOf(valor);
-            return bd.scale() <= 2;
-        } catch (Exception e) {
-            return false;
+    // Mensagem de erro para o valor em centavos, ou null se ele pode ser usado
+    private static String validarValor(long centavos, String naoPositivo) {
+        if (centavos == Dinheiro.CASAS_DEMAIS) {
+            return "Valor deve ter no máximo 2 casas decimais";
+        }
+        if (centavos == Dinheiro.FORA_DO_LIMITE) {
+            return "Valor acima do limite permitido";
+        }
+        if (centavos <= 0) {
+            return naoPositivo;
         }
+        return null;
     }
 }
\ No newline at end of file
@@ -4,111 +4,121 @@ import validator.Validator;
 import database.BancoDados;
 import java.net.*;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.JsonNode;
 import validator.Validator;
 import java.util.HashMap;
+import log.Log;
+import metricas.MetricasServidor;
 //final
-public class Servidor extends Thread {
+public class Servidor implements Runnable {
+    private static final Log LOG = Log.de(Servidor.class);
 
     protected Socket clientSocket;
+    private final EstatisticasConexao estatisticas;
 
     public static void main(String[] args) throws IOException {
 
         // Inicializar banco de dados
         BancoDados.criarTabelas();
+        MetricasServidor.getInstancia().iniciarRelatorios();
         ServerSocket serverSocket = null;
 
         System.out.println("Qual porta o servidor deve usar? ");
         BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
         int porta = Integer.parseInt(br.readLine());
 
-        System.out.println("Servidor carregado na porta " + porta);
-        System.out.println("Aguardando conexao....\n ");
+        LOG.info("Servidor carregado na porta {}", porta);
+        LOG.info("Aguardando conexao....");
+
+        GerenciadorConexoes gerenciador = new GerenciadorConexoes();
 
         try {
-            serverSocket = new ServerSocket(porta);  // instancia o socket do servidor na porta especificada
-            System.out.println("Criado Socket de Conexao.\n");
+            // instancia o socket do servidor na porta especificada; a fila do accept segura os clientes quando não há vaga
+            serverSocket = new ServerSocket(porta, GerenciadorConexoes.backlogConfigurado());
+            LOG.info("Criado Socket de Conexao. Limite de conexoes simultaneas: {}", gerenciador.getMaxConexoes());
             try {
                 while (true) {
-                    new Servidor(serverSocket.accept());
-                    System.out.println("Accept ativado. Esperando por uma conexao...\n");
+                    Socket socket = gerenciador.aceitar(serverSocket);
+                    gerenciador.atender(socket, estatisticas -> new Servidor(socket, estatisticas));
+                    LOG.info("Accept ativado. {}", gerenciador.resumo());
                 }
-            } catch (IOException e) {
-                System.err.println("Accept falhou!");
+            } catch (IOException | InterruptedException e) {
+                LOG.erro("Accept falhou!");
+                gerenciador.encerrar();
                 System.exit(1);
             }
         } catch (IOException e) {
-            System.err.println("Nao foi possivel ouvir a porta " + porta);
+            LOG.erro("Nao foi possivel ouvir a porta {}", porta);
             System.exit(1);
         } finally {
             try {
                 serverSocket.close();
             } catch (IOException e) {
-                System.err.println("Nao foi possivel fechar a porta " + porta);
+                LOG.erro("Nao foi possivel fechar a porta {}", porta);
                 System.exit(1);
             }
         }
     }
 
     // Constructor
-    private Servidor(Socket clientSoc) {
+    private Servidor(Socket clientSoc, EstatisticasConexao estatisticas) {
         clientSocket = clientSoc;
-        start();
+        this.estatisticas = estatisticas;
     }
 
     /**
-     * Override java.language.Thread
+     * Loop de atendimento da conexão, executado em uma virtual thread pelo GerenciadorConexoes
      */
     @Override
     public void run() {
-        System.out.println("Nova thread de comunicacao iniciada.\n");
+        LOG.info("Nova thread de comunicacao iniciada.");
 
-        try (PrintWriter out = new PrintWriter(clientSocket.getOutputStream(), true);
-             BufferedReader in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()))) {
+        // Sem autoflush: responder() faz o flush ao fim de cada resposta
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(clientSocket.getOutputStream(), StandardCharsets.UTF_8));
+             BufferedReader in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream(), StandardCharsets.UTF_8))) {
 
             ProcessadorMensagens processador = new ProcessadorMensagens(clientSocket);
+            // Mensagens com 'id' podem rodar em paralelo, cada uma na sua virtual thread
+            PipelineConexao pipeline = new PipelineConexao(processador, out, Thread::startVirtualThread,
+                    estatisticas, this::pararLeitura, null);
             String inputLine;
 
-            while ((inputLine = in.readLine()) != null) {
-                try {
-
-                    System.out.println("Servidor recebeu: " + inputLine);
-                    // Validar mensagem do cliente
-                    //Validator.validateClient(inputLine);
-                    String resposta = processador.processarMensagem(inputLine);
-
-                    // Se resposta for null, encerrar conexão
-                    if (resposta == null) {
-                        System.out.println("Cliente enviou mensagem sem operacao. Encerrando conexão.");
-                        break;
-                    }
-
-
-
-                    System.out.println("Servidor enviou: " + resposta);
-                    out.println(resposta);
-
-                } catch (Exception e) {
-                    // Apenas erros críticos de comunicação
-                    System.err.println("Erro de comunicação: " + e.getMessage());
-                    String respostaErro = "{\"operacao\":\"erro\",\"status\":false,\"info\":\"Erro de comunicação\"}";
-                    out.println(respostaErro);
-                    break; // Encerra conexão
+            try {
+                while (!pipeline.isEncerrada() && (inputLine = in.readLine()) != null) {
+                    estatisticas.registrarRecebida(inputLine.length());
+                    LOG.info("Servidor recebeu: {}", inputLine);
+                    pipeline.receber(inputLine);
+                    pipeline.aguardarVaga();
                 }
-
+            } finally {
+                // As respostas pendentes saem antes de o socket ser fechado
+                pipeline.aguardarConclusao();
             }
 
         } catch (IOException e) {
-            System.err.println("Erro de comunicação: " + e.getMessage());
+            LOG.erro("Erro de comunicação: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } finally {
+            LOG.info("Conexao encerrada: {}", estatisticas.toString());
             try {
                 if (clientSocket != null && !clientSocket.isClosed()) {
                     clientSocket.close();
                 }
             } catch (IOException e) {
-                System.err.println("Erro ao fechar socket: " + e.getMessage());
+                LOG.erro("Erro ao fechar socket: {}", e.getMessage());
             }
         }
     }
+
+    // Uma mensagem pediu o fim da conexão: o readLine() em andamento devolve null
+    private void pararLeitura() {
+        try {
+            clientSocket.shutdownInput();
+        } catch (IOException e) {
+            LOG.erro("Erro ao fechar socket: {}", e.getMessage());
+        }
+    }
 }
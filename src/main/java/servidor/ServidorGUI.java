@@ -1,9 +1,9 @@
 package servidor;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.JsonNode;
-import autenticador.Token;
 import dao.UsuarioDAO;
+import log.DestinoAreaTexto;
+import log.Log;
+import metricas.MetricasServidor;
 import modelo.Usuario;
 
 import javax.swing.*;
@@ -11,18 +11,21 @@ import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.io.*;
 import java.net.*;
-import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 //final
 
 public class ServidorGUI extends JFrame {
+    private static final Log LOG = Log.de(ServidorGUI.class);
+
     // UI
     private final JTextField tfIP = new JTextField(18);
     private final JTextField tfPorta = new JTextField("12345", 6);
     private final JButton btnIniciar = new JButton("Iniciar Servidor");
     private final JButton btnParar = new JButton("Parar");
+    private final JButton btnMetricas = new JButton("Métricas");
+    private final JButton btnZerarMetricas = new JButton("Zerar métricas");
     private final JLabel lbStatus = new JLabel("Parado");
 
     private final DefaultTableModel clientesModel = new DefaultTableModel(new Object[]{"Nome", "CPF", "Token"}, 0) {
@@ -31,10 +34,12 @@ public class ServidorGUI extends JFrame {
     private final JTable tabelaClientes = new JTable(clientesModel);
 
     private final JTextArea areaLog = new JTextArea(10, 100);
+    // Junta as linhas e atualiza a área em lotes, sem um invokeLater por linha
+    private final DestinoAreaTexto saidaLog = new DestinoAreaTexto(areaLog);
 
     // Servidor
     private ServerThread serverThread;
-    private final List<ClientThread> clientes = new CopyOnWriteArrayList<>();
+    private final List<ClientHandler> clientes = new CopyOnWriteArrayList<>();
 
     public static void main(String[] args) {
         SwingUtilities.invokeLater(() -> {
@@ -56,6 +61,8 @@ public class ServidorGUI extends JFrame {
         areaLog.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
         areaLog.setBackground(Color.BLACK);
         areaLog.setForeground(new Color(0, 220, 0));
+        // O tráfego dos clientes chega pelo Log, já com senha e token mascarados
+        Log.adicionarDestino(saidaLog);
     }
 
     private void montarUI() {
@@ -72,6 +79,8 @@ public class ServidorGUI extends JFrame {
         gbc.gridx=5; topo.add(btnParar, gbc);
         gbc.gridx=6; topo.add(new JLabel("Status:"), gbc);
         gbc.gridx=7; topo.add(lbStatus, gbc);
+        gbc.gridx=8; topo.add(btnMetricas, gbc);
+        gbc.gridx=9; topo.add(btnZerarMetricas, gbc);
 
         JScrollPane spClientes = new JScrollPane(tabelaClientes);
         spClientes.setBorder(BorderFactory.createTitledBorder("Clientes Conectados"));
@@ -91,6 +100,11 @@ public class ServidorGUI extends JFrame {
     private void configurarAcoes() {
         btnIniciar.addActionListener(e -> iniciarServidor());
         btnParar.addActionListener(e -> pararServidor());
+        btnMetricas.addActionListener(e -> log("Métricas:\n" + MetricasServidor.getInstancia().retrato().formatar()));
+        btnZerarMetricas.addActionListener(e -> {
+            MetricasServidor.getInstancia().zerar();
+            log("Métricas zeradas.");
+        });
     }
 
     private void iniciarServidor() {
@@ -104,6 +118,7 @@ public class ServidorGUI extends JFrame {
 
             serverThread = new ServerThread(porta);
             serverThread.start();
+            MetricasServidor.getInstancia().iniciarRelatorios();
             btnIniciar.setEnabled(false);
             btnParar.setEnabled(true);
             lbStatus.setText("Rodando");
@@ -118,7 +133,7 @@ public class ServidorGUI extends JFrame {
             serverThread.shutdown();
             serverThread = null;
         }
-        for (ClientThread ct : clientes) ct.shutdown();
+        for (ClientHandler ch : clientes) ch.shutdown();
         clientes.clear();
         SwingUtilities.invokeLater(() -> {
             // Limpa a tabela
@@ -131,11 +146,7 @@ public class ServidorGUI extends JFrame {
     }
 
     private void log(String msg) {
-        SwingUtilities.invokeLater(() -> {
-            String ts = new SimpleDateFormat("HH:mm:ss").format(new Date());
-            areaLog.append("[" + ts + "] " + msg + "\n");
-            areaLog.setCaretPosition(areaLog.getDocument().getLength());
-        });
+        saidaLog.adicionar(msg);
     }
 
     private String detectarIPLocal() {
@@ -160,27 +171,33 @@ public class ServidorGUI extends JFrame {
         }
     }
 
-    // Thread que aceita conexões
+    // Thread que aceita conexões; cada cliente é atendido em uma virtual thread do gerenciador
     private class ServerThread extends Thread {
         private final ServerSocket serverSocket;
+        private final GerenciadorConexoes gerenciador = new GerenciadorConexoes();
         private volatile boolean rodando = true;
 
         ServerThread(int porta) throws IOException {
-            this.serverSocket = new ServerSocket(porta);
+            this.serverSocket = new ServerSocket(porta, GerenciadorConexoes.backlogConfigurado());
             setName("Servidor-Accept-Thread");
         }
 
         @Override public void run() {
-            log("Aguardando conexões...");
+            log("Aguardando conexões... (limite: " + gerenciador.getMaxConexoes() + ")");
             while (rodando) {
                 try {
-                    Socket s = serverSocket.accept();
-                    ClientThread ct = new ClientThread(s);
-                    clientes.add(ct);
-                    ct.start();
-                    log("Cliente conectado: " + s.getRemoteSocketAddress());
+                    Socket s = gerenciador.aceitar(serverSocket);
+                    gerenciador.atender(s, estatisticas -> {
+                        ClientHandler ch = new ClientHandler(s, estatisticas);
+                        clientes.add(ch);
+                        return ch;
+                    });
+                    log("Cliente conectado: " + s.getRemoteSocketAddress() + " | " + gerenciador.resumo());
                 } catch (SocketException se) {
                     break;
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
                 } catch (IOException e) {
                     if (rodando) log("Erro no accept: " + e.getMessage());
                 }
@@ -191,88 +208,70 @@ public class ServidorGUI extends JFrame {
         void shutdown() {
             rodando = false;
             try { serverSocket.close(); } catch (IOException ignored) {}
+            gerenciador.encerrar();
         }
     }
 
-    // Thread de cliente que processa mensagens
-    private class ClientThread extends Thread {
+    // Atendimento de um cliente, executado em uma virtual thread
+    private class ClientHandler implements Runnable {
         private final Socket socket;
+        private final EstatisticasConexao estatisticas;
         private volatile boolean rodando = true;
-        private final ObjectMapper mapper = new ObjectMapper();
         private String usuarioCpfAtual; // cpf do usuário logado nesta conexão
 
-        ClientThread(Socket socket) {
+        ClientHandler(Socket socket, EstatisticasConexao estatisticas) {
             this.socket = socket;
-            setName("Cliente-" + socket.getRemoteSocketAddress());
+            this.estatisticas = estatisticas;
         }
 
         @Override public void run() {
+            Thread.currentThread().setName("Cliente-" + socket.getRemoteSocketAddress());
             try (PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
                  BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
 
                 ProcessadorMensagens processador = new ProcessadorMensagens(socket);
+                String endereco = String.valueOf(socket.getRemoteSocketAddress());
                 String linha;
                 while (rodando && (linha = in.readLine()) != null) {
                     try {
-                        log("Servidor recebeu de " + socket.getRemoteSocketAddress() + ": " + linha);
-
-                        // Parse da requisição para extrair operacao e dados importantes
-                        String operacaoReq = null;
-                        String cpfReq = null;
-                        String tokenReq = null;
-                        try {
-                            JsonNode nodeReq = mapper.readTree(linha);
-                            if (nodeReq != null && nodeReq.has("operacao")) {
-                                operacaoReq = nodeReq.get("operacao").asText();
-                                if ("usuario_login".equals(operacaoReq)) {
-                                    if (nodeReq.has("cpf")) cpfReq = nodeReq.get("cpf").asText();
-                                }
-                                if (nodeReq.has("token")) tokenReq = nodeReq.get("token").asText();
-                            }
-                        } catch (Exception ignore) {}
-
-                        // Para logout/deletar, tentar resolver CPF a partir do token ANTES do processamento (token ainda válido)
-                        String cpfDoTokenAntes = null;
-                        if (("usuario_logout".equals(operacaoReq) || "usuario_deletar".equals(operacaoReq)) && tokenReq != null) {
-                            try { cpfDoTokenAntes = Token.validarToken(tokenReq, socket); } catch (Exception ignore) {}
-                        }
+                        estatisticas.registrarRecebida(linha.length());
+                        LOG.info("Servidor recebeu de {}: {}", endereco, linha);
 
-                        String resp = processador.processarMensagem(linha);
+                        // O processador já devolve a operação, o status, o CPF e o token: nada é lido de novo aqui
+                        ProcessadorMensagens.Resultado resultado = processador.processar(linha);
+                        String resp = resultado.texto();
                         if (resp == null) {
                             log("Mensagem sem operação. Encerrando cliente " + socket.getRemoteSocketAddress());
                             break;
                         }
 
                         out.println(resp);
-                        log("Servidor enviou a " + socket.getRemoteSocketAddress() + ": " + resp);
+                        estatisticas.registrarEnviada(resp.length());
+                        LOG.info("Servidor enviou a {}: {}", endereco, resp);
 
                         // Tratar efeitos colaterais para a lista de usuários logados
-                        try {
-                            JsonNode nodeResp = mapper.readTree(resp);
-                            String operacao = nodeResp.path("operacao").asText("");
-                            boolean status = nodeResp.path("status").asBoolean(false);
-
-                            if (status && "usuario_login".equals(operacao) && cpfReq != null) {
-                                String token = nodeResp.path("token").asText("");
-                                String nome = obterNomePorCpf(cpfReq);
-                                usuarioCpfAtual = cpfReq;
-                                upsertUsuarioLogado(cpfReq, nome, token);
-                            }
+                        String operacao = resultado.operacao();
+                        if (resultado.status() && "usuario_login".equals(operacao) && resultado.cpf() != null) {
+                            String nome = obterNomePorCpf(resultado.cpf());
+                            usuarioCpfAtual = resultado.cpf();
+                            upsertUsuarioLogado(resultado.cpf(), nome, resultado.token());
+                        }
 
-                            if (status && ("usuario_logout".equals(operacao) || "usuario_deletar".equals(operacao))) {
-                                String cpfRem = cpfDoTokenAntes;
-                                if (cpfRem == null && usuarioCpfAtual != null) cpfRem = usuarioCpfAtual;
-                                if (cpfRem != null) {
-                                    removerUsuarioLogadoPorCpf(cpfRem);
-                                    if (cpfRem.equals(usuarioCpfAtual)) {
-                                        usuarioCpfAtual = null;
-                                    }
+                        if (resultado.status() && ("usuario_logout".equals(operacao) || "usuario_deletar".equals(operacao))) {
+                            // CPF do token, resolvido pelo processador antes de invalidá-lo
+                            String cpfRem = resultado.cpf();
+                            if (cpfRem == null && usuarioCpfAtual != null) cpfRem = usuarioCpfAtual;
+                            if (cpfRem != null) {
+                                removerUsuarioLogadoPorCpf(cpfRem);
+                                if (cpfRem.equals(usuarioCpfAtual)) {
+                                    usuarioCpfAtual = null;
                                 }
                             }
-                        } catch (Exception ignore) {}
+                        }
 
                     } catch (Exception ex) {
                         log("Erro de comunicação com " + socket.getRemoteSocketAddress() + ": " + ex.getMessage());
+                        estatisticas.registrarErro();
                         String respostaErro = "{\"operacao\":\"erro\",\"status\":false,\"info\":\"Erro de comunicação\"}";
                         out.println(respostaErro);
                         break;
@@ -285,7 +284,7 @@ public class ServidorGUI extends JFrame {
                 // Na desconexão, remover usuário logado desta conexão, se houver
                 if (usuarioCpfAtual != null) removerUsuarioLogadoPorCpf(usuarioCpfAtual);
                 clientes.remove(this);
-                log("Cliente desconectado: " + socket.getRemoteSocketAddress());
+                log("Cliente desconectado: " + estatisticas);
             }
         }
 
@@ -0,0 +1,270 @@
+package servidor;
+
+import database.BancoDados;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import log.Log;
+import metricas.MetricasServidor;
+
+/**
+ * Alternativa ao Servidor baseada em java.nio: poucos loops de eventos (um Selector cada)
+ * atendem todos os sockets, e as mensagens completas são processadas por um pool de workers.
+ * Um cliente ocioso não ocupa thread, apenas o objeto da conexão.
+ *
+ * Configuração por propriedades de sistema:
+ * -Dservidor.nio.loops (padrão: metade dos processadores),
+ * -Dservidor.nio.workers (padrão: dobro dos processadores),
+ * -Dservidor.maxConexoes=10000 e -Dservidor.backlog=1024 (os mesmos do Servidor)
+ */
+public class ServidorNIO {
+    private static final Log LOG = Log.de(ServidorNIO.class);
+    private static final int TAMANHO_BUFFER_LEITURA = 64 * 1024;
+    // De quanto em quanto tempo cada loop confere as conexões com escrita parada
+    private static final long INTERVALO_VERIFICACAO_MS = 1000;
+
+    private final LoopEventos[] loops;
+    private final ExecutorService workers;
+    private final int maxConexoes;
+    private final AtomicInteger conexoesAtivas = new AtomicInteger();
+    private final AtomicInteger proximoLoop = new AtomicInteger();
+    private ServerSocketChannel canalServidor;
+    private SelectionKey chaveAccept;
+
+    public static void main(String[] args) throws IOException {
+
+        // Inicializar banco de dados
+        BancoDados.criarTabelas();
+        MetricasServidor.getInstancia().iniciarRelatorios();
+
+        System.out.println("Qual porta o servidor deve usar? ");
+        BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
+        int porta = Integer.parseInt(br.readLine());
+
+        int processadores = Runtime.getRuntime().availableProcessors();
+        ServidorNIO servidor = new ServidorNIO(
+                Integer.getInteger("servidor.nio.loops", Math.max(1, processadores / 2)),
+                Integer.getInteger("servidor.nio.workers", processadores * 2),
+                Integer.getInteger("servidor.maxConexoes", 10000));
+
+        try {
+            servidor.iniciar(porta);
+            LOG.info("Servidor NIO carregado na porta {} com {} loop(s) de eventos", porta, servidor.loops.length);
+            LOG.info("Aguardando conexao....");
+        } catch (IOException e) {
+            LOG.erro("Nao foi possivel ouvir a porta {}", porta);
+            System.exit(1);
+        }
+    }
+
+    public ServidorNIO(int numeroLoops, int numeroWorkers, int maxConexoes) throws IOException {
+        this.loops = new LoopEventos[numeroLoops];
+        for (int i = 0; i < numeroLoops; i++) {
+            loops[i] = new LoopEventos(i);
+        }
+        this.workers = Executors.newFixedThreadPool(numeroWorkers, r -> {
+            Thread t = new Thread(r, "Servidor-NIO-Worker");
+            t.setDaemon(true);
+            return t;
+        });
+        this.maxConexoes = maxConexoes;
+    }
+
+    public void iniciar(int porta) throws IOException {
+        canalServidor = ServerSocketChannel.open();
+        canalServidor.bind(new InetSocketAddress(porta), GerenciadorConexoes.backlogConfigurado());
+        canalServidor.configureBlocking(false);
+
+        // O primeiro loop também cuida do accept
+        LoopEventos loopAccept = loops[0];
+        loopAccept.executar(() -> {
+            try {
+                chaveAccept = canalServidor.register(loopAccept.selector, SelectionKey.OP_ACCEPT);
+            } catch (IOException e) {
+                LOG.erro("Falha ao registrar accept: {}", e.getMessage());
+            }
+        });
+        for (LoopEventos loop : loops) {
+            loop.start();
+        }
+    }
+
+    public void parar() {
+        for (LoopEventos loop : loops) {
+            loop.parar();
+        }
+        workers.shutdownNow();
+        try {
+            if (canalServidor != null) canalServidor.close();
+        } catch (IOException ignored) {}
+    }
+
+    public int getConexoesAtivas() {
+        return conexoesAtivas.get();
+    }
+
+    // Roda na thread do primeiro loop
+    private void aceitar() throws IOException {
+        SocketChannel canal;
+        while ((canal = canalServidor.accept()) != null) {
+            canal.configureBlocking(false);
+            canal.socket().setTcpNoDelay(true);
+            LoopEventos loop = loops[Math.floorMod(proximoLoop.getAndIncrement(), loops.length)];
+            ConexaoNIO conexao = new ConexaoNIO(canal, loop, workers);
+            loop.registrar(conexao, canal);
+            LOG.info("Accept ativado. Conexões ativas: {}", conexoesAtivas.incrementAndGet());
+            MetricasServidor.getInstancia().conexaoAberta();
+
+            if (conexoesAtivas.get() >= maxConexoes) {
+                // Sem vagas: deixa os próximos clientes esperando no backlog
+                chaveAccept.interestOps(0);
+                break;
+            }
+        }
+    }
+
+    private void liberarVaga() {
+        MetricasServidor.getInstancia().conexaoEncerrada();
+        if (conexoesAtivas.decrementAndGet() < maxConexoes) {
+            loops[0].executar(() -> {
+                if (chaveAccept != null && chaveAccept.isValid()) {
+                    chaveAccept.interestOps(SelectionKey.OP_ACCEPT);
+                }
+            });
+        }
+    }
+
+    /**
+     * Thread com um Selector. Outras threads pedem trabalho pela fila de tarefas,
+     * que é esvaziada a cada volta do select.
+     */
+    class LoopEventos extends Thread {
+        private final Selector selector;
+        private final ByteBuffer bufferLeitura = ByteBuffer.allocateDirect(TAMANHO_BUFFER_LEITURA);
+        private final Queue<Runnable> tarefas = new ConcurrentLinkedQueue<>();
+        private volatile boolean rodando = true;
+
+        LoopEventos(int indice) throws IOException {
+            super("Servidor-NIO-Loop-" + indice);
+            this.selector = Selector.open();
+        }
+
+        void executar(Runnable tarefa) {
+            tarefas.add(tarefa);
+            selector.wakeup();
+        }
+
+        void registrar(ConexaoNIO conexao, SocketChannel canal) {
+            executar(() -> {
+                try {
+                    SelectionKey chave = canal.register(selector, SelectionKey.OP_READ, conexao);
+                    conexao.setChave(chave);
+                } catch (IOException e) {
+                    LOG.erro("Falha ao registrar conexão: {}", e.getMessage());
+                    conexao.fechar();
+                }
+            });
+        }
+
+        /**
+         * Pedido de um worker: há respostas para escrever ou a backpressure mudou.
+         */
+        void solicitarAtualizacao(ConexaoNIO conexao) {
+            executar(() -> {
+                try {
+                    conexao.escreverPendentes();
+                } catch (IOException e) {
+                    conexao.fechar();
+                }
+            });
+        }
+
+        void conexaoEncerrada(ConexaoNIO conexao) {
+            liberarVaga();
+        }
+
+        void parar() {
+            rodando = false;
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            long proximaVerificacao = System.nanoTime() + INTERVALO_VERIFICACAO_MS * 1_000_000;
+            while (rodando) {
+                try {
+                    selector.select(INTERVALO_VERIFICACAO_MS);
+                    Runnable tarefa;
+                    while ((tarefa = tarefas.poll()) != null) {
+                        tarefa.run();
+                    }
+                    for (SelectionKey chave : selector.selectedKeys()) {
+                        tratar(chave);
+                    }
+                    selector.selectedKeys().clear();
+                    long agora = System.nanoTime();
+                    if (agora - proximaVerificacao >= 0) {
+                        proximaVerificacao = agora + INTERVALO_VERIFICACAO_MS * 1_000_000;
+                        verificarEscritas(agora);
+                    }
+                } catch (IOException e) {
+                    LOG.erro("Erro no loop de eventos: {}", e.getMessage());
+                }
+            }
+            for (SelectionKey chave : selector.keys()) {
+                if (chave.attachment() instanceof ConexaoNIO conexao) {
+                    conexao.fechar();
+                }
+            }
+            try { selector.close(); } catch (IOException ignored) {}
+        }
+
+        private void verificarEscritas(long agora) {
+            for (SelectionKey chave : selector.keys()) {
+                if (chave.isValid() && chave.attachment() instanceof ConexaoNIO conexao) {
+                    conexao.verificarEscrita(agora);
+                }
+            }
+        }
+
+        private void tratar(SelectionKey chave) {
+            if (!chave.isValid()) {
+                return;
+            }
+            if (chave.isAcceptable()) {
+                try {
+                    aceitar();
+                } catch (IOException e) {
+                    LOG.erro("Accept falhou: {}", e.getMessage());
+                }
+                return;
+            }
+            ConexaoNIO conexao = (ConexaoNIO) chave.attachment();
+            try {
+                if (chave.isReadable()) {
+                    conexao.lerDisponivel(bufferLeitura);
+                }
+                if (chave.isValid() && chave.isWritable()) {
+                    conexao.escreverPendentes();
+                } else if (chave.isValid()) {
+                    conexao.atualizarInteresse();
+                }
+            } catch (IOException e) {
+                LOG.erro("Erro de comunicação: {}", e.getMessage());
+                conexao.fechar();
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package servidor;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Travas em memória por conta, distribuídas em listras pelo hash do CPF.
+ *
+ * Operações na mesma conta são serializadas aqui, antes de chegar ao SQLite, e operações em
+ * contas diferentes seguem em paralelo (salvo quando dois CPFs caem na mesma listra).
+ * Para duas contas as listras são sempre travadas em ordem crescente de índice, então duas
+ * transferências cruzadas (A→B e B→A) não entram em deadlock.
+ */
+public class TravasContas {
+
+    /** Libera as travas adquiridas; use com try-with-resources. */
+    public interface Trava extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final ReentrantLock[] listras;
+    private final int mascara;
+
+    // Métricas de contenção
+    private final LongAdder aquisicoes = new LongAdder();
+    private final LongAdder contencoes = new LongAdder();
+    private final LongAdder esperaTotalNanos = new LongAdder();
+
+    public TravasContas() {
+        this(Integer.getInteger("servidor.travas.listras", 1024));
+    }
+
+    public TravasContas(int numeroListras) {
+        if (numeroListras <= 0) {
+            throw new IllegalArgumentException("O número de listras deve ser positivo.");
+        }
+        // Potência de dois para trocar o módulo por uma máscara
+        int tamanho = 1;
+        while (tamanho < numeroListras) {
+            tamanho <<= 1;
+        }
+        this.listras = new ReentrantLock[tamanho];
+        for (int i = 0; i < tamanho; i++) {
+            listras[i] = new ReentrantLock();
+        }
+        this.mascara = tamanho - 1;
+    }
+
+    private int indice(String cpf) {
+        int h = cpf.hashCode();
+        return (h ^ (h >>> 16)) & mascara;
+    }
+
+    /**
+     * Trava a conta de um CPF (depósitos e outras operações de uma conta só).
+     */
+    public Trava travar(String cpf) {
+        ReentrantLock trava = listras[indice(cpf)];
+        adquirir(trava);
+        return trava::unlock;
+    }
+
+    /**
+     * Trava as contas dos dois CPFs de uma transferência, sempre na mesma ordem.
+     */
+    public Trava travar(String cpfA, String cpfB) {
+        int a = indice(cpfA);
+        int b = indice(cpfB);
+        if (a == b) {
+            return travar(cpfA);
+        }
+        ReentrantLock primeira = listras[Math.min(a, b)];
+        ReentrantLock segunda = listras[Math.max(a, b)];
+        adquirir(primeira);
+        try {
+            adquirir(segunda);
+        } catch (RuntimeException e) {
+            primeira.unlock();
+            throw e;
+        }
+        return () -> {
+            segunda.unlock();
+            primeira.unlock();
+        };
+    }
+
+    private void adquirir(ReentrantLock trava) {
+        aquisicoes.increment();
+        if (trava.tryLock()) {
+            return;
+        }
+        contencoes.increment();
+        long inicio = System.nanoTime();
+        trava.lock();
+        esperaTotalNanos.add(System.nanoTime() - inicio);
+    }
+
+    public int getNumeroListras() { return listras.length; }
+    public long getAquisicoes() { return aquisicoes.sum(); }
+    public long getContencoes() { return contencoes.sum(); }
+
+    public double getEsperaMediaMs() {
+        long c = contencoes.sum();
+        return c == 0 ? 0.0 : esperaTotalNanos.sum() / 1_000_000.0 / c;
+    }
+
+    public String resumo() {
+        return String.format("listras=%d aquisicoes=%d contencoes=%d espera media na contencao=%.3fms",
+                getNumeroListras(), getAquisicoes(), getContencoes(), getEsperaMediaMs());
+    }
+}
@@ -0,0 +1,36 @@
+package validator;
+
+/**
+ * Visão dos campos de uma mensagem para as regras do EsquemaOperacao, independente de como ela foi
+ * lida (árvore JsonNode no Validator, slots no CodecProtocolo).
+ */
+public interface CamposMensagem {
+
+    enum Tipo {
+        AUSENTE, NULO, TEXTO,
+        INTEIRO, // número que cabe num int (JsonNode.isInt)
+        NUMERO, BOOLEANO, OBJETO, ARRAY
+    }
+
+    Tipo tipo(String campo);
+
+    /**
+     * Texto do campo; só chamado quando o tipo é TEXTO.
+     */
+    String texto(String campo);
+
+    /**
+     * Valor do campo; só chamado quando o tipo é INTEIRO.
+     */
+    int inteiro(String campo);
+
+    /**
+     * Campos do objeto aninhado; só chamado quando o tipo é OBJETO.
+     */
+    CamposMensagem objeto(String campo);
+
+    /**
+     * A primeira chave, na ordem da mensagem, que o esquema não aceita; null se todas são aceitas.
+     */
+    String chaveInesperada(EsquemaOperacao esquema);
+}
@@ -0,0 +1,52 @@
+package validator;
+
+import java.util.Set;
+
+/**
+ * Esquema de uma operação, montado uma única vez a partir de EXPECTED_CLIENT_KEYS,
+ * EXPECTED_SERVER_KEYS e das regras de campo do Validator. Validar uma mensagem é só percorrer
+ * as regras já prontas, sem consultar mapas.
+ */
+public final class EsquemaOperacao {
+    private final RulesEnum operacao;
+    private final Set<String> chavesCliente;
+    private final Set<String> chavesServidor;
+    private final RegraCampo[] regras;
+
+    EsquemaOperacao(RulesEnum operacao, Set<String> chavesCliente, Set<String> chavesServidor, RegraCampo[] regras) {
+        this.operacao = operacao;
+        this.chavesCliente = Set.copyOf(chavesCliente);
+        this.chavesServidor = Set.copyOf(chavesServidor);
+        this.regras = regras;
+    }
+
+    public RulesEnum getOperacao() {
+        return operacao;
+    }
+
+    public boolean aceitaChaveCliente(String chave) {
+        return chavesCliente.contains(chave);
+    }
+
+    /**
+     * Chaves da resposta de sucesso; a de erro só tem 'operacao', 'status' e 'info'.
+     */
+    public Set<String> getChavesServidor() {
+        return chavesServidor;
+    }
+
+    /**
+     * Confere chaves extras e depois cada campo, na ordem das regras.
+     *
+     * @throws IllegalArgumentException com a mensagem de erro do protocolo
+     */
+    public void validarCliente(CamposMensagem campos) {
+        String inesperada = campos.chaveInesperada(this);
+        if (inesperada != null) {
+            throw Validator.unexpectedKeyError(inesperada, operacao);
+        }
+        for (RegraCampo regra : regras) {
+            regra.validar(campos);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package validator;
+
+/**
+ * Regra de um campo da mensagem do Cliente: presença, tipo e tamanho ou formato.
+ * As regras de uma operação são montadas uma vez, no EsquemaOperacao, e só aplicadas por mensagem.
+ */
+final class RegraCampo {
+
+    enum Formato { PRESENTE, TEXTO, CPF, DATA, NUMERO, INTEIRO_POSITIVO, OBJETO }
+
+    private final String campo;
+    private final Formato formato;
+    private final int minimo;
+    private final int maximo;
+    private final boolean opcional;
+    private final String mensagemObjetoVazio;
+    private final RegraCampo[] subcampos;
+
+    private RegraCampo(String campo, Formato formato, int minimo, int maximo, boolean opcional,
+                       String mensagemObjetoVazio, RegraCampo[] subcampos) {
+        this.campo = campo;
+        this.formato = formato;
+        this.minimo = minimo;
+        this.maximo = maximo;
+        this.opcional = opcional;
+        this.mensagemObjetoVazio = mensagemObjetoVazio;
+        this.subcampos = subcampos;
+    }
+
+    static RegraCampo presente(String campo) {
+        return new RegraCampo(campo, Formato.PRESENTE, 0, 0, false, null, null);
+    }
+
+    static RegraCampo texto(String campo, int minimo, int maximo) {
+        return new RegraCampo(campo, Formato.TEXTO, minimo, maximo, false, null, null);
+    }
+
+    static RegraCampo cpf(String campo) {
+        return new RegraCampo(campo, Formato.CPF, 0, 0, false, null, null);
+    }
+
+    static RegraCampo data(String campo) {
+        return new RegraCampo(campo, Formato.DATA, 0, 0, false, null, null);
+    }
+
+    static RegraCampo numero(String campo) {
+        return new RegraCampo(campo, Formato.NUMERO, 0, 0, false, null, null);
+    }
+
+    static RegraCampo inteiroPositivo(String campo) {
+        return new RegraCampo(campo, Formato.INTEIRO_POSITIVO, 0, 0, false, null, null);
+    }
+
+    /**
+     * Objeto cujos subcampos são todos opcionais, mas pelo menos um precisa vir.
+     */
+    static RegraCampo objeto(String campo, String mensagemObjetoVazio, RegraCampo... subcampos) {
+        return new RegraCampo(campo, Formato.OBJETO, 0, 0, false, mensagemObjetoVazio, subcampos);
+    }
+
+    /**
+     * A mesma regra, mas o campo pode faltar (se vier, tem de ser válido; null não é aceito).
+     */
+    RegraCampo opcional() {
+        return new RegraCampo(campo, formato, minimo, maximo, true, mensagemObjetoVazio, subcampos);
+    }
+
+    void validar(CamposMensagem campos) {
+        CamposMensagem.Tipo tipo = campos.tipo(campo);
+        if (tipo == CamposMensagem.Tipo.AUSENTE && opcional) {
+            return;
+        }
+        if (tipo == CamposMensagem.Tipo.AUSENTE || tipo == CamposMensagem.Tipo.NULO) {
+            throw Validator.requiredFieldError(campo);
+        }
+
+        switch (formato) {
+            case PRESENTE:
+                break;
+            case TEXTO:
+                Validator.validateStringLength(campo, texto(campos, tipo), minimo, maximo);
+                break;
+            case CPF:
+                Validator.validateCpfFormat(campo, texto(campos, tipo));
+                break;
+            case DATA:
+                Validator.validateDateFormat(campo, texto(campos, tipo));
+                break;
+            case NUMERO:
+                if (tipo != CamposMensagem.Tipo.INTEIRO && tipo != CamposMensagem.Tipo.NUMERO) {
+                    throw Validator.typeError(campo, Validator.TYPE_NUMBER);
+                }
+                break;
+            case INTEIRO_POSITIVO:
+                if (tipo != CamposMensagem.Tipo.INTEIRO) {
+                    throw Validator.typeError(campo, Validator.TYPE_INT);
+                }
+                if (campos.inteiro(campo) < 1) {
+                    throw new IllegalArgumentException("O campo '" + campo + "' deve ser maior que zero.");
+                }
+                break;
+            case OBJETO:
+                validarObjeto(campos, tipo);
+                break;
+        }
+    }
+
+    private String texto(CamposMensagem campos, CamposMensagem.Tipo tipo) {
+        if (tipo != CamposMensagem.Tipo.TEXTO) {
+            throw Validator.typeError(campo, Validator.TYPE_STRING);
+        }
+        return campos.texto(campo);
+    }
+
+    private void validarObjeto(CamposMensagem campos, CamposMensagem.Tipo tipo) {
+        if (tipo != CamposMensagem.Tipo.OBJETO) {
+            throw Validator.objectError(campo);
+        }
+        CamposMensagem objeto = campos.objeto(campo);
+        boolean algum = false;
+        for (RegraCampo subcampo : subcampos) {
+            algum |= objeto.tipo(subcampo.campo) != CamposMensagem.Tipo.AUSENTE;
+        }
+        if (!algum) {
+            throw new IllegalArgumentException(mensagemObjetoVazio);
+        }
+        for (RegraCampo subcampo : subcampos) {
+            subcampo.validar(objeto);
+        }
+    }
+}
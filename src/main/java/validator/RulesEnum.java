@@ -3,32 +3,97 @@ import java.util.Objects;
 
 public enum RulesEnum {
     // Conectar
-    CONECTAR("conectar"),
+    CONECTAR("conectar", true),
     // Login e Logoff
     USUARIO_LOGIN("usuario_login"),
     USUARIO_LOGOUT("usuario_logout"),
     // CRUD do usuário
     USUARIO_CRIAR("usuario_criar"),
-    USUARIO_LER("usuario_ler"), // É literalmente o envio de um 'getUsuario()' para o servidor, porém os parâmetros influenciam
+    USUARIO_LER("usuario_ler", true), // É literalmente o envio de um 'getUsuario()' para o servidor, porém os parâmetros influenciam
     USUARIO_ATUALIZAR("usuario_atualizar"),
     USUARIO_DELETAR("usuario_deletar"),
     // CR(UD) da transação
     TRANSACAO_CRIAR("transacao_criar"),
-    TRANSACAO_LER("transacao_ler"), // É literalmente o envio de um 'getTransacao()' para o servidor, porém os parâmetros influenciam
+    TRANSACAO_LER("transacao_ler", true), // É literalmente o envio de um 'getTransacao()' para o servidor, porém os parâmetros influenciam
     DEPOSITAR("depositar"),
     // Erro no servidor
     ERRO_SERVIDOR("erro_servidor");
 
     RulesEnum(String rule) {
+        this(rule, false);
+    }
+
+    RulesEnum(String rule, boolean leitura) {
         this.rule = rule;
+        this.leitura = leitura;
     }
 
     private final String rule;
+    private final boolean leitura;
 
     public String getValue() {
         return rule;
     }
 
+    /**
+     * Operações que não alteram contas nem sessões. Com 'id', o servidor pode executá-las em
+     * paralelo com outras leituras da mesma conexão.
+     */
+    public boolean isLeitura() {
+        return leitura;
+    }
+
+    // Busca por hash perfeito: cada operação tem uma posição só dela na tabela, então resolver um
+    // nome é calcular o hash, ler uma posição e fazer uma única comparação.
+    private static final RulesEnum[] TABELA;
+    private static final int MULTIPLICADOR;
+    private static final int DESLOCAMENTO;
+
+    static {
+        // Procura um multiplicador sem colisões; se a tabela estiver apertada demais, dobra o tamanho
+        int bits = 5;
+        int multiplicador = 0x9E3779B1;
+        int tentativas = 0;
+        while (!semColisao(bits, multiplicador)) {
+            multiplicador += 2;
+            if (++tentativas == 4096) {
+                bits++;
+                tentativas = 0;
+            }
+        }
+        MULTIPLICADOR = multiplicador;
+        DESLOCAMENTO = 32 - bits;
+        TABELA = new RulesEnum[1 << bits];
+        for (RulesEnum valor : values()) {
+            TABELA[posicao(valor.rule)] = valor;
+        }
+    }
+
+    private static boolean semColisao(int bits, int multiplicador) {
+        boolean[] ocupadas = new boolean[1 << bits];
+        for (RulesEnum valor : values()) {
+            int posicao = (hash(valor.rule) * multiplicador) >>> (32 - bits);
+            if (ocupadas[posicao]) {
+                return false;
+            }
+            ocupadas[posicao] = true;
+        }
+        return true;
+    }
+
+    private static int posicao(String valor) {
+        return (hash(valor) * MULTIPLICADOR) >>> DESLOCAMENTO;
+    }
+
+    // Hash que ignora maiúsculas/minúsculas pelo mesmo critério do equalsIgnoreCase
+    private static int hash(String valor) {
+        int h = 0;
+        for (int i = 0; i < valor.length(); i++) {
+            h = 31 * h + Character.toLowerCase(Character.toUpperCase(valor.charAt(i)));
+        }
+        return h;
+    }
+
     /**
      * Busca a constante do enum correspondente ao valor da String.
      * Este método é case-insensitive (ignora maiúsculas e minúsculas).
@@ -40,13 +105,25 @@ public enum RulesEnum {
     public static RulesEnum getEnum(String rule) throws Exception{
         Objects.requireNonNull(rule, "O valor da regra não pode ser nulo.");
 
-        for (RulesEnum enumConstant : RulesEnum.values()) {
-            if (enumConstant.getValue().equalsIgnoreCase(rule)) {
-                return enumConstant;
-            }
+        RulesEnum regra = buscar(rule);
+        if (regra != null) {
+            return regra;
         }
 
         throw new IllegalArgumentException("Nenhuma regra encontrada para o valor: " + rule);
     }
 
-}   
\ No newline at end of file
+    /**
+     * Como getEnum, mas sem exceção: para quem só quer saber se a operação existe.
+     *
+     * @return a constante correspondente, ou null se 'rule' é null ou não é uma operação conhecida
+     */
+    public static RulesEnum buscar(String rule) {
+        if (rule == null) {
+            return null;
+        }
+        RulesEnum candidata = TABELA[posicao(rule)];
+        return candidata != null && candidata.rule.equalsIgnoreCase(rule) ? candidata : null;
+    }
+
+}
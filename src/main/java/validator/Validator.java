@@ -2,6 +2,8 @@ package validator;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import protocolo.Resposta;
+import java.util.Arrays;
 import java.util.Set;
 import java.util.Map;
 import java.util.HashMap;
@@ -19,6 +21,12 @@ public class Validator {
 
     private static final Map<RulesEnum, Set<String>> EXPECTED_CLIENT_KEYS = new HashMap<>();
     private static final Map<RulesEnum, Set<String>> EXPECTED_SERVER_KEYS = new HashMap<>();
+    private static final Set<String> SERVER_BASE_KEYS = Set.of("operacao", "status", "info", "id");
+    // Esquema compilado de cada operação, indexado pelo ordinal do RulesEnum
+    private static final EsquemaOperacao[] ESQUEMAS = new EsquemaOperacao[RulesEnum.values().length];
+    private static final RegraCampo OPERACAO_RULE = RegraCampo.texto("operacao", 3, 200);
+    // 'id' opcional em qualquer mensagem do Cliente; volta igual na resposta (ver README, seção 3.5)
+    private static final RegraCampo ID_RULE = RegraCampo.inteiroPositivo("id").opcional();
 
     // Bloco estático para inicializar os mapas
     static {
@@ -31,85 +39,118 @@ public class Validator {
         EXPECTED_CLIENT_KEYS.put(RulesEnum.USUARIO_DELETAR, Set.of("operacao", "token"));
         EXPECTED_CLIENT_KEYS.put(RulesEnum.USUARIO_LOGOUT, Set.of("operacao", "token"));
         EXPECTED_CLIENT_KEYS.put(RulesEnum.TRANSACAO_CRIAR, Set.of("operacao", "token", "valor", "cpf_destino"));
-        EXPECTED_CLIENT_KEYS.put(RulesEnum.TRANSACAO_LER, Set.of("operacao", "token", "data_inicial", "data_final"));
+        EXPECTED_CLIENT_KEYS.put(RulesEnum.TRANSACAO_LER, Set.of("operacao", "token", "data_inicial", "data_final", "limite", "cursor"));
         EXPECTED_CLIENT_KEYS.put(RulesEnum.DEPOSITAR, Set.of("operacao", "token", "valor_enviado"));
         EXPECTED_CLIENT_KEYS.put(RulesEnum.ERRO_SERVIDOR, Set.of("operacao", "operacao_enviada", "info"));
 
         // Servidor -> Cliente (Respostas)
-        // Chaves base para todas as respostas
-        Set<String> serverBaseKeys = Set.of("operacao", "status", "info");
         // Respostas de sucesso que contêm dados adicionais
-        EXPECTED_SERVER_KEYS.put(RulesEnum.USUARIO_LOGIN, Set.of("operacao", "status", "info", "token"));
-        EXPECTED_SERVER_KEYS.put(RulesEnum.USUARIO_LER, Set.of("operacao", "status", "info", "usuario"));
-        EXPECTED_SERVER_KEYS.put(RulesEnum.TRANSACAO_LER, Set.of("operacao", "status", "info", "transacoes"));
+        EXPECTED_SERVER_KEYS.put(RulesEnum.USUARIO_LOGIN, Set.of("operacao", "status", "info", "id", "token"));
+        EXPECTED_SERVER_KEYS.put(RulesEnum.USUARIO_LER, Set.of("operacao", "status", "info", "id", "usuario"));
+        EXPECTED_SERVER_KEYS.put(RulesEnum.TRANSACAO_LER, Set.of("operacao", "status", "info", "id", "transacoes", "proximo_cursor"));
 
         // Para as demais operações, a resposta (sucesso ou falha) só contém as chaves base.
         for (RulesEnum rule : RulesEnum.values()) {
             EXPECTED_CLIENT_KEYS.computeIfAbsent(rule, k -> new HashSet<>()); // Garante que não haja nulls
+            // Toda mensagem do Cliente pode levar o 'id'
+            Set<String> comId = new HashSet<>(EXPECTED_CLIENT_KEYS.get(rule));
+            comId.add("id");
+            EXPECTED_CLIENT_KEYS.put(rule, comId);
             // Se a regra já não tiver chaves específicas de servidor, usa as chaves base
-            EXPECTED_SERVER_KEYS.computeIfAbsent(rule, k -> serverBaseKeys);
+            EXPECTED_SERVER_KEYS.computeIfAbsent(rule, k -> SERVER_BASE_KEYS);
         }
-    }
-
-    /**
-     * Valida uma mensagem JSON enviada do Cliente para o Servidor.
-     *
-     * @param jsonString A mensagem JSON como uma String.
-     * @throws Exception se o JSON for inválido ou não seguir o protocolo.
-     */
-    public static void validateClient(String jsonString) throws Exception {
-        JsonNode rootNode = parseJson(jsonString);
 
-        // Valida a presença e o tipo do campo 'operacao'
-        JsonNode operacaoNode = getRequiredField(rootNode, "operacao");
-        validateStringLength(rootNode, "operacao", 3, 200); // Operacao também é uma string
-
-        // Converte a string da operação para o nosso Enum
-        // NOTA: Certifique-se de que o RulesEnum.java contenha a operação DEPOSITAR.
-        RulesEnum operacao = RulesEnum.getEnum(operacaoNode.asText());
+        // Compila o esquema de cada operação: as tabelas acima mais as regras de campo
+        for (RulesEnum rule : RulesEnum.values()) {
+            ESQUEMAS[rule.ordinal()] = new EsquemaOperacao(rule, EXPECTED_CLIENT_KEYS.get(rule),
+                    EXPECTED_SERVER_KEYS.get(rule), clientRules(rule));
+        }
+    }
 
-        checkExtraKeys(rootNode, operacao, EXPECTED_CLIENT_KEYS);
+    // Regras de cada operação, na ordem em que os campos são conferidos; o 'id' fica por último
+    private static RegraCampo[] clientRules(RulesEnum operacao) {
+        RegraCampo[] regras = operationRules(operacao);
+        RegraCampo[] comId = Arrays.copyOf(regras, regras.length + 1);
+        comId[regras.length] = ID_RULE;
+        return comId;
+    }
 
-        // Chama o método de validação específico para a operação
+    private static RegraCampo[] operationRules(RulesEnum operacao) {
         switch (operacao) {
-            case CONECTAR:
-                break;
             case USUARIO_LOGIN:
-                validateUsuarioLoginClient(rootNode);
-                break;
+                return new RegraCampo[]{RegraCampo.cpf("cpf"), RegraCampo.texto("senha", 6, 120)};
             case USUARIO_LOGOUT:
-                validateUsuarioLogoutClient(rootNode);
-                break;
-            case USUARIO_CRIAR:
-                validateUsuarioCriarClient(rootNode);
-                break;
             case USUARIO_LER:
-                validateUsuarioLerClient(rootNode);
-                break;
-            case USUARIO_ATUALIZAR:
-                validateUsuarioAtualizarClient(rootNode);
-                break;
             case USUARIO_DELETAR:
-                validateUsuarioDeletarClient(rootNode);
-                break;
+                return new RegraCampo[]{RegraCampo.texto("token", 3, 200)};
+            case USUARIO_CRIAR:
+                return new RegraCampo[]{RegraCampo.texto("nome", 6, 120), RegraCampo.cpf("cpf"),
+                        RegraCampo.texto("senha", 6, 120)};
+            case USUARIO_ATUALIZAR:
+                return new RegraCampo[]{RegraCampo.texto("token", 3, 200),
+                        RegraCampo.objeto("usuario",
+                                "O objeto 'usuario' para atualização deve conter pelo menos o campo 'nome' ou 'senha'.",
+                                RegraCampo.texto("nome", 6, 120).opcional(), RegraCampo.texto("senha", 6, 120).opcional())};
             case TRANSACAO_CRIAR:
-                validateTransacaoCriarClient(rootNode);
-                break;
+                return new RegraCampo[]{RegraCampo.texto("token", 3, 200), RegraCampo.cpf("cpf_destino"),
+                        RegraCampo.numero("valor")};
             case TRANSACAO_LER:
-                validateTransacaoLerClient(rootNode);
-                break;
+                // Paginação (opcional): tamanho da página e cursor opaco devolvido em 'proximo_cursor'
+                return new RegraCampo[]{RegraCampo.texto("token", 3, 200), RegraCampo.data("data_inicial"),
+                        RegraCampo.data("data_final"), RegraCampo.inteiroPositivo("limite").opcional(),
+                        RegraCampo.texto("cursor", 3, 200).opcional()};
             case DEPOSITAR:
-                validateDepositarClient(rootNode);
-                break;
+                return new RegraCampo[]{RegraCampo.texto("token", 3, 200), RegraCampo.numero("valor_enviado")};
             case ERRO_SERVIDOR:
-                validateErroServidorClient(rootNode);
-                break;
-            // =======================================================
+                return new RegraCampo[]{RegraCampo.presente("operacao"), RegraCampo.presente("operacao_enviada"),
+                        RegraCampo.presente("info")};
             default:
-                throw new IllegalArgumentException("Operação do cliente desconhecida ou não suportada: " + operacao);
+                return new RegraCampo[0];
         }
     }
 
+    /**
+     * Esquema já compilado da operação.
+     */
+    public static EsquemaOperacao esquema(RulesEnum operacao) {
+        return ESQUEMAS[operacao.ordinal()];
+    }
+
+    /**
+     * Valida uma mensagem JSON enviada do Cliente para o Servidor.
+     *
+     * @param jsonString A mensagem JSON como uma String.
+     * @throws Exception se o JSON for inválido ou não seguir o protocolo.
+     */
+    public static void validateClient(String jsonString) throws Exception {
+        validateClient(parseJson(jsonString));
+    }
+
+    /**
+     * Valida uma mensagem do Cliente já lida como árvore, sem fazer o parse de novo.
+     *
+     * @param rootNode A mensagem JSON já convertida.
+     * @return A operação da mensagem.
+     * @throws Exception se a mensagem não seguir o protocolo.
+     */
+    public static RulesEnum validateClient(JsonNode rootNode) throws Exception {
+        CamposMensagem campos = new CamposNo(rootNode);
+        RulesEnum operacao = validateOperacao(campos);
+        esquema(operacao).validarCliente(campos);
+        return operacao;
+    }
+
+    /**
+     * Valida o campo 'operacao' (presença, tipo e tamanho) e resolve a operação.
+     *
+     * @throws Exception se o campo for inválido ou a operação não existir.
+     */
+    public static RulesEnum validateOperacao(CamposMensagem campos) throws Exception {
+        OPERACAO_RULE.validar(campos);
+        return RulesEnum.getEnum(campos.texto("operacao"));
+    }
+
+
     /**
      * Valida uma mensagem JSON enviada do Servidor para o Cliente.
      *
@@ -117,8 +158,16 @@ public class Validator {
      * @throws Exception se o JSON for inválido ou não seguir o protocolo.
      */
     public static void validateServer(String jsonString) throws Exception {
-        JsonNode rootNode = parseJson(jsonString);
+        validateServer(parseJson(jsonString));
+    }
 
+    /**
+     * Valida uma resposta do Servidor ainda como árvore, antes de ser serializada.
+     *
+     * @param rootNode A resposta JSON.
+     * @throws Exception se a resposta não seguir o protocolo.
+     */
+    public static void validateServer(JsonNode rootNode) throws Exception {
         // Toda resposta do servidor deve ter 'operacao', 'status' e 'info'
         JsonNode operacaoNode = getRequiredField(rootNode, "operacao");
         validateStringLength(rootNode, "operacao", 3, 200);
@@ -130,19 +179,15 @@ public class Validator {
 
         validateStringLength(rootNode, "info", 3, 200);
 
-        RulesEnum operacao = RulesEnum.getEnum(operacaoNode.asText());
-
-        Set<String> expectedKeysForThisResponse;
-        if (statusNode.asBoolean()) {
-            expectedKeysForThisResponse = EXPECTED_SERVER_KEYS.get(operacao);
-            if (expectedKeysForThisResponse == null) { // Segurança extra
-                throw new IllegalArgumentException("Definição de chaves não encontrada para operação de sucesso: " + operacao);
-            }
-        } else {
-            expectedKeysForThisResponse = Set.of("operacao", "status", "info");
+        if (rootNode.has("id") && !rootNode.get("id").isInt()) {
+            throw typeError("id", TYPE_INT);
         }
 
-        checkExtraKeys(rootNode, operacao, Map.of(operacao, expectedKeysForThisResponse));
+        RulesEnum operacao = RulesEnum.getEnum(operacaoNode.asText());
+
+        Set<String> expectedKeysForThisResponse = statusNode.asBoolean()
+                ? esquema(operacao).getChavesServidor() : SERVER_BASE_KEYS;
+        checkExtraKeys(rootNode, operacao, expectedKeysForThisResponse);
 
         // Chama a validação específica apenas se o status for true (sucesso)
         if (statusNode.asBoolean()) {
@@ -164,71 +209,36 @@ public class Validator {
         }
     }
 
-    // ===================================================================================
-    // MÉTODOS DE VALIDAÇÃO PRIVADOS (CLIENTE -> SERVIDOR)
-    // ===================================================================================
-
-    private static void validateUsuarioLoginClient(JsonNode node) {
-        validateCpfFormat(node, "cpf");
-        validateStringLength(node, "senha", 6, 120);
-    }
-
-    private static void validateUsuarioLogoutClient(JsonNode node) {
-        validateStringLength(node, "token", 3, 200);
-    }
-
-    private static void validateUsuarioCriarClient(JsonNode node) {
-        validateStringLength(node, "nome", 6, 120);
-        validateCpfFormat(node, "cpf");
-        validateStringLength(node, "senha", 6, 120);
-    }
-
-    private static void validateUsuarioLerClient(JsonNode node) {
-        validateStringLength(node, "token", 3, 200);
-    }
-
-    private static void validateUsuarioAtualizarClient(JsonNode node) {
-        validateStringLength(node, "token", 3, 200);
-        JsonNode usuarioNode = getRequiredObject(node, "usuario");
-
-        if (!usuarioNode.has("nome") && !usuarioNode.has("senha")) {
-            throw new IllegalArgumentException("O objeto 'usuario' para atualização deve conter pelo menos o campo 'nome' ou 'senha'.");
-        }
-        if (usuarioNode.has("nome")){
-            validateStringLength(usuarioNode, "nome", 6, 120);
+    /**
+     * Valida uma resposta tipada antes de ela ser serializada.
+     *
+     * @throws Exception se a resposta não seguir o protocolo.
+     */
+    public static void validateServer(Resposta resposta) throws Exception {
+        validateStringLength("operacao", resposta.operacao(), 3, 200);
+        validateStringLength("info", resposta.info(), 3, 200);
+
+        RulesEnum operacao = RulesEnum.getEnum(resposta.operacao());
+        Set<String> expected = resposta.status() ? esquema(operacao).getChavesServidor() : SERVER_BASE_KEYS;
+        if (resposta.token() != null && !expected.contains("token")) {
+            throw unexpectedKeyError("token", operacao);
         }
-        if (usuarioNode.has("senha")){
-            validateStringLength(usuarioNode, "senha", 6, 120);
+        if (resposta.usuario() != null && !expected.contains("usuario")) {
+            throw unexpectedKeyError("usuario", operacao);
         }
-    }
-
-    private static void validateUsuarioDeletarClient(JsonNode node) {
-        validateStringLength(node, "token", 3, 200);
-    }
-
-    private static void validateTransacaoCriarClient(JsonNode node) {
-        validateStringLength(node, "token", 3, 200);
-        validateCpfFormat(node, "cpf_destino");
-        getRequiredNumber(node, "valor");
-    }
-
-    private static void validateTransacaoLerClient(JsonNode node) {
-        validateStringLength(node, "token", 3, 200);
-        validateDateFormat(node, "data_inicial");
-        validateDateFormat(node, "data_final");
-    }
 
-    private static void validateDepositarClient(JsonNode node) {
-        validateStringLength(node, "token", 3, 200);
-        getRequiredNumber(node, "valor_enviado");
-    }
-
-    private static void validateErroServidorClient(JsonNode node) {
-        getRequiredField(node, "operacao");
-        getRequiredField(node, "operacao_enviada");
-        getRequiredField(node, "info");
+        if (resposta.status() && operacao == RulesEnum.USUARIO_LOGIN) {
+            validateStringLength("token", resposta.token(), 3, 200);
+        }
+        if (resposta.status() && operacao == RulesEnum.USUARIO_LER) {
+            Resposta.DadosUsuario usuario = resposta.usuario();
+            if (usuario == null) {
+                throw requiredFieldError("usuario");
+            }
+            validateCpfFormat("cpf", usuario.cpf());
+            validateStringLength("nome", usuario.nome(), 6, 120);
+        }
     }
-    // =======================================================
 
     // ===================================================================================
     // MÉTODOS DE VALIDAÇÃO PRIVADOS (SERVIDOR -> CLIENTE)
@@ -265,6 +275,9 @@ public class Validator {
             validateDateFormat(transacao, "criado_em");
             validateDateFormat(transacao, "atualizado_em");
         }
+        if (node.has("proximo_cursor")) {
+            validateStringLength(node, "proximo_cursor", 3, 200);
+        }
     }
 
     // ===================================================================================
@@ -282,25 +295,61 @@ public class Validator {
         }
     }
 
+    // Tipos usados nas mensagens de typeError()
+    public static final String TYPE_STRING = "String";
+    public static final String TYPE_NUMBER = "numérico (int, double, etc)";
+    public static final String TYPE_INT = "int";
+
+    public static IllegalArgumentException requiredFieldError(String fieldName) {
+        return new IllegalArgumentException("O campo obrigatório '" + fieldName + "' não foi encontrado ou é nulo.");
+    }
+
+    public static IllegalArgumentException typeError(String fieldName, String type) {
+        return new IllegalArgumentException("O campo '" + fieldName + "' deve ser do tipo " + type + ".");
+    }
+
+    public static IllegalArgumentException objectError(String fieldName) {
+        return new IllegalArgumentException("O campo '" + fieldName + "' deve ser um objeto JSON (ex: { ... }).");
+    }
+
+    public static IllegalArgumentException unexpectedKeyError(String key, RulesEnum operacao) {
+        return new IllegalArgumentException("Chave inesperada '" + key + "' encontrada para a operação '" + operacao + "'.");
+    }
+
     private static JsonNode getRequiredField(JsonNode parentNode, String fieldName) {
         if (parentNode.has(fieldName) && !parentNode.get(fieldName).isNull()) {
             return parentNode.get(fieldName);
         }
-        throw new IllegalArgumentException("O campo obrigatório '" + fieldName + "' não foi encontrado ou é nulo.");
+        throw requiredFieldError(fieldName);
     }
 
     private static void validateStringLength(JsonNode parentNode, String fieldName, int minLength, int maxLength) {
         JsonNode field = getRequiredField(parentNode, fieldName);
         if (!field.isTextual()) {
-            throw new IllegalArgumentException("O campo '" + fieldName + "' deve ser do tipo String.");
+            throw typeError(fieldName, TYPE_STRING);
         }
+        validateStringLength(fieldName, field.asText(), minLength, maxLength);
+    }
 
-        String value = field.asText().trim();
+    public static void validateStringLength(String fieldName, String rawValue, int minLength, int maxLength) {
+        if (rawValue == null) {
+            throw requiredFieldError(fieldName);
+        }
+        // Tamanho de rawValue.trim(), sem criar a String
+        int inicio = 0;
+        int fim = rawValue.length();
+        while (inicio < fim && rawValue.charAt(inicio) <= ' ') {
+            inicio++;
+        }
+        while (fim > inicio && rawValue.charAt(fim - 1) <= ' ') {
+            fim--;
+        }
+        int length = fim - inicio;
 
-        if (value.length() < minLength) {
+        if (length < minLength) {
             throw new IllegalArgumentException("O campo '" + fieldName + "' deve ter no mínimo " + minLength + " caracteres.");
         }
-        if (value.length() > maxLength) {
+        if (length > maxLength) {
             throw new IllegalArgumentException("O campo '" + fieldName + "' deve ter no máximo " + maxLength + " caracteres.");
         }
     }
@@ -308,11 +357,16 @@ public class Validator {
     private static void validateCpfFormat(JsonNode parentNode, String fieldName) {
         JsonNode field = getRequiredField(parentNode, fieldName);
         if (!field.isTextual()) {
-            throw new IllegalArgumentException("O campo '" + fieldName + "' deve ser do tipo String.");
+            throw typeError(fieldName, TYPE_STRING);
         }
-        String cpf = field.asText();
-        String cpfRegex = "\\d{3}\\.\\d{3}\\.\\d{3}-\\d{2}";
-        if (!cpf.matches(cpfRegex)) {
+        validateCpfFormat(fieldName, field.asText());
+    }
+
+    public static void validateCpfFormat(String fieldName, String cpf) {
+        if (cpf == null) {
+            throw requiredFieldError(fieldName);
+        }
+        if (!matchesMask(cpf, CPF_MASK)) {
             throw new IllegalArgumentException("O campo '" + fieldName + "' deve estar no formato '000.000.000-00'.");
         }
     }
@@ -320,33 +374,56 @@ public class Validator {
     private static void validateDateFormat(JsonNode parentNode, String fieldName) {
         JsonNode field = getRequiredField(parentNode, fieldName);
         if (!field.isTextual()) {
-            throw new IllegalArgumentException("O campo '" + fieldName + "' deve ser do tipo String.");
+            throw typeError(fieldName, TYPE_STRING);
         }
-        String date = field.asText();
-        String isoRegex = "\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}Z";
-        if (!date.matches(isoRegex)) {
+        validateDateFormat(fieldName, field.asText());
+    }
+
+    public static void validateDateFormat(String fieldName, String date) {
+        if (date == null) {
+            throw requiredFieldError(fieldName);
+        }
+        if (!matchesMask(date, DATE_MASK)) {
             throw new IllegalArgumentException("O campo '" + fieldName + "' deve estar no formato ISO 8601 UTC 'yyyy-MM-dd'T'HH:mm:ss'Z'.");
         }
     }
 
+    // '#' é um dígito ASCII (como o \\d da regex); os outros caracteres devem aparecer iguais
+    private static final String CPF_MASK = "###.###.###-##";
+    private static final String DATE_MASK = "####-##-##T##:##:##Z";
+
+    private static boolean matchesMask(String value, String mask) {
+        if (value.length() != mask.length()) {
+            return false;
+        }
+        for (int i = 0; i < mask.length(); i++) {
+            char c = value.charAt(i);
+            char m = mask.charAt(i);
+            if (m == '#' ? c < '0' || c > '9' : c != m) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private static void getRequiredNumber(JsonNode parentNode, String fieldName) {
         JsonNode field = getRequiredField(parentNode, fieldName);
         if (!field.isNumber()) {
-            throw new IllegalArgumentException("O campo '" + fieldName + "' deve ser do tipo numérico (int, double, etc).");
+            throw typeError(fieldName, TYPE_NUMBER);
         }
     }
 
     private static void getRequiredInt(JsonNode parentNode, String fieldName) {
         JsonNode field = getRequiredField(parentNode, fieldName);
         if (!field.isInt()) {
-            throw new IllegalArgumentException("O campo '" + fieldName + "' deve ser do tipo int.");
+            throw typeError(fieldName, TYPE_INT);
         }
     }
 
     private static JsonNode getRequiredObject(JsonNode parentNode, String fieldName) {
         JsonNode field = getRequiredField(parentNode, fieldName);
         if (!field.isObject()) {
-            throw new IllegalArgumentException("O campo '" + fieldName + "' deve ser um objeto JSON (ex: { ... }).");
+            throw objectError(fieldName);
         }
         return field;
     }
@@ -359,18 +436,63 @@ public class Validator {
         return field;
     }
 
-    private static void checkExtraKeys(JsonNode node, RulesEnum operacao, Map<RulesEnum, Set<String>> expectedKeysMap) {
-        Set<String> expected = expectedKeysMap.get(operacao);
-        if (expected == null) {
-            throw new IllegalArgumentException("Definição de chaves esperadas não encontrada para a operação: " + operacao);
-        }
-
+    private static void checkExtraKeys(JsonNode node, RulesEnum operacao, Set<String> expected) {
         Iterator<String> actualKeys = node.fieldNames();
         while (actualKeys.hasNext()) {
             String key = actualKeys.next();
             if (!expected.contains(key)) {
-                throw new IllegalArgumentException("Chave inesperada '" + key + "' encontrada para a operação '" + operacao + "'.");
+                throw unexpectedKeyError(key, operacao);
+            }
+        }
+    }
+
+    // Campos de uma mensagem lida como árvore
+    private static class CamposNo implements CamposMensagem {
+        private final JsonNode node;
+
+        CamposNo(JsonNode node) {
+            this.node = node;
+        }
+
+        @Override
+        public Tipo tipo(String campo) {
+            JsonNode field = node.get(campo);
+            if (field == null) return Tipo.AUSENTE;
+            if (field.isNull()) return Tipo.NULO;
+            if (field.isTextual()) return Tipo.TEXTO;
+            if (field.isInt()) return Tipo.INTEIRO;
+            if (field.isNumber()) return Tipo.NUMERO;
+            if (field.isBoolean()) return Tipo.BOOLEANO;
+            if (field.isObject()) return Tipo.OBJETO;
+            if (field.isArray()) return Tipo.ARRAY;
+            return Tipo.NULO;
+        }
+
+        @Override
+        public String texto(String campo) {
+            return node.get(campo).asText();
+        }
+
+        @Override
+        public int inteiro(String campo) {
+            return node.get(campo).asInt();
+        }
+
+        @Override
+        public CamposMensagem objeto(String campo) {
+            return new CamposNo(node.get(campo));
+        }
+
+        @Override
+        public String chaveInesperada(EsquemaOperacao esquema) {
+            Iterator<String> keys = node.fieldNames();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                if (!esquema.aceitaChaveCliente(key)) {
+                    return key;
+                }
             }
+            return null;
         }
     }
-}
\ No newline at end of file
+}